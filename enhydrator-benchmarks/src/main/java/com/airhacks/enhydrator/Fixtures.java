@@ -0,0 +1,135 @@
+package com.airhacks.enhydrator;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.transform.Memory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic input data shared by all benchmarks.
+ *
+ * @author airhacks.com
+ */
+public class Fixtures {
+
+    public static final String DELIMITER = ";";
+    public static final String DERBY_DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+    public static final String[] LANGUAGES = {"java", "c", "cobol", "esoteric", "javascript", "python"};
+
+    public static String header() {
+        return "id;language;rank;active;score;description";
+    }
+
+    public static String line(int i) {
+        return i + DELIMITER + LANGUAGES[i % LANGUAGES.length] + DELIMITER + (i % 100)
+                + DELIMITER + (i % 2 == 0) + DELIMITER + (i * 0.5d) + DELIMITER + "\"duke;" + i + "\"";
+    }
+
+    public static Path csvFile(int numberOfRows) {
+        try {
+            Path file = Files.createTempFile("enhydrator-benchmark", ".csv");
+            file.toFile().deleteOnExit();
+            List<String> lines = new ArrayList<>(numberOfRows + 1);
+            lines.add(header());
+            for (int i = 0; i < numberOfRows; i++) {
+                lines.add(line(i));
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            return file;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create benchmark input", ex);
+        }
+    }
+
+    public static Row row(int i) {
+        Row row = plainRow(i);
+        row.useMemory(new Memory());
+        return row;
+    }
+
+    /**
+     * @return the row without a Memory, as stored by sinks
+     */
+    public static Row plainRow(int i) {
+        Row row = new Row();
+        row.addColumn(0, "id", i);
+        row.addColumn(1, "language", LANGUAGES[i % LANGUAGES.length]);
+        row.addColumn(2, "rank", String.valueOf(i % 100));
+        row.addColumn(3, "active", i % 2 == 0);
+        row.addColumn(4, "score", i * 0.5d);
+        row.addColumn(5, "description", "duke " + i);
+        return row;
+    }
+
+    public static List<Row> rows(int numberOfRows) {
+        List<Row> rows = new ArrayList<>(numberOfRows);
+        for (int i = 0; i < numberOfRows; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    public static String derbyUrl(String database) {
+        return "jdbc:derby:memory:" + database + ";create=true";
+    }
+
+    public static Connection derby(String database) {
+        try {
+            Class.forName(DERBY_DRIVER);
+            return DriverManager.getConnection(derbyUrl(database));
+        } catch (ClassNotFoundException | SQLException ex) {
+            throw new IllegalStateException("Cannot connect to: " + database, ex);
+        }
+    }
+
+    public static void createLanguageTable(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table
+                    + " (id INTEGER, language VARCHAR(64), rank INTEGER, active BOOLEAN, score DOUBLE, description VARCHAR(255))");
+        }
+    }
+
+    public static void insertLanguages(Connection connection, String table, int numberOfRows) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " VALUES (?,?,?,?,?,?)")) {
+            for (int i = 0; i < numberOfRows; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, LANGUAGES[i % LANGUAGES.length]);
+                insert.setInt(3, i % 100);
+                insert.setBoolean(4, i % 2 == 0);
+                insert.setDouble(5, i * 0.5d);
+                insert.setString(6, "duke " + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+}
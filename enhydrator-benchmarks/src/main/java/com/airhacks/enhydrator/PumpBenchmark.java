@@ -0,0 +1,91 @@
+package com.airhacks.enhydrator;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.CSVFileSource;
+import com.airhacks.enhydrator.in.VirtualSinkSource;
+import com.airhacks.enhydrator.transform.Datatype;
+import com.airhacks.enhydrator.transform.DatatypeNameMapper;
+import com.airhacks.enhydrator.transform.Memory;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end {@link Pump#start()}: CSV file in, filter, type conversion,
+ * in-memory sink out.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PumpBenchmark {
+
+    @Param({"10000"})
+    int numberOfRows;
+
+    Path input;
+
+    @Setup
+    public void createInput() {
+        this.input = Fixtures.csvFile(numberOfRows);
+    }
+
+    @Benchmark
+    public Memory csvToVirtualSink() {
+        VirtualSinkSource sink = new VirtualSinkSource();
+        Pump pump = new Pump.Engine().
+                from(new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true)).
+                startWith(new DatatypeNameMapper().
+                        addMapping("rank", Datatype.INTEGER).
+                        addMapping("score", Datatype.DOUBLE)).
+                to(sink).
+                continueOnError().
+                build();
+        return pump.start();
+    }
+
+    @Benchmark
+    public Memory csvFilteredToVirtualSink() {
+        VirtualSinkSource sink = new VirtualSinkSource();
+        Pump pump = new Pump.Engine().
+                from(new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true)).
+                filter("$ROW.getColumnValue('language') === 'java'").
+                to(sink).
+                continueOnError().
+                build();
+        return pump.start();
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.airhacks.enhydrator;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.flexpipe.Pipeline;
+import com.airhacks.enhydrator.flexpipe.Plumber;
+import com.airhacks.enhydrator.transform.Memory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to the first row of a short pipeline in a fresh JVM, as for a command
+ * line invocation: the pipeline is read with a {@link Plumber} and pumped into
+ * an in-memory sink.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    static final String PIPELINE = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<pipeline xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+            + "    <name>%s</name>\n"
+            + "    <source xsi:type=\"csvFileSource\">\n"
+            + "        <fileName>%s</fileName>\n"
+            + "        <charsetName>UTF-8</charsetName>\n"
+            + "        <delimiter>;</delimiter>\n"
+            + "        <fileContainsHeaders>true</fileContainsHeaders>\n"
+            + "    </source>\n"
+            + "    <scripts-home>.</scripts-home>\n"
+            + "%s"
+            + "    <pre-row-transformation xsi:type=\"skipFirstRow\"/>\n"
+            + "    <pre-row-transformation xsi:type=\"datatypeNameMapper\">\n"
+            + "        <mappings><entry><key>rank</key><value>INTEGER</value></entry></mappings>\n"
+            + "    </pre-row-transformation>\n"
+            + "    <sink xsi:type=\"virtualSinkSource\"><name>*</name></sink>\n"
+            + "</pipeline>\n";
+
+    Path home;
+
+    @Setup
+    public void writePipelines() throws IOException {
+        this.home = Files.createTempDirectory("enhydrator-startup");
+        Path config = Files.createDirectories(this.home.resolve("config"));
+        String input = Fixtures.csvFile(10).toString();
+        write(config.resolve("plain.xml"), String.format(PIPELINE, "plain", input, ""));
+        write(config.resolve("filtered.xml"), String.format(PIPELINE, "filtered", input,
+                "    <filter>$ROW.getColumnValue('language') === 'java'</filter>\n"));
+    }
+
+    static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        file.toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public Memory plain() {
+        return pump("plain");
+    }
+
+    @Benchmark
+    public Memory filtered() {
+        return pump("filtered");
+    }
+
+    Memory pump(String name) {
+        Pipeline pipeline = Plumber.createWith(this.home.toString(), "config").fromConfiguration(name);
+        return new Pump.Engine().
+                use(pipeline).
+                build().
+                start();
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.transform.Datatype;
+import com.airhacks.enhydrator.transform.DatatypeNameMapper;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV tokenization: a single line through {@link CSVFileSource#parse} and a
+ * whole file through {@link CSVFileSource#query()}, line based and with the
+ * lazy {@link CSVByteParser} reading a single, typed column. Typing all
+ * columns: inferred and parsed from the bytes versus converted afterwards by a
+ * {@link DatatypeNameMapper}.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVFileSourceBenchmark {
+
+    @Param({"10000"})
+    int numberOfRows;
+
+    Path input;
+    CSVFileSource source;
+    String line;
+
+    @Setup
+    public void createInput() {
+        this.input = Fixtures.csvFile(numberOfRows);
+        this.source = new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true);
+        this.line = Fixtures.line(42);
+    }
+
+    @Benchmark
+    public Row parseLine() {
+        return this.source.parse(this.line, Fixtures.DELIMITER);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int queryFile() {
+        CSVFileSource fresh = new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true);
+        int count = 0;
+        for (Row row : fresh.query()) {
+            count += row.getNumberOfColumns();
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double queryFileLazy() {
+        CSVFileSource fresh = new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true).
+                typed("score", Datatype.DOUBLE);
+        double sum = 0;
+        for (Row row : fresh.query()) {
+            Object score = row.getColumnValue("score");
+            if (score instanceof Double) {
+                sum += (Double) score;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double queryFileInferred() {
+        CSVFileSource fresh = new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true).
+                inferDatatypes(100);
+        return sumTyped(fresh.query());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double queryFileMapped() {
+        CSVFileSource fresh = new CSVFileSource(this.input.toString(), Fixtures.DELIMITER, "UTF-8", true);
+        DatatypeNameMapper mapper = new DatatypeNameMapper().
+                addMapping("id", Datatype.INTEGER).
+                addMapping("rank", Datatype.INTEGER).
+                addMapping("active", Datatype.BOOLEAN).
+                addMapping("score", Datatype.DOUBLE);
+        boolean header = true;
+        double sum = 0;
+        for (Row row : fresh.query()) {
+            if (header) {
+                header = false;
+                continue;
+            }
+            sum += sumTyped(mapper.execute(row));
+        }
+        return sum;
+    }
+
+    static double sumTyped(Iterable<Row> rows) {
+        double sum = 0;
+        for (Row row : rows) {
+            sum += sumTyped(row);
+        }
+        return sum;
+    }
+
+    static double sumTyped(Row row) {
+        double sum = 0;
+        for (String name : new String[]{"id", "rank", "score"}) {
+            Object value = row.getColumnValue(name);
+            if (value instanceof Number) {
+                sum += ((Number) value).doubleValue();
+            }
+        }
+        return Boolean.TRUE.equals(row.getColumnValue("active")) ? sum + 1 : sum;
+    }
+
+}
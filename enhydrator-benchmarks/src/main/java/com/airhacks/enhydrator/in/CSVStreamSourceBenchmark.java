@@ -0,0 +1,76 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole stream through {@link CSVStreamSource#query()}, sequential and with
+ * the parallel parsing pipeline.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVStreamSourceBenchmark {
+
+    @Param({"100000"})
+    int numberOfRows;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    Path input;
+
+    @Setup
+    public void createInput() {
+        this.input = Fixtures.csvFile(numberOfRows);
+    }
+
+    @Benchmark
+    public int queryStream() throws IOException {
+        CSVStreamSource source = new CSVStreamSource(Files.newInputStream(this.input), Fixtures.DELIMITER, "UTF-8", true, null, this.parallelism);
+        int count = 0;
+        for (Row row : source.query()) {
+            count += row.getNumberOfColumns();
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ResultSetToEntries} over an in-memory Derby table.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetToEntriesBenchmark {
+
+    static final String TABLE = "LANGUAGES";
+
+    @Param({"10000"})
+    int numberOfRows;
+
+    Connection connection;
+    ResultSetToEntries mapper;
+
+    @Setup
+    public void createTable() throws SQLException {
+        this.connection = Fixtures.derby("resultset");
+        Fixtures.createLanguageTable(this.connection, TABLE);
+        Fixtures.insertLanguages(this.connection, TABLE, numberOfRows);
+        this.mapper = new ResultSetToEntries();
+    }
+
+    @Benchmark
+    public int selectAll() throws SQLException {
+        int count = 0;
+        try (Statement statement = this.connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT * FROM " + TABLE)) {
+            while (resultSet.next()) {
+                count += this.mapper.apply(resultSet).getNumberOfColumns();
+            }
+        }
+        return count;
+    }
+
+    @TearDown
+    public void dropTable() throws SQLException {
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE " + TABLE);
+        }
+        this.connection.close();
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Row} construction and column lookup.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowBenchmark {
+
+    Row row;
+
+    @Setup
+    public void createRow() {
+        this.row = Fixtures.row(42);
+    }
+
+    @Benchmark
+    public Row construction() {
+        return Fixtures.row(42);
+    }
+
+    @Benchmark
+    public void lookupByName(Blackhole hole) {
+        hole.consume(this.row.getColumnValue("language"));
+        hole.consume(this.row.getColumnValue("score"));
+        hole.consume(this.row.getColumnValue("description"));
+    }
+
+    @Benchmark
+    public void lookupByIndex(Blackhole hole) {
+        hole.consume(this.row.getColumnByIndex(1));
+        hole.consume(this.row.getColumnByIndex(4));
+        hole.consume(this.row.getColumnByIndex(5));
+    }
+
+    @Benchmark
+    public List<Column> sortedByIndex() {
+        return this.row.getColumnsSortedByColumnIndex();
+    }
+
+    @Benchmark
+    public Object groupedByDestination() {
+        return this.row.getColumnsGroupedByDestination();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.out.NamedSink;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Heap ({@link VirtualSinkSource}) versus off-heap
+ * ({@link OffHeapVirtualSinkSource}) materialization of rows. The GC profiler
+ * reports allocation and GC time of filling and scanning, the setup prints
+ * the retained heap and off-heap bytes per row.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class VirtualSinkSourceBenchmark {
+
+    @Param({"heap", "offHeap"})
+    String store;
+
+    @Param({"100000"})
+    int numberOfRows;
+
+    Row[] rows;
+    Source filled;
+
+    @Setup
+    public void fill() {
+        long before = usedHeap();
+        NamedSink sink = create();
+        for (int i = 0; i < this.numberOfRows; i++) {
+            sink.processRow(Fixtures.plainRow(i));
+        }
+        long retained = usedHeap() - before;
+        long offHeap = sink instanceof OffHeapVirtualSinkSource
+                ? ((OffHeapVirtualSinkSource) sink).getOffHeapBytes() : 0;
+        System.out.println("\n" + this.store + ": retained heap bytes/row: " + (retained / this.numberOfRows)
+                + ", off-heap bytes/row: " + (offHeap / this.numberOfRows));
+        this.filled = (Source) sink;
+        this.rows = new Row[this.numberOfRows];
+        for (int i = 0; i < this.numberOfRows; i++) {
+            this.rows[i] = Fixtures.plainRow(i);
+        }
+    }
+
+    NamedSink create() {
+        if ("heap".equals(this.store)) {
+            return new VirtualSinkSource("*", new ArrayList<>());
+        }
+        return new OffHeapVirtualSinkSource();
+    }
+
+    static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public Object processRows() {
+        NamedSink sink = create();
+        for (Row row : this.rows) {
+            sink.processRow(row);
+        }
+        return sink;
+    }
+
+    @Benchmark
+    public void scan(Blackhole hole) {
+        for (Row row : this.filled.query()) {
+            hole.consume(row.getColumnValue("score"));
+        }
+    }
+
+}
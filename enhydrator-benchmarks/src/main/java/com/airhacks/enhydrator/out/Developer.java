@@ -0,0 +1,60 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Mapping target of the {@link PojoSinkBenchmark}.
+ *
+ * @author airhacks.com
+ */
+public class Developer {
+
+    private Integer id;
+    private String language;
+    private String rank;
+    private Boolean active;
+    private Double score;
+    private String description;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getRank() {
+        return rank;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.in.Row;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Statement generation and insert with {@link JDBCSink} into an in-memory
+ * Derby table.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JDBCSinkBenchmark {
+
+    static final String DATABASE = "jdbcsink";
+    static final String TABLE = "LANGUAGES";
+
+    Connection connection;
+    Row row;
+    NamedSink sink;
+
+    @Setup
+    public void openSink() throws SQLException {
+        this.connection = Fixtures.derby(DATABASE);
+        Fixtures.createLanguageTable(this.connection, TABLE);
+        this.row = Fixtures.row(42);
+        this.row.getColumnByName("rank").convertToInteger();
+        this.sink = new JDBCSink.Configuration().
+                driver(Fixtures.DERBY_DRIVER).
+                url(Fixtures.derbyUrl(DATABASE)).
+                targetTable(TABLE).
+                newSink();
+        this.sink.init();
+    }
+
+    @Benchmark
+    public void insertRow() {
+        this.sink.processRow(this.row);
+    }
+
+    @TearDown
+    public void closeSink() throws SQLException {
+        this.sink.close();
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE " + TABLE);
+        }
+        this.connection.close();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.in.Row;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row formatting and writing with {@link JSONFileSink}, comparable with
+ * {@link CSVFileSinkBenchmark}.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONFileSinkBenchmark {
+
+    @Param({"true", "false"})
+    boolean ndjson;
+
+    Row row;
+    Path output;
+    JSONFileSink sink;
+
+    @Setup
+    public void openSink() throws IOException {
+        this.row = Fixtures.row(42);
+        this.output = Files.createTempFile("enhydrator-benchmark-sink", ".json");
+        this.sink = new JSONFileSink("*", this.output.toString(), this.ndjson);
+        this.sink.init();
+    }
+
+    @Benchmark
+    public void writeRow() {
+        this.sink.processRow(this.row);
+    }
+
+    @TearDown
+    public void closeSink() throws IOException {
+        this.sink.close();
+        Files.deleteIfExists(this.output);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.in.BinaryRowFileSource;
+import com.airhacks.enhydrator.in.CSVFileSource;
+import com.airhacks.enhydrator.in.Row;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Round trip of an intermediate (staging) file: {@link CSVFileSink} to
+ * {@link CSVFileSource} versus {@link BinaryRowFileSink} (plain and deflated)
+ * to {@link BinaryRowFileSource}.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StagingFileBenchmark {
+
+    @Param({"10000"})
+    int numberOfRows;
+
+    List<Row> rows;
+    Path file;
+
+    @Setup
+    public void createRows() throws IOException {
+        this.rows = Fixtures.rows(this.numberOfRows);
+        this.file = Files.createTempFile("enhydrator-benchmark-staging", ".tmp");
+    }
+
+    @Benchmark
+    public void csv(Blackhole hole) {
+        CSVFileSink sink = new CSVFileSink("*", this.file.toString(), Fixtures.DELIMITER, true, false);
+        sink.init();
+        this.rows.forEach(sink::processRow);
+        sink.close();
+        CSVFileSource source = new CSVFileSource(this.file.toString(), Fixtures.DELIMITER, "UTF-8", true);
+        for (Row row : source.query()) {
+            hole.consume(row.getColumnValue("score"));
+        }
+    }
+
+    @Benchmark
+    public void binary(Blackhole hole) {
+        binary(hole, false);
+    }
+
+    @Benchmark
+    public void binaryDeflated(Blackhole hole) {
+        binary(hole, true);
+    }
+
+    void binary(Blackhole hole, boolean compress) {
+        BinaryRowFileSink sink = new BinaryRowFileSink("*", this.file.toString(), compress);
+        sink.init();
+        this.rows.forEach(sink::processRow);
+        sink.close();
+        for (Row row : new BinaryRowFileSource(this.file.toString()).query()) {
+            hole.consume(row.getColumnValue("score"));
+        }
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+}
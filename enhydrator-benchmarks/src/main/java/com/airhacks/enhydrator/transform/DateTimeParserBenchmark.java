@@ -0,0 +1,126 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hand-rolled {@link DateTimeParser} vs. java.time parsing of distinct and
+ * repeated dates.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeParserBenchmark {
+
+    static final int VALUES = 4096;
+    static final String PATTERN = "dd.MM.yyyy";
+
+    String[] distinct;
+    String[] repeated;
+    String[] patterned;
+    DateTimeFormatter formatter;
+
+    @Setup
+    public void createDates() {
+        LocalDate first = LocalDate.of(2000, 1, 1);
+        DateTimeFormatter custom = DateTimeFormatter.ofPattern(PATTERN);
+        this.distinct = new String[VALUES];
+        this.repeated = new String[VALUES];
+        this.patterned = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            this.distinct[i] = first.plusDays(i).toString();
+            //a month of business dates, as in most transactional extracts
+            this.repeated[i] = first.plusDays(i % 31).toString();
+            this.patterned[i] = first.plusDays(i).format(custom);
+        }
+        this.formatter = custom;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void localDateParse(Blackhole blackhole) {
+        for (String value : this.distinct) {
+            blackhole.consume(LocalDate.parse(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void isoDate(Blackhole blackhole) {
+        for (String value : this.distinct) {
+            blackhole.consume(DateTimeParser.isoDate(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void localDateParseRepeated(Blackhole blackhole) {
+        for (String value : this.repeated) {
+            blackhole.consume(LocalDate.parse(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void cachedRepeated(Blackhole blackhole) {
+        DateTimeParser parser = new DateTimeParser(Datatype.DATE);
+        for (String value : this.repeated) {
+            blackhole.consume(parser.parse(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void formatterPattern(Blackhole blackhole) {
+        for (String value : this.patterned) {
+            blackhole.consume(LocalDate.parse(value, this.formatter));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void fixedWidthPattern(Blackhole blackhole) {
+        DateTimeParser parser = new DateTimeParser(Datatype.DATE, PATTERN);
+        for (String value : this.patterned) {
+            blackhole.consume(parser.parseUncached(value));
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.in.Row;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Nashorn evaluation of row {@link Expression}s and {@link FilterExpression}s.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    static final String FILTER = "$ROW.getColumnValue('language') === 'java'";
+    static final String EXPRESSION = "$ROW.addColumn(6, 'greeting', 'hello ' + $ROW.getColumnValue('description'))";
+
+    Row row;
+    Expression expression;
+    FilterExpression filterExpression;
+
+    @Setup
+    public void createEngines() {
+        this.row = Fixtures.row(42);
+        this.expression = new Expression();
+        this.filterExpression = new FilterExpression();
+    }
+
+    @Benchmark
+    public Boolean filter() {
+        return this.filterExpression.execute(this.row, FILTER);
+    }
+
+    @Benchmark
+    public Row expression() {
+        return this.expression.execute(this.row, EXPRESSION);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Fixtures;
+import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Built-in row transformations executed one after another vs. fused into a
+ * {@link RowPlan}.
+ *
+ * @author airhacks.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowPlanBenchmark {
+
+    List<Function<Row, Row>> separate;
+    List<Function<Row, Row>> fused;
+    int counter;
+
+    @Setup
+    public void createTransformations() {
+        NameMapper names = new NameMapper();
+        names.mappings.put("language", "lang");
+        IndexMapper indices = new IndexMapper();
+        indices.orderedNames.addAll(Arrays.asList("description", "score", "active", "rank", "language", "id"));
+        List<Object> origins = Arrays.asList(names, indices,
+                new DatatypeIndexMapper().addMapping(3, Datatype.INTEGER),
+                new DestinationMapper().addMapping(0, new TargetMapping("archive", "descriptions")));
+        this.separate = new ArrayList<>();
+        for (Object origin : origins) {
+            this.separate.add(((RowTransformer) origin)::execute);
+        }
+        this.fused = RowPlan.fuse(this.separate, origins);
+    }
+
+    @Benchmark
+    public Row separate() {
+        return apply(this.separate, Fixtures.plainRow(this.counter++));
+    }
+
+    @Benchmark
+    public Row fused() {
+        return apply(this.fused, Fixtures.plainRow(this.counter++));
+    }
+
+    static Row apply(List<Function<Row, Row>> transformations, Row row) {
+        for (Function<Row, Row> transformation : transformations) {
+            row = transformation.apply(row);
+        }
+        return row;
+    }
+
+}
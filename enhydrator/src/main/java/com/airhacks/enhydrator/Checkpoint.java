@@ -0,0 +1,141 @@
+package com.airhacks.enhydrator;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.SourcePosition;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The source position of a pump together with the flushed state of its sinks.
+ * Stored as properties file, replaced atomically.
+ *
+ * @author airhacks.com
+ */
+public class Checkpoint {
+
+    static final String SINK = "sink.";
+
+    private final SourcePosition position;
+    private final List<String> sinkStates;
+
+    /**
+     * @param position where the source continues
+     * @param sinkStates the state returned by flush, in the order of the sinks
+     */
+    public Checkpoint(SourcePosition position, List<String> sinkStates) {
+        this.position = position;
+        this.sinkStates = sinkStates == null ? Collections.emptyList() : sinkStates;
+    }
+
+    public SourcePosition getPosition() {
+        return position;
+    }
+
+    /**
+     * @param index the index of the sink in the pipeline
+     * @return the flushed state, null if none
+     */
+    public String getSinkState(int index) {
+        if (index >= this.sinkStates.size()) {
+            return null;
+        }
+        return this.sinkStates.get(index);
+    }
+
+    /**
+     * Writes a temporary file first and renames it, a crash never leaves a
+     * partially written checkpoint behind.
+     *
+     * @param file the checkpoint file
+     */
+    public void store(Path file) {
+        Properties properties = new Properties();
+        this.position.storeTo(properties);
+        for (int i = 0; i < this.sinkStates.size(); i++) {
+            String state = this.sinkStates.get(i);
+            if (state != null) {
+                properties.setProperty(SINK + i, state);
+            }
+        }
+        Path written = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(written)) {
+                properties.store(out, "enhydrator checkpoint");
+            }
+            Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot store checkpoint " + file, ex);
+        }
+    }
+
+    /**
+     * @param file the checkpoint file
+     * @return the stored checkpoint, null if the file does not exist
+     */
+    public static Checkpoint load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot load checkpoint " + file, ex);
+        }
+        SourcePosition position = SourcePosition.from(properties);
+        List<String> sinkStates = new ArrayList<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(SINK)) {
+                int index = Integer.parseInt(name.substring(SINK.length()));
+                while (sinkStates.size() <= index) {
+                    sinkStates.add(null);
+                }
+                sinkStates.set(index, properties.getProperty(name));
+            }
+        }
+        return new Checkpoint(position, sinkStates);
+    }
+
+    /**
+     * @param file the checkpoint file
+     */
+    public static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot delete checkpoint " + file, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{" + "position=" + position + ", sinkStates=" + sinkStates + '}';
+    }
+
+}
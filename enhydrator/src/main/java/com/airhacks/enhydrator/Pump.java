@@ -21,26 +21,41 @@ package com.airhacks.enhydrator;
  */
 import com.airhacks.enhydrator.flexpipe.ColumnTransformation;
 import com.airhacks.enhydrator.flexpipe.Pipeline;
+import com.airhacks.enhydrator.in.ColumnFilter;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.ResultSetToEntries;
 import com.airhacks.enhydrator.in.Row;
 import com.airhacks.enhydrator.in.Source;
+import com.airhacks.enhydrator.in.SourcePosition;
+import com.airhacks.enhydrator.metrics.PumpMetrics;
+import com.airhacks.enhydrator.metrics.PumpMetrics.Stage;
+import com.airhacks.enhydrator.out.DeadLetterQueue;
+import com.airhacks.enhydrator.out.DeadLetterQueue.BackPressure;
 import com.airhacks.enhydrator.out.LogSink;
 import com.airhacks.enhydrator.out.NamedSink;
 import com.airhacks.enhydrator.out.Sink;
+import com.airhacks.enhydrator.transform.ColumnReferences;
 import com.airhacks.enhydrator.transform.ColumnTransformer;
 import com.airhacks.enhydrator.transform.Expression;
 import com.airhacks.enhydrator.transform.FilterExpression;
 import com.airhacks.enhydrator.transform.FunctionScriptLoader;
 import com.airhacks.enhydrator.transform.Memory;
+import com.airhacks.enhydrator.transform.RowPlan;
 import com.airhacks.enhydrator.transform.RowTransformer;
+import com.airhacks.enhydrator.transform.ScriptReferences;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.json.JsonValue;
 
 /**
@@ -55,6 +70,8 @@ public class Pump {
     private final List<Function<Row, Row>> afterTransformations;
     private final List<String> expressions;
     private final List<String> filterExpressions;
+    private final List<ColumnFilter> columnFilters;
+    private List<ColumnFilter> rowFilters;
     private final List<Sink> sinks;
     private final String sql;
     private final Object[] params;
@@ -62,28 +79,51 @@ public class Pump {
     private final FilterExpression filterExpression;
 
     private final Sink deadLetterQueue;
+    private final int deadLetterQueueCapacity;
+    private final int deadLetterBatchSize;
+    private final BackPressure deadLetterBackPressure;
+    private DeadLetterQueue activeDeadLetterQueue;
     private final Consumer<String> flowListener;
     private final Memory pumpMemory;
     private final boolean stopOnError;
     private final Map<String, Object> scriptEngineBindings;
+    private final PumpMetrics metrics;
+    private final ColumnProjection projection;
+    private final Checkpoint resumed;
+    private final Path checkpointFile;
+    private final long checkpointRows;
+    private final long checkpointMillis;
+    private long lastCheckpoint;
 
     private Pump(Source source,
             List<Function<Row, Row>> before,
             Map<String, Function<Object, Object>> namedFunctions,
             List<String> filterExpressions,
+            List<ColumnFilter> columnFilters,
             List<String> expressions,
             List<Function<Row, Row>> after,
             List<Sink> sinks,
             Sink dlq,
+            int dlqCapacity,
+            int dlqBatchSize,
+            BackPressure dlqBackPressure,
             String sql,
             Consumer<String> flowListener,
             boolean stopOnError,
             Memory pumpMemory,
             Map<String, Object> scriptEngineBindings,
+            PumpMetrics metrics,
+            ColumnProjection projection,
+            Checkpoint resumed,
+            Path checkpointFile,
+            long checkpointRows,
+            long checkpointMillis,
             Object... params) {
 
         this.flowListener = flowListener;
         this.filterExpressions = filterExpressions;
+        this.columnFilters = columnFilters;
+        this.rowFilters = columnFilters;
         this.expression = new Expression(flowListener, scriptEngineBindings);
         this.filterExpression = new FilterExpression(flowListener, scriptEngineBindings);
         this.source = source;
@@ -93,47 +133,197 @@ public class Pump {
         this.afterTransformations = after;
         this.sinks = sinks;
         this.deadLetterQueue = dlq;
+        this.deadLetterQueueCapacity = dlqCapacity;
+        this.deadLetterBatchSize = dlqBatchSize;
+        this.deadLetterBackPressure = dlqBackPressure;
         this.sql = sql;
         this.params = params;
         this.stopOnError = stopOnError;
         this.pumpMemory = pumpMemory;
         this.scriptEngineBindings = scriptEngineBindings;
+        this.metrics = metrics;
+        this.projection = projection;
+        this.resumed = resumed;
+        this.checkpointFile = checkpointFile;
+        this.checkpointRows = checkpointRows;
+        this.checkpointMillis = checkpointMillis;
+        if (this.metrics != null) {
+            this.pumpMemory.useMetrics(this.metrics);
+            this.metrics.bytesReadFrom(this.source::getBytesRead);
+        }
     }
 
     public Memory start() {
+        if (this.metrics == null) {
+            return pump();
+        }
+        this.metrics.started();
+        this.metrics.register();
+        try {
+            return pump();
+        } finally {
+            this.metrics.finished();
+            this.metrics.unregister();
+            this.flowListener.accept(this.metrics.dump());
+        }
+    }
+
+    Memory pump() {
+        if (this.projection != null && this.source.project(this.projection)) {
+            this.flowListener.accept("Source projected to: " + this.projection);
+        }
+        if (!this.columnFilters.isEmpty()) {
+            this.rowFilters = this.source.pushDown(sql, this.columnFilters);
+            this.flowListener.accept("Filters evaluated by the pump: " + this.rowFilters);
+        }
+        long skipped = 0;
+        if (this.resumed != null) {
+            //sinks which cannot continue their output stop the pump before the source is queried
+            for (int i = 0; i < this.sinks.size(); i++) {
+                this.sinks.get(i).resume(this.resumed.getSinkState(i));
+            }
+            this.flowListener.accept("Sinks resumed");
+            SourcePosition position = this.resumed.getPosition();
+            if (!this.source.resumeFrom(position)) {
+                skipped = position.getRows();
+            }
+            this.flowListener.accept("Resuming from: " + position + ", skipping " + skipped + " rows");
+        }
+        long begin = begin();
         Iterable<Row> input = this.source.query(sql, params);
+        measured(Stage.QUERY, begin);
         this.flowListener.accept("Query executed: " + sql);
-        this.sinks.forEach(s -> s.init());
-        this.flowListener.accept("Sink initialized");
+        if (this.metrics != null) {
+            input = this.metrics.measure(input);
+        }
+        if (this.resumed == null) {
+            this.sinks.forEach(s -> s.init());
+            this.flowListener.accept("Sink initialized");
+        }
+        this.lastCheckpoint = System.currentTimeMillis();
         if (this.stopOnError) {
             this.flowListener.accept("Erroneous rows will stop the pipeline");
-            input.forEach(this::onNewRow);
+            process(input, skipped, this::onNewRow);
         } else {
             this.flowListener.accept("Ignoring processing errors");
-            input.forEach(this::processAndIgnoreErrors);
+            this.activeDeadLetterQueue = new DeadLetterQueue(this.deadLetterQueue,
+                    this.deadLetterQueueCapacity, this.deadLetterBatchSize, this.deadLetterBackPressure);
+            try {
+                process(input, skipped, this::processAndIgnoreErrors);
+            } finally {
+                this.activeDeadLetterQueue.close();
+                this.flowListener.accept("Dead letter queue closed: " + this.activeDeadLetterQueue);
+                this.activeDeadLetterQueue = null;
+            }
         }
         this.flowListener.accept("Results processed");
         this.sinks.forEach(s -> s.close());
         this.flowListener.accept("Sink closed");
+        this.source.completed();
+        if (this.checkpointFile != null) {
+            Checkpoint.delete(this.checkpointFile);
+        }
         return this.pumpMemory;
 
     }
 
+    /**
+     * Counts the rows consumed from the source and stores a checkpoint, if
+     * due.
+     *
+     * @param skipped the number of already processed rows
+     */
+    void process(Iterable<Row> input, long skipped, Consumer<Row> processor) {
+        Iterator<Row> rows = input.iterator();
+        try {
+            if (this.checkpointFile == null && skipped == 0) {
+                rows.forEachRemaining(processor);
+                return;
+            }
+            long consumed = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                consumed++;
+                if (consumed <= skipped) {
+                    continue;
+                }
+                processor.accept(row);
+                if (checkpointDue(consumed)) {
+                    checkpoint(consumed);
+                }
+            }
+        } finally {
+            close(rows);
+        }
+    }
+
+    /**
+     * Releases the resources of closeable source iterators (e.g. producer
+     * threads), also if the rows were not consumed to the end.
+     */
+    void close(Iterator<Row> rows) {
+        if (!(rows instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) rows).close();
+        } catch (Exception ex) {
+            this.flowListener.accept("Cannot close source: " + ex);
+        }
+    }
+
+    boolean checkpointDue(long consumed) {
+        if (this.checkpointFile == null) {
+            return false;
+        }
+        if (this.checkpointRows > 0 && consumed % this.checkpointRows == 0) {
+            return true;
+        }
+        return this.checkpointMillis > 0 && System.currentTimeMillis() - this.lastCheckpoint >= this.checkpointMillis;
+    }
+
+    /**
+     * Delivers the erroneous rows, flushes the sinks and stores the position
+     * after the consumed rows together with the state of the sinks.
+     */
+    void checkpoint(long consumed) {
+        if (this.activeDeadLetterQueue != null) {
+            this.activeDeadLetterQueue.flush();
+        }
+        SourcePosition position = this.source.position(consumed);
+        if (position == null) {
+            position = new SourcePosition(consumed);
+        }
+        List<String> sinkStates = this.sinks.stream().
+                map(Sink::flush).
+                collect(Collectors.toList());
+        Checkpoint checkpoint = new Checkpoint(position, sinkStates);
+        checkpoint.store(this.checkpointFile);
+        this.lastCheckpoint = System.currentTimeMillis();
+        this.flowListener.accept("Checkpoint stored: " + checkpoint);
+    }
+
     void processAndIgnoreErrors(Row row) {
         try {
             onNewRow(row);
         } catch (Throwable ex) {
             row.errorOccured(ex);
+            if (this.activeDeadLetterQueue != null) {
+                this.activeDeadLetterQueue.accept(row, ex);
+            }
         }
     }
 
     void onNewRow(Row row) {
         row.useMemory(pumpMemory);
         this.flowListener.accept("Processing: " + row.getNumberOfColumns() + " columns !");
-        Optional<Boolean> first = this.filterExpressions.stream().
+        long begin = begin();
+        boolean matches = this.rowFilters.stream().allMatch(f -> f.test(row));
+        Optional<Boolean> first = matches ? this.filterExpressions.stream().
                 map(e -> this.filterExpression.execute(row, e)).
                 filter(r -> r == false).
-                findFirst();
+                findFirst() : Optional.of(false);
+        measured(Stage.FILTER, begin);
         if (!first.isPresent()) {
             transformRow(row);
         } else {
@@ -143,21 +333,46 @@ public class Pump {
     }
 
     void transformRow(Row currentRow) {
+        long begin = begin();
         Row entryColumns = applyRowTransformations(this.beforeTransformations, currentRow);
+        begin = measured(Stage.PRE_ROW_TRANSFORMATION, begin);
         this.flowListener.accept("Pre Row transformations processed");
         applyExpressions(currentRow);
+        begin = measured(Stage.EXPRESSION, begin);
         this.flowListener.accept("Row expressions processed");
         columnTransformations(entryColumns);
+        begin = measured(Stage.COLUMN_TRANSFORMATION, begin);
         this.flowListener.accept("Column transformations processed");
         Row afterProcessed = applyRowTransformations(this.afterTransformations, entryColumns);
+        begin = measured(Stage.POST_ROW_TRANSFORMATION, begin);
         if (afterProcessed == null) {
             return;
         }
         this.flowListener.accept("Post Row transformations processed: " + afterProcessed.getNumberOfColumns() + " entries");
         this.sink(afterProcessed);
+        measured(Stage.SINK, begin);
         this.flowListener.accept("Result processed by sinks");
     }
 
+    long begin() {
+        return this.metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since begin for the given stage.
+     *
+     * @return the end of the measured stage, to be used as begin of the next
+     * one
+     */
+    long measured(Stage stage, long begin) {
+        if (this.metrics == null) {
+            return 0;
+        }
+        long end = System.nanoTime();
+        this.metrics.record(stage, end - begin);
+        return end;
+    }
+
     void sink(Row afterProcessed) {
         this.flowListener.accept("Sinking " + afterProcessed.getNumberOfColumns() + " entries: " + afterProcessed);
 
@@ -178,7 +393,11 @@ public class Pump {
         Row entriesForSink = groupByDestinations.get(destination);
         if (entriesForSink != null) {
             this.flowListener.accept("Processing entries " + entriesForSink + " with " + destination);
+            long begin = begin();
             sink.processRow(entriesForSink);
+            if (this.metrics != null) {
+                this.metrics.recordSink(destination, System.nanoTime() - begin);
+            }
             this.flowListener.accept("Entries processed!");
         } else {
             this.flowListener.accept("No entries found for: " + destination);
@@ -238,6 +457,9 @@ public class Pump {
 
         private List<Sink> sinks;
         private Sink deadLetterQueue;
+        private int deadLetterQueueCapacity;
+        private int deadLetterBatchSize;
+        private BackPressure deadLetterBackPressure;
         private Source source;
         private Function<ResultSet, Row> resultSetToEntries;
         private Map<String, Function<Object, Object>> entryFunctions;
@@ -247,25 +469,43 @@ public class Pump {
         private FunctionScriptLoader loader;
         private List<String> expressions;
         private List<String> filterExpressions;
+        private List<ColumnFilter> columnFilters;
         private String sql;
         private Object[] params;
         private Consumer<String> flowListener;
         private boolean stopOnError;
         private Memory engineMemory;
         private Map<String, Object> bindings;
+        private PumpMetrics metrics;
+        private List<Object> beforeOrigins;
+        private List<Object> afterOrigins;
+        private boolean projection;
+        private boolean fusion;
+        private Checkpoint resumed;
+        private Path checkpointFile;
+        private long checkpointRows;
+        private long checkpointMillis;
 
         public Engine() {
             this.sinks = new ArrayList<>();
             this.expressions = new ArrayList<>();
             this.filterExpressions = new ArrayList<>();
+            this.columnFilters = new ArrayList<>();
             this.resultSetToEntries = new ResultSetToEntries();
             this.entryFunctions = new HashMap<>();
             this.before = new ArrayList<>();
             this.after = new ArrayList<>();
+            this.beforeOrigins = new ArrayList<>();
+            this.afterOrigins = new ArrayList<>();
+            this.projection = true;
+            this.fusion = true;
             this.indexedFunctions = new HashMap<>();
             this.flowListener = f -> {
             };
             this.deadLetterQueue = new LogSink();
+            this.deadLetterQueueCapacity = DeadLetterQueue.DEFAULT_CAPACITY;
+            this.deadLetterBatchSize = DeadLetterQueue.DEFAULT_BATCH_SIZE;
+            this.deadLetterBackPressure = BackPressure.BLOCK;
             this.stopOnError = true;
             this.engineMemory = new Memory();
             this.bindings = new HashMap<>();
@@ -300,9 +540,28 @@ public class Pump {
             return this;
         }
 
+        /**
+         * Erroneous rows (with continueOnError) are delivered asynchronously
+         * to the given sink.
+         *
+         * @param sink receives the erroneous rows with error metadata columns
+         * @param capacity the maximum number of queued rows
+         * @param batchSize the maximum number of rows delivered at once
+         * @param backPressure what happens, if the queue is full
+         * @return the engine
+         */
+        public Engine dlq(NamedSink sink, int capacity, int batchSize, BackPressure backPressure) {
+            this.deadLetterQueue = sink;
+            this.deadLetterQueueCapacity = capacity;
+            this.deadLetterBatchSize = batchSize;
+            this.deadLetterBackPressure = backPressure;
+            return this;
+        }
+
         public Engine startWith(RowTransformer transformer) {
             transformer.init(this.bindings);
             this.before.add(transformer::execute);
+            this.beforeOrigins.add(transformer);
             return this;
         }
 
@@ -327,6 +586,22 @@ public class Pump {
             return this;
         }
 
+        /**
+         * Record per-stage latencies and throughput with default metrics
+         * named "pump".
+         *
+         * @return the engine
+         * @see PumpMetrics
+         */
+        public Engine withMetrics() {
+            return withMetrics(new PumpMetrics());
+        }
+
+        public Engine withMetrics(PumpMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         public Engine withColumnScript(String columnName, String scriptName) {
             Function<Object, Object> function = load(scriptName);
             return with(columnName, function);
@@ -347,6 +622,7 @@ public class Pump {
         public Engine endWith(RowTransformer transformer) {
             transformer.init(this.bindings);
             this.after.add(transformer::execute);
+            this.afterOrigins.add(transformer);
             return this;
 
         }
@@ -373,6 +649,19 @@ public class Pump {
             return this;
         }
 
+        /**
+         * Rows not matching the filter are ignored. Sources like JDBCSource
+         * evaluate the filter themselves, otherwise it is applied before the
+         * filter expressions.
+         *
+         * @param filter a comparison of a column with a value
+         * @return the engine
+         */
+        public Engine filter(ColumnFilter filter) {
+            this.columnFilters.add(filter);
+            return this;
+        }
+
         public Engine continueOnError() {
             this.stopOnError = false;
             return this;
@@ -386,18 +675,156 @@ public class Pump {
             }
         }
 
+        /**
+         * The source delivers all columns, even if the pipeline does not refer
+         * to them. Required for scripts accessing the columns dynamically.
+         *
+         * @return the engine
+         */
+        public Engine withoutProjection() {
+            this.projection = false;
+            return this;
+        }
+
+        /**
+         * Executes each built-in row transformation on its own, instead of
+         * fusing consecutive ones into a {@link RowPlan}.
+         *
+         * @return the engine
+         */
+        public Engine withoutFusion() {
+            this.fusion = false;
+            return this;
+        }
+
+        /**
+         * Stores a {@link Checkpoint} every given number of rows or
+         * milliseconds, whatever comes first. The file is deleted after a
+         * successful run.
+         *
+         * @param file the checkpoint file
+         * @param everyRows rows between checkpoints, not counted if not
+         * positive
+         * @param everyMillis milliseconds between checkpoints, not measured if
+         * not positive
+         * @return the engine
+         */
+        public Engine checkpoint(Path file, long everyRows, long everyMillis) {
+            this.checkpointFile = file;
+            this.checkpointRows = everyRows;
+            this.checkpointMillis = everyMillis;
+            return this;
+        }
+
+        /**
+         * Continues an interrupted run: the source seeks to the position of
+         * the checkpoint, or the Pump skips the already processed rows, and
+         * the sinks resume with their flushed state. Sinks which cannot
+         * continue their output stop the pump with an IllegalStateException.
+         *
+         * @param checkpoint the last stored checkpoint, null starts over
+         * @return the engine
+         * @see Checkpoint#load(java.nio.file.Path)
+         */
+        public Engine resumeFrom(Checkpoint checkpoint) {
+            this.resumed = checkpoint;
+            return this;
+        }
+
+        /**
+         * Resumes from the checkpoint file, if it exists.
+         *
+         * @param file the checkpoint file
+         * @return the engine
+         */
+        public Engine resumeFrom(Path file) {
+            return resumeFrom(Checkpoint.load(file));
+        }
+
+        List<Function<Row, Row>> fused(List<Function<Row, Row>> transformations, List<Object> origins) {
+            if (!this.fusion) {
+                return transformations;
+            }
+            return RowPlan.fuse(transformations, origins);
+        }
+
+        /**
+         * Walks the pipeline backwards from the sinks and collects the
+         * referenced columns.
+         *
+         * @return the columns the source has to deliver, or null if all are
+         * required
+         */
+        ColumnProjection projection() {
+            if (!this.projection || this.sinks.isEmpty() || this.sinks.stream().anyMatch(s -> "*".equals(s.getName()))) {
+                return null;
+            }
+            ColumnProjection required = referencedColumns(this.afterOrigins, ColumnProjection.NONE);
+            if (required == null) {
+                return null;
+            }
+            required = ScriptReferences.referencedColumns(this.expressions, required);
+            if (required == null) {
+                return null;
+            }
+            required = referencedColumns(this.beforeOrigins, required);
+            if (required == null) {
+                return null;
+            }
+            required = ScriptReferences.referencedColumns(this.filterExpressions, required);
+            if (required == null) {
+                return null;
+            }
+            return required.withNames(this.columnFilters.stream().
+                    map(ColumnFilter::getColumn).
+                    collect(Collectors.toList()));
+        }
+
+        static ColumnProjection referencedColumns(List<Object> origins, ColumnProjection downstream) {
+            List<Object> reversed = new ArrayList<>(origins);
+            Collections.reverse(reversed);
+            ColumnProjection required = downstream;
+            for (Object origin : reversed) {
+                if (!(origin instanceof ColumnReferences)) {
+                    return null;
+                }
+                required = ((ColumnReferences) origin).referencedColumns(required);
+                if (required == null) {
+                    return null;
+                }
+            }
+            return required;
+        }
+
         public Pump build() {
+            if (this.resumed != null) {
+                long rows = this.resumed.getPosition().getRows();
+                Stream.concat(this.beforeOrigins.stream(), this.afterOrigins.stream()).
+                        filter(o -> o instanceof RowTransformer).
+                        map(RowTransformer.class::cast).
+                        forEach(t -> t.resume(rows));
+            }
             return new Pump(source,
-                    this.before, this.entryFunctions,
+                    fused(this.before, this.beforeOrigins), this.entryFunctions,
                     this.filterExpressions,
+                    this.columnFilters,
                     this.expressions,
-                    this.after, this.sinks,
+                    fused(this.after, this.afterOrigins), this.sinks,
                     this.deadLetterQueue,
+                    this.deadLetterQueueCapacity,
+                    this.deadLetterBatchSize,
+                    this.deadLetterBackPressure,
                     this.sql,
                     this.flowListener,
                     this.stopOnError,
                     this.engineMemory,
                     getScriptEngineBindings(),
+                    this.metrics,
+                    projection(),
+                    this.resumed,
+                    this.checkpointFile,
+                    this.checkpointRows,
+                    this.checkpointMillis,
                     this.params);
         }
 
@@ -411,7 +838,10 @@ public class Pump {
                     filter(rt -> rt instanceof RowTransformer).
                     map(RowTransformer.class::cast).
                     forEach(rt -> rt.init(this.loader.getScriptEngineBindings()));
-            pipeline.getPreRowTransformers().forEach(t -> startWith(t::execute));
+            pipeline.getPreRowTransformers().forEach(t -> {
+                this.before.add(t::execute);
+                this.beforeOrigins.add(t);
+            });
             List<ColumnTransformation> trafos = pipeline.getColumnTransformations();
             trafos.forEach(t -> {
                 String name = t.getColumnName();
@@ -427,9 +857,16 @@ public class Pump {
                     filter(rt -> rt instanceof RowTransformer).
                     map(RowTransformer.class::cast).
                     forEach(rt -> rt.init(this.loader.getScriptEngineBindings()));
-            pipeline.getPostRowTransfomers().forEach(t -> endWith(t::execute));
+            pipeline.getPostRowTransfomers().forEach(t -> {
+                this.after.add(t::execute);
+                this.afterOrigins.add(t);
+            });
             this.expressions = pipeline.getExpressions();
             this.filterExpressions = pipeline.getFilters();
+            this.columnFilters = pipeline.getColumnFilters();
+            if (pipeline.isProjectionDisabled()) {
+                withoutProjection();
+            }
             List<Object> queryParams = pipeline.getQueryParams();
             if (queryParams == null || queryParams.isEmpty()) {
                 sqlQuery(pipeline.getSqlQuery());
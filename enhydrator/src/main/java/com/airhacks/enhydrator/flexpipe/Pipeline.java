@@ -19,6 +19,7 @@ package com.airhacks.enhydrator.flexpipe;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.in.ColumnFilter;
 import com.airhacks.enhydrator.in.Source;
 import com.airhacks.enhydrator.out.Sink;
 import com.airhacks.enhydrator.out.NamedSink;
@@ -57,6 +58,9 @@ public class Pipeline {
     @XmlElement(name = "filter")
     private List<String> filters;
 
+    @XmlElement(name = "column-filter")
+    private List<ColumnFilter> columnFilters;
+
     @XmlElement(name = "pre-row-transformation")
     private List<RowTransformation> preRowTransformers;
 
@@ -72,6 +76,9 @@ public class Pipeline {
     @XmlElement(name = "sink")
     private List<NamedSink> sinks;
 
+    @XmlElement(name = "disable-projection")
+    private boolean projectionDisabled;
+
     Pipeline() {
         this.preRowTransformers = new ArrayList<>();
         this.columnTransformations = new ArrayList<>();
@@ -79,6 +86,7 @@ public class Pipeline {
         this.queryParams = new ArrayList<>();
         this.expressions = new ArrayList<>();
         this.filters = new ArrayList<>();
+        this.columnFilters = new ArrayList<>();
         this.stopOnError = false;
     }
 
@@ -116,6 +124,14 @@ public class Pipeline {
         this.filters.add(filter);
     }
 
+    /**
+     * Simple comparisons which sources like JDBCSource may evaluate
+     * themselves
+     */
+    public void addColumnFilter(ColumnFilter filter) {
+        this.columnFilters.add(filter);
+    }
+
     public void addQueryParam(Object value) {
         this.queryParams.add(value);
     }
@@ -164,6 +180,10 @@ public class Pipeline {
         return filters;
     }
 
+    public List<ColumnFilter> getColumnFilters() {
+        return columnFilters;
+    }
+
     public String getScriptsHome() {
         return scriptsHome;
     }
@@ -176,6 +196,18 @@ public class Pipeline {
         this.stopOnError = stopOnError;
     }
 
+    public boolean isProjectionDisabled() {
+        return projectionDisabled;
+    }
+
+    /**
+     * Scripts accessing columns dynamically require all columns of the
+     * source.
+     */
+    public void setProjectionDisabled(boolean projectionDisabled) {
+        this.projectionDisabled = projectionDisabled;
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
@@ -189,6 +221,8 @@ public class Pipeline {
         hash = 67 * hash + Objects.hashCode(this.postRowTransfomers);
         hash = 67 * hash + Objects.hashCode(this.expressions);
         hash = 67 * hash + Objects.hashCode(this.filters);
+        hash = 67 * hash + Objects.hashCode(this.columnFilters);
+        hash = 67 * hash + (this.projectionDisabled ? 1 : 0);
         return hash;
     }
 
@@ -231,6 +265,12 @@ public class Pipeline {
         if (!Objects.equals(this.filters, other.filters)) {
             return false;
         }
+        if (!Objects.equals(this.columnFilters, other.columnFilters)) {
+            return false;
+        }
+        if (this.projectionDisabled != other.projectionDisabled) {
+            return false;
+        }
 
         return true;
     }
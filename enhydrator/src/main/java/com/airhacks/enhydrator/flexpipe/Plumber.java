@@ -20,19 +20,29 @@ package com.airhacks.enhydrator.flexpipe;
  * #L%
  */
 import com.airhacks.enhydrator.db.UnmanagedConnectionProvider;
+import com.airhacks.enhydrator.in.BinaryRowFileSource;
 import com.airhacks.enhydrator.in.CSVFileSource;
 import com.airhacks.enhydrator.in.CSVStreamSource;
+import com.airhacks.enhydrator.in.ColumnarFileSource;
 import com.airhacks.enhydrator.in.JDBCSource;
+import com.airhacks.enhydrator.in.JSONStreamSource;
+import com.airhacks.enhydrator.in.OffHeapVirtualSinkSource;
 import com.airhacks.enhydrator.in.ScriptableSource;
+import com.airhacks.enhydrator.in.SpillingVirtualSinkSource;
 import com.airhacks.enhydrator.in.VirtualSinkSource;
+import com.airhacks.enhydrator.out.BinaryRowFileSink;
 import com.airhacks.enhydrator.out.CSVFileSink;
+import com.airhacks.enhydrator.out.ColumnarFileSink;
 import com.airhacks.enhydrator.out.JDBCSink;
+import com.airhacks.enhydrator.out.JSONFileSink;
 import com.airhacks.enhydrator.out.LogSink;
 import com.airhacks.enhydrator.out.ScriptableSink;
+import com.airhacks.enhydrator.transform.ChangeDetector;
 import com.airhacks.enhydrator.transform.ColumnCopier;
 import com.airhacks.enhydrator.transform.Datatype;
 import com.airhacks.enhydrator.transform.DatatypeIndexMapper;
 import com.airhacks.enhydrator.transform.DatatypeNameMapper;
+import com.airhacks.enhydrator.transform.Deduplicator;
 import com.airhacks.enhydrator.transform.DestinationMapper;
 import com.airhacks.enhydrator.transform.NameMapper;
 import com.airhacks.enhydrator.transform.NashornRowTransformer;
@@ -58,7 +68,8 @@ import javax.xml.bind.Unmarshaller;
  */
 public class Plumber {
 
-    private JAXBContext context;
+    private static JAXBContext sharedContext;
+
     private Marshaller marshaller;
     private Unmarshaller unmarshaller;
 
@@ -96,7 +107,21 @@ public class Plumber {
 
     final void init() {
         try {
-            this.context = JAXBContext.newInstance(JDBCSource.class,
+            this.marshaller = context().createMarshaller();
+            this.marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            this.unmarshaller = context().createUnmarshaller();
+        } catch (JAXBException ex) {
+            throw new IllegalStateException("Plumber construction failed ", ex);
+        }
+    }
+
+    /**
+     * The context is expensive to create and thread safe, it is shared by all
+     * plumbers.
+     */
+    static synchronized JAXBContext context() throws JAXBException {
+        if (sharedContext == null) {
+            sharedContext = JAXBContext.newInstance(JDBCSource.class,
                     CSVFileSource.class, CSVStreamSource.class, VirtualSinkSource.class,
                     Pipeline.class, JDBCSink.class, LogSink.class,
                     UnmanagedConnectionProvider.class, ColumnTransformation.class,
@@ -104,13 +129,13 @@ public class Plumber {
                     TargetMapping.class, DatatypeIndexMapper.class, DatatypeNameMapper.class,
                     Datatype.class, SkipFirstRow.class, ScriptableSource.class,
                     CSVFileSink.class, NameMapper.class, ColumnCopier.class,
-                    ScriptableSink.class);
-            this.marshaller = context.createMarshaller();
-            this.marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            this.unmarshaller = context.createUnmarshaller();
-        } catch (JAXBException ex) {
-            throw new IllegalStateException("Plumber construction failed ", ex);
+                    ScriptableSink.class, SpillingVirtualSinkSource.class,
+                    OffHeapVirtualSinkSource.class, BinaryRowFileSource.class,
+                    BinaryRowFileSink.class, ColumnarFileSource.class, ColumnarFileSink.class,
+                    JSONStreamSource.class, JSONFileSink.class, ChangeDetector.class,
+                    Deduplicator.class);
         }
+        return sharedContext;
     }
 
     public Pipeline fromConfiguration(String pipeName) {
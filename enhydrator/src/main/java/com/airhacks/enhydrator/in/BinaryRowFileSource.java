@@ -0,0 +1,254 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.BinaryRowFormat.SchemaColumn;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Reads files written by {@link com.airhacks.enhydrator.out.BinaryRowFileSink}.
+ * Uncompressed blocks are decoded directly from the memory mapped file,
+ * compressed blocks are inflated block by block. Rows are decoded lazily.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "binary-row-file-source")
+public class BinaryRowFileSource implements Source {
+
+    private String fileName;
+
+    @XmlTransient
+    private long bytesRead;
+
+    public BinaryRowFileSource(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public BinaryRowFileSource() {
+        //required for JAXB
+    }
+
+    /**
+     * @see Source
+     * @param query not applicable
+     * @param params not applicable
+     * @return the rows of the file, decoded while iterating
+     */
+    @Override
+    public Iterable<Row> query(String query, Object... params) {
+        Path file = Paths.get(this.fileName);
+        return () -> new BlockIterator(file);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * Closing releases the file and the inflater, also if the rows are not
+     * consumed to the end.
+     */
+    class BlockIterator implements Iterator<Row>, AutoCloseable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final long size;
+        private final List<SchemaColumn> schema;
+        private final Inflater inflater;
+        private long position;
+        private ByteBuffer block;
+        private int remainingRows;
+        private boolean done;
+
+        BlockIterator(Path file) {
+            this.file = file;
+            this.schema = new ArrayList<>();
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot open " + file, ex);
+            }
+            this.inflater = new Inflater();
+            try {
+                this.size = this.channel.size();
+                ByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryRowFormat.MAGIC.length + 1);
+                byte[] magic = new byte[BinaryRowFormat.MAGIC.length];
+                header.get(magic);
+                if (!Arrays.equals(magic, BinaryRowFormat.MAGIC)) {
+                    throw new IllegalStateException(file + " is not a binary row file");
+                }
+                byte version = header.get();
+                if (version != BinaryRowFormat.VERSION) {
+                    throw new IllegalStateException("Unsupported version " + version + " of " + file);
+                }
+                this.position = header.capacity();
+            } catch (IOException | RuntimeException ex) {
+                close();
+                if (ex instanceof RuntimeException) {
+                    throw (RuntimeException) ex;
+                }
+                throw new IllegalStateException("Cannot open " + file, ex);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.done) {
+                return false;
+            }
+            while (this.remainingRows == 0) {
+                if (this.position >= this.size) {
+                    close();
+                    return false;
+                }
+                nextBlock();
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.remainingRows--;
+            return readRow(this.block);
+        }
+
+        void nextBlock() {
+            try {
+                ByteBuffer header = ByteBuffer.allocate(BinaryRowFormat.BLOCK_HEADER_LENGTH);
+                while (header.hasRemaining()) {
+                    if (this.channel.read(header, this.position + header.position()) < 0) {
+                        throw new IllegalStateException("Truncated block at " + this.position + " of " + this.file);
+                    }
+                }
+                header.flip();
+                byte compression = header.get();
+                int rawLength = header.getInt();
+                int storedLength = header.getInt();
+                ByteBuffer stored = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position + BinaryRowFormat.BLOCK_HEADER_LENGTH, storedLength);
+                this.position += BinaryRowFormat.BLOCK_HEADER_LENGTH + storedLength;
+                bytesRead = this.position;
+                this.block = compression == BinaryRowFormat.DEFLATE ? inflate(stored, rawLength) : stored;
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read block at " + this.position + " of " + this.file, ex);
+            }
+            int newColumns = this.block.getInt();
+            for (int i = 0; i < newColumns; i++) {
+                this.schema.add(SchemaColumn.read(this.block));
+            }
+            this.remainingRows = this.block.getInt();
+        }
+
+        ByteBuffer inflate(ByteBuffer stored, int rawLength) {
+            byte[] compressed = new byte[stored.remaining()];
+            stored.get(compressed);
+            byte[] raw = new byte[rawLength];
+            this.inflater.reset();
+            this.inflater.setInput(compressed);
+            try {
+                int inflated = 0;
+                while (inflated < rawLength && !this.inflater.finished()) {
+                    inflated += this.inflater.inflate(raw, inflated, rawLength - inflated);
+                }
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("Corrupted block in " + this.file, ex);
+            }
+            return ByteBuffer.wrap(raw);
+        }
+
+        Row readRow(ByteBuffer in) {
+            Row row = new Row();
+            int numberOfColumns = in.getInt();
+            for (int i = 0; i < numberOfColumns; i++) {
+                SchemaColumn declaration = this.schema.get(in.getInt());
+                row.addColumn(declaration.create(RowCodec.readValue(in)));
+            }
+            int numberOfChildren = in.getInt();
+            for (int i = 0; i < numberOfChildren; i++) {
+                row.add(readRow(in));
+            }
+            return row;
+        }
+
+        @Override
+        public void close() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            this.remainingRows = 0;
+            this.inflater.end();
+            try {
+                this.channel.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot close " + this.file, ex);
+            }
+        }
+
+        boolean isOpen() {
+            return this.channel.isOpen();
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 59 * hash + Objects.hashCode(this.fileName);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final BinaryRowFileSource other = (BinaryRowFileSource) obj;
+        return Objects.equals(this.fileName, other.fileName);
+    }
+
+}
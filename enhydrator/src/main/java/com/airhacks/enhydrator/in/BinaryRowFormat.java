@@ -0,0 +1,229 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * The block format shared by BinaryRowFileSink and {@link BinaryRowFileSource}:
+ *
+ * <pre>
+ * file   := "ENHR" version:byte block*
+ * block  := compressed:byte rawLength:int storedLength:int payload
+ * payload:= schemaCount:int column* rowCount:int row*
+ * column := name:string index:int targetSink:string targetObject:string datatype:byte
+ * row    := columnCount:int (columnId:int value)* childCount:int row*
+ * </pre>
+ *
+ * The schema grows with every block: column ids refer to all columns declared
+ * in the current and previous blocks. The datatype is stored as a fixed code
+ * (see {@link #datatypeCode(com.airhacks.enhydrator.transform.Datatype)}),
+ * independent of the declaration order of {@link Datatype}. Values are encoded with
+ * {@link RowCodec#writeValue(java.io.DataOutput, java.lang.Object)}.
+ *
+ * @author airhacks.com
+ */
+public class BinaryRowFormat {
+
+    public static final byte[] MAGIC = "ENHR".getBytes(StandardCharsets.US_ASCII);
+    public static final byte VERSION = 1;
+    public static final byte UNCOMPRESSED = 0;
+    public static final byte DEFLATE = 1;
+    public static final int BLOCK_HEADER_LENGTH = 9;
+    static final byte NO_DATATYPE = -1;
+
+    private BinaryRowFormat() {
+    }
+
+    /**
+     * @param datatype a Datatype or null
+     * @return the code persisted for the datatype, {@link #NO_DATATYPE} for null
+     */
+    static byte datatypeCode(Datatype datatype) {
+        if (datatype == null) {
+            return NO_DATATYPE;
+        }
+        switch (datatype) {
+            case DOUBLE:
+                return 0;
+            case INTEGER:
+                return 1;
+            case BOOLEAN:
+                return 2;
+            case LONG:
+                return 3;
+            case DATE:
+                return 4;
+            case DECIMAL:
+                return 5;
+            case TIMESTAMP:
+                return 6;
+            case TIME:
+                return 7;
+            default:
+                throw new IllegalStateException("No code for datatype " + datatype);
+        }
+    }
+
+    /**
+     * @param code a code written by {@link #datatypeCode(com.airhacks.enhydrator.transform.Datatype)}
+     * @return the Datatype or null for {@link #NO_DATATYPE}
+     */
+    static Datatype datatypeFor(byte code) {
+        switch (code) {
+            case NO_DATATYPE:
+                return null;
+            case 0:
+                return Datatype.DOUBLE;
+            case 1:
+                return Datatype.INTEGER;
+            case 2:
+                return Datatype.BOOLEAN;
+            case 3:
+                return Datatype.LONG;
+            case 4:
+                return Datatype.DATE;
+            case 5:
+                return Datatype.DECIMAL;
+            case 6:
+                return Datatype.TIMESTAMP;
+            case 7:
+                return Datatype.TIME;
+            default:
+                throw new IllegalStateException("Unknown datatype code " + code);
+        }
+    }
+
+    public static class SchemaColumn {
+
+        private final String name;
+        private final int index;
+        private final String targetSink;
+        private final String targetObject;
+        private final Datatype datatype;
+
+        public SchemaColumn(Column column) {
+            this(column.getName(), column.getIndex(), column.getTargetSink(), column.getTargetObject(), datatypeOf(column.getValue()));
+        }
+
+        SchemaColumn(String name, int index, String targetSink, String targetObject, Datatype datatype) {
+            this.name = name;
+            this.index = index;
+            this.targetSink = targetSink;
+            this.targetObject = targetObject;
+            this.datatype = datatype;
+        }
+
+        static Datatype datatypeOf(Object value) {
+            if (value instanceof Integer) {
+                return Datatype.INTEGER;
+            }
+            if (value instanceof Double) {
+                return Datatype.DOUBLE;
+            }
+            if (value instanceof Boolean) {
+                return Datatype.BOOLEAN;
+            }
+            if (value instanceof Long) {
+                return Datatype.LONG;
+            }
+            if (value instanceof BigDecimal) {
+                return Datatype.DECIMAL;
+            }
+            if (value instanceof LocalDate) {
+                return Datatype.DATE;
+            }
+            if (value instanceof LocalDateTime) {
+                return Datatype.TIMESTAMP;
+            }
+            if (value instanceof LocalTime) {
+                return Datatype.TIME;
+            }
+            return null;
+        }
+
+        /**
+         * @param column a column of a row to be written
+         * @return true, if the column can be written with the id of this schema
+         * column
+         */
+        public boolean describes(Column column) {
+            return this.index == column.getIndex()
+                    && this.name.equals(column.getName())
+                    && Objects.equals(this.targetSink, column.getTargetSink())
+                    && Objects.equals(this.targetObject, column.getTargetObject());
+        }
+
+        public void write(DataOutput out) throws IOException {
+            RowCodec.writeString(out, this.name);
+            out.writeInt(this.index);
+            RowCodec.writeString(out, this.targetSink);
+            RowCodec.writeString(out, this.targetObject);
+            out.writeByte(datatypeCode(this.datatype));
+        }
+
+        static SchemaColumn read(ByteBuffer in) {
+            String name = RowCodec.readString(in);
+            int index = in.getInt();
+            String targetSink = RowCodec.readString(in);
+            String targetObject = RowCodec.readString(in);
+            Datatype datatype = datatypeFor(in.get());
+            return new SchemaColumn(name, index, targetSink, targetObject, datatype);
+        }
+
+        Column create(Object value) {
+            Column column = new Column(this.index, this.name, this.targetSink, value);
+            column.setTargetObject(this.targetObject);
+            return column;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the Datatype of the first value or null, if it is not one
+         * of the Datatypes
+         */
+        public Datatype getDatatype() {
+            return datatype;
+        }
+
+        @Override
+        public String toString() {
+            return "SchemaColumn{" + "name=" + name + ", index=" + index + ", targetSink=" + targetSink + ", datatype=" + datatype + '}';
+        }
+
+    }
+
+}
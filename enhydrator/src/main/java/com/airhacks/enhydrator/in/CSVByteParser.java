@@ -0,0 +1,637 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 - 2026 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+//LICENSE
+import com.airhacks.enhydrator.transform.DateTimeParser;
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Splits CSV records on byte level: the current record is kept in a reusable
+ * buffer together with the offsets of its fields. Strings are only created
+ * for accessed columns, numbers of typed columns are parsed from the bytes.
+ * Works with charsets which encode the delimiter, quote and line breaks as
+ * single ASCII bytes (UTF-8, ISO-8859-x, windows-125x, US-ASCII).
+ *
+ * Delimiters inside quotes do not split a field, quotes remain part of the
+ * value and records end at each line break, as with the line based parsers.
+ *
+ * @author airhacks.com
+ */
+public class CSVByteParser {
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final InputStream in;
+    private final byte delimiter;
+    private final Charset charset;
+
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    /**
+     * Stream offset of the first byte in the buffer
+     */
+    private long consumed;
+    /**
+     * Stream offset after the current record
+     */
+    private long offset;
+
+    private byte[] record;
+    private int recordLength;
+    private int[] starts;
+    private int[] ends;
+    private int fieldCount;
+
+    private final Deque<Record> replay;
+
+    public CSVByteParser(InputStream in, String delimiter, Charset charset) {
+        this.in = in;
+        this.charset = charset;
+        this.delimiter = singleByte(delimiter, charset);
+        for (String structural : new String[]{"\"", "\n", "\r"}) {
+            if (singleByte(structural, charset) != structural.charAt(0)) {
+                throw new IllegalArgumentException("Charset " + charset + " is not ASCII compatible");
+            }
+        }
+        this.buffer = new byte[Compression.BUFFER_SIZE];
+        this.record = new byte[1024];
+        this.starts = new int[16];
+        this.ends = new int[16];
+        this.replay = new ArrayDeque<>();
+    }
+
+    static byte singleByte(String character, Charset charset) {
+        try {
+            ByteBuffer encoded = charset.newEncoder().encode(CharBuffer.wrap(character));
+            if (encoded.remaining() != 1) {
+                throw new IllegalArgumentException("Delimiter " + character + " is not a single byte in " + charset);
+            }
+            return encoded.get();
+        } catch (CharacterCodingException | UnsupportedOperationException ex) {
+            throw new IllegalArgumentException("Cannot encode " + character + " with " + charset, ex);
+        }
+    }
+
+    /**
+     * Reads the next record into the reusable buffer
+     *
+     * @return false at the end of the input
+     */
+    public boolean next() throws IOException {
+        if (!this.replay.isEmpty()) {
+            restore(this.replay.poll());
+            return true;
+        }
+        this.recordLength = 0;
+        this.fieldCount = 0;
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean anything = false;
+        while (true) {
+            if (this.position == this.limit) {
+                this.consumed += this.limit;
+                this.limit = this.in.read(this.buffer);
+                this.position = 0;
+                if (this.limit <= 0) {
+                    this.limit = 0;
+                    if (!anything) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+            anything = true;
+            byte current = this.buffer[this.position++];
+            if (current == LF) {
+                break;
+            }
+            if (current == QUOTE) {
+                quoted = !quoted;
+            } else if (current == this.delimiter && !quoted) {
+                addField(fieldStart, this.recordLength);
+                fieldStart = this.recordLength + 1;
+            }
+            if (this.recordLength == this.record.length) {
+                this.record = Arrays.copyOf(this.record, this.record.length * 2);
+            }
+            this.record[this.recordLength++] = current;
+        }
+        int end = this.recordLength;
+        if (end > fieldStart && this.record[end - 1] == CR) {
+            end--;
+        }
+        addField(fieldStart, end);
+        this.offset = this.consumed + this.position;
+        return true;
+    }
+
+    /**
+     * @return the number of bytes from the start of the stream up to the end
+     * of the current record, including its line break
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Skips the stream up to the given offset without parsing the bytes in
+     * between. The next record starts at the offset.
+     *
+     * @param offset the end of an already processed record, see
+     * {@link #getOffset()}
+     */
+    public void skipTo(long offset) throws IOException {
+        if (!this.replay.isEmpty()) {
+            throw new IllegalStateException("Cannot skip sampled records");
+        }
+        long remaining = offset - (this.consumed + this.position);
+        if (remaining < 0) {
+            throw new IllegalArgumentException("Offset " + offset + " was already read");
+        }
+        if (remaining <= this.limit - this.position) {
+            this.position += (int) remaining;
+            this.offset = offset;
+            return;
+        }
+        remaining -= this.limit - this.position;
+        this.consumed += this.limit;
+        this.position = 0;
+        this.limit = 0;
+        while (remaining > 0) {
+            long skipped = this.in.skip(remaining);
+            if (skipped <= 0) {
+                if (this.in.read() < 0) {
+                    throw new EOFException("Offset " + offset + " is beyond the end of the stream");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+            this.consumed += skipped;
+        }
+        this.offset = offset;
+    }
+
+    void addField(int start, int end) {
+        if (this.fieldCount == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.fieldCount * 2);
+            this.ends = Arrays.copyOf(this.ends, this.fieldCount * 2);
+        }
+        this.starts[this.fieldCount] = start;
+        this.ends[this.fieldCount] = end;
+        this.fieldCount++;
+    }
+
+    /**
+     * Infers the datatypes from the next records. The sampled records are
+     * returned again by the subsequent invocations of next.
+     *
+     * @param sampleSize the maximum number of sampled records
+     * @return the inferred datatypes
+     */
+    public SchemaInference sample(int sampleSize) throws IOException {
+        SchemaInference inference = new SchemaInference();
+        List<Record> sampled = new ArrayList<>();
+        while (sampled.size() < sampleSize && next()) {
+            inference.sample(this.record, this.starts, this.ends, this.fieldCount);
+            sampled.add(new Record(Arrays.copyOf(this.record, this.recordLength),
+                    Arrays.copyOf(this.starts, this.fieldCount), Arrays.copyOf(this.ends, this.fieldCount), this.offset));
+        }
+        sampled.forEach(this.replay::add);
+        return inference;
+    }
+
+    void restore(Record sampled) {
+        this.recordLength = sampled.bytes.length;
+        if (this.record.length < this.recordLength) {
+            this.record = Arrays.copyOf(sampled.bytes, this.recordLength);
+        } else {
+            System.arraycopy(sampled.bytes, 0, this.record, 0, this.recordLength);
+        }
+        this.fieldCount = 0;
+        for (int i = 0; i < sampled.starts.length; i++) {
+            addField(sampled.starts[i], sampled.ends[i]);
+        }
+        this.offset = sampled.offset;
+    }
+
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    public boolean isEmpty(int field) {
+        return this.starts[field] == this.ends[field];
+    }
+
+    public String getString(int field) {
+        return new String(this.record, this.starts[field], this.ends[field] - this.starts[field], this.charset);
+    }
+
+    /**
+     * Converts the current record into a row. Columns mapped to a datatype are
+     * converted from the bytes, all other columns are materialized on first
+     * access. Values which cannot be converted remain strings, the row records
+     * a {@link ConversionException}.
+     *
+     * @param names the column name for a field index
+     * @param datatypes datatype by column name
+     * @return the row with lazy or converted columns
+     */
+    public Row toRow(IntFunction<String> names, Map<String, Datatype> datatypes) {
+        return toRow(names, datatypes, null);
+    }
+
+    /**
+     * Fields outside the projection are skipped, the remaining columns keep
+     * their index.
+     *
+     * @param projection the required columns, null for all
+     */
+    public Row toRow(IntFunction<String> names, Map<String, Datatype> datatypes, ColumnProjection projection) {
+        Row row = new Row();
+        byte[] line = null;
+        for (int i = 0; i < this.fieldCount; i++) {
+            String name = names.apply(i);
+            if (projection != null && !projection.includes(i, name)) {
+                continue;
+            }
+            if (isEmpty(i)) {
+                row.addNullColumn(i, name);
+                continue;
+            }
+            Datatype datatype = datatypes == null ? null : datatypes.get(name);
+            Object converted = datatype == null ? null : convert(datatype, this.record, this.starts[i], this.ends[i]);
+            if (converted != null) {
+                row.addColumn(i, name, converted);
+                continue;
+            }
+            if (datatype != null) {
+                row.conversionFailed(new ConversionException(name, datatype, getString(i)));
+            }
+            if (line == null) {
+                line = Arrays.copyOf(this.record, this.recordLength);
+            }
+            row.addColumn(Column.lazy(i, name, new Field(line, this.starts[i], this.ends[i], this.charset)));
+        }
+        return row;
+    }
+
+    /**
+     * Parses all remaining records
+     */
+    public List<Row> rows(IntFunction<String> names, Map<String, Datatype> datatypes) throws IOException {
+        return rows(names, datatypes, null);
+    }
+
+    public List<Row> rows(IntFunction<String> names, Map<String, Datatype> datatypes, ColumnProjection projection) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        while (next()) {
+            rows.add(toRow(names, datatypes, projection));
+        }
+        return rows;
+    }
+
+    /**
+     * @return the converted value or null, if the bytes cannot be converted
+     */
+    static Object convert(Datatype datatype, byte[] bytes, int start, int end) {
+        switch (datatype) {
+            case INTEGER:
+                return parseInteger(bytes, start, end);
+            case DOUBLE:
+                Double parsed = parseDouble(bytes, start, end);
+                if (parsed != null) {
+                    return parsed;
+                }
+                try {
+                    return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            case BOOLEAN:
+                return Boolean.TRUE.equals(parseBoolean(bytes, start, end));
+            case LONG:
+                return parseLong(bytes, start, end);
+            case DATE:
+                return parseDate(bytes, start, end);
+            case DECIMAL:
+                BigDecimal decimal = parseDecimal(bytes, start, end);
+                if (decimal != null) {
+                    return decimal;
+                }
+                try {
+                    return new BigDecimal(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            case TIMESTAMP:
+            case TIME:
+                return DateTimeParser.iso(datatype, new Ascii(bytes, start, end));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Same syntax as Integer.parseInt
+     *
+     * @return null if not a decimal int
+     */
+    static Integer parseInteger(byte[] bytes, int start, int end) {
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+        if (i == end) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return null;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Same syntax as Long.parseLong
+     *
+     * @return null if not a decimal long
+     */
+    static Long parseLong(byte[] bytes, int start, int end) {
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+        if (i == end) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                return null;
+            }
+            value = value * 10 - digit;
+        }
+        if (negative) {
+            return value;
+        }
+        return value == Long.MIN_VALUE ? null : -value;
+    }
+
+    /**
+     * @return null, if neither true nor false (ignoring case)
+     */
+    static Boolean parseBoolean(byte[] bytes, int start, int end) {
+        if (end - start == 4
+                && (bytes[start] | 0x20) == 't' && (bytes[start + 1] | 0x20) == 'r'
+                && (bytes[start + 2] | 0x20) == 'u' && (bytes[start + 3] | 0x20) == 'e') {
+            return Boolean.TRUE;
+        }
+        if (end - start == 5
+                && (bytes[start] | 0x20) == 'f' && (bytes[start + 1] | 0x20) == 'a'
+                && (bytes[start + 2] | 0x20) == 'l' && (bytes[start + 3] | 0x20) == 's'
+                && (bytes[start + 4] | 0x20) == 'e') {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * ISO-8601 calendar dates (yyyy-MM-dd)
+     *
+     * @return null for other syntaxes or invalid dates
+     */
+    static LocalDate parseDate(byte[] bytes, int start, int end) {
+        if (end - start != 10 || bytes[start + 4] != '-' || bytes[start + 7] != '-') {
+            return null;
+        }
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * @return the value of the digits or -1, if any byte is not a digit
+     */
+    static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decimals ([+-]digits[.digits]) with up to 18 digits, all other syntaxes
+     * are left to the BigDecimal constructor.
+     *
+     * @return null for other syntaxes
+     */
+    static BigDecimal parseDecimal(byte[] bytes, int start, int end) {
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte current = bytes[i];
+            if (current == '.' && scale == -1) {
+                scale = 0;
+                continue;
+            }
+            int digit = current - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            if (++digits > 18) {
+                return null;
+            }
+            unscaled = unscaled * 10 + digit;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Exact for decimals ([+-]digits[.digits]) with up to 15 significant digits
+     * and 22 fraction digits, all other syntaxes are left to
+     * Double.parseDouble.
+     *
+     * @return null for other syntaxes
+     */
+    static Double parseDouble(byte[] bytes, int start, int end) {
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean anyDigit = false;
+        for (; i < end; i++) {
+            byte current = bytes[i];
+            if (current == '.' && fractionDigits == -1) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = current - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            anyDigit = true;
+            mantissa = mantissa * 10 + digit;
+            if (mantissa != 0 && ++digits > 15) {
+                return null;
+            }
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (!anyDigit || fractionDigits > 22) {
+            return null;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * A sampled record, replayed after the inference
+     */
+    static class Record {
+
+        final byte[] bytes;
+        final int[] starts;
+        final int[] ends;
+        final long offset;
+
+        Record(byte[] bytes, int[] starts, int[] ends, long offset) {
+            this.bytes = bytes;
+            this.starts = starts;
+            this.ends = ends;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * ISO-8859-1 view of a field, parsed without copying
+     */
+    static class Ascii implements CharSequence {
+
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+
+        Ascii(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (this.bytes[this.start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Ascii(this.bytes, this.start + from, this.start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(this.bytes, this.start, length(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * A field of a copied record, decoded on first access
+     */
+    static class Field implements Supplier<Object> {
+
+        private final byte[] line;
+        private final int start;
+        private final int end;
+        private final Charset charset;
+
+        Field(byte[] line, int start, int end, Charset charset) {
+            this.line = line;
+            this.start = start;
+            this.end = end;
+            this.charset = charset;
+        }
+
+        @Override
+        public Object get() {
+            return new String(this.line, this.start, this.end - this.start, this.charset);
+        }
+    }
+
+}
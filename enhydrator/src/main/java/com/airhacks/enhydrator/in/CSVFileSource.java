@@ -34,17 +34,28 @@ package com.airhacks.enhydrator.in;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -64,6 +75,27 @@ public class CSVFileSource implements Source {
     private String charsetName;
     private String delimiter;
     private boolean fileContainsHeaders;
+    /**
+     * Detected by the file extension, if not set
+     */
+    private Compression compression;
+    /**
+     * Reads and decompresses the file in a separate thread
+     */
+    private boolean readAhead;
+    /**
+     * Parses bytes and creates strings only for accessed columns
+     */
+    private boolean lazy;
+    /**
+     * Columns converted while parsing, requires lazy parsing
+     */
+    private Map<String, Datatype> datatypes;
+    /**
+     * Number of records used to infer the column datatypes, no inference if
+     * not positive
+     */
+    private int sampleSize;
 
     @XmlTransient
     private Charset charset;
@@ -72,16 +104,31 @@ public class CSVFileSource implements Source {
 
     @XmlTransient
     private Path file;
-    @XmlTransient
-    private Stream<String> lines;
-
     @XmlTransient
     private int counter;
 
     @XmlTransient
     private List<String> columnNames;
     @XmlTransient
-    private List<Row> iterable;
+    private ColumnProjection projection;
+    /**
+     * Number of rows (including the header row) before the resumed position,
+     * not delivered again
+     */
+    @XmlTransient
+    private long skipped;
+    @XmlTransient
+    private long resumedOffset = -1;
+    /**
+     * Rows delivered by the current iterator and the byte offset after the
+     * last of them, the offset is only known for the byte level parser
+     */
+    @XmlTransient
+    private long delivered;
+    @XmlTransient
+    private long lastOffset = -1;
+    @XmlTransient
+    private final LongAdder bytesRead = new LongAdder();
 
     public CSVFileSource(String file, String delimiter, String charset, boolean fileContainsHeaders) {
         this.fileName = file;
@@ -91,6 +138,16 @@ public class CSVFileSource implements Source {
         init();
     }
 
+    public CSVFileSource(String file, String delimiter, String charset, boolean fileContainsHeaders, Compression compression, boolean readAhead) {
+        this.fileName = file;
+        this.delimiter = delimiter;
+        this.fileContainsHeaders = fileContainsHeaders;
+        this.charsetName = charset;
+        this.compression = compression;
+        this.readAhead = readAhead;
+        init();
+    }
+
     public CSVFileSource() {
     }
 
@@ -107,11 +164,6 @@ public class CSVFileSource implements Source {
             throw new IllegalArgumentException(this.fileName + " does not exist !");
         }
         this.columnNames = new ArrayList<>();
-        try {
-            this.lines = Files.lines(this.file, this.charset);
-        } catch (IOException ex) {
-            throw new IllegalStateException("Cannot parse lines");
-        }
         if (this.fileContainsHeaders) {
             this.columnNames = this.extractHeaders();
         }
@@ -119,12 +171,12 @@ public class CSVFileSource implements Source {
 
     final List<String> extractHeaders() {
         String headerLine = null;
-        try {
-            headerLine = Files.lines(this.file, this.charset).findFirst().get();
-        } catch (IOException ex) {
+        try (Stream<String> headerLines = openLines(null)) {
+            headerLine = headerLines.findFirst().get();
+        } catch (IOException | UncheckedIOException ex) {
             Logger.getLogger(CSVFileSource.class.getName()).log(Level.SEVERE, null, ex);
         }
-        Row headers = parse(headerLine, this.delimiter);
+        Row headers = parse(headerLine, this.delimiter, null);
         List<String> sortedNames = new ArrayList<>();
         for (int i = 0; i < headers.getNumberOfColumns(); i++) {
             Column columnByIndex = headers.getColumnByIndex(i);
@@ -134,20 +186,343 @@ public class CSVFileSource implements Source {
     }
 
     /**
+     * Switches to the byte level parser, see {@link CSVByteParser}
+     *
+     * @return this
+     */
+    public CSVFileSource lazy() {
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Converts the column while parsing, switches to the byte level parser
+     *
+     * @param columnName the name of the column
+     * @param datatype INTEGER, LONG, DOUBLE, DECIMAL, BOOLEAN, DATE (ISO-8601),
+     * TIMESTAMP or TIME
+     * @return this
+     */
+    public CSVFileSource typed(String columnName, Datatype datatype) {
+        if (this.datatypes == null) {
+            this.datatypes = new HashMap<>();
+        }
+        this.datatypes.put(columnName, datatype);
+        return lazy();
+    }
+
+    /**
+     * Unreferenced cells are skipped, the remaining columns keep their index
+     */
+    @Override
+    public boolean project(ColumnProjection projection) {
+        this.projection = projection;
+        return true;
+    }
+
+    /**
+     * Infers the column datatypes from the first records and converts the
+     * cells while parsing, see {@link SchemaInference}. Datatypes set with
+     * typed take precedence.
+     *
+     * @param sampleSize the number of sampled records
+     * @return this
+     */
+    public CSVFileSource inferDatatypes(int sampleSize) {
+        this.sampleSize = sampleSize;
+        return lazy();
+    }
+
+    Map<String, Datatype> datatypes(CSVByteParser parser) throws IOException {
+        if (this.sampleSize <= 0) {
+            return this.datatypes;
+        }
+        Map<String, Datatype> inferred = parser.sample(this.sampleSize).getDatatypes(this::getColumnName);
+        if (this.datatypes != null) {
+            inferred.putAll(this.datatypes);
+        }
+        return inferred;
+    }
+
+    /**
+     * @param counter counts the bytes read from the file, null for none
+     */
+    Stream<String> openLines(LongAdder counter) throws IOException {
+        Compression used = Compression.of(this.compression, this.fileName);
+        Reader reader;
+        if (used == Compression.NONE && !this.readAhead) {
+            //reports malformed input as Files.lines does
+            reader = new InputStreamReader(counted(Files.newInputStream(this.file), counter), this.charset.newDecoder());
+        } else {
+            reader = new InputStreamReader(openStream(counter), this.charset);
+        }
+        BufferedReader buffered = new BufferedReader(reader, Compression.BUFFER_SIZE);
+        return buffered.lines().onClose(() -> {
+            try {
+                buffered.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * @param counter counts the (compressed) bytes read from the file, null
+     * for none
+     */
+    InputStream openStream(LongAdder counter) throws IOException {
+        Compression used = Compression.of(this.compression, this.fileName);
+        InputStream raw = counted(new FileInputStream(this.file.toFile()), counter);
+        InputStream in;
+        try {
+            in = used.decompress(raw);
+        } catch (IOException ex) {
+            raw.close();
+            throw ex;
+        }
+        if (this.readAhead) {
+            in = new ReadAheadInputStream(in);
+        }
+        return in;
+    }
+
+    static InputStream counted(InputStream in, LongAdder counter) {
+        if (counter == null) {
+            return in;
+        }
+        return new CSVStreamSource.CountingInputStream(in, counter);
+    }
+
+    /**
+     * Each iteration opens the file, the lines are parsed while iterating.
+     * The iterators are AutoCloseable and release the file, also if the rows
+     * are not consumed to the end.
      *
      * @param query not supported yet
      * @param params not supported yet
-     * @return
+     * @return the rows, parsed while iterating
      */
     @Override
     public Iterable<Row> query(String query, Object... params) {
-        if (this.iterable == null) {
-            this.iterable = this.lines.map(s -> parse(s, this.delimiter)).collect(Collectors.toList());
+        if (this.lazy || this.datatypes != null) {
+            return () -> {
+                try {
+                    return new Records(openStream(this.bytesRead));
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Cannot parse " + this.fileName, ex);
+                }
+            };
         }
-        return this.iterable;
+        return () -> {
+            try {
+                return new Lines(openLines(this.bytesRead));
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot parse " + this.fileName, ex);
+            }
+        };
+    }
+
+    void delivered(long offset) {
+        this.delivered++;
+        this.lastOffset = offset;
+    }
+
+    /**
+     * @return the number of data records delivered before the resumed
+     * position, the header row is counted by skipped as well
+     */
+    long skippedRecords() {
+        if (this.fileContainsHeaders && this.skipped > 0) {
+            return this.skipped - 1;
+        }
+        return this.skipped;
+    }
+
+    /**
+     * The byte offset is only known for the last delivered row of the byte
+     * level parser
+     */
+    @Override
+    public SourcePosition position(long rows) {
+        long offset = rows > 0 && rows == this.delivered ? this.lastOffset : -1;
+        return new SourcePosition(this.skipped + rows, offset, null);
+    }
+
+    /**
+     * Seeks to the byte offset of the position with the byte level parser,
+     * otherwise skips the already delivered lines without parsing them. The
+     * header row is not delivered again.
+     */
+    @Override
+    public boolean resumeFrom(SourcePosition position) {
+        this.skipped = Math.max(0, position.getRows());
+        this.resumedOffset = position.getOffset();
+        return true;
+    }
+
+    /**
+     * @return the number of bytes read from the file so far, the compressed
+     * bytes for compressed files
+     */
+    @Override
+    public long getBytesRead() {
+        return this.bytesRead.sum();
+    }
+
+    /**
+     * Records of the byte level parser. Setting up skips the resumed part of
+     * the file and samples the datatypes, the remaining records are parsed
+     * on demand.
+     */
+    class Records implements Iterator<Row>, AutoCloseable {
+
+        private final InputStream in;
+        private final CSVByteParser parser;
+        private final Map<String, Datatype> used;
+        private Row next;
+        private long nextOffset;
+        private boolean done;
+
+        Records(InputStream in) throws IOException {
+            this.in = in;
+            try {
+                this.parser = new CSVByteParser(in, delimiter, charset);
+                start();
+                if (fileContainsHeaders && this.parser.next() && skipped == 0) {
+                    this.next = this.parser.toRow(CSVFileSource.this::getColumnName, null, projection);
+                    this.nextOffset = this.parser.getOffset();
+                }
+                if (skipped > 0) {
+                    if (resumedOffset > this.parser.getOffset()) {
+                        this.parser.skipTo(resumedOffset);
+                    } else {
+                        long records = 0;
+                        while (records < skippedRecords() && this.parser.next()) {
+                            records++;
+                        }
+                    }
+                }
+                this.used = datatypes(this.parser);
+            } catch (IOException | RuntimeException ex) {
+                in.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.done) {
+                return false;
+            }
+            try {
+                if (!this.parser.next()) {
+                    close();
+                    return false;
+                }
+            } catch (IOException ex) {
+                close();
+                throw new IllegalStateException("Cannot parse " + fileName, ex);
+            }
+            this.next = this.parser.toRow(CSVFileSource.this::getColumnName, this.used, projection);
+            this.nextOffset = this.parser.getOffset();
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row current = this.next;
+            this.next = null;
+            delivered(this.nextOffset);
+            return current;
+        }
+
+        @Override
+        public void close() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            this.next = null;
+            try {
+                this.in.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot close " + fileName, ex);
+            }
+        }
+    }
+
+    /**
+     * Lines of the regular expression based parser. The header line and the
+     * skipped lines are not parsed at all.
+     */
+    class Lines implements Iterator<Row>, AutoCloseable {
+
+        private final Stream<String> lines;
+        private final Iterator<String> remaining;
+        private boolean done;
+
+        Lines(Stream<String> lines) {
+            this.lines = lines;
+            this.remaining = lines.iterator();
+            start();
+            if (skipped > 0) {
+                if (fileContainsHeaders && this.remaining.hasNext()) {
+                    this.remaining.next();
+                }
+                for (long i = 0; i < skippedRecords() && this.remaining.hasNext(); i++) {
+                    this.remaining.next();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.done) {
+                return false;
+            }
+            if (!this.remaining.hasNext()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = parse(this.remaining.next(), delimiter);
+            delivered(-1);
+            return row;
+        }
+
+        @Override
+        public void close() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            this.lines.close();
+        }
+    }
+
+    void start() {
+        this.delivered = 0;
+        this.lastOffset = -1;
     }
 
     Row parse(String line, String delimiter) {
+        return parse(line, delimiter, this.projection);
+    }
+
+    Row parse(String line, String delimiter, ColumnProjection projection) {
         String[] splitted = split(line, escape(delimiter) + REGEX_SPLIT_EXPRESSION);
         if (splitted == null || splitted.length == 0) {
             return null;
@@ -156,6 +531,9 @@ public class CSVFileSource implements Source {
         for (int i = 0; i < splitted.length; i++) {
             String value = splitted[i];
             String columnName = getColumnName(i);
+            if (projection != null && !projection.includes(i, columnName)) {
+                continue;
+            }
             if (value.isEmpty()) {
                 row.addNullColumn(i, columnName);
             } else {
@@ -190,6 +568,7 @@ public class CSVFileSource implements Source {
         hash = 23 * hash + Objects.hashCode(this.charsetName);
         hash = 23 * hash + Objects.hashCode(this.delimiter);
         hash = 23 * hash + (this.fileContainsHeaders ? 1 : 0);
+        hash = 23 * hash + Objects.hashCode(this.compression);
         return hash;
     }
 
@@ -214,6 +593,9 @@ public class CSVFileSource implements Source {
         if (this.fileContainsHeaders != other.fileContainsHeaders) {
             return false;
         }
+        if (this.compression != other.compression) {
+            return false;
+        }
         return true;
     }
 
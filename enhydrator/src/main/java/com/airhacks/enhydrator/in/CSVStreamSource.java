@@ -34,13 +34,30 @@ package com.airhacks.enhydrator.in;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.transform.Datatype;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -49,6 +66,12 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 /**
+ * Parses CSV lines from an InputStream. With a parallelism above one the
+ * stream is read into reusable blocks by a read-ahead thread, the lines are
+ * decoded and batched by the querying thread and the batches are parsed by a
+ * worker pool. The rows are handed out batch by batch as they are consumed
+ * and keep the order of the lines. At most two batches per worker are in
+ * flight, so a slow consumer slows down reading and parsing.
  *
  * @author airhacks.com
  */
@@ -59,11 +82,38 @@ public class CSVStreamSource implements Source {
     private String charsetName;
     private String delimiter;
     private boolean containsHeaders;
+    private Compression compression;
+    /**
+     * Reads and decompresses the stream in a separate thread
+     */
+    private boolean readAhead;
+    /**
+     * Number of parsing threads, sequential parsing if not above one
+     */
+    private int parallelism;
+    /**
+     * Parses bytes and creates strings only for accessed columns, always
+     * sequential
+     */
+    private boolean lazy;
+    /**
+     * Columns converted while parsing, requires lazy parsing
+     */
+    private Map<String, Datatype> datatypes;
+    /**
+     * Number of records used to infer the column datatypes, no inference if
+     * not positive
+     */
+    private int sampleSize;
 
     @XmlTransient
     private Charset charset;
 
     static final String REGEX_SPLIT_EXPRESSION = "(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+    static final int BATCH_SIZE = 1024;
+
+    @XmlTransient
+    private Pattern splitter;
 
     @XmlTransient
     private Stream<String> lines;
@@ -71,12 +121,32 @@ public class CSVStreamSource implements Source {
     @XmlTransient
     private List<String> columnNames;
     @XmlTransient
-    private List<Row> iterable;
+    private Iterable<Row> iterable;
+    @XmlTransient
+    private ColumnProjection projection;
 
     @XmlTransient
     private InputStream stream;
     @XmlTransient
+    private InputStream input;
+    @XmlTransient
     private boolean shouldProcessHeaders;
+    @XmlTransient
+    private LongAdder bytesRead;
+    /**
+     * Number of rows (including the header row) before the resumed position,
+     * not delivered again
+     */
+    @XmlTransient
+    private long skipped;
+    @XmlTransient
+    private long resumedOffset = -1;
+    /**
+     * Byte offsets after each delivered row, only known for the byte level
+     * parser
+     */
+    @XmlTransient
+    private long[] offsets;
 
     public CSVStreamSource() {
         // for JAXB
@@ -90,11 +160,105 @@ public class CSVStreamSource implements Source {
         init();
     }
 
+    public CSVStreamSource(InputStream stream, String delimiter, String charset, boolean containsHeaders, Compression compression, boolean readAhead) {
+        this.stream = stream;
+        this.delimiter = delimiter;
+        this.containsHeaders = containsHeaders;
+        this.charsetName = charset;
+        this.compression = compression;
+        this.readAhead = readAhead;
+        init();
+    }
+
+    public CSVStreamSource(InputStream stream, String delimiter, String charset, boolean containsHeaders, Compression compression, int parallelism) {
+        this.stream = stream;
+        this.delimiter = delimiter;
+        this.containsHeaders = containsHeaders;
+        this.charsetName = charset;
+        this.compression = compression;
+        this.parallelism = parallelism;
+        init();
+    }
+
     public void init() throws IllegalStateException, IllegalArgumentException {
         this.shouldProcessHeaders = this.containsHeaders;
         this.charset = Charset.forName(charsetName);
         this.columnNames = new ArrayList<>();
-        this.lines = new BufferedReader(new InputStreamReader(stream, this.charset)).lines();
+        this.splitter = Pattern.compile(this.delimiter + REGEX_SPLIT_EXPRESSION);
+        this.bytesRead = new LongAdder();
+        InputStream in = new CountingInputStream(stream, this.bytesRead);
+        if (this.compression != null) {
+            try {
+                in = this.compression.decompress(in);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot decompress " + this.compression + " stream", ex);
+            }
+        }
+        if (this.readAhead || this.parallelism > 1) {
+            in = new ReadAheadInputStream(in);
+        }
+        this.input = in;
+        this.lines = new BufferedReader(new InputStreamReader(in, this.charset), Compression.BUFFER_SIZE).lines();
+    }
+
+    /**
+     * Switches to the byte level parser, see {@link CSVByteParser}
+     *
+     * @return this
+     */
+    public CSVStreamSource lazy() {
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Converts the column while parsing, switches to the byte level parser
+     *
+     * @param columnName the name of the column
+     * @param datatype INTEGER, LONG, DOUBLE, DECIMAL, BOOLEAN, DATE (ISO-8601),
+     * TIMESTAMP or TIME
+     * @return this
+     */
+    public CSVStreamSource typed(String columnName, Datatype datatype) {
+        if (this.datatypes == null) {
+            this.datatypes = new HashMap<>();
+        }
+        this.datatypes.put(columnName, datatype);
+        return lazy();
+    }
+
+    /**
+     * Unreferenced cells are skipped, the remaining columns keep their index.
+     * The header row is delivered completely.
+     */
+    @Override
+    public boolean project(ColumnProjection projection) {
+        this.projection = projection;
+        return true;
+    }
+
+    /**
+     * Infers the column datatypes from the first records and converts the
+     * cells while parsing, see {@link SchemaInference}. Datatypes set with
+     * typed take precedence.
+     *
+     * @param sampleSize the number of sampled records
+     * @return this
+     */
+    public CSVStreamSource inferDatatypes(int sampleSize) {
+        this.sampleSize = sampleSize;
+        return lazy();
+    }
+
+    Map<String, Datatype> datatypes(CSVByteParser parser) throws IOException {
+        if (this.sampleSize <= 0) {
+            return this.datatypes;
+        }
+        Map<String, Datatype> inferred = parser.sample(this.sampleSize).getDatatypes(this::getColumnName);
+        if (this.datatypes != null) {
+            inferred.putAll(this.datatypes);
+        }
+        return inferred;
     }
 
     void extractHeaders(Row headers, int index, String headerLine) {
@@ -112,13 +276,262 @@ public class CSVStreamSource implements Source {
     @Override
     public Iterable<Row> query(String query, Object... params) {
         if (this.iterable == null) {
-            this.iterable = this.lines.map(s -> parse(s, this.delimiter)).collect(Collectors.toList());
+            if (this.lazy || this.datatypes != null) {
+                this.iterable = this.parseLazily();
+            } else if (this.parallelism > 1) {
+                this.iterable = this.parseInParallel();
+            } else if (this.skipped > 0) {
+                this.iterable = this.parseRemaining(this.lines.iterator());
+            } else {
+                this.iterable = this.lines.map(s -> parse(s, this.delimiter)).collect(Collectors.toList());
+            }
         }
         return this.iterable;
     }
 
+    List<Row> parseLazily() {
+        try (InputStream in = this.input) {
+            CSVByteParser parser = new CSVByteParser(in, this.delimiter, this.charset);
+            List<Row> rows = new ArrayList<>();
+            this.offsets = new long[1024];
+            if (this.shouldProcessHeaders && parser.next()) {
+                Row headers = new Row();
+                for (int i = 0; i < parser.getFieldCount(); i++) {
+                    extractHeaders(headers, i, parser.getString(i));
+                }
+                if (this.skipped == 0) {
+                    rows.add(headers);
+                    this.offsets[0] = parser.getOffset();
+                }
+                this.shouldProcessHeaders = false;
+            }
+            if (this.skipped > 0) {
+                if (this.resumedOffset > parser.getOffset()) {
+                    parser.skipTo(this.resumedOffset);
+                } else {
+                    long records = 0;
+                    while (records < skippedRecords() && parser.next()) {
+                        records++;
+                    }
+                }
+            }
+            Map<String, Datatype> used = datatypes(parser);
+            while (parser.next()) {
+                if (rows.size() == this.offsets.length) {
+                    this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+                }
+                this.offsets[rows.size()] = parser.getOffset();
+                rows.add(parser.toRow(this::getColumnName, used, this.projection));
+            }
+            return rows;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot parse stream", ex);
+        }
+    }
+
+    /**
+     * The stream is consumed once, further iterators continue where the
+     * previous one stopped.
+     */
+    Iterable<Row> parseInParallel() {
+        return new Iterable<Row>() {
+            private ParallelRows rows;
+
+            @Override
+            public Iterator<Row> iterator() {
+                if (this.rows == null) {
+                    this.rows = new ParallelRows();
+                }
+                return this.rows;
+            }
+        };
+    }
+
+    /**
+     * Batches the lines in the consuming thread and hands out the rows of the
+     * batches parsed by the workers in order. Closing the iterator stops the
+     * workers and the read-ahead thread, if the rows are not consumed to the
+     * end.
+     */
+    class ParallelRows implements Iterator<Row>, AutoCloseable {
+
+        private final Iterator<String> remaining;
+        private final List<String> names;
+        private final ExecutorService workers;
+        private final Queue<Future<List<Row>>> inFlight;
+        private Iterator<Row> current;
+        private boolean closed;
+
+        ParallelRows() {
+            this.remaining = lines.iterator();
+            List<Row> first = new ArrayList<>(1);
+            if (this.remaining.hasNext() && (containsHeaders || skipped == 0)) {
+                Row header = parse(this.remaining.next(), delimiter);
+                if (skipped == 0) {
+                    first.add(header);
+                }
+            }
+            for (long i = 0; i < skippedRecords() && this.remaining.hasNext(); i++) {
+                this.remaining.next();
+            }
+            this.current = first.iterator();
+            this.names = new ArrayList<>(columnNames);
+            this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread worker = new Thread(r, "enhydrator-csv-parser");
+                worker.setDaemon(true);
+                return worker;
+            });
+            this.inFlight = new ArrayDeque<>();
+            submit();
+        }
+
+        /**
+         * Keeps two batches per worker in flight
+         */
+        void submit() {
+            while (this.inFlight.size() < 2 * parallelism && this.remaining.hasNext()) {
+                List<String> batch = new ArrayList<>(BATCH_SIZE);
+                while (batch.size() < BATCH_SIZE && this.remaining.hasNext()) {
+                    batch.add(this.remaining.next());
+                }
+                this.inFlight.add(this.workers.submit(() -> parse(batch, this.names)));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!this.current.hasNext()) {
+                if (this.inFlight.isEmpty()) {
+                    close();
+                    return false;
+                }
+                Future<List<Row>> next = this.inFlight.poll();
+                try {
+                    submit();
+                    this.current = await(next).iterator();
+                } catch (RuntimeException ex) {
+                    close();
+                    throw ex;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.current.next();
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.inFlight.forEach(f -> f.cancel(true));
+            this.inFlight.clear();
+            this.current = Collections.emptyIterator();
+            this.workers.shutdownNow();
+            lines.close();
+            try {
+                input.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot close stream", ex);
+            }
+        }
+    }
+
+    /**
+     * The header line is parsed again to register the column names, but not
+     * delivered. The skipped lines are not parsed at all.
+     */
+    List<Row> parseRemaining(Iterator<String> lines) {
+        List<Row> rows = new ArrayList<>();
+        if (this.containsHeaders && lines.hasNext()) {
+            parse(lines.next(), this.delimiter);
+        }
+        for (long i = 0; i < skippedRecords() && lines.hasNext(); i++) {
+            lines.next();
+        }
+        lines.forEachRemaining(line -> rows.add(parse(line, this.delimiter)));
+        return rows;
+    }
+
+    /**
+     * @return the number of data records delivered before the resumed
+     * position, the header row is counted by skipped as well
+     */
+    long skippedRecords() {
+        if (this.containsHeaders && this.skipped > 0) {
+            return this.skipped - 1;
+        }
+        return this.skipped;
+    }
+
+    @Override
+    public SourcePosition position(long rows) {
+        long offset = this.offsets == null || rows == 0 ? -1 : this.offsets[(int) rows - 1];
+        return new SourcePosition(this.skipped + rows, offset, null);
+    }
+
+    /**
+     * The stream is read from the beginning again: the byte level parser
+     * skips to the byte offset of the position, the line based parsers skip
+     * the already delivered lines without parsing them. The header row only
+     * registers the column names and is not delivered again.
+     */
+    @Override
+    public boolean resumeFrom(SourcePosition position) {
+        this.skipped = Math.max(0, position.getRows());
+        this.resumedOffset = position.getOffset();
+        return true;
+    }
+
+    static List<Row> await(Future<List<Row>> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Cannot parse lines", ex.getCause());
+        }
+    }
+
+    /**
+     * Thread safe: does not register new column names
+     */
+    List<Row> parse(List<String> batch, List<String> names) {
+        List<Row> rows = new ArrayList<>(batch.size());
+        for (String line : batch) {
+            String[] splitted = this.splitter.split(line, -1);
+            Row row = new Row();
+            for (int i = 0; i < splitted.length; i++) {
+                String columnName = i < names.size() ? names.get(i) : String.valueOf(i);
+                if (this.projection != null && !this.projection.includes(i, columnName)) {
+                    continue;
+                }
+                cellToRow(row, splitted[i], i, columnName);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public long getBytesRead() {
+        if (this.bytesRead == null) {
+            return -1;
+        }
+        return this.bytesRead.sum();
+    }
+
     Row parse(String line, String delimiter) {
-        String[] splitted = split(line, delimiter + REGEX_SPLIT_EXPRESSION);
+        String[] splitted = delimiter.equals(this.delimiter)
+                ? this.splitter.split(line, -1) : split(line, delimiter + REGEX_SPLIT_EXPRESSION);
         if (splitted == null || splitted.length == 0) {
             return null;
         }
@@ -137,6 +550,9 @@ public class CSVStreamSource implements Source {
 
     void cellToRow(Row row, String slot, int index) {
         String columnName = getColumnName(index);
+        if (this.projection != null && !this.projection.includes(index, columnName)) {
+            return;
+        }
         cellToRow(row, slot, index, columnName);
     }
 
@@ -172,6 +588,8 @@ public class CSVStreamSource implements Source {
         hash = 23 * hash + Objects.hashCode(this.charsetName);
         hash = 23 * hash + Objects.hashCode(this.delimiter);
         hash = 23 * hash + (this.containsHeaders ? 1 : 0);
+        hash = 23 * hash + Objects.hashCode(this.compression);
+        hash = 23 * hash + this.parallelism;
         return hash;
     }
 
@@ -193,6 +611,12 @@ public class CSVStreamSource implements Source {
         if (this.containsHeaders != other.containsHeaders) {
             return false;
         }
+        if (this.compression != other.compression) {
+            return false;
+        }
+        if (this.parallelism != other.parallelism) {
+            return false;
+        }
         return true;
     }
 
@@ -207,4 +631,39 @@ public class CSVStreamSource implements Source {
     public void setCharsetName(String charsetName) {
         this.charsetName = charsetName;
     }
+    static class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder counter;
+
+        CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                this.counter.increment();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                this.counter.add(result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.counter.add(skipped);
+            return skipped;
+        }
+    }
+
 }
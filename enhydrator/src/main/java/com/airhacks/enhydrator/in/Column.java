@@ -1,8 +1,14 @@
 package com.airhacks.enhydrator.in;
 
+import com.airhacks.enhydrator.transform.DateTimeParser;
+import com.airhacks.enhydrator.transform.Datatype;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.temporal.Temporal;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.StringTokenizer;
+import java.util.function.Supplier;
 
 /*
  * #%L
@@ -34,8 +40,12 @@ public class Column implements Cloneable {
     private String targetSink;
     private String targetObject;
     private Optional<Object> value;
+    private Supplier<Object> pending;
 
     private final static String DEFAULT_DESTINATION = "*";
+    private final static DateTimeParser ISO_DATE = new DateTimeParser(Datatype.DATE);
+    private final static DateTimeParser ISO_TIMESTAMP = new DateTimeParser(Datatype.TIMESTAMP);
+    private final static DateTimeParser ISO_TIME = new DateTimeParser(Datatype.TIME);
 
     public Column(int index, String name, Object value) {
         this(index, name, DEFAULT_DESTINATION, value);
@@ -52,11 +62,33 @@ public class Column implements Cloneable {
         this(index, name, null);
     }
 
+    /**
+     * Creates a column with a value computed on first access
+     *
+     * @param index the position of the column
+     * @param name the name of the column
+     * @param value computes the value, invoked at most once
+     * @return the column
+     */
+    public static Column lazy(int index, String name, Supplier<Object> value) {
+        Column column = new Column(index, name);
+        column.pending = value;
+        return column;
+    }
+
+    Optional<Object> value() {
+        if (this.pending != null) {
+            this.value = Optional.ofNullable(this.pending.get());
+            this.pending = null;
+        }
+        return this.value;
+    }
+
     /**
      * Convert the value of this column to integer
      */
     public void convertToInteger() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
             String asString = String.valueOf(value.get());
             try {
                 this.value = Optional.of(Integer.parseInt(asString));
@@ -67,11 +99,86 @@ public class Column implements Cloneable {
         }
     }
 
+    /**
+     * Convert the value of this column to long
+     */
+    public void convertToLong() {
+        if (value().isPresent()) {
+            String asString = String.valueOf(value.get());
+            try {
+                this.value = Optional.of(Long.parseLong(asString));
+            } catch (NumberFormatException ex) {
+                throw new NumberFormatException("Cannot convert column: "
+                        + this.name + " with index " + this.index + " and value " + this.value.get() + " to long");
+            }
+        }
+    }
+
+    /**
+     * Convert the value of this column to BigDecimal
+     */
+    public void convertToDecimal() {
+        if (value().isPresent()) {
+            if (value.get() instanceof BigDecimal) {
+                return;
+            }
+            String asString = String.valueOf(value.get());
+            try {
+                this.value = Optional.of(new BigDecimal(asString));
+            } catch (NumberFormatException ex) {
+                throw new NumberFormatException("Cannot convert column: "
+                        + this.name + " with index " + this.index + " and value " + this.value.get() + " to decimal");
+            }
+        }
+    }
+
+    /**
+     * Convert the value of this column to LocalDate (ISO-8601)
+     */
+    public void convertToDate() {
+        convertToTemporal(ISO_DATE);
+    }
+
+    /**
+     * Convert the value of this column to LocalDateTime (ISO-8601)
+     */
+    public void convertToTimestamp() {
+        convertToTemporal(ISO_TIMESTAMP);
+    }
+
+    /**
+     * Convert the value of this column to LocalTime (ISO-8601)
+     */
+    public void convertToTime() {
+        convertToTemporal(ISO_TIME);
+    }
+
+    /**
+     * Convert the value of this column to the datatype of the parser. Values
+     * which already have the datatype remain unchanged.
+     *
+     * @param parser a DATE, TIMESTAMP or TIME parser
+     */
+    public void convertToTemporal(DateTimeParser parser) {
+        if (value().isPresent()) {
+            Object current = value.get();
+            if (current instanceof Temporal) {
+                return;
+            }
+            try {
+                this.value = Optional.of(parser.parse(String.valueOf(current)));
+            } catch (DateTimeException ex) {
+                throw new IllegalStateException("Cannot convert column: "
+                        + this.name + " with index " + this.index + " and value " + current + " to " + parser.getDatatype(), ex);
+            }
+        }
+    }
+
     /**
      * Convert the value of this column to double
      */
     public void convertToDouble() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
             String asString = String.valueOf(value.get());
             if (asString.isEmpty()) {
                 this.value = Optional.of((double) 0);
@@ -87,7 +194,7 @@ public class Column implements Cloneable {
     }
 
     public void convertDMSToDouble() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
 
             String asString = String.valueOf(value.get());
             if (asString.isEmpty()) {
@@ -113,7 +220,7 @@ public class Column implements Cloneable {
      * Convert the value of the column to boolean
      */
     public void convertToBoolean() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
 
             String asString = String.valueOf(value.get());
             this.value = Optional.of(Boolean.parseBoolean(asString));
@@ -121,6 +228,7 @@ public class Column implements Cloneable {
     }
 
     public void fillWithValue(String value) {
+        this.pending = null;
         this.value = Optional.of(value);
     }
 
@@ -128,7 +236,7 @@ public class Column implements Cloneable {
      * Convert the value of this column to string
      */
     public void convertToString() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
             this.value = Optional.of(String.valueOf(value));
         }
     }
@@ -138,7 +246,7 @@ public class Column implements Cloneable {
      * @return true if this column contains no value (NULL value), false otherwise
      */
     public boolean isNullValue() {
-        return !this.value.isPresent();
+        return !this.value().isPresent();
     }
 
     /**
@@ -154,14 +262,14 @@ public class Column implements Cloneable {
      * @return The value of the column, or NULL if no value is present
      */
     public Object getValue() {
-        if (value.isPresent()) {
+        if (value().isPresent()) {
             return value.get();
         }
         return null;
     }
 
     public Optional<Object> getValueAsOptional() {
-        return value;
+        return value();
     }
 
     /**
@@ -197,15 +305,16 @@ public class Column implements Cloneable {
     }
 
     public void setValue(Object value) {
+        this.pending = null;
         this.value = Optional.ofNullable(value);
     }
 
     boolean isNumber() {
-        return this.value.isPresent() && this.value.get() instanceof Number;
+        return this.value().isPresent() && this.value.get() instanceof Number;
     }
 
     boolean isString() {
-        return this.value.isPresent() && this.value.get() instanceof String;
+        return this.value().isPresent() && this.value.get() instanceof String;
     }
 
     @Override
@@ -215,7 +324,7 @@ public class Column implements Cloneable {
         hash = 67 * hash + Objects.hashCode(this.name);
         hash = 67 * hash + Objects.hashCode(this.targetSink);
         hash = 67 * hash + Objects.hashCode(this.targetObject);
-        hash = 67 * hash + Objects.hashCode(this.value);
+        hash = 67 * hash + Objects.hashCode(this.value());
         return hash;
     }
 
@@ -243,7 +352,7 @@ public class Column implements Cloneable {
         if (!Objects.equals(this.targetObject, other.targetObject)) {
             return false;
         }
-        if (!Objects.equals(this.value, other.value)) {
+        if (!Objects.equals(this.value(), other.value())) {
             return false;
         }
         return true;
@@ -251,12 +360,12 @@ public class Column implements Cloneable {
 
     @Override
     public Column clone() {
-        return new Column(index, name, targetSink, value.get());
+        return new Column(index, name, targetSink, value().get());
     }
 
     @Override
     public String toString() {
-        return "Column{" + "index=" + index + ", name=" + name + ", targetSink=" + targetSink + ", targetObject=" + targetObject + ", value=" + value.orElse("") + '}';
+        return "Column{" + "index=" + index + ", name=" + name + ", targetSink=" + targetSink + ", targetObject=" + targetObject + ", value=" + value().orElse("") + '}';
     }
 
 }
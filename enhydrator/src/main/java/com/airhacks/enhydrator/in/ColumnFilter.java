@@ -0,0 +1,216 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.math.BigDecimal;
+import java.util.Objects;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A simple predicate "column operator value", which sources can evaluate
+ * themselves (e.g. to skip whole blocks using min / max statistics). NULL
+ * values never match.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "column-filter")
+public class ColumnFilter {
+
+    public enum Operator {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    private String column;
+    private Operator operator;
+    private Object value;
+
+    public ColumnFilter(String column, Operator operator, Object value) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public ColumnFilter() {
+        //required for JAXB
+    }
+
+    public boolean test(Row row) {
+        return test(row.getColumnValue(this.column));
+    }
+
+    public boolean test(Object columnValue) {
+        if (columnValue == null || this.value == null) {
+            return false;
+        }
+        int result = compare(columnValue, this.value);
+        switch (this.operator) {
+            case EQ:
+                return result == 0;
+            case NE:
+                return result != 0;
+            case LT:
+                return result < 0;
+            case LE:
+                return result <= 0;
+            case GT:
+                return result > 0;
+            case GE:
+                return result >= 0;
+            default:
+                throw new IllegalStateException("Unknown operator " + this.operator);
+        }
+    }
+
+    /**
+     * Decides with statistics whether a block of values may contain matches.
+     *
+     * @param min the smallest non-null value, null if unknown
+     * @param max the largest non-null value, null if unknown
+     * @param nonNullValues the number of non-null values in the block
+     * @return false, if no value of the block can match
+     */
+    public boolean mightMatch(Object min, Object max, long nonNullValues) {
+        if (nonNullValues == 0 || this.value == null) {
+            return false;
+        }
+        if (min == null || max == null) {
+            return true;
+        }
+        if (!comparableWith(min) || !comparableWith(max)) {
+            return true;
+        }
+        switch (this.operator) {
+            case EQ:
+                return compare(min, this.value) <= 0 && compare(max, this.value) >= 0;
+            case NE:
+                return !(compare(min, this.value) == 0 && compare(max, this.value) == 0);
+            case LT:
+                return compare(min, this.value) < 0;
+            case LE:
+                return compare(min, this.value) <= 0;
+            case GT:
+                return compare(max, this.value) > 0;
+            case GE:
+                return compare(max, this.value) >= 0;
+            default:
+                throw new IllegalStateException("Unknown operator " + this.operator);
+        }
+    }
+
+    /**
+     * Statistics are ordered by their own type, e.g. strings as text. They
+     * can only exclude values of the same type (or numbers for numbers).
+     */
+    boolean comparableWith(Object statistic) {
+        if (statistic instanceof Number || this.value instanceof Number) {
+            return statistic instanceof Number && this.value instanceof Number;
+        }
+        return statistic.getClass().equals(this.value.getClass());
+    }
+
+    /**
+     * Numbers (and strings which are numbers, if compared with numbers) are
+     * compared numerically, values of the same Comparable type naturally and
+     * everything else by their string representation.
+     */
+    @SuppressWarnings("unchecked")
+    public static int compare(Object left, Object right) {
+        if (left instanceof Number || right instanceof Number) {
+            Number l = asNumber(left);
+            Number r = asNumber(right);
+            if (l != null && r != null) {
+                if (isIntegral(l) && isIntegral(r)) {
+                    return Long.compare(l.longValue(), r.longValue());
+                }
+                if (l instanceof BigDecimal && r instanceof BigDecimal) {
+                    return ((BigDecimal) l).compareTo((BigDecimal) r);
+                }
+                return Double.compare(l.doubleValue(), r.doubleValue());
+            }
+        }
+        if (left instanceof Comparable && left.getClass().equals(right.getClass())) {
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+        return String.valueOf(left).compareTo(String.valueOf(right));
+    }
+
+    static Number asNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 29 * hash + Objects.hashCode(this.column);
+        hash = 29 * hash + Objects.hashCode(this.operator);
+        hash = 29 * hash + Objects.hashCode(this.value);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ColumnFilter other = (ColumnFilter) obj;
+        return Objects.equals(this.column, other.column)
+                && this.operator == other.operator
+                && Objects.equals(this.value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        return column + " " + operator + " " + value;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The columns a pipeline refers to, by name or by index. A source may skip
+ * all other columns. Index sensitive projections rely on the original column
+ * indices and must not be renumbered by the source.
+ *
+ * @author airhacks.com
+ */
+public class ColumnProjection {
+
+    public static final ColumnProjection NONE = new ColumnProjection(Collections.emptySet(), Collections.emptySet(), false);
+
+    private final Set<String> names;
+    private final Set<Integer> indices;
+    private final boolean indexSensitive;
+
+    ColumnProjection(Set<String> names, Set<Integer> indices, boolean indexSensitive) {
+        this.names = Collections.unmodifiableSet(names);
+        this.indices = Collections.unmodifiableSet(indices);
+        this.indexSensitive = indexSensitive;
+    }
+
+    public static ColumnProjection of(String... names) {
+        return NONE.withNames(Arrays.asList(names));
+    }
+
+    public ColumnProjection withNames(Collection<String> additional) {
+        Set<String> all = new HashSet<>(this.names);
+        all.addAll(additional);
+        return new ColumnProjection(all, this.indices, this.indexSensitive);
+    }
+
+    public ColumnProjection withoutNames(Collection<String> removed) {
+        Set<String> remaining = new HashSet<>(this.names);
+        remaining.removeAll(removed);
+        return new ColumnProjection(remaining, this.indices, this.indexSensitive);
+    }
+
+    /**
+     * The columns at the indices are required, the indices have to remain
+     * stable
+     */
+    public ColumnProjection withIndices(Collection<Integer> additional) {
+        Set<Integer> all = new HashSet<>(this.indices);
+        all.addAll(additional);
+        return new ColumnProjection(this.names, all, true);
+    }
+
+    /**
+     * Columns are looked up by index, so the indices have to remain stable
+     */
+    public ColumnProjection indexSensitive() {
+        return new ColumnProjection(this.names, this.indices, true);
+    }
+
+    public boolean includes(int index, String name) {
+        return this.names.contains(name) || this.indices.contains(index);
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    public Set<Integer> getIndices() {
+        return indices;
+    }
+
+    public boolean isIndexSensitive() {
+        return indexSensitive;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 29 * hash + Objects.hashCode(this.names);
+        hash = 29 * hash + Objects.hashCode(this.indices);
+        hash = 29 * hash + (this.indexSensitive ? 1 : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ColumnProjection other = (ColumnProjection) obj;
+        return this.indexSensitive == other.indexSensitive
+                && Objects.equals(this.names, other.names)
+                && Objects.equals(this.indices, other.indices);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnProjection{" + "names=" + names + ", indices=" + indices + ", indexSensitive=" + indexSensitive + '}';
+    }
+
+}
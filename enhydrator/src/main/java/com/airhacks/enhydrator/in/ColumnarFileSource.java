@@ -0,0 +1,325 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.BinaryRowFormat.SchemaColumn;
+import com.airhacks.enhydrator.in.ColumnarFormat.ChunkMetadata;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Reads files written by {@link com.airhacks.enhydrator.out.ColumnarFileSink}
+ * row group by row group. Row groups which cannot contain rows matching all
+ * filters (according to the min / max statistics of their column chunks) are
+ * skipped without being read, the remaining rows are filtered one by one.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "columnar-file-source")
+public class ColumnarFileSource implements Source {
+
+    private String fileName;
+    @XmlElement(name = "filter")
+    private List<ColumnFilter> filters;
+
+    @XmlTransient
+    private final LongAdder skippedRowGroups = new LongAdder();
+    @XmlTransient
+    private final LongAdder readRowGroups = new LongAdder();
+
+    public ColumnarFileSource(String fileName, ColumnFilter... filters) {
+        this.fileName = fileName;
+        this.filters = new ArrayList<>(Arrays.asList(filters));
+    }
+
+    public ColumnarFileSource() {
+        //required for JAXB
+    }
+
+    /**
+     * All filters are evaluated with the row group statistics and on each
+     * row
+     */
+    @Override
+    public List<ColumnFilter> pushDown(String query, List<ColumnFilter> filters) {
+        if (this.filters == null) {
+            this.filters = new ArrayList<>();
+        }
+        filters.stream().
+                filter(f -> !this.filters.contains(f)).
+                forEach(this.filters::add);
+        return Collections.emptyList();
+    }
+
+    List<ColumnFilter> filters() {
+        if (this.filters == null) {
+            return Collections.emptyList();
+        }
+        return this.filters;
+    }
+
+    /**
+     * @see Source
+     * @param query not applicable
+     * @param params not applicable
+     * @return the rows matching all filters, decoded group by group
+     */
+    @Override
+    public Iterable<Row> query(String query, Object... params) {
+        Path file = Paths.get(this.fileName);
+        return () -> new RowGroupIterator(file, filters());
+    }
+
+    /**
+     * @return the number of row groups skipped with statistics
+     */
+    public long getSkippedRowGroups() {
+        return this.skippedRowGroups.sum();
+    }
+
+    public long getReadRowGroups() {
+        return this.readRowGroups.sum();
+    }
+
+    static class RowGroup {
+
+        final int rowCount;
+        final long childrenOffset;
+        final int childrenLength;
+        final ChunkMetadata[] chunks;
+
+        RowGroup(ByteBuffer in) {
+            this.rowCount = in.getInt();
+            this.childrenOffset = in.getLong();
+            this.childrenLength = in.getInt();
+            this.chunks = new ChunkMetadata[in.getInt()];
+            for (int i = 0; i < this.chunks.length; i++) {
+                this.chunks[i] = ChunkMetadata.read(in);
+            }
+        }
+    }
+
+    class RowGroupIterator implements Iterator<Row> {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final List<SchemaColumn> schema;
+        private final Iterator<RowGroup> groups;
+        private final List<ColumnFilter> rowFilters;
+        private final int[] filterColumns;
+        private List<Row> current;
+        private int next;
+        private Row matching;
+
+        RowGroupIterator(Path file, List<ColumnFilter> rowFilters) {
+            this.file = file;
+            this.rowFilters = rowFilters;
+            this.schema = new ArrayList<>();
+            this.current = Collections.emptyList();
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.READ);
+                long size = this.channel.size();
+                ByteBuffer trailer = read(size - ColumnarFormat.TRAILER_LENGTH, ColumnarFormat.TRAILER_LENGTH);
+                int footerLength = trailer.getInt();
+                byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+                trailer.get(magic);
+                if (!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+                    throw new IllegalStateException(file + " is not a columnar file");
+                }
+                ByteBuffer footer = this.channel.map(FileChannel.MapMode.READ_ONLY, size - ColumnarFormat.TRAILER_LENGTH - footerLength, footerLength);
+                int columnCount = footer.getInt();
+                for (int i = 0; i < columnCount; i++) {
+                    this.schema.add(SchemaColumn.read(footer));
+                }
+                List<RowGroup> all = new ArrayList<>();
+                int groupCount = footer.getInt();
+                for (int i = 0; i < groupCount; i++) {
+                    all.add(new RowGroup(footer));
+                }
+                this.groups = all.iterator();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot open " + file, ex);
+            }
+            this.filterColumns = new int[rowFilters.size()];
+            for (int i = 0; i < this.filterColumns.length; i++) {
+                this.filterColumns[i] = columnId(rowFilters.get(i).getColumn());
+            }
+        }
+
+        int columnId(String name) {
+            for (int i = 0; i < this.schema.size(); i++) {
+                if (this.schema.get(i).getName().equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IllegalStateException("Truncated file " + this.file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.matching == null) {
+                if (this.next < this.current.size()) {
+                    Row candidate = this.current.get(this.next++);
+                    if (this.rowFilters.stream().allMatch(f -> f.test(candidate))) {
+                        this.matching = candidate;
+                    }
+                    continue;
+                }
+                if (!this.groups.hasNext()) {
+                    close();
+                    return false;
+                }
+                RowGroup group = this.groups.next();
+                if (mightMatch(group)) {
+                    readRowGroups.increment();
+                    this.current = decode(group);
+                } else {
+                    skippedRowGroups.increment();
+                    this.current = Collections.emptyList();
+                }
+                this.next = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = this.matching;
+            this.matching = null;
+            return row;
+        }
+
+        boolean mightMatch(RowGroup group) {
+            for (int i = 0; i < this.filterColumns.length; i++) {
+                int column = this.filterColumns[i];
+                if (column < 0 || column >= group.chunks.length) {
+                    return false;
+                }
+                ChunkMetadata chunk = group.chunks[column];
+                if (!this.rowFilters.get(i).mightMatch(chunk.min, chunk.max, chunk.presentCount)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<Row> decode(RowGroup group) {
+            List<Row> rows = new ArrayList<>(group.rowCount);
+            for (int i = 0; i < group.rowCount; i++) {
+                rows.add(new Row());
+            }
+            try {
+                for (int c = 0; c < group.chunks.length; c++) {
+                    ChunkMetadata chunk = group.chunks[c];
+                    ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.length);
+                    long[] states = ColumnarFormat.readInts(buffer, group.rowCount);
+                    Object[] values = ColumnarFormat.readValues(buffer, (int) chunk.presentCount);
+                    SchemaColumn column = this.schema.get(c);
+                    int value = 0;
+                    for (int r = 0; r < group.rowCount; r++) {
+                        if (states[r] == ColumnarFormat.NULL) {
+                            rows.get(r).addColumn(column.create(null));
+                        } else if (states[r] == ColumnarFormat.PRESENT) {
+                            rows.get(r).addColumn(column.create(values[value++]));
+                        }
+                    }
+                }
+                if (group.childrenOffset >= 0) {
+                    ByteBuffer children = this.channel.map(FileChannel.MapMode.READ_ONLY, group.childrenOffset, group.childrenLength);
+                    for (Row row : rows) {
+                        int count = children.getInt();
+                        for (int i = 0; i < count; i++) {
+                            row.add(RowCodec.read(children));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read row group of " + this.file, ex);
+            }
+            return rows;
+        }
+
+        void close() {
+            try {
+                this.channel.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot close " + this.file, ex);
+            }
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 37 * hash + Objects.hashCode(this.fileName);
+        hash = 37 * hash + Objects.hashCode(this.filters);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ColumnarFileSource other = (ColumnarFileSource) obj;
+        return Objects.equals(this.fileName, other.fileName)
+                && Objects.equals(this.filters, other.filters);
+    }
+
+}
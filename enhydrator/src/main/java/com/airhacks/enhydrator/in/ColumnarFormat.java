@@ -0,0 +1,360 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout and encodings of the columnar file written by ColumnarFileSink and
+ * read by {@link ColumnarFileSource}:
+ *
+ * <pre>
+ * file      := "ENHC" version:byte rowGroup* footer footerLength:int "ENHC"
+ * rowGroup  := chunk* children?
+ * chunk     := states:intStream encoding:byte values
+ * intStream := RLE runCount:int (length:int value:long)*
+ *            | BIT_PACKED width:byte word:long*
+ * footer    := columnCount:int column* groupCount:int group*
+ * group     := rowCount:int childrenOffset:long childrenLength:int chunkCount:int
+ *              (offset:long length:int nullCount:long hasStats:byte (min max)?)*
+ * </pre>
+ *
+ * Per row and column a state (absent, null or present) is stored, values are
+ * only stored for present columns. Integral values are stored bit-packed (or
+ * run-length encoded) relative to the minimum, strings dictionary-encoded if
+ * they repeat, booleans as bits and doubles plain.
+ *
+ * @author airhacks.com
+ */
+public class ColumnarFormat {
+
+    public static final byte[] MAGIC = "ENHC".getBytes(StandardCharsets.US_ASCII);
+    public static final byte VERSION = 1;
+    public static final int TRAILER_LENGTH = 4 + 4;
+
+    public static final int ABSENT = 0;
+    public static final int NULL = 1;
+    public static final int PRESENT = 2;
+
+    public static final byte PLAIN = 0;
+    public static final byte INTEGRAL = 1;
+    public static final byte DICTIONARY = 2;
+    public static final byte DOUBLE = 3;
+    public static final byte BOOLEAN = 4;
+
+    static final byte RLE = 0;
+    static final byte BIT_PACKED = 1;
+
+    static final byte INTEGER_VALUES = 0;
+    static final byte LONG_VALUES = 1;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * Writes non-negative values either run-length encoded or bit-packed,
+     * whichever is smaller.
+     */
+    public static void writeInts(DataOutput out, long[] values, int count) throws IOException {
+        int runs = 0;
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                runs++;
+            }
+            max = Math.max(max, values[i]);
+        }
+        int width = 64 - Long.numberOfLeadingZeros(max);
+        long packedBytes = ((long) count * width + 63) / 64 * 8;
+        long rleBytes = runs * 12l;
+        if (rleBytes < packedBytes) {
+            out.writeByte(RLE);
+            out.writeInt(runs);
+            int start = 0;
+            for (int i = 1; i <= count; i++) {
+                if (i == count || values[i] != values[start]) {
+                    out.writeInt(i - start);
+                    out.writeLong(values[start]);
+                    start = i;
+                }
+            }
+            return;
+        }
+        out.writeByte(BIT_PACKED);
+        out.writeByte(width);
+        for (long word : pack(values, count, width)) {
+            out.writeLong(word);
+        }
+    }
+
+    static long[] pack(long[] values, int count, int width) {
+        long[] words = new long[(int) (((long) count * width + 63) / 64)];
+        if (width == 0) {
+            return words;
+        }
+        for (int i = 0; i < count; i++) {
+            long position = (long) i * width;
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            words[word] |= values[i] << offset;
+            if (offset + width > 64) {
+                words[word + 1] |= values[i] >>> (64 - offset);
+            }
+        }
+        return words;
+    }
+
+    public static long[] readInts(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        byte mode = in.get();
+        if (mode == RLE) {
+            int runs = in.getInt();
+            int position = 0;
+            for (int run = 0; run < runs; run++) {
+                int length = in.getInt();
+                long value = in.getLong();
+                for (int i = 0; i < length; i++) {
+                    values[position++] = value;
+                }
+            }
+            return values;
+        }
+        int width = in.get();
+        if (width == 0) {
+            return values;
+        }
+        long[] words = new long[(int) (((long) count * width + 63) / 64)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.getLong();
+        }
+        long mask = width == 64 ? -1 : (1l << width) - 1;
+        for (int i = 0; i < count; i++) {
+            long position = (long) i * width;
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            long value = words[word] >>> offset;
+            if (offset + width > 64) {
+                value |= words[word + 1] << (64 - offset);
+            }
+            values[i] = value & mask;
+        }
+        return values;
+    }
+
+    /**
+     * Chooses the most compact encoding for the present values of a column
+     * chunk and writes it.
+     */
+    public static void writeValues(DataOutput out, List<Object> values) throws IOException {
+        int count = values.size();
+        Class<?> type = commonType(values);
+        if (type == Integer.class || type == Long.class) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (Object value : values) {
+                long v = ((Number) value).longValue();
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (count == 0 || max - min >= 0) {
+                out.writeByte(INTEGRAL);
+                out.writeByte(type == Integer.class ? INTEGER_VALUES : LONG_VALUES);
+                out.writeLong(min);
+                long[] deltas = new long[count];
+                for (int i = 0; i < count; i++) {
+                    deltas[i] = ((Number) values.get(i)).longValue() - min;
+                }
+                writeInts(out, deltas, count);
+                return;
+            }
+        }
+        if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            for (Object value : values) {
+                out.writeDouble((Double) value);
+            }
+            return;
+        }
+        if (type == Boolean.class) {
+            out.writeByte(BOOLEAN);
+            long[] bits = new long[count];
+            for (int i = 0; i < count; i++) {
+                bits[i] = ((Boolean) values.get(i)) ? 1 : 0;
+            }
+            writeInts(out, bits, count);
+            return;
+        }
+        if (type == String.class) {
+            Map<Object, Integer> dictionary = new HashMap<>();
+            List<Object> entries = new ArrayList<>();
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                Object value = values.get(i);
+                Integer id = dictionary.get(value);
+                if (id == null) {
+                    id = entries.size();
+                    dictionary.put(value, id);
+                    entries.add(value);
+                }
+                ids[i] = id;
+            }
+            if (entries.size() * 2 <= count) {
+                out.writeByte(DICTIONARY);
+                out.writeInt(entries.size());
+                for (Object entry : entries) {
+                    RowCodec.writeString(out, (String) entry);
+                }
+                writeInts(out, ids, count);
+                return;
+            }
+        }
+        out.writeByte(PLAIN);
+        for (Object value : values) {
+            RowCodec.writeValue(out, value);
+        }
+    }
+
+    static Class<?> commonType(List<Object> values) {
+        Class<?> type = null;
+        for (Object value : values) {
+            if (type == null) {
+                type = value.getClass();
+            } else if (type != value.getClass()) {
+                return Object.class;
+            }
+        }
+        return type;
+    }
+
+    public static Object[] readValues(ByteBuffer in, int count) {
+        Object[] values = new Object[count];
+        byte encoding = in.get();
+        switch (encoding) {
+            case INTEGRAL:
+                boolean integers = in.get() == INTEGER_VALUES;
+                long min = in.getLong();
+                long[] deltas = readInts(in, count);
+                for (int i = 0; i < count; i++) {
+                    long value = deltas[i] + min;
+                    values[i] = integers ? (Object) (int) value : (Object) value;
+                }
+                return values;
+            case DOUBLE:
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.getDouble();
+                }
+                return values;
+            case BOOLEAN:
+                long[] bits = readInts(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = bits[i] == 1;
+                }
+                return values;
+            case DICTIONARY:
+                String[] entries = new String[in.getInt()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = RowCodec.readString(in);
+                }
+                long[] ids = readInts(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = entries[(int) ids[i]];
+                }
+                return values;
+            case PLAIN:
+                for (int i = 0; i < count; i++) {
+                    values[i] = RowCodec.readValue(in);
+                }
+                return values;
+            default:
+                throw new IllegalStateException("Unknown encoding " + encoding);
+        }
+    }
+
+    /**
+     * Location and statistics of a column chunk in a row group
+     */
+    public static class ChunkMetadata {
+
+        final long offset;
+        final int length;
+        final long nullCount;
+        final long presentCount;
+        final Object min;
+        final Object max;
+
+        public ChunkMetadata(long offset, int length, long nullCount, long presentCount, Object min, Object max) {
+            this.offset = offset;
+            this.length = length;
+            this.nullCount = nullCount;
+            this.presentCount = presentCount;
+            this.min = min;
+            this.max = max;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            out.writeLong(this.offset);
+            out.writeInt(this.length);
+            out.writeLong(this.nullCount);
+            out.writeLong(this.presentCount);
+            boolean hasStats = this.min != null && this.max != null;
+            out.writeBoolean(hasStats);
+            if (hasStats) {
+                RowCodec.writeValue(out, this.min);
+                RowCodec.writeValue(out, this.max);
+            }
+        }
+
+        static ChunkMetadata read(ByteBuffer in) {
+            long offset = in.getLong();
+            int length = in.getInt();
+            long nullCount = in.getLong();
+            long presentCount = in.getLong();
+            boolean hasStats = in.get() != 0;
+            Object min = null;
+            Object max = null;
+            if (hasStats) {
+                min = RowCodec.readValue(in);
+                max = RowCodec.readValue(in);
+            }
+            return new ChunkMetadata(offset, length, nullCount, presentCount, min, max);
+        }
+
+        public long getNullCount() {
+            return nullCount;
+        }
+
+        public Object getMin() {
+            return min;
+        }
+
+        public Object getMax() {
+            return max;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of files and streams read by sources and written by sinks.
+ *
+ * @author airhacks.com
+ */
+public enum Compression {
+
+    NONE {
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+    },
+    GZIP {
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+        }
+    };
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    public abstract InputStream decompress(InputStream in) throws IOException;
+
+    public abstract OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * @param fileName the file to read or write
+     * @return GZIP for ".gz" and ".gzip" files, NONE otherwise
+     */
+    public static Compression detect(String fileName) {
+        if (fileName == null) {
+            return NONE;
+        }
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCase.endsWith(".gz") || lowerCase.endsWith(".gzip")) {
+            return GZIP;
+        }
+        return NONE;
+    }
+
+    /**
+     * @param configured the configured compression, null for detection
+     * @param fileName used for detection
+     * @return the configured or detected compression
+     */
+    public static Compression of(Compression configured, String fileName) {
+        if (configured != null) {
+            return configured;
+        }
+        return detect(fileName);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+
+/**
+ * A cell which could not be parsed into the datatype of its column. Created
+ * for every bad cell, so it comes without a stack trace.
+ *
+ * @author airhacks.com
+ */
+public class ConversionException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String columnName;
+    private final Datatype datatype;
+
+    public ConversionException(String columnName, Datatype datatype, String value) {
+        super("Cannot convert " + columnName + " to " + datatype + ": " + value);
+        this.columnName = columnName;
+        this.datatype = datatype;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public Datatype getDatatype() {
+        return datatype;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The greatest value of a monotonic column (id or update timestamp) extracted
+ * by the last successful run. Stored as properties file, replaced atomically.
+ *
+ * @author airhacks.com
+ */
+public class HighWaterMark {
+
+    private final Path file;
+
+    public HighWaterMark(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the key of the last successful run, null before the first run
+     */
+    public Object load() {
+        if (!Files.exists(this.file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(this.file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot load high-water mark " + this.file, ex);
+        }
+        return SourcePosition.from(properties).getKey();
+    }
+
+    /**
+     * @param rows the number of extracted rows
+     * @param key the greatest extracted key
+     */
+    public void store(long rows, Object key) {
+        Properties properties = new Properties();
+        new SourcePosition(rows, -1, key).storeTo(properties);
+        Path written = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(written)) {
+                properties.store(out, "enhydrator high-water mark");
+            }
+            Files.move(written, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot store high-water mark " + this.file, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HighWaterMark{" + "file=" + file + '}';
+    }
+
+}
@@ -20,14 +20,27 @@ package com.airhacks.enhydrator.in;
  * #L%
  */
 import com.airhacks.enhydrator.db.UnmanagedConnectionProvider;
+import com.airhacks.enhydrator.in.ColumnFilter.Operator;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  *
@@ -41,6 +54,30 @@ public class JDBCSource implements Source {
     private String name;
 
     private UnmanagedConnectionProvider connectionProvider;
+    /**
+     * Key column the query is ordered by, checkpoints store its last value
+     */
+    private String orderedBy;
+    /**
+     * File of the greatest key extracted by the last run, incremental
+     * extraction if set
+     */
+    private String highWaterMark;
+
+    @XmlTransient
+    private ColumnProjection projection;
+    @XmlTransient
+    private List<ColumnFilter> filters;
+    @XmlTransient
+    private Object resumedKey;
+    @XmlTransient
+    private long resumedRows;
+    @XmlTransient
+    private Object lastKey;
+    @XmlTransient
+    private Object lowerBound;
+    @XmlTransient
+    private long delivered;
 
     JDBCSource() {
         //JAXB requires a no-arg contructor
@@ -52,28 +89,336 @@ public class JDBCSource implements Source {
         this.connectionProvider.connect();
     }
 
+    /**
+     * Orders the query by a unique key column. Checkpoints store the key of
+     * the last processed row, a resumed query only selects rows with greater
+     * keys.
+     *
+     * @param keyColumn the column name as returned by the query
+     * @return this
+     */
+    public JDBCSource orderedBy(String keyColumn) {
+        this.orderedBy = keyColumn;
+        return this;
+    }
+
+    /**
+     * Extracts only rows above the high-water mark of the last successful
+     * run. The query is ordered by the monotonic column, the greatest value
+     * is stored after the pump has completed.
+     *
+     * @param column a monotonic column like an id or an update timestamp
+     * @param highWaterMarkFile stores the greatest extracted value
+     * @return this
+     * @see HighWaterMark
+     */
+    public JDBCSource incremental(String column, String highWaterMarkFile) {
+        this.highWaterMark = highWaterMarkFile;
+        return orderedBy(column);
+    }
+
+    /**
+     * Narrows the query to the referenced columns. Index sensitive
+     * projections are ignored, the narrowed query would renumber the columns.
+     * The key column of an ordered query is always selected.
+     */
+    @Override
+    public boolean project(ColumnProjection projection) {
+        if (projection.isIndexSensitive()) {
+            return false;
+        }
+        if (this.orderedBy != null) {
+            projection = projection.withNames(Collections.singletonList(this.orderedBy));
+        }
+        this.projection = projection;
+        return true;
+    }
+
+    /**
+     * Filters comparing a column of the query with a value of a compatible
+     * type are appended as parameterized WHERE clause.
+     */
+    @Override
+    public List<ColumnFilter> pushDown(String query, List<ColumnFilter> filters) {
+        this.filters = new ArrayList<>();
+        if (query == null) {
+            return filters;
+        }
+        Map<String, Integer> columnTypes;
+        try {
+            columnTypes = columnTypes(this.connectionProvider.get(), query);
+        } catch (SQLException ex) {
+            return filters;
+        }
+        if (columnTypes == null) {
+            return filters;
+        }
+        List<ColumnFilter> remaining = new ArrayList<>();
+        for (ColumnFilter filter : filters) {
+            if (pushable(filter, columnTypes.get(filter.getColumn()))) {
+                this.filters.add(filter);
+            } else {
+                remaining.add(filter);
+            }
+        }
+        return remaining;
+    }
+
+    static boolean pushable(ColumnFilter filter, Integer columnType) {
+        Object value = filter.getValue();
+        if (columnType == null || value == null) {
+            return false;
+        }
+        switch (columnType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return value instanceof Number && Double.isFinite(((Number) value).doubleValue());
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return value instanceof String;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return value instanceof Boolean
+                        && (filter.getOperator() == Operator.EQ || filter.getOperator() == Operator.NE);
+            default:
+                return false;
+        }
+    }
+
     @Override
     public Iterable<Row> query(String query, Object... params) {
+        this.lowerBound = lowerBound();
+        this.lastKey = this.lowerBound;
+        this.delivered = 0;
         PreparedStatement stmt;
         try {
             Connection connection = this.connectionProvider.get();
-            stmt = connection.prepareStatement(query);
+            stmt = connection.prepareStatement(ordered(connection, projected(connection, filtered(connection, query))));
         } catch (SQLException ex) {
             throw new IllegalStateException("Cannot prepare SQL statement", ex);
         }
-        for (int i = 0; i < params.length; i++) {
-            Object param = params[i];
+        List<Object> all = new ArrayList<>(Arrays.asList(params));
+        filters().forEach(f -> all.add(f.getValue()));
+        if (this.lowerBound != null) {
+            all.add(this.lowerBound);
+        }
+        for (int i = 0; i < all.size(); i++) {
+            Object param = all.get(i);
             try {
                 stmt.setObject(i + 1, param);
             } catch (SQLException ex) {
                 throw new IllegalStateException("Cannot set parameter (" + i + "," + param + ") for query: " + query, ex);
             }
         }
+        Iterable<Row> rows;
         try {
-            return new EntryIterable(new ResultSetIterator(stmt.executeQuery()));
+            rows = new EntryIterable(new ResultSetIterator(stmt.executeQuery()));
         } catch (SQLException ex) {
             throw new IllegalStateException("Cannot execute query: " + query, ex);
         }
+        if (this.orderedBy == null) {
+            return rows;
+        }
+        return () -> {
+            Iterator<Row> iterator = rows.iterator();
+            return new Iterator<Row>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Row next() {
+                    return keyed(iterator.next());
+                }
+            };
+        };
+    }
+
+    Row keyed(Row row) {
+        this.lastKey = row.getColumnValue(this.orderedBy);
+        this.delivered++;
+        return row;
+    }
+
+    /**
+     * @return the key of a resumed query or the high-water mark of an
+     * incremental one, null otherwise
+     */
+    Object lowerBound() {
+        if (this.resumedKey != null) {
+            return this.resumedKey;
+        }
+        if (this.highWaterMark != null) {
+            return new HighWaterMark(Paths.get(this.highWaterMark)).load();
+        }
+        return null;
+    }
+
+    /**
+     * Stores the key of the last delivered row as high-water mark of an
+     * incremental query. The mark remains unchanged without new rows.
+     */
+    @Override
+    public void completed() {
+        if (this.highWaterMark == null || this.lastKey == null) {
+            return;
+        }
+        new HighWaterMark(Paths.get(this.highWaterMark)).store(this.resumedRows + this.delivered, this.lastKey);
+    }
+
+    /**
+     * @return the key of the last row delivered by an ordered query, null
+     * otherwise
+     */
+    @Override
+    public SourcePosition position(long rows) {
+        if (this.orderedBy == null) {
+            return null;
+        }
+        return new SourcePosition(this.resumedRows + rows, -1, this.lastKey);
+    }
+
+    /**
+     * An ordered query continues after the key of the position.
+     *
+     * @return false, if the query is not ordered
+     */
+    @Override
+    public boolean resumeFrom(SourcePosition position) {
+        if (this.orderedBy == null || position.getKey() == null) {
+            return false;
+        }
+        this.resumedKey = position.getKey();
+        this.resumedRows = position.getRows();
+        return true;
+    }
+
+    /**
+     * Wraps the query into a select ordered by the key column. Resumed and
+     * incremental queries are narrowed to the keys above the lower bound, it
+     * is passed as last parameter.
+     */
+    String ordered(Connection connection, String query) throws SQLException {
+        if (this.orderedBy == null) {
+            return query;
+        }
+        String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+        String key = quote + this.orderedBy + quote;
+        StringBuilder ordered = new StringBuilder("SELECT * FROM (").append(query).append(") enhydrator_order");
+        if (this.lowerBound != null) {
+            ordered.append(" WHERE ").append(key).append(" > ?");
+        }
+        return ordered.append(" ORDER BY ").append(key).toString();
+    }
+
+    List<ColumnFilter> filters() {
+        if (this.filters == null) {
+            return Collections.emptyList();
+        }
+        return this.filters;
+    }
+
+    /**
+     * Wraps the query into a select with a WHERE clause of the pushed down
+     * filters, the values are passed as parameters after the query
+     * parameters.
+     */
+    String filtered(Connection connection, String query) throws SQLException {
+        if (filters().isEmpty()) {
+            return query;
+        }
+        String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+        StringBuilder filtered = new StringBuilder("SELECT * FROM (").append(query).append(") enhydrator_filter WHERE ");
+        for (int i = 0; i < this.filters.size(); i++) {
+            ColumnFilter filter = this.filters.get(i);
+            if (i > 0) {
+                filtered.append(" AND ");
+            }
+            filtered.append(quote).append(filter.getColumn()).append(quote).
+                    append(' ').append(sqlOperator(filter.getOperator())).append(" ?");
+        }
+        return filtered.toString();
+    }
+
+    static String sqlOperator(Operator operator) {
+        switch (operator) {
+            case EQ:
+                return "=";
+            case NE:
+                return "<>";
+            case LT:
+                return "<";
+            case LE:
+                return "<=";
+            case GT:
+                return ">";
+            case GE:
+                return ">=";
+            default:
+                throw new IllegalStateException("Unknown operator " + operator);
+        }
+    }
+
+    /**
+     * Wraps the query into a select of the referenced columns. The query
+     * remains unchanged, if the result columns are unknown, ambiguous or all
+     * of them are referenced.
+     */
+    String projected(Connection connection, String query) throws SQLException {
+        if (this.projection == null) {
+            return query;
+        }
+        Map<String, Integer> columnTypes = columnTypes(connection, query);
+        if (columnTypes == null) {
+            return query;
+        }
+        List<String> selected = columnTypes.keySet().stream().
+                filter(this.projection.getNames()::contains).
+                collect(Collectors.toList());
+        if (selected.isEmpty() || selected.size() == columnTypes.size()) {
+            return query;
+        }
+        String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+        StringBuilder projected = new StringBuilder("SELECT ");
+        for (int i = 0; i < selected.size(); i++) {
+            if (i > 0) {
+                projected.append(',');
+            }
+            projected.append(quote).append(selected.get(i)).append(quote);
+        }
+        return projected.append(" FROM (").append(query).append(") enhydrator_projection").toString();
+    }
+
+    /**
+     * @return the SQL types of the result columns by name in query order,
+     * null if unknown or ambiguous
+     */
+    static Map<String, Integer> columnTypes(Connection connection, String query) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            ResultSetMetaData metaData = stmt.getMetaData();
+            if (metaData == null) {
+                return null;
+            }
+            Map<String, Integer> columnTypes = new LinkedHashMap<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (columnTypes.put(metaData.getColumnName(i), metaData.getColumnType(i)) != null) {
+                    return null;
+                }
+            }
+            return columnTypes;
+        }
     }
 
     @Override
@@ -81,6 +426,8 @@ public class JDBCSource implements Source {
         int hash = 5;
         hash = 11 * hash + Objects.hashCode(this.name);
         hash = 11 * hash + Objects.hashCode(this.connectionProvider);
+        hash = 11 * hash + Objects.hashCode(this.orderedBy);
+        hash = 11 * hash + Objects.hashCode(this.highWaterMark);
         return hash;
     }
 
@@ -99,6 +446,12 @@ public class JDBCSource implements Source {
         if (!Objects.equals(this.connectionProvider, other.connectionProvider)) {
             return false;
         }
+        if (!Objects.equals(this.orderedBy, other.orderedBy)) {
+            return false;
+        }
+        if (!Objects.equals(this.highWaterMark, other.highWaterMark)) {
+            return false;
+        }
         return true;
     }
 
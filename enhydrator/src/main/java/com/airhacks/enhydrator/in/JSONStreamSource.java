@@ -0,0 +1,400 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParserFactory;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Streams rows out of a JSON document with the event based JsonParser. A
+ * document starting with an array emits one row per element, otherwise every
+ * (non-empty) line is parsed as a separate document (NDJSON). Nested objects
+ * are flattened to dotted column names ("address.city"), nested arrays
+ * become children of the row. Only the current row is kept in memory.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "json-stream-source")
+public class JSONStreamSource implements Source {
+
+    public static final String SCALAR_COLUMN = "value";
+
+    private static final JsonParserFactory FACTORY = Json.createParserFactory(Collections.emptyMap());
+
+    private String fileName;
+    private String charsetName;
+
+    @XmlTransient
+    private InputStream stream;
+    @XmlTransient
+    private final LongAdder bytesRead = new LongAdder();
+
+    public JSONStreamSource(String fileName, String charsetName) {
+        this.fileName = fileName;
+        this.charsetName = charsetName;
+    }
+
+    public JSONStreamSource(InputStream stream, String charsetName) {
+        this.stream = stream;
+        this.charsetName = charsetName;
+    }
+
+    public JSONStreamSource() {
+        //required for JAXB
+    }
+
+    Charset charset() {
+        if (this.charsetName == null || this.charsetName.isEmpty()) {
+            return StandardCharsets.UTF_8;
+        }
+        return Charset.forName(this.charsetName);
+    }
+
+    InputStream open() {
+        if (this.stream != null) {
+            InputStream current = this.stream;
+            this.stream = null;
+            return current;
+        }
+        if (this.fileName == null) {
+            throw new IllegalStateException("The stream was already consumed and no file is configured");
+        }
+        try {
+            return Files.newInputStream(Paths.get(this.fileName));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot open " + this.fileName, ex);
+        }
+    }
+
+    /**
+     * @see Source
+     * @param query not applicable
+     * @param params not applicable
+     * @return the rows, parsed while iterating
+     */
+    @Override
+    public Iterable<Row> query(String query, Object... params) {
+        return () -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new CSVStreamSource.CountingInputStream(open(), this.bytesRead), charset()), 64 * 1024);
+            if (startsWithArray(reader)) {
+                return new ArrayElements(reader);
+            }
+            return new Lines(reader);
+        };
+    }
+
+    @Override
+    public long getBytesRead() {
+        return this.bytesRead.sum();
+    }
+
+    static boolean startsWithArray(BufferedReader reader) {
+        try {
+            while (true) {
+                reader.mark(1);
+                int next = reader.read();
+                if (next == -1) {
+                    return false;
+                }
+                if (!Character.isWhitespace(next) && next != '\uFEFF') {
+                    reader.reset();
+                    return next == '[';
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Closing releases the file, also if the elements are not consumed to the
+     * end.
+     */
+    static class ArrayElements implements Iterator<Row>, AutoCloseable {
+
+        private final JsonParser parser;
+        private Row next;
+        private boolean done;
+
+        ArrayElements(BufferedReader reader) {
+            this.parser = FACTORY.createParser(reader);
+            this.parser.next();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.done) {
+                return false;
+            }
+            Event event = this.parser.next();
+            if (event == Event.END_ARRAY) {
+                close();
+                return false;
+            }
+            this.next = element(this.parser, event);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            this.next = null;
+            this.parser.close();
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row current = this.next;
+            this.next = null;
+            return current;
+        }
+    }
+
+    /**
+     * Closing releases the file, also if the lines are not consumed to the
+     * end.
+     */
+    static class Lines implements Iterator<Row>, AutoCloseable {
+
+        private final BufferedReader reader;
+        private Row next;
+        private boolean done;
+
+        Lines(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.done) {
+                return false;
+            }
+            String line;
+            try {
+                do {
+                    line = this.reader.readLine();
+                } while (line != null && line.trim().isEmpty());
+                if (line == null) {
+                    close();
+                    return false;
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read line", ex);
+            }
+            try (JsonParser parser = FACTORY.createParser(new StringReader(line))) {
+                this.next = element(parser, parser.next());
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            this.next = null;
+            try {
+                this.reader.close();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot close reader", ex);
+            }
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row current = this.next;
+            this.next = null;
+            return current;
+        }
+    }
+
+    /**
+     * @param event the first event of the element
+     */
+    static Row element(JsonParser parser, Event event) {
+        Row row = new Row();
+        switch (event) {
+            case START_OBJECT:
+                fields(parser, row, "", new int[1]);
+                break;
+            case START_ARRAY:
+                children(parser, row, SCALAR_COLUMN);
+                break;
+            default:
+                add(row, 0, SCALAR_COLUMN, value(parser, event));
+        }
+        return row;
+    }
+
+    /**
+     * Adds all fields until the END_OBJECT of the current object
+     */
+    static void fields(JsonParser parser, Row row, String prefix, int[] index) {
+        String name = null;
+        while (true) {
+            Event event = parser.next();
+            switch (event) {
+                case END_OBJECT:
+                    return;
+                case KEY_NAME:
+                    name = prefix + parser.getString();
+                    break;
+                case START_OBJECT:
+                    fields(parser, row, name + ".", index);
+                    break;
+                case START_ARRAY:
+                    children(parser, row, name);
+                    break;
+                default:
+                    add(row, index[0]++, name, value(parser, event));
+            }
+        }
+    }
+
+    /**
+     * Adds every element of the current array as child, scalar elements as
+     * child with a single column named after the array
+     */
+    static void children(JsonParser parser, Row row, String name) {
+        while (true) {
+            Event event = parser.next();
+            switch (event) {
+                case END_ARRAY:
+                    return;
+                case START_OBJECT:
+                    Row child = new Row();
+                    fields(parser, child, "", new int[1]);
+                    row.add(child);
+                    break;
+                case START_ARRAY:
+                    Row nested = new Row();
+                    children(parser, nested, name);
+                    row.add(nested);
+                    break;
+                default:
+                    Row scalar = new Row();
+                    add(scalar, 0, name, value(parser, event));
+                    row.add(scalar);
+            }
+        }
+    }
+
+    static void add(Row row, int index, String name, Object value) {
+        if (value == null) {
+            row.addNullColumn(index, name);
+        } else {
+            row.addColumn(index, name, value);
+        }
+    }
+
+    static Object value(JsonParser parser, Event event) {
+        switch (event) {
+            case VALUE_STRING:
+                return parser.getString();
+            case VALUE_NUMBER:
+                if (parser.isIntegralNumber()) {
+                    long value = parser.getLong();
+                    if (value == (int) value) {
+                        return (int) value;
+                    }
+                    BigDecimal exact = parser.getBigDecimal();
+                    if (exact.compareTo(BigDecimal.valueOf(value)) == 0) {
+                        return value;
+                    }
+                    return exact;
+                }
+                return parser.getBigDecimal().doubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected " + event + " at " + parser.getLocation());
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 71 * hash + Objects.hashCode(this.fileName);
+        hash = 71 * hash + Objects.hashCode(this.charsetName);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final JSONStreamSource other = (JSONStreamSource) obj;
+        return Objects.equals(this.fileName, other.fileName)
+                && Objects.equals(this.charsetName, other.charsetName);
+    }
+
+}
@@ -0,0 +1,530 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.out.NamedSink;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * A VirtualSinkSource which stores the rows column by column in direct
+ * (off-heap) buffers instead of Row / Column objects. Every column consists
+ * of a type lane (1 byte per row, also encoding null and absent values) and a
+ * value lane (8 bytes per row). Numbers, booleans and dates are stored
+ * primitive (date-times and timestamps with a second lane for the nanos), strings are dictionary encoded up to a per-column limit and
+ * appended to a variable length area afterwards. Rows are materialized on
+ * read.
+ *
+ * Rows with children, with a column which changed its index or destination or
+ * with a value of another type are kept on heap as they are.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "off-heap-virtual-sink-source")
+public class OffHeapVirtualSinkSource extends NamedSink implements Source {
+
+    public static final int DEFAULT_DICTIONARY_LIMIT = 65_536;
+    static final int INITIAL_CAPACITY = 1024;
+    /**
+     * The value lanes are limited to Integer.MAX_VALUE bytes
+     */
+    static final int MAX_ROWS = Integer.MAX_VALUE / 8;
+
+    /**
+     * Distinct strings per column kept in the dictionary
+     */
+    private int dictionaryLimit;
+
+    @XmlTransient
+    private Map<String, OffHeapColumn> columns;
+    @XmlTransient
+    private Map<Integer, Row> onHeap;
+    @XmlTransient
+    private int numberOfRows;
+    @XmlTransient
+    private int capacity;
+
+    public OffHeapVirtualSinkSource() {
+        this("*");
+    }
+
+    public OffHeapVirtualSinkSource(String name) {
+        this(name, DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    public OffHeapVirtualSinkSource(String name, int dictionaryLimit) {
+        super(name);
+        this.dictionaryLimit = dictionaryLimit;
+    }
+
+    Map<String, OffHeapColumn> columns() {
+        if (this.columns == null) {
+            this.columns = new LinkedHashMap<>();
+            this.onHeap = new HashMap<>();
+            this.capacity = INITIAL_CAPACITY;
+        }
+        return this.columns;
+    }
+
+    /**
+     * The rows received before the checkpoint stay in the sink.
+     */
+    @Override
+    public void resume(String state) {
+    }
+
+    @Override
+    public void processRow(Row entries) {
+        Map<String, OffHeapColumn> all = columns();
+        int row = this.numberOfRows;
+        if (row == this.capacity) {
+            this.capacity = grownCapacity(this.capacity);
+            all.values().forEach(c -> c.grow(this.capacity));
+        }
+        this.numberOfRows++;
+        if (!fitsColumns(entries)) {
+            this.onHeap.put(row, entries);
+            return;
+        }
+        for (Column column : entries.getColumns()) {
+            OffHeapColumn offHeap = all.computeIfAbsent(column.getName(),
+                    n -> new OffHeapColumn(column, this.capacity, this.dictionaryLimit));
+            offHeap.set(row, column.getValue());
+        }
+    }
+
+    static int grownCapacity(int capacity) {
+        if (capacity >= MAX_ROWS) {
+            throw new IllegalStateException("OffHeapVirtualSinkSource holds at most " + MAX_ROWS + " rows");
+        }
+        return (int) Math.min(2L * capacity, MAX_ROWS);
+    }
+
+    boolean fitsColumns(Row entries) {
+        if (entries.hasChildren()) {
+            return false;
+        }
+        for (Column column : entries.getColumns()) {
+            OffHeapColumn existing = this.columns.get(column.getName());
+            if (existing != null && !existing.describes(column)) {
+                return false;
+            }
+            if (!OffHeapColumn.supports(column.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumberOfRows() {
+        return this.numberOfRows;
+    }
+
+    /**
+     * @param index the position of the row
+     * @return a new Row with the stored values or null, if there is no such
+     * row
+     */
+    public Row getRow(int index) {
+        if (index < 0 || index >= this.numberOfRows) {
+            return null;
+        }
+        Row heap = this.onHeap.get(index);
+        if (heap != null) {
+            return heap;
+        }
+        Row row = new Row();
+        for (OffHeapColumn column : this.columns.values()) {
+            column.materialize(index, row);
+        }
+        return row;
+    }
+
+    /**
+     * @return the number of allocated off-heap bytes
+     */
+    public long getOffHeapBytes() {
+        return columns().values().stream().mapToLong(OffHeapColumn::allocated).sum();
+    }
+
+    public int getNumberOfOnHeapRows() {
+        columns();
+        return this.onHeap.size();
+    }
+
+    /**
+     * Releases all rows
+     */
+    public void clear() {
+        this.columns = null;
+        this.onHeap = null;
+        this.numberOfRows = 0;
+    }
+
+    /**
+     * @see Source
+     * @param query not applicable
+     * @param params not applicable
+     * @return the stored rows, materialized one by one
+     */
+    @Override
+    public Iterable<Row> query(String query, Object... params) {
+        columns();
+        int size = this.numberOfRows;
+        return () -> new Iterator<Row>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getRow(next++);
+            }
+        };
+    }
+
+    static class OffHeapColumn {
+
+        static final byte ABSENT = 0;
+        static final byte NULL = 1;
+        static final byte INTEGER = 2;
+        static final byte LONG = 3;
+        static final byte DOUBLE = 4;
+        static final byte FLOAT = 5;
+        static final byte BOOLEAN = 6;
+        static final byte SHORT = 7;
+        static final byte BYTE = 8;
+        static final byte DATE = 9;
+        static final byte DICTIONARY = 10;
+        static final byte STRING = 11;
+        static final byte DECIMAL = 12;
+        static final byte LOCAL_DATE = 13;
+        static final byte LOCAL_DATE_TIME = 14;
+        static final byte LOCAL_TIME = 15;
+        static final byte SQL_TIMESTAMP = 16;
+        static final byte SQL_DATE = 17;
+        static final byte SQL_TIME = 18;
+
+        final String name;
+        final int index;
+        final String targetSink;
+        final String targetObject;
+        final int dictionaryLimit;
+
+        ByteBuffer types;
+        ByteBuffer values;
+        /**
+         * Second value lane (nano of day, timestamp nanos), allocated with the
+         * first value which needs it
+         */
+        ByteBuffer extra;
+        ByteBuffer variable;
+        final Map<String, Integer> dictionary;
+        final List<String> entries;
+
+        OffHeapColumn(Column column, int capacity, int dictionaryLimit) {
+            this.name = column.getName();
+            this.index = column.getIndex();
+            this.targetSink = column.getTargetSink();
+            this.targetObject = column.getTargetObject();
+            this.dictionaryLimit = dictionaryLimit;
+            this.types = ByteBuffer.allocateDirect(capacity);
+            this.values = ByteBuffer.allocateDirect(laneBytes(capacity));
+            this.dictionary = new HashMap<>();
+            this.entries = new ArrayList<>();
+        }
+
+        /**
+         * @return true, if the value is read back with the same type
+         */
+        static boolean supports(Object value) {
+            if (value == null || value instanceof String || value instanceof Integer
+                    || value instanceof Long || value instanceof Double || value instanceof Float
+                    || value instanceof Boolean || value instanceof Short || value instanceof Byte
+                    || value instanceof LocalDate || value instanceof LocalDateTime || value instanceof LocalTime) {
+                return true;
+            }
+            Class<?> type = value.getClass();
+            return type == Timestamp.class || type == java.sql.Date.class || type == Time.class
+                    || type == Date.class || type == BigDecimal.class;
+        }
+
+        boolean describes(Column column) {
+            return this.index == column.getIndex()
+                    && Objects.equals(this.targetSink, column.getTargetSink())
+                    && Objects.equals(this.targetObject, column.getTargetObject());
+        }
+
+        void grow(int capacity) {
+            this.types = copy(this.types, capacity);
+            this.values = copy(this.values, laneBytes(capacity));
+            if (this.extra != null) {
+                this.extra = copy(this.extra, laneBytes(capacity));
+            }
+        }
+
+        static int laneBytes(int capacity) {
+            long bytes = 8L * capacity;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("A value lane for " + capacity + " rows exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+            return (int) bytes;
+        }
+
+        /**
+         * @return the capacity of the variable length area for the
+         * additional bytes
+         */
+        static int grownVariable(int capacity, int position, int additional) {
+            long required = (long) position + additional;
+            if (required > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The variable length area requires " + required + " bytes, more than " + Integer.MAX_VALUE);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(2L * capacity, required));
+        }
+
+        ByteBuffer extra() {
+            if (this.extra == null) {
+                this.extra = ByteBuffer.allocateDirect(this.values.capacity());
+            }
+            return this.extra;
+        }
+
+        static ByteBuffer copy(ByteBuffer origin, int capacity) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            ByteBuffer source = origin.duplicate();
+            source.clear();
+            grown.put(source);
+            grown.clear();
+            return grown;
+        }
+
+        void set(int row, Object value) {
+            int slot = row * 8;
+            if (value == null) {
+                this.types.put(row, NULL);
+            } else if (value instanceof String) {
+                setString(row, slot, (String) value);
+            } else if (value instanceof Integer) {
+                this.types.put(row, INTEGER);
+                this.values.putLong(slot, (Integer) value);
+            } else if (value instanceof Long) {
+                this.types.put(row, LONG);
+                this.values.putLong(slot, (Long) value);
+            } else if (value instanceof Double) {
+                this.types.put(row, DOUBLE);
+                this.values.putDouble(slot, (Double) value);
+            } else if (value instanceof Float) {
+                this.types.put(row, FLOAT);
+                this.values.putDouble(slot, (Float) value);
+            } else if (value instanceof Boolean) {
+                this.types.put(row, BOOLEAN);
+                this.values.putLong(slot, ((Boolean) value) ? 1 : 0);
+            } else if (value instanceof Short) {
+                this.types.put(row, SHORT);
+                this.values.putLong(slot, (Short) value);
+            } else if (value instanceof Byte) {
+                this.types.put(row, BYTE);
+                this.values.putLong(slot, (Byte) value);
+            } else if (value instanceof LocalDate) {
+                this.types.put(row, LOCAL_DATE);
+                this.values.putLong(slot, ((LocalDate) value).toEpochDay());
+            } else if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                this.types.put(row, LOCAL_DATE_TIME);
+                this.values.putLong(slot, dateTime.toLocalDate().toEpochDay());
+                extra().putLong(slot, dateTime.toLocalTime().toNanoOfDay());
+            } else if (value instanceof LocalTime) {
+                this.types.put(row, LOCAL_TIME);
+                this.values.putLong(slot, ((LocalTime) value).toNanoOfDay());
+            } else if (value instanceof Timestamp) {
+                Timestamp timestamp = (Timestamp) value;
+                this.types.put(row, SQL_TIMESTAMP);
+                this.values.putLong(slot, timestamp.getTime());
+                extra().putLong(slot, timestamp.getNanos());
+            } else if (value instanceof java.sql.Date) {
+                this.types.put(row, SQL_DATE);
+                this.values.putLong(slot, ((Date) value).getTime());
+            } else if (value instanceof Time) {
+                this.types.put(row, SQL_TIME);
+                this.values.putLong(slot, ((Date) value).getTime());
+            } else if (value instanceof Date) {
+                this.types.put(row, DATE);
+                this.values.putLong(slot, ((Date) value).getTime());
+            } else if (value instanceof BigDecimal) {
+                this.types.put(row, DECIMAL);
+                this.values.putLong(slot, append(value.toString()));
+            } else {
+                throw new IllegalStateException("Cannot store " + value.getClass().getName() + " off-heap in column " + this.name);
+            }
+        }
+
+        void setString(int row, int slot, String value) {
+            Integer id = this.dictionary.get(value);
+            if (id == null && this.entries.size() < this.dictionaryLimit) {
+                id = this.entries.size();
+                this.entries.add(value);
+                this.dictionary.put(value, id);
+            }
+            if (id != null) {
+                this.types.put(row, DICTIONARY);
+                this.values.putLong(slot, id);
+            } else {
+                this.types.put(row, STRING);
+                this.values.putLong(slot, append(value));
+            }
+        }
+
+        /**
+         * Appends the length prefixed UTF-8 representation to the variable
+         * area
+         *
+         * @return the offset of the value
+         */
+        long append(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (this.variable == null) {
+                this.variable = ByteBuffer.allocateDirect(grownVariable(2048, 0, bytes.length + 4));
+            }
+            if (this.variable.remaining() < bytes.length + 4) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(grownVariable(this.variable.capacity(), this.variable.position(), bytes.length + 4));
+                this.variable.flip();
+                grown.put(this.variable);
+                this.variable = grown;
+            }
+            int offset = this.variable.position();
+            this.variable.putInt(bytes.length);
+            this.variable.put(bytes);
+            return offset;
+        }
+
+        String read(long offset) {
+            ByteBuffer source = this.variable.duplicate();
+            source.position((int) offset);
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void materialize(int row, Row target) {
+            byte type = this.types.get(row);
+            if (type == ABSENT) {
+                return;
+            }
+            Column column = new Column(this.index, this.name, this.targetSink, get(type, row * 8));
+            column.setTargetObject(this.targetObject);
+            target.addColumn(column);
+        }
+
+        Object get(byte type, int slot) {
+            switch (type) {
+                case NULL:
+                    return null;
+                case INTEGER:
+                    return (int) this.values.getLong(slot);
+                case LONG:
+                    return this.values.getLong(slot);
+                case DOUBLE:
+                    return this.values.getDouble(slot);
+                case FLOAT:
+                    return (float) this.values.getDouble(slot);
+                case BOOLEAN:
+                    return this.values.getLong(slot) == 1;
+                case SHORT:
+                    return (short) this.values.getLong(slot);
+                case BYTE:
+                    return (byte) this.values.getLong(slot);
+                case DATE:
+                    return new Date(this.values.getLong(slot));
+                case LOCAL_DATE:
+                    return LocalDate.ofEpochDay(this.values.getLong(slot));
+                case LOCAL_DATE_TIME:
+                    return LocalDateTime.of(LocalDate.ofEpochDay(this.values.getLong(slot)),
+                            LocalTime.ofNanoOfDay(this.extra.getLong(slot)));
+                case LOCAL_TIME:
+                    return LocalTime.ofNanoOfDay(this.values.getLong(slot));
+                case SQL_TIMESTAMP:
+                    return RowCodec.timestamp(this.values.getLong(slot), (int) this.extra.getLong(slot));
+                case SQL_DATE:
+                    return new java.sql.Date(this.values.getLong(slot));
+                case SQL_TIME:
+                    return new Time(this.values.getLong(slot));
+                case DICTIONARY:
+                    return this.entries.get((int) this.values.getLong(slot));
+                case STRING:
+                    return read(this.values.getLong(slot));
+                case DECIMAL:
+                    return new BigDecimal(read(this.values.getLong(slot)));
+                default:
+                    throw new IllegalStateException("Unknown type " + type + " in column " + this.name);
+            }
+        }
+
+        long allocated() {
+            return this.types.capacity() + this.values.capacity()
+                    + (this.extra == null ? 0 : this.extra.capacity())
+                    + (this.variable == null ? 0 : this.variable.capacity());
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads (and decompresses) the wrapped stream in a separate thread into a
+ * fixed number of reusable blocks, so reading overlaps with parsing. The
+ * reader thread blocks when all blocks are full.
+ *
+ * @author airhacks.com
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_BLOCKS = 4;
+
+    private static final Block END = new Block(new byte[0]);
+
+    private final InputStream in;
+    private final BlockingQueue<Block> free;
+    private final BlockingQueue<Block> filled;
+    private final Thread reader;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private Block current;
+    private int position;
+
+    static class Block {
+
+        final byte[] content;
+        int length;
+
+        Block(byte[] content) {
+            this.content = content;
+        }
+    }
+
+    public ReadAheadInputStream(InputStream in) {
+        this(in, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCKS);
+    }
+
+    public ReadAheadInputStream(InputStream in, int blockSize, int blocks) {
+        if (blockSize <= 0 || blocks <= 0) {
+            throw new IllegalArgumentException("Block size and number of blocks have to be positive");
+        }
+        this.in = in;
+        this.free = new ArrayBlockingQueue<>(blocks);
+        this.filled = new ArrayBlockingQueue<>(blocks + 1);
+        for (int i = 0; i < blocks; i++) {
+            this.free.add(new Block(new byte[blockSize]));
+        }
+        this.reader = new Thread(this::readAhead, "enhydrator-read-ahead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    void readAhead() {
+        try {
+            while (!this.closed) {
+                Block block = this.free.take();
+                int length = fill(block.content);
+                if (length > 0) {
+                    block.length = length;
+                    this.filled.put(block);
+                }
+                if (length < block.content.length) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            this.failure = ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.filled.offer(END);
+        }
+    }
+
+    /**
+     * @return the number of bytes read, less than the block size only at the
+     * end of the stream
+     */
+    int fill(byte[] content) throws IOException {
+        int length = 0;
+        while (length < content.length) {
+            int read = this.in.read(content, length, content.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    boolean nextBlock() throws IOException {
+        if (this.current == END) {
+            return false;
+        }
+        if (this.current != null) {
+            this.free.offer(this.current);
+        }
+        try {
+            this.current = this.filled.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next block");
+        }
+        this.position = 0;
+        if (this.current == END) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((this.current == null || this.position == this.current.length) && !nextBlock()) {
+            return -1;
+        }
+        return this.current.content[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if ((this.current == null || this.position == this.current.length) && !nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(length, this.current.length - this.position);
+        System.arraycopy(this.current.content, this.position, buffer, offset, count);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        if (this.current == null || this.current == END) {
+            return 0;
+        }
+        return this.current.length - this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.reader.interrupt();
+        try {
+            this.reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.in.close();
+    }
+
+}
@@ -22,6 +22,7 @@ package com.airhacks.enhydrator.in;
 import com.airhacks.enhydrator.transform.Memory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,7 @@ public class Row {
 
     private List<Row> children;
     private Memory memory;
+    private List<ConversionException> conversionErrors;
 
     public Row() {
         this.columnByName = new ConcurrentHashMap<>();
@@ -56,6 +58,28 @@ public class Row {
 
     public void useMemory(Memory globalMemory) {
         this.memory = globalMemory;
+        if (this.conversionErrors != null && globalMemory != null) {
+            globalMemory.addConversionErrors(this, this.conversionErrors);
+            this.conversionErrors = null;
+        }
+    }
+
+    /**
+     * Records a value which could not be converted while parsing. The errors
+     * are passed to the memory once the row is processed.
+     */
+    public void conversionFailed(ConversionException error) {
+        if (this.conversionErrors == null) {
+            this.conversionErrors = new ArrayList<>();
+        }
+        this.conversionErrors.add(error);
+    }
+
+    public List<ConversionException> getConversionErrors() {
+        if (this.conversionErrors == null) {
+            return Collections.emptyList();
+        }
+        return this.conversionErrors;
     }
 
     /**
@@ -0,0 +1,316 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+
+/**
+ * Compact binary representation of a Row including its children. Values of
+ * the common types keep their type, all other values are written as String.
+ *
+ * @author airhacks.com
+ */
+public class RowCodec {
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte INTEGER = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte FLOAT = 5;
+    static final byte BOOLEAN = 6;
+    static final byte SHORT = 7;
+    static final byte BYTE = 8;
+    static final byte DECIMAL = 9;
+    static final byte DATE = 10;
+    static final byte LOCAL_DATE = 11;
+    static final byte LOCAL_DATE_TIME = 12;
+    static final byte LOCAL_TIME = 13;
+    static final byte SQL_TIMESTAMP = 14;
+    static final byte SQL_DATE = 15;
+    static final byte SQL_TIME = 16;
+
+    private RowCodec() {
+    }
+
+    public static void write(DataOutput out, Row row) throws IOException {
+        out.writeInt(row.getNumberOfColumns());
+        for (Column column : row.getColumns()) {
+            out.writeInt(column.getIndex());
+            writeString(out, column.getName());
+            writeString(out, column.getTargetSink());
+            writeString(out, column.getTargetObject());
+            writeValue(out, column.getValue());
+        }
+        out.writeInt(row.getChildren().size());
+        for (Row child : row.getChildren()) {
+            write(out, child);
+        }
+    }
+
+    public static Row read(DataInput in) throws IOException {
+        Row row = new Row();
+        int numberOfColumns = in.readInt();
+        for (int i = 0; i < numberOfColumns; i++) {
+            int index = in.readInt();
+            String name = readString(in);
+            String targetSink = readString(in);
+            String targetObject = readString(in);
+            Object value = readValue(in);
+            Column column = new Column(index, name, targetSink, value);
+            column.setTargetObject(targetObject);
+            row.addColumn(column);
+        }
+        int numberOfChildren = in.readInt();
+        for (int i = 0; i < numberOfChildren; i++) {
+            row.add(read(in));
+        }
+        return row;
+    }
+
+    /**
+     * Reads a row written with {@link #write(DataOutput, Row)} directly from
+     * a (e.g. memory mapped) buffer, starting at its current position.
+     *
+     * @param in the buffer, positioned after the row when done
+     * @return the row
+     */
+    public static Row read(ByteBuffer in) {
+        Row row = new Row();
+        int numberOfColumns = in.getInt();
+        for (int i = 0; i < numberOfColumns; i++) {
+            int index = in.getInt();
+            String name = readString(in);
+            String targetSink = readString(in);
+            String targetObject = readString(in);
+            Object value = readValue(in);
+            Column column = new Column(index, name, targetSink, value);
+            column.setTargetObject(targetObject);
+            row.addColumn(column);
+        }
+        int numberOfChildren = in.getInt();
+        for (int i = 0; i < numberOfChildren; i++) {
+            row.add(read(in));
+        }
+        return row;
+    }
+
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeLong(dateTime.toLocalDate().toEpochDay());
+            out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+        } else if (value instanceof LocalTime) {
+            out.writeByte(LOCAL_TIME);
+            out.writeLong(((LocalTime) value).toNanoOfDay());
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            out.writeByte(SQL_TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            out.writeByte(STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case DATE:
+                return new Date(in.readLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.readLong());
+            case SQL_TIMESTAMP:
+                return timestamp(in.readLong(), in.readInt());
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case SQL_TIME:
+                return new Time(in.readLong());
+            default:
+                throw new IllegalStateException("Unknown value type: " + type);
+        }
+    }
+
+    public static Object readValue(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case DOUBLE:
+                return in.getDouble();
+            case FLOAT:
+                return in.getFloat();
+            case BOOLEAN:
+                return in.get() != 0;
+            case SHORT:
+                return in.getShort();
+            case BYTE:
+                return in.get();
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case DATE:
+                return new Date(in.getLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.getLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.of(LocalDate.ofEpochDay(in.getLong()), LocalTime.ofNanoOfDay(in.getLong()));
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.getLong());
+            case SQL_TIMESTAMP:
+                return timestamp(in.getLong(), in.getInt());
+            case SQL_DATE:
+                return new java.sql.Date(in.getLong());
+            case SQL_TIME:
+                return new Time(in.getLong());
+            default:
+                throw new IllegalStateException("Unknown value type: " + type);
+        }
+    }
+
+    static Timestamp timestamp(long millis, int nanos) {
+        Timestamp timestamp = new Timestamp(millis);
+        timestamp.setNanos(nanos);
+        return timestamp;
+    }
+
+    /**
+     * Length prefixed UTF-8, -1 for null. Not limited to 64k as
+     * DataOutput#writeUTF.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Infers the datatypes of CSV columns from sampled records. A column gets the
+ * narrowest datatype matching all of its non-empty cells: INTEGER, LONG and
+ * DOUBLE widen into each other, BOOLEAN (true / false) and DATE (yyyy-MM-dd)
+ * only match themselves. Everything else, including numbers with leading
+ * zeros like zip codes, remains a string.
+ *
+ * @author airhacks.com
+ */
+public class SchemaInference {
+
+    private Datatype[] datatypes;
+    private boolean[] strings;
+    private int sampled;
+
+    public SchemaInference() {
+        this.datatypes = new Datatype[16];
+        this.strings = new boolean[16];
+    }
+
+    /**
+     * Adds the cells of a record to the sample
+     */
+    public void sample(byte[] record, int[] starts, int[] ends, int fieldCount) {
+        if (fieldCount > this.datatypes.length) {
+            this.datatypes = Arrays.copyOf(this.datatypes, Math.max(fieldCount, this.datatypes.length * 2));
+            this.strings = Arrays.copyOf(this.strings, this.datatypes.length);
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            if (starts[i] == ends[i] || this.strings[i]) {
+                continue;
+            }
+            Datatype cell = classify(record, starts[i], ends[i]);
+            Datatype merged = merge(this.datatypes[i], cell);
+            if (merged == null) {
+                this.strings[i] = true;
+            }
+            this.datatypes[i] = merged;
+        }
+        this.sampled++;
+    }
+
+    /**
+     * @return the datatype of the field or null, if it remains a string
+     */
+    public Datatype getDatatype(int field) {
+        if (field >= this.datatypes.length || this.strings[field]) {
+            return null;
+        }
+        return this.datatypes[field];
+    }
+
+    /**
+     * @param names the column name for a field index
+     * @return the inferred datatypes by column name, without string columns
+     */
+    public Map<String, Datatype> getDatatypes(IntFunction<String> names) {
+        Map<String, Datatype> byName = new HashMap<>();
+        for (int i = 0; i < this.datatypes.length; i++) {
+            Datatype datatype = getDatatype(i);
+            if (datatype != null) {
+                byName.put(names.apply(i), datatype);
+            }
+        }
+        return byName;
+    }
+
+    public int getSampledRecords() {
+        return sampled;
+    }
+
+    /**
+     * @return the narrowest datatype of the cell, null for strings
+     */
+    static Datatype classify(byte[] bytes, int start, int end) {
+        int firstDigit = (bytes[start] == '-' || bytes[start] == '+') ? start + 1 : start;
+        if (end - firstDigit > 1 && bytes[firstDigit] == '0' && bytes[firstDigit + 1] != '.') {
+            return null;
+        }
+        if (CSVByteParser.parseInteger(bytes, start, end) != null) {
+            return Datatype.INTEGER;
+        }
+        if (CSVByteParser.parseLong(bytes, start, end) != null) {
+            return Datatype.LONG;
+        }
+        if (isDecimal(bytes, start, end) && CSVByteParser.convert(Datatype.DOUBLE, bytes, start, end) != null) {
+            return Datatype.DOUBLE;
+        }
+        if (CSVByteParser.parseBoolean(bytes, start, end) != null) {
+            return Datatype.BOOLEAN;
+        }
+        if (CSVByteParser.parseDate(bytes, start, end) != null) {
+            return Datatype.DATE;
+        }
+        return null;
+    }
+
+    /**
+     * Excludes the Java specific syntaxes of Double.parseDouble like NaN, hex
+     * or type suffixes
+     */
+    static boolean isDecimal(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte current = bytes[i];
+            boolean valid = (current >= '0' && current <= '9') || current == '.'
+                    || current == '-' || current == '+' || current == 'e' || current == 'E';
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Datatype merge(Datatype current, Datatype cell) {
+        if (cell == null) {
+            return null;
+        }
+        if (current == null || current == cell) {
+            return cell;
+        }
+        int currentRank = numericRank(current);
+        int cellRank = numericRank(cell);
+        if (currentRank < 0 || cellRank < 0) {
+            return null;
+        }
+        return currentRank > cellRank ? current : cell;
+    }
+
+    static int numericRank(Datatype datatype) {
+        switch (datatype) {
+            case INTEGER:
+                return 0;
+            case LONG:
+                return 1;
+            case DOUBLE:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+}
@@ -19,6 +19,8 @@ package com.airhacks.enhydrator.in;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.transform.ScriptEngines;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
@@ -28,10 +30,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.script.Bindings;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -41,6 +52,13 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 /**
+ * Converts the input file with a script into rows. By default the whole file
+ * is passed as <code>INPUT</code> string and the script returns the list of
+ * rows (<code>ROWS</code>). In streaming mode the script reads the file from
+ * <code>READER</code> (BufferedReader) or <code>LINES</code> (Iterator of
+ * lines) and passes each row to <code>EMIT</code>; the rows are consumed while
+ * the script is still running, at most <code>capacity</code> rows are
+ * buffered.
  *
  * @author airhacks.com
  */
@@ -48,7 +66,11 @@ import javax.xml.bind.annotation.XmlTransient;
 @XmlRootElement(name = "scriptable-source")
 public class ScriptableSource implements Source {
 
+    public static final int DEFAULT_CAPACITY = 1024;
+
     private String charsetName;
+    private boolean streaming;
+    private int capacity;
 
     @XmlTransient
     private Charset charset;
@@ -65,6 +87,8 @@ public class ScriptableSource implements Source {
     private Reader script;
     @XmlTransient
     private List<Row> rows;
+    @XmlTransient
+    private String scriptContent;
     private String inputFile;
     private String scriptFile;
 
@@ -100,7 +124,26 @@ public class ScriptableSource implements Source {
         this.rows = new ArrayList<>();
         this.charset = Charset.forName(charsetName);
         ScriptEngineManager manager = new ScriptEngineManager();
-        this.nashorn = manager.getEngineByName("javascript");
+        this.nashorn = ScriptEngines.nashorn(manager);
+    }
+
+    /**
+     * Switches to the streaming contract with the default capacity
+     *
+     * @return this
+     */
+    public ScriptableSource streaming() {
+        return streaming(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of emitted, but not consumed rows
+     * @return this
+     */
+    public ScriptableSource streaming(int capacity) {
+        this.streaming = true;
+        this.capacity = capacity;
+        return this;
     }
 
     static FileReader getScriptContents(String location) {
@@ -128,6 +171,7 @@ public class ScriptableSource implements Source {
 
     public void setScriptFile(String scriptFile) {
         this.scriptFile = scriptFile;
+        this.scriptContent = null;
         try {
             this.script = new FileReader(this.scriptFile);
         } catch (FileNotFoundException ex) {
@@ -147,6 +191,9 @@ public class ScriptableSource implements Source {
      */
     @Override
     public Iterable<Row> query(String query, Object... params) {
+        if (this.streaming) {
+            return () -> new Emitter(this.capacity > 0 ? this.capacity : DEFAULT_CAPACITY).start();
+        }
         if (this.iterable == null) {
             try {
                 this.iterable = this.load();
@@ -157,12 +204,138 @@ public class ScriptableSource implements Source {
         return this.iterable;
     }
 
+    String scriptContent() {
+        if (this.scriptContent == null) {
+            try (BufferedReader reader = new BufferedReader(this.script)) {
+                this.scriptContent = reader.lines().collect(Collectors.joining("\n"));
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read script", ex);
+            }
+        }
+        return this.scriptContent;
+    }
+
+    /**
+     * Runs the script in a producer thread and hands over the emitted rows
+     * through a bounded queue. Closing the emitter stops the producer, if the
+     * rows are not consumed to the end.
+     */
+    class Emitter implements Iterator<Row>, Consumer<Row>, AutoCloseable {
+
+        static final long OFFER_MILLIS = 100;
+
+        private final Object end = new Object();
+        private final BlockingQueue<Object> queue;
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private Thread producer;
+        private Object next;
+
+        Emitter(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        Emitter start() {
+            String content = scriptContent();
+            this.producer = new Thread(() -> produce(content), "enhydrator-scriptable-source");
+            this.producer.setDaemon(true);
+            this.producer.start();
+            return this;
+        }
+
+        void produce(String content) {
+            try (BufferedReader reader = Files.newBufferedReader(input, charset)) {
+                Bindings bindings = nashorn.createBindings();
+                bindings.put("READER", reader);
+                bindings.put("LINES", reader.lines().iterator());
+                bindings.put("EMIT", this);
+                Object result = nashorn.eval(content, bindings);
+                if (result instanceof Iterable) {
+                    for (Object row : (Iterable<?>) result) {
+                        accept((Row) row);
+                    }
+                }
+            } catch (Throwable ex) {
+                this.failure = ex;
+            } finally {
+                offer(this.end);
+            }
+        }
+
+        @Override
+        public void accept(Row row) {
+            if (!offer(row)) {
+                throw new CancellationException("Rows are no longer consumed");
+            }
+        }
+
+        /**
+         * @return false, if the emitter was closed before the element was
+         * queued
+         */
+        boolean offer(Object element) {
+            try {
+                while (!this.cancelled) {
+                    if (this.queue.offer(element, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /**
+         * Stops the producer and discards the queued rows.
+         */
+        @Override
+        public void close() {
+            this.cancelled = true;
+            this.next = this.end;
+            if (this.producer != null) {
+                this.producer.interrupt();
+            }
+            this.queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next == null) {
+                try {
+                    this.next = this.queue.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for rows", ex);
+                }
+            }
+            if (this.next != this.end) {
+                return true;
+            }
+            if (this.failure != null) {
+                throw new IllegalStateException("Script failed: " + this.failure.getMessage(), this.failure);
+            }
+            return false;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row current = (Row) this.next;
+            this.next = null;
+            return current;
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
         hash = 67 * hash + Objects.hashCode(this.charsetName);
         hash = 67 * hash + Objects.hashCode(this.inputFile);
         hash = 67 * hash + Objects.hashCode(this.scriptFile);
+        hash = 67 * hash + (this.streaming ? 1 : 0);
         return hash;
     }
 
@@ -184,6 +357,9 @@ public class ScriptableSource implements Source {
         if (!Objects.equals(this.scriptFile, other.scriptFile)) {
             return false;
         }
+        if (this.streaming != other.streaming) {
+            return false;
+        }
         return true;
     }
 
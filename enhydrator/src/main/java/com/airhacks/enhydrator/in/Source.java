@@ -35,6 +35,7 @@ package com.airhacks.enhydrator.in;
  * #L%
  */
 import com.airhacks.enhydrator.flexpipe.JAXBInterfaceAdapter;
+import java.util.List;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 /**
@@ -51,4 +52,64 @@ public interface Source {
         return this.query(null);
     }
 
+    /**
+     * @return the number of bytes consumed so far or -1 if unknown
+     */
+    default long getBytesRead() {
+        return -1;
+    }
+
+    /**
+     * Invoked before the query with all columns the pipeline refers to.
+     * Sources may skip the remaining columns.
+     *
+     * @param projection the referenced columns
+     * @return true, if the projection is applied
+     */
+    default boolean project(ColumnProjection projection) {
+        return false;
+    }
+
+    /**
+     * Invoked before the query with the column filters of the pipeline.
+     * Sources may evaluate some of them while querying.
+     *
+     * @param query the query to be executed
+     * @param filters all column filters
+     * @return the filters the source does not evaluate, the Pump applies them
+     * to each row
+     */
+    default List<ColumnFilter> pushDown(String query, List<ColumnFilter> filters) {
+        return filters;
+    }
+
+    /**
+     * Invoked for checkpoints while the rows of the last query are
+     * processed.
+     *
+     * @param rows the number of rows consumed from the last query
+     * @return the position after these rows, null if the source cannot tell
+     */
+    default SourcePosition position(long rows) {
+        return null;
+    }
+
+    /**
+     * Invoked before the query, if the pipeline resumes from a checkpoint.
+     * Sources continue after the position instead of starting over.
+     *
+     * @param position the position returned for the checkpoint
+     * @return false, if the query starts from the beginning. The Pump skips
+     * the already processed rows then.
+     */
+    default boolean resumeFrom(SourcePosition position) {
+        return false;
+    }
+
+    /**
+     * Invoked after all rows were processed and the sinks were closed.
+     */
+    default void completed() {
+    }
+
 }
@@ -0,0 +1,184 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * The progress of a source: the number of delivered rows and, if known, the
+ * byte offset after the last row or the key of the last row of an ordered
+ * query.
+ *
+ * @author airhacks.com
+ */
+public class SourcePosition {
+
+    static final String ROWS = "rows";
+    static final String OFFSET = "offset";
+    static final String KEY = "key";
+    static final String KEY_TYPE = "key.type";
+
+    private final long rows;
+    private final long offset;
+    private final Object key;
+
+    public SourcePosition(long rows) {
+        this(rows, -1, null);
+    }
+
+    /**
+     * @param rows the number of delivered rows
+     * @param offset the byte offset after the last row, -1 if unknown
+     * @param key the key of the last row, null if unknown
+     */
+    public SourcePosition(long rows, long offset, Object key) {
+        this.rows = rows;
+        this.offset = offset;
+        this.key = key;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the byte offset after the last row, -1 if unknown
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the key of the last row, null if unknown
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Stores the key with its type, only strings, numbers, dates and times
+     * are supported.
+     *
+     * @param properties receives the position
+     */
+    public void storeTo(Properties properties) {
+        properties.setProperty(ROWS, String.valueOf(this.rows));
+        properties.setProperty(OFFSET, String.valueOf(this.offset));
+        if (this.key != null) {
+            if (parser(this.key.getClass().getName()) == null) {
+                throw new IllegalStateException("Unsupported key type: " + this.key.getClass().getName());
+            }
+            properties.setProperty(KEY, this.key.toString());
+            properties.setProperty(KEY_TYPE, this.key.getClass().getName());
+        }
+    }
+
+    /**
+     * @param properties as written by {@link #storeTo(java.util.Properties)}
+     * @return the stored position
+     */
+    public static SourcePosition from(Properties properties) {
+        Object key = null;
+        String keyType = properties.getProperty(KEY_TYPE);
+        if (keyType != null) {
+            Function<String, Object> parser = parser(keyType);
+            if (parser == null) {
+                throw new IllegalStateException("Unsupported key type: " + keyType);
+            }
+            key = parser.apply(properties.getProperty(KEY));
+        }
+        return new SourcePosition(Long.parseLong(properties.getProperty(ROWS, "0")),
+                Long.parseLong(properties.getProperty(OFFSET, "-1")), key);
+    }
+
+    /**
+     * @return the parser of the string representation, null if the type is
+     * not supported
+     */
+    static Function<String, Object> parser(String type) {
+        switch (type) {
+            case "java.lang.String":
+                return s -> s;
+            case "java.lang.Short":
+                return Short::valueOf;
+            case "java.lang.Integer":
+                return Integer::valueOf;
+            case "java.lang.Long":
+                return Long::valueOf;
+            case "java.lang.Double":
+                return Double::valueOf;
+            case "java.math.BigDecimal":
+                return BigDecimal::new;
+            case "java.sql.Date":
+                return java.sql.Date::valueOf;
+            case "java.sql.Time":
+                return java.sql.Time::valueOf;
+            case "java.sql.Timestamp":
+                return java.sql.Timestamp::valueOf;
+            case "java.time.LocalDate":
+                return LocalDate::parse;
+            case "java.time.LocalDateTime":
+                return LocalDateTime::parse;
+            case "java.time.LocalTime":
+                return LocalTime::parse;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 41 * hash + (int) (this.rows ^ (this.rows >>> 32));
+        hash = 41 * hash + (int) (this.offset ^ (this.offset >>> 32));
+        hash = 41 * hash + Objects.hashCode(this.key);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final SourcePosition other = (SourcePosition) obj;
+        if (this.rows != other.rows) {
+            return false;
+        }
+        if (this.offset != other.offset) {
+            return false;
+        }
+        return Objects.equals(this.key, other.key);
+    }
+
+    @Override
+    public String toString() {
+        return "SourcePosition{" + "rows=" + rows + ", offset=" + offset + ", key=" + key + '}';
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.out.NamedSink;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * A VirtualSinkSource which keeps only the first "threshold" rows on the heap.
+ * All subsequent rows are appended to binary segment files (see
+ * {@link RowCodec}) which are memory mapped and decoded lazily, row by row,
+ * while iterating over the result of {@link #query(java.lang.String, java.lang.Object...)}.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "spilling-virtual-sink-source")
+public class SpillingVirtualSinkSource extends NamedSink implements Source {
+
+    public static final int DEFAULT_THRESHOLD = 10_000;
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Number of rows kept on the heap
+     */
+    private int threshold;
+    /**
+     * Segments are rolled after this number of bytes
+     */
+    private long segmentSize;
+    /**
+     * Directory of the segment files, the temp directory if not set
+     */
+    private String directory;
+
+    @XmlTransient
+    private List<Row> rows;
+    @XmlTransient
+    private List<Path> segments;
+    @XmlTransient
+    private DataOutputStream segment;
+    @XmlTransient
+    private long spilledRows;
+
+    public SpillingVirtualSinkSource() {
+        this("*", DEFAULT_THRESHOLD);
+    }
+
+    public SpillingVirtualSinkSource(String name, int threshold) {
+        this(name, threshold, DEFAULT_SEGMENT_SIZE, null);
+    }
+
+    public SpillingVirtualSinkSource(String name, int threshold, long segmentSize, String directory) {
+        super(name);
+        this.threshold = threshold;
+        this.segmentSize = segmentSize;
+        this.directory = directory;
+    }
+
+    List<Row> rows() {
+        if (this.rows == null) {
+            this.rows = new ArrayList<>();
+            this.segments = new ArrayList<>();
+        }
+        return this.rows;
+    }
+
+    /**
+     * The rows received before the checkpoint stay in the sink.
+     */
+    @Override
+    public void resume(String state) {
+    }
+
+    /**
+     * @see NamedSink
+     * @param entries kept on heap below the threshold, spilled otherwise
+     */
+    @Override
+    public void processRow(Row entries) {
+        List<Row> onHeap = rows();
+        if (onHeap.size() < this.threshold) {
+            onHeap.add(entries);
+            return;
+        }
+        try {
+            if (this.segment == null || this.segment.size() >= this.segmentSize) {
+                rollSegment();
+            }
+            RowCodec.write(this.segment, entries);
+            this.spilledRows++;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot spill row to " + this.segments, ex);
+        }
+    }
+
+    void rollSegment() throws IOException {
+        closeSegment();
+        Path file;
+        if (this.directory == null) {
+            file = Files.createTempFile("enhydrator-" + getName().replaceAll("\\W", "_"), ".segment");
+        } else {
+            Path dir = Paths.get(this.directory);
+            Files.createDirectories(dir);
+            file = Files.createTempFile(dir, "enhydrator-", ".segment");
+        }
+        file.toFile().deleteOnExit();
+        this.segments.add(file);
+        this.segment = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+    }
+
+    void closeSegment() {
+        if (this.segment == null) {
+            return;
+        }
+        try {
+            this.segment.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot close segment", ex);
+        }
+        this.segment = null;
+    }
+
+    /**
+     * Completes the current segment
+     */
+    @Override
+    public void close() {
+        closeSegment();
+    }
+
+    public long getNumberOfRows() {
+        return rows().size() + this.spilledRows;
+    }
+
+    public long getNumberOfSpilledRows() {
+        return this.spilledRows;
+    }
+
+    List<Path> getSegments() {
+        return this.segments;
+    }
+
+    /**
+     * Removes all rows and deletes the segment files
+     */
+    public void clear() {
+        closeSegment();
+        rows().clear();
+        this.segments.forEach(s -> {
+            try {
+                Files.deleteIfExists(s);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot delete segment " + s, ex);
+            }
+        });
+        this.segments.clear();
+        this.spilledRows = 0;
+    }
+
+    /**
+     * @see Source
+     * @param query not applicable
+     * @param params not applicable
+     * @return heap rows followed by the lazily decoded spilled rows
+     */
+    @Override
+    public Iterable<Row> query(String query, Object... params) {
+        List<Row> onHeap = rows();
+        if (this.segment != null) {
+            try {
+                this.segment.flush();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot flush segment", ex);
+            }
+        }
+        List<Path> files = new ArrayList<>(this.segments);
+        return () -> new SpilledRows(onHeap.iterator(), files.iterator());
+    }
+
+    static class SpilledRows implements Iterator<Row> {
+
+        private final Iterator<Row> onHeap;
+        private final Iterator<Path> segments;
+        private MappedByteBuffer current;
+
+        SpilledRows(Iterator<Row> onHeap, Iterator<Path> segments) {
+            this.onHeap = onHeap;
+            this.segments = segments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.onHeap.hasNext()) {
+                return true;
+            }
+            while (this.current == null || !this.current.hasRemaining()) {
+                if (!this.segments.hasNext()) {
+                    return false;
+                }
+                this.current = map(this.segments.next());
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (this.onHeap.hasNext()) {
+                return this.onHeap.next();
+            }
+            return RowCodec.read(this.current);
+        }
+
+        static MappedByteBuffer map(Path segment) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot map segment " + segment, ex);
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        return true;
+    }
+
+}
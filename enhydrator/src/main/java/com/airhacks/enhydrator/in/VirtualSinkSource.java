@@ -79,6 +79,13 @@ public class VirtualSinkSource extends NamedSink implements Source {
         return this.rows;
     }
 
+    /**
+     * The rows received before the checkpoint stay in the sink.
+     */
+    @Override
+    public void resume(String state) {
+    }
+
     /**
      * @see NamedSink
      * @param entries process row
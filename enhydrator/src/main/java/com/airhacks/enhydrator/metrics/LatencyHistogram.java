@@ -0,0 +1,155 @@
+package com.airhacks.enhydrator.metrics;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, log-linear histogram in the spirit of HdrHistogram. Values
+ * below 64 are counted exactly, larger values fall into one of 32 linear
+ * sub-buckets per power of two, which keeps the relative error below ~3% over
+ * the entire long range with 1888 counters and no allocation on record.
+ *
+ * @author airhacks.com
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+    private final LongAccumulator min;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+        this.min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    }
+
+    /**
+     * Record a single value
+     *
+     * @param value the value (e.g. nanoseconds), negative values are recorded
+     * as 0
+     */
+    public void record(long value) {
+        long positive = Math.max(0, value);
+        this.counts.incrementAndGet(bucketIndex(positive));
+        this.count.increment();
+        this.sum.add(positive);
+        this.max.accumulate(positive);
+        this.min.accumulate(positive);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (subBucket - SUB_BUCKET_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long subBucket = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotal() {
+        return this.sum.sum();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public long getMin() {
+        long current = this.min.get();
+        return current == Long.MAX_VALUE ? 0 : current;
+    }
+
+    public double getMean() {
+        long numberOfValues = getCount();
+        if (numberOfValues == 0) {
+            return 0;
+        }
+        return (double) getTotal() / numberOfValues;
+    }
+
+    /**
+     * Get the value at the given percentile
+     *
+     * @param percentile between 0 and 100
+     * @return the highest value equivalent to the bucket containing the
+     * percentile, but never more than the recorded maximum
+     */
+    public long getValueAtPercentile(double percentile) {
+        long numberOfValues = getCount();
+        if (numberOfValues == 0) {
+            return 0;
+        }
+        double bounded = Math.min(100, Math.max(0, percentile));
+        long target = Math.max(1, (long) Math.ceil(bounded / 100 * numberOfValues));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += this.counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.reset();
+        this.min.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + (long) getMean() + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax();
+    }
+
+}
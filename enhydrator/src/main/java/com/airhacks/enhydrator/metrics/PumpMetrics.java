@@ -0,0 +1,317 @@
+package com.airhacks.enhydrator.metrics;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Per-stage latency histograms and throughput of a single Pump. Exposed as
+ * MXBean under "com.airhacks.enhydrator:type=PumpMetrics,name=[name]" while
+ * the pump is running.
+ *
+ * @author airhacks.com
+ */
+public class PumpMetrics implements PumpMetricsMXBean {
+
+    /**
+     * QUERY is recorded once per pump for the Source#query invocation,
+     * SOURCE for every row fetch
+     */
+    public enum Stage {
+        QUERY, SOURCE, FILTER, PRE_ROW_TRANSFORMATION, EXPRESSION, COLUMN_TRANSFORMATION, POST_ROW_TRANSFORMATION, SINK
+    }
+
+    static final String SINK_PREFIX = "sink:";
+
+    private final String name;
+    private final Map<Stage, LatencyHistogram> stages;
+    private final Map<String, LatencyHistogram> sinks;
+    private final LongAdder rowsRead;
+    private volatile LongSupplier bytesRead;
+
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private ObjectName objectName;
+
+    public PumpMetrics() {
+        this("pump");
+    }
+
+    public PumpMetrics(String name) {
+        this.name = name;
+        this.stages = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            this.stages.put(stage, new LatencyHistogram());
+        }
+        this.sinks = new ConcurrentHashMap<>();
+        this.rowsRead = new LongAdder();
+        this.bytesRead = () -> 0;
+    }
+
+    public void started() {
+        this.startedAt = System.nanoTime();
+        this.finishedAt = 0;
+    }
+
+    public void finished() {
+        this.finishedAt = System.nanoTime();
+    }
+
+    public void record(Stage stage, long nanos) {
+        this.stages.get(stage).record(nanos);
+    }
+
+    public void recordSink(String sinkName, long nanos) {
+        this.sinks.computeIfAbsent(sinkName, n -> new LatencyHistogram()).record(nanos);
+    }
+
+    public void rowRead() {
+        this.rowsRead.increment();
+    }
+
+    /**
+     * @param bytesRead queried on every read of {@link #getBytesRead()}, negative
+     * values mean "unknown"
+     */
+    public void bytesReadFrom(LongSupplier bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Wrap the given source output, so that every row fetch is recorded as
+     * {@link Stage#SOURCE} and counted as read row.
+     *
+     * @param input the rows returned by a Source
+     * @return the same rows, measured
+     */
+    public Iterable<Row> measure(Iterable<Row> input) {
+        return () -> new MeasuredIterator(input.iterator());
+    }
+
+    /**
+     * Records the fetches of the delegate and closes it, if closeable.
+     */
+    class MeasuredIterator implements Iterator<Row>, AutoCloseable {
+
+        private final Iterator<Row> delegate;
+
+        MeasuredIterator(Iterator<Row> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext = this.delegate.hasNext();
+            record(Stage.SOURCE, System.nanoTime() - start);
+            return hasNext;
+        }
+
+        @Override
+        public Row next() {
+            long start = System.nanoTime();
+            Row next = this.delegate.next();
+            record(Stage.SOURCE, System.nanoTime() - start);
+            rowRead();
+            return next;
+        }
+
+        @Override
+        public void close() {
+            if (!(this.delegate instanceof AutoCloseable)) {
+                return;
+            }
+            try {
+                ((AutoCloseable) this.delegate).close();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Cannot close source", ex);
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return this.stages.get(stage);
+    }
+
+    public LatencyHistogram getSinkHistogram(String sinkName) {
+        return this.sinks.get(sinkName);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRowsRead() {
+        return this.rowsRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return Math.max(0, this.bytesRead.getAsLong());
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        if (this.startedAt == 0) {
+            return 0;
+        }
+        long end = this.finishedAt == 0 ? System.nanoTime() : this.finishedAt;
+        return (end - this.startedAt) / 1_000_000;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        if (elapsed == 0) {
+            return 0;
+        }
+        return getRowsRead() * 1000d / elapsed;
+    }
+
+    @Override
+    public Map<String, Long> getInvocations() {
+        return collect(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getMeanNanos() {
+        return collect(h -> (long) h.getMean());
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return collect(h -> h.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        return collect(LatencyHistogram::getMax);
+    }
+
+    @Override
+    public Map<String, Long> getTotalNanos() {
+        return collect(LatencyHistogram::getTotal);
+    }
+
+    Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> all = new LinkedHashMap<>();
+        this.stages.forEach((k, v) -> all.put(k.name(), v));
+        this.sinks.forEach((k, v) -> all.put(SINK_PREFIX + k, v));
+        return all;
+    }
+
+    Map<String, Long> collect(Function<LatencyHistogram, Long> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        histograms().forEach((k, v) -> result.put(k, value.apply(v)));
+        return result;
+    }
+
+    /**
+     * Human readable summary of throughput and all stages (latencies in
+     * nanoseconds)
+     *
+     * @return the summary, one stage per line
+     */
+    @Override
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("PumpMetrics{name=").append(name).
+                append(", rowsRead=").append(getRowsRead()).
+                append(", bytesRead=").append(getBytesRead()).
+                append(", elapsedMillis=").append(getElapsedMillis()).
+                append(", rowsPerSecond=").append((long) getRowsPerSecond()).
+                append('}');
+        histograms().forEach((k, v) -> dump.append('\n').append(k).append(": ").append(v));
+        return dump.toString();
+    }
+
+    @Override
+    public void reset() {
+        this.stages.values().forEach(LatencyHistogram::reset);
+        this.sinks.clear();
+        this.rowsRead.reset();
+        this.startedAt = 0;
+        this.finishedAt = 0;
+    }
+
+    /**
+     * Register this instance at the platform MBeanServer, replacing a
+     * previously registered instance with the same name.
+     */
+    public synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            this.objectName = new ObjectName("com.airhacks.enhydrator:type=PumpMetrics,name=" + ObjectName.quote(this.name));
+            if (server.isRegistered(this.objectName)) {
+                server.unregisterMBean(this.objectName);
+            }
+            server.registerMBean(this, this.objectName);
+        } catch (InstanceAlreadyExistsException | InstanceNotFoundException ex) {
+            throw new IllegalStateException("Concurrent registration of metrics: " + this.name, ex);
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException("Invalid metrics name: " + this.name, ex);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register metrics: " + this.name, ex);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(this.objectName)) {
+                server.unregisterMBean(this.objectName);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot unregister metrics: " + this.name, ex);
+        } finally {
+            this.objectName = null;
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.airhacks.enhydrator.metrics;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Map;
+
+/**
+ * JMX view of {@link PumpMetrics}. All latencies are in nanoseconds and keyed
+ * by stage name, sinks are reported as "sink:[name]".
+ *
+ * @author airhacks.com
+ */
+public interface PumpMetricsMXBean {
+
+    String getName();
+
+    long getRowsRead();
+
+    long getBytesRead();
+
+    long getElapsedMillis();
+
+    double getRowsPerSecond();
+
+    Map<String, Long> getInvocations();
+
+    Map<String, Long> getMeanNanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getMaxNanos();
+
+    Map<String, Long> getTotalNanos();
+
+    String dump();
+
+    void reset();
+}
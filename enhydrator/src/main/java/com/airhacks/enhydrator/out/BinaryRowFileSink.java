@@ -0,0 +1,225 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.BinaryRowFormat;
+import com.airhacks.enhydrator.in.BinaryRowFormat.SchemaColumn;
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.RowCodec;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Writes rows in the typed, block oriented {@link BinaryRowFormat}, optionally
+ * deflate-compressed per block. Read the file with
+ * {@link com.airhacks.enhydrator.in.BinaryRowFileSource}.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "binary-row-file-sink")
+public class BinaryRowFileSink extends NamedSink {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private String fileName;
+    private boolean compress;
+    /**
+     * Uncompressed bytes per block
+     */
+    private int blockSize;
+
+    @XmlTransient
+    private DataOutputStream file;
+    @XmlTransient
+    private Map<String, List<Integer>> schemaIdsByName;
+    @XmlTransient
+    private List<SchemaColumn> schema;
+    @XmlTransient
+    private ByteArrayOutputStream newColumns;
+    @XmlTransient
+    private DataOutputStream newColumnsOut;
+    @XmlTransient
+    private int newColumnCount;
+    @XmlTransient
+    private ByteArrayOutputStream rows;
+    @XmlTransient
+    private DataOutputStream rowsOut;
+    @XmlTransient
+    private int rowCount;
+    @XmlTransient
+    private Deflater deflater;
+
+    public BinaryRowFileSink(String sinkName, String fileName, boolean compress) {
+        this(sinkName, fileName, compress, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BinaryRowFileSink(String sinkName, String fileName, boolean compress, int blockSize) {
+        super(sinkName);
+        this.fileName = fileName;
+        this.compress = compress;
+        this.blockSize = blockSize;
+    }
+
+    BinaryRowFileSink() {
+        //required for JAXB
+    }
+
+    @Override
+    public void init() {
+        if (this.blockSize <= 0) {
+            this.blockSize = DEFAULT_BLOCK_SIZE;
+        }
+        try {
+            this.file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(this.fileName)), 64 * 1024));
+            this.file.write(BinaryRowFormat.MAGIC);
+            this.file.writeByte(BinaryRowFormat.VERSION);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create " + this.fileName, ex);
+        }
+        this.schemaIdsByName = new HashMap<>();
+        this.schema = new ArrayList<>();
+        this.newColumns = new ByteArrayOutputStream();
+        this.newColumnsOut = new DataOutputStream(this.newColumns);
+        this.rows = new ByteArrayOutputStream(this.blockSize + this.blockSize / 4);
+        this.rowsOut = new DataOutputStream(this.rows);
+        if (this.compress) {
+            this.deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+    }
+
+    @Override
+    public void processRow(Row entries) {
+        try {
+            write(entries);
+            this.rowCount++;
+            if (this.rows.size() >= this.blockSize) {
+                flushBlock();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot write to " + this.fileName, ex);
+        }
+    }
+
+    void write(Row row) throws IOException {
+        this.rowsOut.writeInt(row.getNumberOfColumns());
+        for (Column column : row.getColumns()) {
+            this.rowsOut.writeInt(schemaId(column));
+            RowCodec.writeValue(this.rowsOut, column.getValue());
+        }
+        List<Row> children = row.getChildren();
+        this.rowsOut.writeInt(children.size());
+        for (Row child : children) {
+            write(child);
+        }
+    }
+
+    int schemaId(Column column) throws IOException {
+        List<Integer> candidates = this.schemaIdsByName.computeIfAbsent(column.getName(), n -> new ArrayList<>(1));
+        for (Integer id : candidates) {
+            if (this.schema.get(id).describes(column)) {
+                return id;
+            }
+        }
+        SchemaColumn declaration = new SchemaColumn(column);
+        declaration.write(this.newColumnsOut);
+        this.newColumnCount++;
+        int id = this.schema.size();
+        this.schema.add(declaration);
+        candidates.add(id);
+        return id;
+    }
+
+    void flushBlock() throws IOException {
+        if (this.rowCount == 0 && this.newColumnCount == 0) {
+            return;
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(this.newColumns.size() + this.rows.size() + 8);
+        DataOutputStream payloadOut = new DataOutputStream(payload);
+        payloadOut.writeInt(this.newColumnCount);
+        this.newColumns.writeTo(payloadOut);
+        payloadOut.writeInt(this.rowCount);
+        this.rows.writeTo(payloadOut);
+        byte[] raw = payload.toByteArray();
+        if (this.compress) {
+            byte[] compressed = deflate(raw);
+            writeBlock(BinaryRowFormat.DEFLATE, raw.length, compressed, compressed.length);
+        } else {
+            writeBlock(BinaryRowFormat.UNCOMPRESSED, raw.length, raw, raw.length);
+        }
+        this.newColumns.reset();
+        this.newColumnCount = 0;
+        this.rows.reset();
+        this.rowCount = 0;
+    }
+
+    byte[] deflate(byte[] raw) {
+        this.deflater.reset();
+        this.deflater.setInput(raw);
+        this.deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] chunk = new byte[64 * 1024];
+        while (!this.deflater.finished()) {
+            int length = this.deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    void writeBlock(byte compression, int rawLength, byte[] stored, int storedLength) throws IOException {
+        this.file.writeByte(compression);
+        this.file.writeInt(rawLength);
+        this.file.writeInt(storedLength);
+        this.file.write(stored, 0, storedLength);
+    }
+
+    @Override
+    public void close() {
+        try {
+            flushBlock();
+            this.file.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot close " + this.fileName, ex);
+        } finally {
+            if (this.deflater != null) {
+                this.deflater.end();
+            }
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+}
@@ -20,15 +20,19 @@ package com.airhacks.enhydrator.out;
  * #L%
  */
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Compression;
 import com.airhacks.enhydrator.in.Row;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -48,6 +52,10 @@ public class CSVFileSink extends NamedSink {
     private boolean append;
     private boolean useNamesAsHeaders;
     private String charsetName;
+    /**
+     * Detected by the file extension, if not set
+     */
+    private Compression compression;
 
     @XmlTransient
     private boolean namesAlreadyWritten = false;
@@ -71,12 +79,21 @@ public class CSVFileSink extends NamedSink {
         this.useNamesAsHeaders = useNamesAsHeaders;
     }
 
+    public CSVFileSink(String sinkName, String fileName, String delimiter, boolean useNamesAsHeaders, boolean append, String charsetName, Compression compression) {
+        this(sinkName, fileName, delimiter, useNamesAsHeaders, append, charsetName);
+        this.compression = compression;
+    }
+
     CSVFileSink() {
         //required for JAXB
     }
 
     @Override
     public void init() {
+        open(this.append);
+    }
+
+    void open(boolean append) {
         if (charsetName == null || charsetName.isEmpty()) {
             charsetName = StandardCharsets.UTF_8.displayName();
         }
@@ -84,7 +101,8 @@ public class CSVFileSink extends NamedSink {
         Charset charset = Charset.forName(charsetName);
         try {
             this.namesAlreadyWritten = Files.exists(Paths.get(fileName));
-            this.bos = new PrintWriter(new OutputStreamWriter(new FileOutputStream(fileName, append), charset));
+            OutputStream out = Compression.of(this.compression, this.fileName).compress(new FileOutputStream(fileName, append));
+            this.bos = new PrintWriter(new OutputStreamWriter(out, charset));
         } catch (IOException ex) {
             throw new IllegalStateException("File " + this.fileName + " not found", ex);
         }
@@ -110,6 +128,42 @@ public class CSVFileSink extends NamedSink {
         this.bos.println(line);
     }
 
+    /**
+     * @return the length of an uncompressed file, null for compressed files
+     */
+    @Override
+    public String flush() {
+        this.bos.flush();
+        if (Compression.of(this.compression, this.fileName) != Compression.NONE) {
+            return null;
+        }
+        try {
+            return String.valueOf(Files.size(Paths.get(this.fileName)));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot access " + this.fileName, ex);
+        }
+    }
+
+    /**
+     * Appends to the file, rows written after the checkpoint are truncated
+     * first.
+     *
+     * @throws IllegalStateException for compressed files, which cannot be
+     * truncated
+     */
+    @Override
+    public void resume(String state) {
+        if (state == null) {
+            throw new IllegalStateException("Compressed " + this.fileName + " cannot resume from a checkpoint");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(this.fileName), StandardOpenOption.WRITE)) {
+            channel.truncate(Long.parseLong(state));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot truncate " + this.fileName, ex);
+        }
+        open(true);
+    }
+
     @Override
     public void close() {
         this.bos.flush();
@@ -0,0 +1,244 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.BinaryRowFormat.SchemaColumn;
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnFilter;
+import com.airhacks.enhydrator.in.ColumnarFormat;
+import com.airhacks.enhydrator.in.ColumnarFormat.ChunkMetadata;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.RowCodec;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Buffers rows into row groups and writes them column by column in the
+ * {@link ColumnarFormat}, together with min / max / null count statistics
+ * per column chunk. The schema is fixed by column name: the index and
+ * destination of the first occurrence of a column are stored for all rows.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "columnar-file-sink")
+public class ColumnarFileSink extends NamedSink {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 10_000;
+
+    private String fileName;
+    private int rowGroupSize;
+
+    @XmlTransient
+    private DataOutputStream file;
+    @XmlTransient
+    private long position;
+    @XmlTransient
+    private List<Row> buffer;
+    @XmlTransient
+    private Map<String, Integer> columnIds;
+    @XmlTransient
+    private List<SchemaColumn> schema;
+    @XmlTransient
+    private ByteArrayOutputStream groups;
+    @XmlTransient
+    private int groupCount;
+
+    public ColumnarFileSink(String sinkName, String fileName) {
+        this(sinkName, fileName, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarFileSink(String sinkName, String fileName, int rowGroupSize) {
+        super(sinkName);
+        this.fileName = fileName;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    ColumnarFileSink() {
+        //required for JAXB
+    }
+
+    @Override
+    public void init() {
+        if (this.rowGroupSize <= 0) {
+            this.rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+        }
+        try {
+            this.file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(this.fileName)), 64 * 1024));
+            this.file.write(ColumnarFormat.MAGIC);
+            this.file.writeByte(ColumnarFormat.VERSION);
+            this.position = ColumnarFormat.MAGIC.length + 1;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create " + this.fileName, ex);
+        }
+        this.buffer = new ArrayList<>(this.rowGroupSize);
+        this.columnIds = new HashMap<>();
+        this.schema = new ArrayList<>();
+        this.groups = new ByteArrayOutputStream();
+        this.groupCount = 0;
+    }
+
+    @Override
+    public void processRow(Row entries) {
+        for (Column column : entries.getColumns()) {
+            this.columnIds.computeIfAbsent(column.getName(), n -> {
+                this.schema.add(new SchemaColumn(column));
+                return this.schema.size() - 1;
+            });
+        }
+        this.buffer.add(entries);
+        if (this.buffer.size() >= this.rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    void flushRowGroup() {
+        if (this.buffer.isEmpty()) {
+            return;
+        }
+        int rowCount = this.buffer.size();
+        try {
+            List<ChunkMetadata> chunks = new ArrayList<>(this.schema.size());
+            for (SchemaColumn column : this.schema) {
+                chunks.add(writeChunk(column.getName()));
+            }
+            long childrenOffset = -1;
+            int childrenLength = 0;
+            if (this.buffer.stream().anyMatch(Row::hasChildren)) {
+                childrenOffset = this.position;
+                childrenLength = writeChildren();
+            }
+            DataOutputStream group = new DataOutputStream(this.groups);
+            group.writeInt(rowCount);
+            group.writeLong(childrenOffset);
+            group.writeInt(childrenLength);
+            group.writeInt(chunks.size());
+            for (ChunkMetadata chunk : chunks) {
+                chunk.write(group);
+            }
+            this.groupCount++;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot write row group to " + this.fileName, ex);
+        }
+        this.buffer.clear();
+    }
+
+    ChunkMetadata writeChunk(String name) throws IOException {
+        int rowCount = this.buffer.size();
+        long[] states = new long[rowCount];
+        List<Object> values = new ArrayList<>(rowCount);
+        long nullCount = 0;
+        boolean numbers = true;
+        boolean strings = true;
+        Object min = null;
+        Object max = null;
+        for (int i = 0; i < rowCount; i++) {
+            Column column = this.buffer.get(i).getColumnByName(name);
+            if (column == null) {
+                states[i] = ColumnarFormat.ABSENT;
+                continue;
+            }
+            Object value = column.getValue();
+            if (value == null) {
+                states[i] = ColumnarFormat.NULL;
+                nullCount++;
+                continue;
+            }
+            states[i] = ColumnarFormat.PRESENT;
+            values.add(value);
+            numbers &= value instanceof Number;
+            strings &= value instanceof String;
+            if (!numbers && !strings) {
+                continue;
+            }
+            if (min == null || ColumnFilter.compare(value, min) < 0) {
+                min = value;
+            }
+            if (max == null || ColumnFilter.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+        if (!numbers && !strings) {
+            min = null;
+            max = null;
+        }
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        DataOutputStream chunkOut = new DataOutputStream(chunk);
+        ColumnarFormat.writeInts(chunkOut, states, rowCount);
+        ColumnarFormat.writeValues(chunkOut, values);
+        long offset = this.position;
+        chunk.writeTo(this.file);
+        this.position += chunk.size();
+        return new ChunkMetadata(offset, chunk.size(), nullCount, values.size(), min, max);
+    }
+
+    int writeChildren() throws IOException {
+        ByteArrayOutputStream children = new ByteArrayOutputStream();
+        DataOutputStream childrenOut = new DataOutputStream(children);
+        for (Row row : this.buffer) {
+            List<Row> rowChildren = row.getChildren();
+            childrenOut.writeInt(rowChildren.size());
+            for (Row child : rowChildren) {
+                RowCodec.write(childrenOut, child);
+            }
+        }
+        children.writeTo(this.file);
+        this.position += children.size();
+        return children.size();
+    }
+
+    @Override
+    public void close() {
+        flushRowGroup();
+        try {
+            ByteArrayOutputStream footer = new ByteArrayOutputStream();
+            DataOutputStream footerOut = new DataOutputStream(footer);
+            footerOut.writeInt(this.schema.size());
+            for (SchemaColumn column : this.schema) {
+                column.write(footerOut);
+            }
+            footerOut.writeInt(this.groupCount);
+            this.groups.writeTo(footerOut);
+            footer.writeTo(this.file);
+            this.file.writeInt(footer.size());
+            this.file.write(ColumnarFormat.MAGIC);
+            this.file.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot close " + this.fileName, ex);
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+}
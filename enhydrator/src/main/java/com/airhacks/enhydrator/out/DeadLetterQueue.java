@@ -0,0 +1,332 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.RowCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers erroneous rows, enriched with the error, asynchronously to a
+ * (potentially slow) sink. Rows are passed through a bounded queue to a
+ * single delivery thread, which hands them over in batches with
+ * {@link Sink#processRows(java.util.List)}. A full queue is handled according
+ * to the {@link BackPressure} policy.
+ *
+ * @author airhacks.com
+ */
+public class DeadLetterQueue implements BiConsumer<Row, Throwable>, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(DeadLetterQueue.class.getName());
+
+    public enum BackPressure {
+        /**
+         * Wait until the delivery thread catches up, drop the row if the
+         * delivery thread has stopped
+         */
+        BLOCK,
+        /**
+         * Discard the row and count it as dropped
+         */
+        DROP,
+        /**
+         * Write the row to a temporary file, delivered on close
+         */
+        SPILL
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    static final long OFFER_MILLIS = 100;
+
+    public static final String ERROR_TYPE = "error.type";
+    public static final String ERROR_MESSAGE = "error.message";
+    public static final String ERROR_TIMESTAMP = "error.timestamp";
+
+    private final Sink sink;
+    private final BlockingQueue<Row> queue;
+    private final int batchSize;
+    private final BackPressure backPressure;
+    private final Thread deliverer;
+    /**
+     * Held while a batch is taken and delivered, fair to let flush in
+     */
+    private final ReentrantLock delivery;
+
+    private volatile boolean closed;
+    private Path spillFile;
+    private DataOutputStream spill;
+
+    private final LongAdder delivered;
+    private final LongAdder dropped;
+    private final LongAdder spilled;
+    private final LongAdder failed;
+
+    public DeadLetterQueue(Sink sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, BackPressure.BLOCK);
+    }
+
+    public DeadLetterQueue(Sink sink, int capacity, int batchSize, BackPressure backPressure) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.backPressure = backPressure;
+        this.delivered = new LongAdder();
+        this.dropped = new LongAdder();
+        this.spilled = new LongAdder();
+        this.failed = new LongAdder();
+        this.delivery = new ReentrantLock(true);
+        this.sink.init();
+        this.deliverer = new Thread(this::deliver, "enhydrator-dlq-" + sink.getName());
+        this.deliverer.setDaemon(true);
+        this.deliverer.start();
+    }
+
+    @Override
+    public void accept(Row erroneous, Throwable ex) {
+        if (this.closed) {
+            throw new IllegalStateException("Dead letter queue is already closed");
+        }
+        Row letter = enrich(erroneous, ex);
+        if (this.queue.offer(letter)) {
+            return;
+        }
+        switch (this.backPressure) {
+            case BLOCK:
+                block(letter);
+                break;
+            case DROP:
+                this.dropped.increment();
+                break;
+            case SPILL:
+                spill(letter);
+                break;
+        }
+    }
+
+    /**
+     * Waits for a free slot as long as the delivery thread is alive
+     */
+    void block(Row letter) {
+        try {
+            while (!this.queue.offer(letter, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!this.deliverer.isAlive()) {
+                    this.dropped.increment();
+                    LOG.warning("Dead letter delivery to " + this.sink.getName() + " stopped, row dropped");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.dropped.increment();
+        }
+    }
+
+    /**
+     * Copies the columns (not the children) of the erroneous row and adds the
+     * error type, message and timestamp as columns.
+     */
+    static Row enrich(Row erroneous, Throwable ex) {
+        Row letter = new Row();
+        int next = 0;
+        for (Column column : erroneous.getColumns()) {
+            Column copy = new Column(column.getIndex(), column.getName(), column.getTargetSink(), column.getValue());
+            copy.setTargetObject(column.getTargetObject());
+            letter.addColumn(copy);
+            next = Math.max(next, column.getIndex() + 1);
+        }
+        letter.addColumn(next, ERROR_TYPE, ex.getClass().getName());
+        letter.addNullColumn(next + 1, ERROR_MESSAGE);
+        if (ex.getMessage() != null) {
+            letter.addColumn(next + 1, ERROR_MESSAGE, ex.getMessage());
+        }
+        letter.addColumn(next + 2, ERROR_TIMESTAMP, System.currentTimeMillis());
+        return letter;
+    }
+
+    synchronized void spill(Row letter) {
+        try {
+            if (this.spill == null) {
+                this.spillFile = Files.createTempFile("enhydrator-dlq", ".spill");
+                this.spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.spillFile)));
+            }
+            RowCodec.write(this.spill, letter);
+            this.spilled.increment();
+        } catch (IOException ex) {
+            this.dropped.increment();
+            LOG.log(Level.WARNING, "Cannot spill erroneous row", ex);
+        }
+    }
+
+    void deliver() {
+        List<Row> batch = new ArrayList<>(this.batchSize);
+        while (!this.closed || !this.queue.isEmpty()) {
+            this.delivery.lock();
+            try {
+                Row first = this.queue.poll(OFFER_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, this.batchSize - 1);
+                processRows(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                this.delivery.unlock();
+            }
+        }
+    }
+
+    /**
+     * A failing batch counts all its rows as failed. Errors are caught as
+     * well, so the delivery thread keeps running.
+     */
+    void processRows(List<Row> batch) {
+        try {
+            this.sink.processRows(batch);
+            this.delivered.add(batch.size());
+        } catch (Throwable ex) {
+            this.failed.add(batch.size());
+            LOG.log(Level.WARNING, "Dead letter sink " + this.sink.getName() + " failed", ex);
+        }
+    }
+
+    /**
+     * Delivers the queued and spilled rows in the calling thread and flushes
+     * the sink, invoked before a checkpoint is stored. The delivery thread
+     * waits meanwhile.
+     */
+    public void flush() {
+        this.delivery.lock();
+        try {
+            drain();
+            replaySpill();
+            this.sink.flush();
+        } finally {
+            this.delivery.unlock();
+        }
+    }
+
+    void drain() {
+        List<Row> batch = new ArrayList<>(this.batchSize);
+        while (this.queue.drainTo(batch, this.batchSize) > 0) {
+            processRows(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Delivers all queued and spilled rows and closes the sink. Rows left by
+     * a stopped delivery thread are delivered by the closing thread.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.deliverer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        replaySpill();
+        this.sink.close();
+    }
+
+    synchronized void replaySpill() {
+        if (this.spill == null) {
+            return;
+        }
+        try {
+            this.spill.close();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.spillFile)))) {
+                List<Row> batch = new ArrayList<>(this.batchSize);
+                while (true) {
+                    try {
+                        batch.add(RowCodec.read(in));
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    if (batch.size() == this.batchSize) {
+                        processRows(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    processRows(batch);
+                }
+            }
+            Files.deleteIfExists(this.spillFile);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot replay spilled rows from " + this.spillFile, ex);
+        } finally {
+            this.spill = null;
+        }
+    }
+
+    public long getDeliveredCount() {
+        return delivered.longValue();
+    }
+
+    public long getDroppedCount() {
+        return dropped.longValue();
+    }
+
+    public long getSpilledCount() {
+        return spilled.longValue();
+    }
+
+    public long getFailedCount() {
+        return failed.longValue();
+    }
+
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return "DeadLetterQueue{" + "sink=" + sink.getName() + ", backPressure=" + backPressure + ", delivered=" + delivered + ", dropped=" + dropped + ", spilled=" + spilled + ", failed=" + failed + '}';
+    }
+
+}
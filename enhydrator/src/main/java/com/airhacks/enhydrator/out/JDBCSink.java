@@ -24,6 +24,7 @@ import com.airhacks.enhydrator.in.Row;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -86,6 +87,15 @@ public class JDBCSink extends NamedSink {
 
     }
 
+    /**
+     * The rows inserted before the checkpoint are already committed (auto
+     * commit), the inserts continue.
+     */
+    @Override
+    public void resume(String state) {
+        init();
+    }
+
     @Override
     public void processRow(Row columns) {
         if (columns == null || columns.isEmpty()) {
@@ -102,6 +112,24 @@ public class JDBCSink extends NamedSink {
         }
     }
 
+    /**
+     * Sends the inserts of all rows as a single JDBC batch.
+     */
+    @Override
+    public void processRows(List<Row> rows) {
+        try {
+            for (Row columns : rows) {
+                if (columns != null && !columns.isEmpty()) {
+                    this.statement.addBatch(generateInsertStatement(columns));
+                }
+            }
+            this.statement.executeBatch();
+            LOG.accept("#processRows() " + rows.size() + " rows executed!");
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Cannot insert entries: " + ex.getMessage(), ex);
+        }
+    }
+
     String generateInsertStatement(Row entries) {
         return "INSERT INTO " + this.targetTable + " (" + columnList(entries)
                 + ") VALUES (" + valueList(entries) + ")";
@@ -0,0 +1,244 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Row;
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Writes each row as JSON object with the streaming JsonGenerator, either as
+ * newline delimited JSON (one object per line) or as a single array. Numbers
+ * and booleans are written with their type, children are written as nested
+ * array of objects. Read the file with
+ * {@link com.airhacks.enhydrator.in.JSONStreamSource}.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "json-file-sink")
+public class JSONFileSink extends NamedSink {
+
+    public static final String DEFAULT_CHILDREN_NAME = "children";
+
+    private static final JsonGeneratorFactory FACTORY = Json.createGeneratorFactory(Collections.emptyMap());
+
+    private String fileName;
+    private boolean ndjson;
+    private String charsetName;
+    private String childrenName;
+
+    @XmlTransient
+    private Writer out;
+    @XmlTransient
+    private Writer unclosable;
+    @XmlTransient
+    private JsonGenerator array;
+
+    public JSONFileSink(String sinkName, String fileName, boolean ndjson) {
+        this(sinkName, fileName, ndjson, null);
+    }
+
+    public JSONFileSink(String sinkName, String fileName, boolean ndjson, String charsetName) {
+        super(sinkName);
+        this.fileName = fileName;
+        this.ndjson = ndjson;
+        this.charsetName = charsetName;
+    }
+
+    JSONFileSink() {
+        //required for JAXB
+    }
+
+    public JSONFileSink childrenName(String childrenName) {
+        this.childrenName = childrenName;
+        return this;
+    }
+
+    @Override
+    public void init() {
+        open(false);
+    }
+
+    void open(boolean append) {
+        if (this.charsetName == null || this.charsetName.isEmpty()) {
+            this.charsetName = StandardCharsets.UTF_8.name();
+        }
+        if (this.childrenName == null || this.childrenName.isEmpty()) {
+            this.childrenName = DEFAULT_CHILDREN_NAME;
+        }
+        try {
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                    append
+                    ? Files.newOutputStream(Paths.get(this.fileName), StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                    : Files.newOutputStream(Paths.get(this.fileName)), Charset.forName(this.charsetName)), 64 * 1024);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create " + this.fileName, ex);
+        }
+        if (this.ndjson) {
+            this.unclosable = new FilterWriter(this.out) {
+                @Override
+                public void close() {
+                    //the generator's buffer is already written, the file stays open
+                }
+            };
+        } else {
+            this.array = FACTORY.createGenerator(this.out);
+            this.array.writeStartArray();
+        }
+    }
+
+    @Override
+    public void processRow(Row row) {
+        if (!this.ndjson) {
+            writeRow(this.array, row);
+            return;
+        }
+        //a generator accepts a single top level value only
+        try (JsonGenerator line = FACTORY.createGenerator(this.unclosable)) {
+            writeRow(line, row);
+        }
+        try {
+            this.out.write('\n');
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot write to " + this.fileName, ex);
+        }
+    }
+
+    void writeRow(JsonGenerator generator, Row row) {
+        generator.writeStartObject();
+        for (Column column : row.getColumnsSortedByColumnIndex()) {
+            write(generator, column.getName(), column.getValue());
+        }
+        List<Row> children = row.getChildren();
+        if (!children.isEmpty()) {
+            generator.writeStartArray(this.childrenName);
+            for (Row child : children) {
+                writeRow(generator, child);
+            }
+            generator.writeEnd();
+        }
+        generator.writeEnd();
+    }
+
+    static void write(JsonGenerator generator, String name, Object value) {
+        if (value == null) {
+            generator.writeNull(name);
+        } else if (value instanceof String) {
+            generator.write(name, (String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            generator.write(name, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                generator.write(name, value.toString());
+            } else {
+                generator.write(name, number);
+            }
+        } else if (value instanceof Boolean) {
+            generator.write(name, (Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            generator.write(name, (BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.write(name, (BigInteger) value);
+        } else {
+            generator.write(name, value.toString());
+        }
+    }
+
+    /**
+     * @return the length of a NDJSON file, null for a JSON array which
+     * cannot be continued
+     */
+    @Override
+    public String flush() {
+        if (this.array != null) {
+            this.array.flush();
+            return null;
+        }
+        try {
+            this.out.flush();
+            return String.valueOf(Files.size(Paths.get(this.fileName)));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot flush " + this.fileName, ex);
+        }
+    }
+
+    /**
+     * Appends to a NDJSON file, lines written after the checkpoint are
+     * truncated first.
+     *
+     * @throws IllegalStateException for a JSON array
+     */
+    @Override
+    public void resume(String state) {
+        if (!this.ndjson || state == null) {
+            throw new IllegalStateException("JSON array " + this.fileName + " cannot resume from a checkpoint");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(this.fileName), StandardOpenOption.WRITE)) {
+            channel.truncate(Long.parseLong(state));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot truncate " + this.fileName, ex);
+        }
+        open(true);
+    }
+
+    @Override
+    public void close() {
+        if (this.array != null) {
+            this.array.writeEnd();
+            this.array.close();
+            this.array = null;
+            return;
+        }
+        try {
+            this.out.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot close " + this.fileName, ex);
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+}
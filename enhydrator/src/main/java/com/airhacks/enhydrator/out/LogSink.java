@@ -19,13 +19,23 @@ package com.airhacks.enhydrator.out;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.in.Column;
 import com.airhacks.enhydrator.in.Row;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
+ * Logs the column values of every (or every sampled) row. With a capacity
+ * greater than 0 the rows are formatted by the caller, but logged by a single
+ * background writer. Rows which do not fit into the buffer are dropped and
+ * counted.
  *
  * @author airhacks.com
  */
@@ -35,6 +45,38 @@ public class LogSink extends NamedSink {
 
     private static final Logger LOG = Logger.getLogger(LogSink.class.getName());
 
+    /**
+     * Buffered rows in async mode, 0 logs synchronously
+     */
+    private int capacity;
+    /**
+     * Log only every nth row, 0 or 1 logs all rows
+     */
+    private int sampleEvery;
+    /**
+     * Maximum number of logged rows per second, 0 means unlimited
+     */
+    private int maxRowsPerSecond;
+
+    @XmlTransient
+    private BlockingQueue<String> buffer;
+    @XmlTransient
+    private Thread writer;
+    @XmlTransient
+    private volatile boolean closed;
+
+    @XmlTransient
+    private long rowCounter;
+    @XmlTransient
+    private long currentSecond;
+    @XmlTransient
+    private int loggedInCurrentSecond;
+
+    @XmlTransient
+    private final LongAdder dropped = new LongAdder();
+    @XmlTransient
+    private final LongAdder skipped = new LongAdder();
+
     public LogSink(String name) {
         super(name);
     }
@@ -43,17 +85,133 @@ public class LogSink extends NamedSink {
         super("*");
     }
 
+    /**
+     *
+     * @param name the sink name
+     * @param capacity the size of the buffer, 0 logs synchronously
+     * @param sampleEvery log every nth row only, 0 or 1 logs all rows
+     * @param maxRowsPerSecond rows above the rate are skipped, 0 means
+     * unlimited
+     */
+    public LogSink(String name, int capacity, int sampleEvery, int maxRowsPerSecond) {
+        super(name);
+        this.capacity = capacity;
+        this.sampleEvery = sampleEvery;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    @Override
+    public void init() {
+        if (this.capacity <= 0 || this.writer != null) {
+            return;
+        }
+        this.closed = false;
+        this.buffer = new ArrayBlockingQueue<>(this.capacity);
+        this.writer = new Thread(this::write, "enhydrator-log-" + getName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Logging continues, the rows logged before the checkpoint stay in the
+     * log.
+     */
+    @Override
+    public void resume(String state) {
+        init();
+    }
+
     @Override
     public void processRow(Row entries) {
         if (entries == null || entries.isEmpty()) {
             LOG.info("Empty list");
             return;
         }
-        String row = entries.getColumnsAsString().
-                values().
-                stream().
-                reduce((String t, String u) -> t + "," + u).get();
-        LOG.info(row);
+        if (!sampled()) {
+            this.skipped.increment();
+            return;
+        }
+        String row = format(entries);
+        if (this.writer == null) {
+            LOG.info(row);
+        } else if (!this.buffer.offer(row)) {
+            this.dropped.increment();
+        }
+    }
+
+    boolean sampled() {
+        long count = this.rowCounter++;
+        if (this.sampleEvery > 1 && count % this.sampleEvery != 0) {
+            return false;
+        }
+        if (this.maxRowsPerSecond <= 0) {
+            return true;
+        }
+        long second = System.nanoTime() / 1_000_000_000;
+        if (second != this.currentSecond) {
+            this.currentSecond = second;
+            this.loggedInCurrentSecond = 0;
+        }
+        return this.loggedInCurrentSecond++ < this.maxRowsPerSecond;
+    }
+
+    static String format(Row entries) {
+        StringBuilder row = new StringBuilder();
+        for (Column column : entries.getColumns()) {
+            if (row.length() > 0) {
+                row.append(',');
+            }
+            row.append(column.getValue());
+        }
+        return row.toString();
+    }
+
+    void write() {
+        while (!this.closed || !this.buffer.isEmpty()) {
+            try {
+                String row = this.buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (row != null) {
+                    LOG.info(row);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Logs all buffered rows and stops the writer
+     */
+    @Override
+    public void close() {
+        if (this.writer == null) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.writer = null;
+        if (this.dropped.sum() > 0) {
+            LOG.warning(this.dropped.sum() + " rows were not logged, the buffer of " + getName() + " was full");
+        }
+    }
+
+    /**
+     * @return rows not logged, because the buffer was full
+     */
+    public long getDroppedCount() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * @return rows not logged because of sampling or rate limiting
+     */
+    public long getSkippedCount() {
+        return this.skipped.sum();
     }
 
     @Override
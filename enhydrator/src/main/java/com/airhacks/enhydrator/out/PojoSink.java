@@ -98,6 +98,14 @@ public class PojoSink extends NamedSink {
         }
     }
 
+    /**
+     * The objects before the checkpoint were already passed to the consumer.
+     */
+    @Override
+    public void resume(String state) {
+        init();
+    }
+
     @Override
     public void processRow(Row currentRow) {
         this.unmappedFields = new HashMap<>();
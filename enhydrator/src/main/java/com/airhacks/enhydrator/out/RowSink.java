@@ -47,6 +47,14 @@ public class RowSink extends NamedSink {
         this.consumer = consumer;
     }
 
+    /**
+     * The rows before the checkpoint were already passed to the consumer.
+     */
+    @Override
+    public void resume(String state) {
+        init();
+    }
+
     @Override
     public void processRow(Row entries) {
         consumer.accept(entries);
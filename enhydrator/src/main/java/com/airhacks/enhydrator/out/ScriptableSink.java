@@ -20,6 +20,7 @@ package com.airhacks.enhydrator.out;
  * #L%
  */
 import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.transform.ScriptEngines;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -86,7 +87,7 @@ public class ScriptableSink extends NamedSink {
             throw new IllegalStateException("Cannot load script from: " + this.scriptFile, ex);
         }
         ScriptEngineManager sem = new ScriptEngineManager();
-        this.engine = sem.getEngineByName("javascript");
+        this.engine = ScriptEngines.nashorn(sem);
         try {
             this.engine.eval(this.scriptContent);
         } catch (ScriptException ex) {
@@ -1,6 +1,7 @@
 package com.airhacks.enhydrator.out;
 
 import com.airhacks.enhydrator.in.Row;
+import java.util.List;
 
 /*
  * #%L
@@ -33,6 +34,42 @@ public interface Sink extends AutoCloseable {
 
     void processRow(Row entries);
 
+    /**
+     * Processes several rows at once, e.g. a batch of the
+     * {@link DeadLetterQueue}. Sinks which write several rows more efficiently
+     * than one by one override it.
+     *
+     * @param rows in the order of arrival
+     */
+    default void processRows(List<Row> rows) {
+        rows.forEach(this::processRow);
+    }
+
+    /**
+     * Writes buffered rows to the destination, invoked before a checkpoint
+     * is stored.
+     *
+     * @return the state to restore on resume (e.g. the length of the file),
+     * null if none
+     */
+    default String flush() {
+        return null;
+    }
+
+    /**
+     * Invoked instead of init, if the pipeline resumes from a checkpoint.
+     * Sinks which cannot continue their output (e.g. because init truncates
+     * the file) do not override it and stop the resumed pipeline, before any
+     * row is processed.
+     *
+     * @param state as returned by flush for the checkpoint, null if none
+     * @throws IllegalStateException if the sink cannot continue its output
+     */
+    default void resume(String state) {
+        throw new IllegalStateException(getClass().getSimpleName() + " " + getName()
+                + " cannot resume from a checkpoint");
+    }
+
     @Override
     default void close() {
     }
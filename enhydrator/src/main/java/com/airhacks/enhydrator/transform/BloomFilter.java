@@ -0,0 +1,118 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.nio.ByteBuffer;
+
+/**
+ * A Bloom filter in a direct (off-heap) buffer. The bit positions are
+ * derived from two 64-bit hashes (Kirsch-Mitzenmacher double hashing).
+ *
+ * @author airhacks.com
+ */
+class BloomFilter {
+
+    /**
+     * Largest number of bits addressable in a single buffer
+     */
+    static final long MAX_BITS = (Integer.MAX_VALUE / 8L) * 64;
+
+    private final ByteBuffer bits;
+    private final long numberOfBits;
+    private final int hashes;
+    private long insertions;
+
+    /**
+     * @param numberOfBits rounded up to a multiple of 64
+     * @param hashes the number of bit positions per key
+     */
+    BloomFilter(long numberOfBits, int hashes) {
+        if (numberOfBits <= 0 || numberOfBits > MAX_BITS || hashes <= 0) {
+            throw new IllegalArgumentException("Cannot create a Bloom filter with " + numberOfBits + " bits and " + hashes + " hashes");
+        }
+        long words = (numberOfBits + 63) / 64;
+        this.numberOfBits = words * 64;
+        this.hashes = hashes;
+        this.bits = ByteBuffer.allocateDirect((int) (words * 8));
+    }
+
+    /**
+     * Sizes the filter for the expected number of keys and false positive
+     * probability, limited by the memory budget.
+     *
+     * @param expectedKeys the expected number of distinct keys
+     * @param falsePositiveProbability the probability to report a new key as
+     * already contained
+     * @param memoryBudget the maximum number of bytes
+     * @return the sized filter
+     */
+    static BloomFilter sized(long expectedKeys, double falsePositiveProbability, long memoryBudget) {
+        long keys = Math.max(1, expectedKeys);
+        double ln2 = Math.log(2);
+        long optimal = (long) Math.ceil(-keys * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        long numberOfBits = Math.min(Math.min(optimal, memoryBudget * 8), MAX_BITS);
+        int hashes = (int) Math.max(1, Math.round((double) numberOfBits / keys * ln2));
+        return new BloomFilter(numberOfBits, hashes);
+    }
+
+    /**
+     * @return true, if at least one bit was not set and the key is definitely
+     * new
+     */
+    boolean add(long hash1, long hash2) {
+        boolean added = false;
+        long combined = hash1;
+        for (int i = 0; i < this.hashes; i++) {
+            long bit = Math.floorMod(combined, this.numberOfBits);
+            int index = (int) (bit >>> 6) << 3;
+            long word = this.bits.getLong(index);
+            long mask = 1L << (bit & 63);
+            if ((word & mask) == 0) {
+                this.bits.putLong(index, word | mask);
+                added = true;
+            }
+            combined += hash2;
+        }
+        if (added) {
+            this.insertions++;
+        }
+        return added;
+    }
+
+    /**
+     * @return the probability of a false positive after the insertions so far
+     */
+    double getFalsePositiveProbability() {
+        return Math.pow(1 - Math.exp(-(double) this.hashes * this.insertions / this.numberOfBits), this.hashes);
+    }
+
+    long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    int getHashes() {
+        return hashes;
+    }
+
+    long getMemoryUsed() {
+        return this.bits.capacity();
+    }
+
+}
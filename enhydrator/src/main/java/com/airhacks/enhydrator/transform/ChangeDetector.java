@@ -0,0 +1,304 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.flexpipe.RowTransformation;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.RowCodec;
+import com.airhacks.enhydrator.in.Source;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Passes only inserted and updated rows. The key columns and the contents of
+ * each row are hashed (64-bit each, see {@link RowHasher}) and compared with
+ * the memory mapped index of the previous run. Keys are identified by their
+ * hash.
+ *
+ * The index of the current run is written next to the previous one. After a
+ * successful run {@link #deletes()} delivers the keys missing in the current
+ * run, {@link #commit()} replaces the previous index. Without commit the
+ * next run compares with the same previous index again.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "change-detector")
+public class ChangeDetector extends RowTransformation {
+
+    private String indexFile;
+    private List<String> keyColumns;
+
+    @XmlTransient
+    private RowHasher hasher;
+    @XmlTransient
+    private DigestIndex previous;
+    @XmlTransient
+    private DigestIndex current;
+    @XmlTransient
+    private DataOutputStream keys;
+    @XmlTransient
+    private long keysLength;
+    @XmlTransient
+    private ByteArrayOutputStream keyRow;
+    @XmlTransient
+    private long inserted;
+    @XmlTransient
+    private long updated;
+    @XmlTransient
+    private long unchanged;
+    @XmlTransient
+    private long deleted;
+
+    public ChangeDetector(String indexFile, String... keyColumns) {
+        this.indexFile = indexFile;
+        this.keyColumns = new ArrayList<>(Arrays.asList(keyColumns));
+    }
+
+    public ChangeDetector() {
+        //required for JAXB
+    }
+
+    @Override
+    public Row execute(Row input) {
+        if (input == null) {
+            return null;
+        }
+        if (this.current == null) {
+            open();
+        }
+        long key = this.hasher.hashKey(input, this.keyColumns);
+        long contents = this.hasher.hashContents(input);
+        int currentSlot = this.current.find(key);
+        long keyOffset = currentSlot < 0 ? appendKey(input) : this.current.keyOffset(currentSlot);
+        this.current.put(key, contents, keyOffset);
+        int previousSlot = this.previous == null ? -1 : this.previous.find(key);
+        if (previousSlot < 0) {
+            this.inserted++;
+            return input;
+        }
+        if (this.previous.rowHash(previousSlot) != contents) {
+            this.updated++;
+            return input;
+        }
+        this.unchanged++;
+        return null;
+    }
+
+    void open() {
+        Path index = Paths.get(this.indexFile);
+        this.previous = DigestIndex.open(index);
+        long generation = this.previous == null ? 0 : this.previous.getGeneration() + 1;
+        int capacity = this.previous == null ? DigestIndex.MIN_CAPACITY : this.previous.getCapacity();
+        this.current = DigestIndex.create(next(index), capacity, generation);
+        try {
+            this.keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keys(index, generation)), 64 * 1024));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create keys of " + index, ex);
+        }
+        this.keysLength = 0;
+        this.hasher = new RowHasher();
+        this.keyRow = new ByteArrayOutputStream();
+        this.inserted = 0;
+        this.updated = 0;
+        this.unchanged = 0;
+        this.deleted = 0;
+    }
+
+    /**
+     * Appends the key columns as length prefixed row
+     *
+     * @return the offset of the key
+     */
+    long appendKey(Row input) {
+        Row key = new Row();
+        for (int i = 0; i < this.keyColumns.size(); i++) {
+            String name = this.keyColumns.get(i);
+            Object value = input.getColumnValue(name);
+            if (value == null) {
+                key.addNullColumn(i, name);
+            } else {
+                key.addColumn(i, name, value);
+            }
+        }
+        this.keyRow.reset();
+        long offset = this.keysLength;
+        try {
+            RowCodec.write(new DataOutputStream(this.keyRow), key);
+            this.keys.writeInt(this.keyRow.size());
+            this.keyRow.writeTo(this.keys);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot write key " + key, ex);
+        }
+        this.keysLength += 4 + this.keyRow.size();
+        return offset;
+    }
+
+    /**
+     * The keys of the previous run which did not occur in the current run,
+     * each row contains the key columns only. Has to be queried before
+     * commit.
+     *
+     * @return a source of the deleted keys
+     */
+    public Source deletes() {
+        return (query, params) -> deletedKeys();
+    }
+
+    List<Row> deletedKeys() {
+        if (this.current == null) {
+            throw new IllegalStateException("Deletes are only available before commit");
+        }
+        List<Row> deleted = new ArrayList<>();
+        if (this.previous == null) {
+            return deleted;
+        }
+        Path index = Paths.get(this.indexFile);
+        try (FileChannel previousKeys = FileChannel.open(keys(index, this.previous.getGeneration()), StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            for (int slot = 0; slot < this.previous.getCapacity(); slot++) {
+                long key = this.previous.keyHash(slot);
+                if (key == DigestIndex.EMPTY || this.current.find(key) >= 0) {
+                    continue;
+                }
+                long offset = this.previous.keyOffset(slot);
+                length.clear();
+                readFully(previousKeys, length, offset);
+                ByteBuffer row = ByteBuffer.allocate(length.getInt(0));
+                readFully(previousKeys, row, offset + 4);
+                row.flip();
+                deleted.add(RowCodec.read(row));
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read keys of " + index, ex);
+        }
+        this.deleted = deleted.size();
+        return deleted;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of keys at " + position);
+            }
+        }
+    }
+
+    /**
+     * Replaces the index of the previous run with the index of the current
+     * run. The next run only passes rows changed since this one.
+     */
+    public void commit() {
+        if (this.current == null) {
+            return;
+        }
+        Path index = Paths.get(this.indexFile);
+        try {
+            this.keys.close();
+            this.current.close();
+            if (this.previous != null) {
+                this.previous.close();
+            }
+            Files.move(next(index), index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (this.previous != null) {
+                Files.deleteIfExists(keys(index, this.previous.getGeneration()));
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot commit index " + index, ex);
+        }
+        this.current = null;
+        this.previous = null;
+    }
+
+    static Path next(Path index) {
+        return index.resolveSibling(index.getFileName() + ".next");
+    }
+
+    static Path keys(Path index, long generation) {
+        return index.resolveSibling(index.getFileName() + ".keys." + generation);
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 37 * hash + Objects.hashCode(this.indexFile);
+        hash = 37 * hash + Objects.hashCode(this.keyColumns);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ChangeDetector other = (ChangeDetector) obj;
+        if (!Objects.equals(this.indexFile, other.indexFile)) {
+            return false;
+        }
+        return Objects.equals(this.keyColumns, other.keyColumns);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeDetector{" + "indexFile=" + indexFile + ", keyColumns=" + keyColumns
+                + ", inserted=" + inserted + ", updated=" + updated + ", unchanged=" + unchanged + ", deleted=" + deleted + '}';
+    }
+
+}
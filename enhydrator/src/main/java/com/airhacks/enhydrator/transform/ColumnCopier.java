@@ -21,6 +21,7 @@ package com.airhacks.enhydrator.transform;
  */
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,7 +37,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement(name = "column-copier")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class ColumnCopier extends RowTransformation {
+public class ColumnCopier extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     Map<String, NameList> columnMappings;
 
@@ -129,6 +130,28 @@ public class ColumnCopier extends RowTransformation {
 
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        return plan.addColumns(this::execute);
+    }
+
+    /**
+     * Columns are required, if any of their copies is required. A copy keeps
+     * the index of its column, references by index cannot be traced back to
+     * the copied column: all columns are required then.
+     */
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        if (!downstream.getIndices().isEmpty()) {
+            return null;
+        }
+        List<String> copied = this.columnMappings.entrySet().stream().
+                filter(e -> e.getValue().getColumnList().stream().anyMatch(downstream.getNames()::contains)).
+                map(Map.Entry::getKey).
+                collect(Collectors.toList());
+        return downstream.withNames(copied);
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
@@ -0,0 +1,39 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.ColumnProjection;
+
+/**
+ * Implemented by row transformations which know the columns they access.
+ * Used to compute the columns a source has to deliver.
+ *
+ * @author airhacks.com
+ */
+public interface ColumnReferences {
+
+    /**
+     * @param downstream the columns required after this transformation
+     * @return the columns required before this transformation or null, if any
+     * column might be accessed
+     */
+    ColumnProjection referencedColumns(ColumnProjection downstream);
+
+}
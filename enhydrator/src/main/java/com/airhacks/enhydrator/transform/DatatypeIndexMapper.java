@@ -2,6 +2,7 @@ package com.airhacks.enhydrator.transform;
 
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.HashMap;
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /*
  * #%L
@@ -35,12 +37,17 @@ import javax.xml.bind.annotation.XmlRootElement;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "datatype-index-mapper")
-public class DatatypeIndexMapper extends RowTransformation {
+public class DatatypeIndexMapper extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     private Map<Integer, Datatype> mappings;
+    private Map<Integer, String> patterns;
+
+    @XmlTransient
+    private Map<Integer, DateTimeParser> parsers;
 
     public DatatypeIndexMapper() {
         this.mappings = new HashMap<>();
+        this.patterns = new HashMap<>();
     }
 
     @Override
@@ -48,11 +55,11 @@ public class DatatypeIndexMapper extends RowTransformation {
         if (input == null) {
             return null;
         }
-        this.mappings.entrySet().forEach(e -> changeDataType(input.getColumnByIndex(e.getKey()), e.getValue()));
+        this.mappings.entrySet().forEach(e -> changeDataType(input.getColumnByIndex(e.getKey()), e.getKey(), e.getValue()));
         return input;
     }
 
-    void changeDataType(Column column, Datatype mapping) {
+    void changeDataType(Column column, Integer key, Datatype mapping) {
         if (column == null) {
             return;
         }
@@ -66,18 +73,62 @@ public class DatatypeIndexMapper extends RowTransformation {
             case BOOLEAN:
                 column.convertToBoolean();
                 break;
+            case LONG:
+                column.convertToLong();
+                break;
+            case DECIMAL:
+                column.convertToDecimal();
+                break;
+            case DATE:
+            case TIMESTAMP:
+            case TIME:
+                column.convertToTemporal(parser(key, mapping));
+                break;
+        }
+    }
+
+    DateTimeParser parser(Integer key, Datatype mapping) {
+        if (this.parsers == null) {
+            this.parsers = new HashMap<>();
         }
+        return this.parsers.computeIfAbsent(key, k -> new DateTimeParser(mapping, this.patterns.get(k)));
     }
 
     public DatatypeIndexMapper addMapping(int index, Datatype mapping) {
         this.mappings.put(index, mapping);
+        this.patterns.remove(index);
+        if (this.parsers != null) {
+            this.parsers.remove(index);
+        }
+        return this;
+    }
+
+    /**
+     * Maps the column to DATE, TIMESTAMP or TIME values with the given
+     * DateTimeFormatter pattern, e.g. "dd.MM.yyyy".
+     */
+    public DatatypeIndexMapper addMapping(int index, Datatype mapping, String pattern) {
+        addMapping(index, mapping);
+        this.patterns.put(index, pattern);
         return this;
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        return this.mappings.entrySet().stream().
+                allMatch(e -> plan.convert(e.getKey(), c -> changeDataType(c, e.getKey(), e.getValue())));
+    }
+
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        return downstream.indexSensitive();
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
         hash = 83 * hash + Objects.hashCode(this.mappings);
+        hash = 83 * hash + Objects.hashCode(this.patterns);
         return hash;
     }
 
@@ -93,6 +144,9 @@ public class DatatypeIndexMapper extends RowTransformation {
         if (!Objects.equals(this.mappings, other.mappings)) {
             return false;
         }
+        if (!Objects.equals(this.patterns, other.patterns)) {
+            return false;
+        }
         return true;
     }
 
@@ -2,6 +2,7 @@ package com.airhacks.enhydrator.transform;
 
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.HashMap;
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /*
  * #%L
@@ -35,12 +37,17 @@ import javax.xml.bind.annotation.XmlRootElement;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "datatype-name-mapper")
-public class DatatypeNameMapper extends RowTransformation {
+public class DatatypeNameMapper extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     private Map<String, Datatype> mappings;
+    private Map<String, String> patterns;
+
+    @XmlTransient
+    private Map<String, DateTimeParser> parsers;
 
     public DatatypeNameMapper() {
         this.mappings = new HashMap<>();
+        this.patterns = new HashMap<>();
     }
 
     @Override
@@ -48,11 +55,11 @@ public class DatatypeNameMapper extends RowTransformation {
         if (input == null) {
             return null;
         }
-        this.mappings.entrySet().forEach(e -> changeDataType(input.getColumnByName(e.getKey()), e.getValue()));
+        this.mappings.entrySet().forEach(e -> changeDataType(input.getColumnByName(e.getKey()), e.getKey(), e.getValue()));
         return input;
     }
 
-    void changeDataType(Column column, Datatype mapping) {
+    void changeDataType(Column column, String key, Datatype mapping) {
         if (column == null) {
             return;
         }
@@ -66,18 +73,62 @@ public class DatatypeNameMapper extends RowTransformation {
             case BOOLEAN:
                 column.convertToBoolean();
                 break;
+            case LONG:
+                column.convertToLong();
+                break;
+            case DECIMAL:
+                column.convertToDecimal();
+                break;
+            case DATE:
+            case TIMESTAMP:
+            case TIME:
+                column.convertToTemporal(parser(key, mapping));
+                break;
+        }
+    }
+
+    DateTimeParser parser(String key, Datatype mapping) {
+        if (this.parsers == null) {
+            this.parsers = new HashMap<>();
         }
+        return this.parsers.computeIfAbsent(key, k -> new DateTimeParser(mapping, this.patterns.get(k)));
     }
 
     public DatatypeNameMapper addMapping(String name, Datatype mapping) {
         this.mappings.put(name, mapping);
+        this.patterns.remove(name);
+        if (this.parsers != null) {
+            this.parsers.remove(name);
+        }
+        return this;
+    }
+
+    /**
+     * Maps the column to DATE, TIMESTAMP or TIME values with the given
+     * DateTimeFormatter pattern, e.g. "dd.MM.yyyy".
+     */
+    public DatatypeNameMapper addMapping(String name, Datatype mapping, String pattern) {
+        addMapping(name, mapping);
+        this.patterns.put(name, pattern);
         return this;
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        this.mappings.forEach((name, mapping) -> plan.convert(name, c -> changeDataType(c, name, mapping)));
+        return true;
+    }
+
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        return downstream;
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
         hash = 83 * hash + Objects.hashCode(this.mappings);
+        hash = 83 * hash + Objects.hashCode(this.patterns);
         return hash;
     }
 
@@ -93,6 +144,9 @@ public class DatatypeNameMapper extends RowTransformation {
         if (!Objects.equals(this.mappings, other.mappings)) {
             return false;
         }
+        if (!Objects.equals(this.patterns, other.patterns)) {
+            return false;
+        }
         return true;
     }
 
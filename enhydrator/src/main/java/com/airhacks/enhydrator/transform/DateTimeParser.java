@@ -0,0 +1,398 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalQuery;
+import java.util.Arrays;
+
+/**
+ * Parses DATE (LocalDate), TIMESTAMP (LocalDateTime) and TIME (LocalTime)
+ * values. ISO-8601 and fixed width patterns made of yyyy, MM, dd, HH, mm, ss,
+ * S (fraction) and literals are parsed by hand, all other values and patterns
+ * are passed to a DateTimeFormatter. ISO timestamps may also separate the
+ * date and the time with a space.
+ *
+ * Recently parsed strings are cached, so repeated dates are parsed once. The
+ * cache is not synchronized, concurrent parsers may only overwrite each
+ * other's entries.
+ *
+ * @author airhacks.com
+ */
+public class DateTimeParser {
+
+    public static final int CACHE_SIZE = 1024;
+
+    private static final int YEAR = 0;
+    private static final int MONTH = 1;
+    private static final int DAY = 2;
+    private static final int HOUR = 3;
+    private static final int MINUTE = 4;
+    private static final int SECOND = 5;
+    private static final int FRACTION = 6;
+    private static final int[] NANOS_PER_DIGIT = {
+        100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private final Datatype datatype;
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+    private final TemporalQuery<Object> query;
+
+    /**
+     * The compiled pattern, null if not supported by the fast path
+     */
+    private final int[] fieldKinds;
+    private final int[] fieldStarts;
+    private final int[] fieldWidths;
+    private final boolean[] literals;
+
+    private final Entry[] cache;
+
+    /**
+     * ISO-8601 parser
+     *
+     * @param datatype DATE, TIMESTAMP or TIME
+     */
+    public DateTimeParser(Datatype datatype) {
+        this(datatype, null);
+    }
+
+    /**
+     * @param datatype DATE, TIMESTAMP or TIME
+     * @param pattern a DateTimeFormatter pattern, ISO-8601 if null
+     */
+    public DateTimeParser(Datatype datatype, String pattern) {
+        this.datatype = datatype;
+        this.pattern = pattern;
+        switch (datatype) {
+            case DATE:
+                this.formatter = pattern == null ? DateTimeFormatter.ISO_LOCAL_DATE : DateTimeFormatter.ofPattern(pattern);
+                this.query = LocalDate::from;
+                break;
+            case TIMESTAMP:
+                this.formatter = pattern == null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME : DateTimeFormatter.ofPattern(pattern);
+                this.query = LocalDateTime::from;
+                break;
+            case TIME:
+                this.formatter = pattern == null ? DateTimeFormatter.ISO_LOCAL_TIME : DateTimeFormatter.ofPattern(pattern);
+                this.query = LocalTime::from;
+                break;
+            default:
+                throw new IllegalArgumentException("Not a temporal datatype: " + datatype);
+        }
+        int[][] compiled = compile(pattern, datatype);
+        if (compiled == null) {
+            this.fieldKinds = null;
+            this.fieldStarts = null;
+            this.fieldWidths = null;
+            this.literals = null;
+        } else {
+            this.fieldKinds = compiled[0];
+            this.fieldStarts = compiled[1];
+            this.fieldWidths = compiled[2];
+            this.literals = new boolean[pattern.length()];
+            for (int i = 0; i < pattern.length(); i++) {
+                this.literals[i] = !Character.isLetter(pattern.charAt(i));
+            }
+        }
+        this.cache = new Entry[CACHE_SIZE];
+    }
+
+    /**
+     * @return LocalDate, LocalDateTime or LocalTime
+     * @throws java.time.format.DateTimeParseException if the value cannot be
+     * parsed
+     */
+    public Object parse(String value) {
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        Entry cached = this.cache[index];
+        if (cached != null && cached.key.equals(value)) {
+            return cached.value;
+        }
+        Object parsed = parseUncached(value);
+        this.cache[index] = new Entry(value, parsed);
+        return parsed;
+    }
+
+    Object parseUncached(String value) {
+        Object parsed = this.pattern == null ? iso(this.datatype, value) : withPattern(value);
+        if (parsed != null) {
+            return parsed;
+        }
+        return this.formatter.parse(value, this.query);
+    }
+
+    /**
+     * @return the parsed value or null, if the value does not have the
+     * fixed width layout of the pattern or is not valid
+     */
+    Object withPattern(String value) {
+        if (this.fieldKinds == null || value.length() != this.literals.length) {
+            return null;
+        }
+        for (int i = 0; i < this.literals.length; i++) {
+            if (this.literals[i] && value.charAt(i) != this.pattern.charAt(i)) {
+                return null;
+            }
+        }
+        int[] values = {-1, -1, -1, 0, 0, 0, 0};
+        for (int i = 0; i < this.fieldKinds.length; i++) {
+            int kind = this.fieldKinds[i];
+            int digits = digits(value, this.fieldStarts[i], this.fieldWidths[i]);
+            if (digits < 0) {
+                return null;
+            }
+            values[kind] = kind == FRACTION ? digits * NANOS_PER_DIGIT[this.fieldWidths[i] - 1] : digits;
+        }
+        return create(this.datatype, values[YEAR], values[MONTH], values[DAY],
+                values[HOUR], values[MINUTE], values[SECOND], values[FRACTION]);
+    }
+
+    /**
+     * Supports fixed width numeric fields only
+     *
+     * @return kinds, starts and widths of the fields or null
+     */
+    static int[][] compile(String pattern, Datatype datatype) {
+        if (pattern == null) {
+            return null;
+        }
+        int[] kinds = new int[pattern.length()];
+        int[] starts = new int[pattern.length()];
+        int[] widths = new int[pattern.length()];
+        boolean[] present = new boolean[FRACTION + 1];
+        int count = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            char letter = pattern.charAt(i);
+            int start = i;
+            while (i < pattern.length() && pattern.charAt(i) == letter) {
+                i++;
+            }
+            if (!Character.isLetter(letter)) {
+                if ("'[]#{}".indexOf(letter) >= 0) {
+                    return null;
+                }
+                continue;
+            }
+            int width = i - start;
+            int kind = kind(letter, width);
+            if (kind < 0 || present[kind]) {
+                return null;
+            }
+            present[kind] = true;
+            kinds[count] = kind;
+            starts[count] = start;
+            widths[count] = width;
+            count++;
+        }
+        boolean date = present[YEAR] && present[MONTH] && present[DAY];
+        boolean time = present[HOUR] && present[MINUTE];
+        boolean complete = datatype == Datatype.DATE ? date && !time
+                : datatype == Datatype.TIME ? time && !present[YEAR] && !present[MONTH] && !present[DAY]
+                : date && time;
+        if (!complete) {
+            return null;
+        }
+        return new int[][]{
+            Arrays.copyOf(kinds, count),
+            Arrays.copyOf(starts, count),
+            Arrays.copyOf(widths, count)};
+    }
+
+    static int kind(char letter, int width) {
+        switch (letter) {
+            case 'y':
+            case 'u':
+                return width == 4 ? YEAR : -1;
+            case 'M':
+                return width == 2 ? MONTH : -1;
+            case 'd':
+                return width == 2 ? DAY : -1;
+            case 'H':
+                return width == 2 ? HOUR : -1;
+            case 'm':
+                return width == 2 ? MINUTE : -1;
+            case 's':
+                return width == 2 ? SECOND : -1;
+            case 'S':
+                return width <= 9 ? FRACTION : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Hand-rolled ISO-8601 parsing without a DateTimeFormatter
+     *
+     * @return the parsed value or null, if the syntax is not supported or the
+     * value is invalid
+     */
+    public static Object iso(Datatype datatype, CharSequence value) {
+        switch (datatype) {
+            case DATE:
+                return isoDate(value);
+            case TIMESTAMP:
+                return isoTimestamp(value);
+            case TIME:
+                return isoTime(value);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param value yyyy-MM-dd
+     */
+    public static LocalDate isoDate(CharSequence value) {
+        if (value.length() != 10) {
+            return null;
+        }
+        return (LocalDate) date(value, Datatype.DATE, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param value HH:mm, HH:mm:ss or HH:mm:ss.S with up to 9 fraction digits
+     */
+    public static LocalTime isoTime(CharSequence value) {
+        return (LocalTime) time(value, 0, Datatype.TIME, -1, -1, -1);
+    }
+
+    /**
+     * @param value an ISO date and time, separated by T or a space
+     */
+    public static LocalDateTime isoTimestamp(CharSequence value) {
+        if (value.length() < 16 || (value.charAt(10) != 'T' && value.charAt(10) != ' ')) {
+            return null;
+        }
+        int year = isoDateField(value);
+        if (year < 0) {
+            return null;
+        }
+        return (LocalDateTime) time(value, 11, Datatype.TIMESTAMP, year, digits(value, 5, 2), digits(value, 8, 2));
+    }
+
+    static Object date(CharSequence value, Datatype datatype, int hour, int minute, int second, int nano) {
+        int year = isoDateField(value);
+        if (year < 0) {
+            return null;
+        }
+        return create(datatype, year, digits(value, 5, 2), digits(value, 8, 2), hour, minute, second, nano);
+    }
+
+    /**
+     * @return the year of an ISO date at the beginning or -1
+     */
+    static int isoDateField(CharSequence value) {
+        if (value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return -1;
+        }
+        return digits(value, 0, 4);
+    }
+
+    static Object time(CharSequence value, int from, Datatype datatype, int year, int month, int day) {
+        int length = value.length() - from;
+        if (length < 5 || value.charAt(from + 2) != ':') {
+            return null;
+        }
+        int hour = digits(value, from, 2);
+        int minute = digits(value, from + 3, 2);
+        int second = 0;
+        int nano = 0;
+        if (length > 5) {
+            if (length < 8 || value.charAt(from + 5) != ':') {
+                return null;
+            }
+            second = digits(value, from + 6, 2);
+            if (length > 8) {
+                int fractionDigits = length - 9;
+                if (value.charAt(from + 8) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return null;
+                }
+                int fraction = digits(value, from + 9, fractionDigits);
+                if (fraction < 0) {
+                    return null;
+                }
+                nano = fraction * NANOS_PER_DIGIT[fractionDigits - 1];
+            }
+        }
+        return create(datatype, year, month, day, hour, minute, second, nano);
+    }
+
+    /**
+     * @return the value or null, if any field is out of range
+     */
+    static Object create(Datatype datatype, int year, int month, int day, int hour, int minute, int second, int nano) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || nano < 0) {
+            return null;
+        }
+        if (datatype == Datatype.TIME) {
+            return LocalTime.of(hour, minute, second, nano);
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        if (datatype == Datatype.DATE) {
+            return LocalDate.of(year, month, day);
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    /**
+     * @return the value of the digits or -1, if any character is not a digit
+     */
+    static int digits(CharSequence value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    public Datatype getDatatype() {
+        return datatype;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    static final class Entry {
+
+        final String key;
+        final Object value;
+
+        Entry(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.flexpipe.RowTransformation;
+import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Drops rows with an already seen key. In EXACT mode the encoded keys are
+ * kept in an off-heap hash set and verified on equal hashes, a run exceeding
+ * the memory budget fails. In APPROXIMATE mode a Bloom filter sized for the
+ * expected keys (limited by the memory budget) is used instead: duplicates
+ * are always dropped, distinct rows are dropped with the false positive
+ * probability.
+ *
+ * The set is allocated with the first row and kept until {@link #reset()}.
+ *
+ * @author airhacks.com
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "deduplicator")
+public class Deduplicator extends RowTransformation {
+
+    public enum Mode {
+        EXACT, APPROXIMATE
+    }
+
+    public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+    public static final long DEFAULT_EXPECTED_KEYS = 1_000_000;
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+    static final long SECOND_SEED = 0x6465647570L;
+
+    private List<String> keyColumns;
+    private Mode mode;
+    /**
+     * Off-heap bytes available to the set
+     */
+    private long memoryBudget;
+    private long expectedKeys;
+    private double falsePositiveProbability;
+
+    @XmlTransient
+    private RowHasher hasher;
+    @XmlTransient
+    private OffHeapKeySet keys;
+    @XmlTransient
+    private BloomFilter filter;
+    @XmlTransient
+    private long distinct;
+    @XmlTransient
+    private long duplicates;
+
+    public Deduplicator(String... keyColumns) {
+        this(Mode.EXACT, DEFAULT_MEMORY_BUDGET, keyColumns);
+    }
+
+    public Deduplicator(Mode mode, long memoryBudget, String... keyColumns) {
+        this.mode = mode;
+        this.memoryBudget = memoryBudget;
+        this.keyColumns = new ArrayList<>(Arrays.asList(keyColumns));
+        this.expectedKeys = DEFAULT_EXPECTED_KEYS;
+        this.falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+    }
+
+    public Deduplicator() {
+        this(Mode.EXACT, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Sizes the Bloom filter of the APPROXIMATE mode.
+     *
+     * @param expectedKeys the expected number of distinct keys
+     * @param falsePositiveProbability the accepted probability to drop a
+     * distinct row
+     * @return this
+     */
+    public Deduplicator expecting(long expectedKeys, double falsePositiveProbability) {
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveProbability = falsePositiveProbability;
+        return this;
+    }
+
+    @Override
+    public Row execute(Row input) {
+        if (input == null) {
+            return null;
+        }
+        if (this.hasher == null) {
+            open();
+        }
+        long hash = this.hasher.hashKey(input, this.keyColumns);
+        byte[] encoded = this.hasher.getEncoded();
+        int length = this.hasher.getEncodedLength();
+        boolean added;
+        if (this.mode == Mode.APPROXIMATE) {
+            added = this.filter.add(hash, RowHasher.murmur64(encoded, length, SECOND_SEED) | 1);
+        } else {
+            added = this.keys.add(hash, encoded, length);
+        }
+        if (added) {
+            this.distinct++;
+            return input;
+        }
+        this.duplicates++;
+        return null;
+    }
+
+    void open() {
+        this.hasher = new RowHasher();
+        if (this.mode == Mode.APPROXIMATE) {
+            this.filter = BloomFilter.sized(this.expectedKeys, this.falsePositiveProbability, this.memoryBudget);
+        } else {
+            this.keys = new OffHeapKeySet(this.memoryBudget);
+        }
+    }
+
+    /**
+     * Forgets all seen keys and releases the set.
+     */
+    public void reset() {
+        this.hasher = null;
+        this.keys = null;
+        this.filter = null;
+        this.distinct = 0;
+        this.duplicates = 0;
+    }
+
+    /**
+     * @return the number of passed rows
+     */
+    public long getDistinct() {
+        return distinct;
+    }
+
+    /**
+     * @return the number of dropped rows
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the allocated off-heap bytes
+     */
+    public long getMemoryUsed() {
+        if (this.keys != null) {
+            return this.keys.getMemoryUsed();
+        }
+        if (this.filter != null) {
+            return this.filter.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the probability that the next distinct row is dropped, always
+     * 0 in EXACT mode
+     */
+    public double getFalsePositiveProbability() {
+        if (this.filter == null) {
+            return 0;
+        }
+        return this.filter.getFalsePositiveProbability();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 59 * hash + Objects.hashCode(this.keyColumns);
+        hash = 59 * hash + Objects.hashCode(this.mode);
+        hash = 59 * hash + Long.hashCode(this.memoryBudget);
+        hash = 59 * hash + Long.hashCode(this.expectedKeys);
+        hash = 59 * hash + Double.hashCode(this.falsePositiveProbability);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Deduplicator other = (Deduplicator) obj;
+        if (this.memoryBudget != other.memoryBudget) {
+            return false;
+        }
+        if (this.expectedKeys != other.expectedKeys) {
+            return false;
+        }
+        if (Double.compare(this.falsePositiveProbability, other.falsePositiveProbability) != 0) {
+            return false;
+        }
+        if (this.mode != other.mode) {
+            return false;
+        }
+        return Objects.equals(this.keyColumns, other.keyColumns);
+    }
+
+    @Override
+    public String toString() {
+        return "Deduplicator{" + "keyColumns=" + keyColumns + ", mode=" + mode + ", memoryBudget=" + memoryBudget
+                + ", distinct=" + distinct + ", duplicates=" + duplicates + '}';
+    }
+
+}
@@ -2,6 +2,7 @@ package com.airhacks.enhydrator.transform;
 
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,7 +36,7 @@ import javax.xml.bind.annotation.XmlRootElement;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "destination-mapper")
-public class DestinationMapper extends RowTransformation {
+public class DestinationMapper extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     private Map<Integer, TargetMapping> mappings;
 
@@ -64,6 +65,20 @@ public class DestinationMapper extends RowTransformation {
         return this;
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        return this.mappings.entrySet().stream().
+                allMatch(e -> plan.route(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * The columns mapped to destinations are required
+     */
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        return downstream.withIndices(this.mappings.keySet());
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
@@ -0,0 +1,234 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory mapped open addressing table from 64-bit key hashes to 64-bit row
+ * hashes and the offset of the key in a separate keys file. Linear probing,
+ * the table is rehashed into a twice as large file at a load of 3/4. The
+ * header stores the generation of the keys file.
+ *
+ * @author airhacks.com
+ */
+class DigestIndex implements AutoCloseable {
+
+    static final int MAGIC = 0x454e4844;
+    static final int HEADER = 64;
+    static final int SLOT = 24;
+    static final int MIN_CAPACITY = 1024;
+    /**
+     * Largest power of two fitting into a single mapping
+     */
+    static final int MAX_CAPACITY = 1 << 26;
+    static final long EMPTY = 0;
+
+    private final Path file;
+    private final boolean writable;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+    private final long generation;
+
+    private DigestIndex(Path file, boolean writable, FileChannel channel, MappedByteBuffer table, int capacity, int size, long generation) {
+        this.file = file;
+        this.writable = writable;
+        this.channel = channel;
+        this.table = table;
+        this.capacity = capacity;
+        this.size = size;
+        this.generation = generation;
+    }
+
+    /**
+     * @param capacity the initial number of slots, rounded up to a power of
+     * two
+     */
+    static DigestIndex create(Path file, int capacity, long generation) {
+        int slots = MIN_CAPACITY;
+        while (slots < capacity && slots < MAX_CAPACITY) {
+            slots <<= 1;
+        }
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * SLOT);
+            table.putInt(0, MAGIC);
+            table.putInt(4, slots);
+            table.putLong(16, generation);
+            return new DigestIndex(file, true, channel, table, slots, 0, generation);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create index " + file, ex);
+        }
+    }
+
+    /**
+     * @return the read only index, null if the file does not exist
+     */
+    static DigestIndex open(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER || table.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IllegalStateException(file + " is not an index");
+            }
+            return new DigestIndex(file, false, channel, table, table.getInt(4), table.getInt(8), table.getLong(16));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot open index " + file, ex);
+        }
+    }
+
+    static long normalize(long keyHash) {
+        return keyHash == EMPTY ? 1 : keyHash;
+    }
+
+    /**
+     * @return the slot of the key, -1 if absent
+     */
+    int find(long keyHash) {
+        long key = normalize(keyHash);
+        int mask = this.capacity - 1;
+        for (int slot = (int) key & mask;; slot = (slot + 1) & mask) {
+            long stored = keyHash(slot);
+            if (stored == key) {
+                return slot;
+            }
+            if (stored == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Inserts the key or replaces its row hash and key offset
+     *
+     * @return true, if the key was absent
+     */
+    boolean put(long keyHash, long rowHash, long keyOffset) {
+        if (!this.writable) {
+            throw new IllegalStateException("Index " + this.file + " is read only");
+        }
+        if ((this.size + 1) * 4L > this.capacity * 3L) {
+            grow();
+        }
+        long key = normalize(keyHash);
+        int mask = this.capacity - 1;
+        int slot = (int) key & mask;
+        while (true) {
+            long stored = keyHash(slot);
+            if (stored == EMPTY || stored == key) {
+                int position = HEADER + slot * SLOT;
+                this.table.putLong(position, key);
+                this.table.putLong(position + 8, rowHash);
+                this.table.putLong(position + 16, keyOffset);
+                if (stored == EMPTY) {
+                    this.size++;
+                    return true;
+                }
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    void grow() {
+        if (this.capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Index " + this.file + " exceeds " + MAX_CAPACITY + " slots");
+        }
+        Path grown = this.file.resolveSibling(this.file.getFileName() + ".grow");
+        DigestIndex larger = create(grown, this.capacity * 2, this.generation);
+        for (int slot = 0; slot < this.capacity; slot++) {
+            long key = keyHash(slot);
+            if (key != EMPTY) {
+                larger.put(key, rowHash(slot), keyOffset(slot));
+            }
+        }
+        close();
+        larger.close();
+        try {
+            Files.move(grown, this.file, StandardCopyOption.REPLACE_EXISTING);
+            this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.table = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.channel.size());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot grow index " + this.file, ex);
+        }
+        this.capacity = larger.capacity;
+    }
+
+    /**
+     * @return the stored key hash, 0 for empty slots
+     */
+    long keyHash(int slot) {
+        return this.table.getLong(HEADER + slot * SLOT);
+    }
+
+    long rowHash(int slot) {
+        return this.table.getLong(HEADER + slot * SLOT + 8);
+    }
+
+    long keyOffset(int slot) {
+        return this.table.getLong(HEADER + slot * SLOT + 16);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the number of keys into the header and forces the table to disk
+     */
+    @Override
+    public void close() {
+        if (this.writable) {
+            this.table.putInt(8, this.size);
+            this.table.force();
+        }
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot close index " + this.file, ex);
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded store of erroneous rows. Retains at most "limit" rows with their
+ * exceptions (either the first ones or a uniform reservoir sample of all) and
+ * counts every error per exception type and message fingerprint.
+ *
+ * @author airhacks.com
+ */
+public class ErrorSampler {
+
+    public enum Policy {
+        /**
+         * Keep the first errors, ignore the subsequent ones
+         */
+        FIRST,
+        /**
+         * Keep a uniform random sample of all errors
+         */
+        RESERVOIR
+    }
+
+    public static final int DEFAULT_LIMIT = 1000;
+    static final int MAX_FINGERPRINTS = 1024;
+    static final int MAX_FINGERPRINT_LENGTH = 160;
+    static final String OTHER_FINGERPRINTS = "<other>";
+
+    private final Policy policy;
+    private final int limit;
+
+    private final Row[] rows;
+    private final Throwable[] errors;
+    private long seen;
+
+    private final Map<String, LongAdder> countsByType;
+    private final Map<String, LongAdder> countsByFingerprint;
+
+    public ErrorSampler() {
+        this(Policy.FIRST, DEFAULT_LIMIT);
+    }
+
+    public ErrorSampler(Policy policy, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative, but was: " + limit);
+        }
+        this.policy = policy;
+        this.limit = limit;
+        this.rows = new Row[limit];
+        this.errors = new Throwable[limit];
+        this.countsByType = new ConcurrentHashMap<>();
+        this.countsByFingerprint = new ConcurrentHashMap<>();
+    }
+
+    public void add(Row erroneous, Throwable ex) {
+        count(this.countsByType, ex.getClass().getName());
+        String fingerprint = fingerprint(ex);
+        if (this.countsByFingerprint.size() >= MAX_FINGERPRINTS
+                && !this.countsByFingerprint.containsKey(fingerprint)) {
+            fingerprint = OTHER_FINGERPRINTS;
+        }
+        count(this.countsByFingerprint, fingerprint);
+        synchronized (this) {
+            long index = this.seen++;
+            if (index < this.limit) {
+                store((int) index, erroneous, ex);
+            } else if (this.policy == Policy.RESERVOIR) {
+                long candidate = ThreadLocalRandom.current().nextLong(index + 1);
+                if (candidate < this.limit) {
+                    store((int) candidate, erroneous, ex);
+                }
+            }
+        }
+    }
+
+    void store(int slot, Row erroneous, Throwable ex) {
+        this.rows[slot] = erroneous;
+        this.errors[slot] = ex;
+    }
+
+    static void count(Map<String, LongAdder> counts, String key) {
+        counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * The exception type and the message with all digits replaced by '#', so
+     * that messages which differ only in row specific numbers (line numbers,
+     * ids, values) share a fingerprint.
+     *
+     * @param ex the error
+     * @return the fingerprint
+     */
+    static String fingerprint(Throwable ex) {
+        String message = ex.getMessage();
+        StringBuilder fingerprint = new StringBuilder(ex.getClass().getName());
+        if (message == null) {
+            return fingerprint.toString();
+        }
+        fingerprint.append(": ");
+        boolean previousDigit = false;
+        for (int i = 0; i < message.length() && fingerprint.length() < MAX_FINGERPRINT_LENGTH; i++) {
+            char c = message.charAt(i);
+            if (Character.isDigit(c)) {
+                if (!previousDigit) {
+                    fingerprint.append('#');
+                }
+                previousDigit = true;
+            } else {
+                fingerprint.append(c);
+                previousDigit = false;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @return number of all errors, including the ones not retained
+     */
+    public synchronized long getCount() {
+        return this.seen;
+    }
+
+    synchronized int retained() {
+        return (int) Math.min(this.seen, this.limit);
+    }
+
+    /**
+     * @return a snapshot of the retained rows, compared by identity
+     */
+    public synchronized Set<Row> getRows() {
+        Set<Row> snapshot = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < retained(); i++) {
+            snapshot.add(this.rows[i]);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return a snapshot of the retained exceptions
+     */
+    public synchronized Collection<Throwable> getErrors() {
+        List<Throwable> snapshot = new ArrayList<>(retained());
+        for (int i = 0; i < retained(); i++) {
+            snapshot.add(this.errors[i]);
+        }
+        return snapshot;
+    }
+
+    public Map<String, Long> getCountsByType() {
+        return snapshot(this.countsByType);
+    }
+
+    public Map<String, Long> getCountsByFingerprint() {
+        return snapshot(this.countsByFingerprint);
+    }
+
+    static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((k, v) -> snapshot.put(k, v.sum()));
+        return snapshot;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorSampler{" + "policy=" + policy + ", limit=" + limit + ", count=" + getCount() + ", countsByFingerprint=" + getCountsByFingerprint() + '}';
+    }
+
+}
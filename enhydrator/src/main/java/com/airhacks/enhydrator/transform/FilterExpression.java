@@ -33,8 +33,8 @@ import javax.script.ScriptException;
  */
 public class FilterExpression {
 
-    private final ScriptEngineManager manager;
-    private final ScriptEngine engine;
+    private ScriptEngineManager manager;
+    private ScriptEngine engine;
     private final Map<String, Object> scriptEngineBindings;
     private Consumer<String> expressionListener;
 
@@ -45,16 +45,27 @@ public class FilterExpression {
 
     public FilterExpression(Consumer<String> expressionListener, Map<String, Object> scriptEngineBindings) {
         this.expressionListener = expressionListener;
-        this.manager = new ScriptEngineManager();
-        this.engine = manager.getEngineByName("nashorn");
         this.scriptEngineBindings = scriptEngineBindings;
     }
 
+    /**
+     * The engine is created with the first expression, pipelines without
+     * expressions do not start Nashorn.
+     */
+    ScriptEngine engine() {
+        if (this.engine == null) {
+            this.manager = new ScriptEngineManager();
+            this.engine = ScriptEngines.nashorn(this.manager);
+        }
+        return this.engine;
+    }
+
     public Boolean execute(Row columns, String expression) {
+        ScriptEngine scriptEngine = engine();
         Bindings bindings = ScriptingEnvironmentProvider.create(this.manager, this.scriptEngineBindings, columns);
         try {
             this.expressionListener.accept("Executing: " + expression);
-            Object result = this.engine.eval(expression, bindings);
+            Object result = scriptEngine.eval(expression, bindings);
             this.expressionListener.accept("Got result: " + result);
             if (!(result instanceof Boolean)) {
                 return Boolean.FALSE;
@@ -34,8 +34,8 @@ import javax.script.ScriptException;
  */
 public abstract class FunctionScriptLoader {
 
-    private final ScriptEngineManager manager;
-    private final ScriptEngine engine;
+    private ScriptEngineManager manager;
+    private ScriptEngine engine;
     private Map<String, Object> scriptEngineBindings;
     protected String baseFolder;
     public static final String COLUMN_SCRIPT_FOLDER = "column";
@@ -57,23 +57,33 @@ public abstract class FunctionScriptLoader {
     }
 
     public FunctionScriptLoader() {
-        this.manager = new ScriptEngineManager();
-        this.engine = manager.getEngineByName("nashorn");
         this.baseFolder = ".";
     }
 
+    /**
+     * The engine is created with the first script
+     */
+    ScriptEngine engine() {
+        if (this.engine == null) {
+            this.manager = new ScriptEngineManager();
+            this.engine = ScriptEngines.nashorn(this.manager);
+        }
+        return this.engine;
+    }
+
     public ColumnTransformer getColumnTransformer(String scriptName) {
         Reader content = load(COLUMN_SCRIPT_FOLDER, scriptName);
         return createFromScript(content);
     }
 
     public ColumnTransformer createFromScript(String script) {
-        Invocable invocable = (Invocable) engine;
+        ScriptEngine scriptEngine = engine();
+        Invocable invocable = (Invocable) scriptEngine;
         try {
             if (scriptEngineBindings != null) {
                 manager.getBindings().putAll(scriptEngineBindings);
             }
-            engine.eval(script);
+            scriptEngine.eval(script);
         } catch (ScriptException ex) {
             throw new IllegalStateException("Cannot evaluate script", ex);
         }
@@ -82,12 +92,13 @@ public abstract class FunctionScriptLoader {
     }
 
     public ColumnTransformer createFromScript(Reader script) {
-        Invocable invocable = (Invocable) engine;
+        ScriptEngine scriptEngine = engine();
+        Invocable invocable = (Invocable) scriptEngine;
         try {
             if (scriptEngineBindings != null) {
                 manager.getBindings().putAll(scriptEngineBindings);
             }
-            engine.eval(script);
+            scriptEngine.eval(script);
         } catch (ScriptException ex) {
             throw new IllegalStateException("Cannot evaluate script", ex);
         }
@@ -101,9 +112,10 @@ public abstract class FunctionScriptLoader {
                 return null;
             }
             Reader content = load(ROW_SCRIPT_FOLDER, scriptName);
+            ScriptEngine scriptEngine = engine();
             try {
                 Bindings bindings = ScriptingEnvironmentProvider.create(manager, this.scriptEngineBindings, input);
-                return (Row) engine.eval(content, bindings);
+                return (Row) scriptEngine.eval(content, bindings);
             } catch (ScriptException ex) {
                 throw new IllegalStateException("Cannot evaluate script: " + scriptName, ex);
             }
@@ -0,0 +1,37 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Implemented by row transformations which can be expressed as column
+ * operations of a {@link RowPlan}. The operations have to be equivalent to the
+ * execute method of the transformation.
+ *
+ * @author airhacks.com
+ */
+public interface FusibleTransformation {
+
+    /**
+     * @param plan the plan of the preceding transformations
+     * @return false, if the transformation cannot be fused with the plan
+     */
+    boolean fuseInto(RowPlan plan);
+
+}
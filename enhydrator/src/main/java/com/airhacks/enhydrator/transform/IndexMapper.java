@@ -22,6 +22,7 @@ package com.airhacks.enhydrator.transform;
 
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,7 +41,7 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
  */
 @XmlRootElement(name = "index-mapper")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class IndexMapper extends RowTransformation {
+public class IndexMapper extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     // A array list of column names that defines the indices of the columns.
     @XmlJavaTypeAdapter(IndexMapperTypeAdapter.class)
@@ -74,6 +75,16 @@ public class IndexMapper extends RowTransformation {
         column.setIndex(index);
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        return plan.reorder(this.orderedNames);
+    }
+
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        return downstream.withNames(this.orderedNames);
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
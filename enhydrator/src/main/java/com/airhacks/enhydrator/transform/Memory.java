@@ -20,11 +20,15 @@ package com.airhacks.enhydrator.transform;
  * #L%
  */
 import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.metrics.PumpMetrics;
+import com.airhacks.enhydrator.out.Sink;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 /**
  *
@@ -33,18 +37,51 @@ import java.util.concurrent.atomic.LongAdder;
 public class Memory {
 
     private final Map<String, Object> store;
-    private final Map<Row, Throwable> processingErrors;
+    private volatile ErrorSampler processingErrors;
+    private volatile BiConsumer<Row, Throwable> spill;
 
     private final LongAdder counter;
     private final LongAdder processedRowCount;
     private final LongAdder errorCount;
+    private final LongAdder spillFailures;
+
+    private PumpMetrics metrics;
 
     public Memory() {
         this.store = new ConcurrentHashMap<>();
         this.counter = new LongAdder();
         this.processedRowCount = new LongAdder();
         this.errorCount = new LongAdder();
-        this.processingErrors = new ConcurrentHashMap<>();
+        this.spillFailures = new LongAdder();
+        this.processingErrors = new ErrorSampler();
+    }
+
+    /**
+     * Limit the number of retained erroneous rows. All errors are still
+     * counted. Previously retained errors are discarded.
+     * @param policy Keep the first errors or a random sample of all errors
+     * @param limit Maximum number of retained rows
+     */
+    public void retainErrors(ErrorSampler.Policy policy, int limit) {
+        this.processingErrors = new ErrorSampler(policy, limit);
+    }
+
+    /**
+     * Pass every erroneous row to the given sink, regardless whether the row
+     * is retained or not.
+     * @param sink The dead letter sink
+     */
+    public void spillErrorsTo(Sink sink) {
+        this.onProcessingError((row, ex) -> sink.processRow(row));
+    }
+
+    /**
+     * Pass every erroneous row together with its error to the given consumer
+     * @param consumer Receives the row and the error, failures are counted
+     * and ignored
+     */
+    public void onProcessingError(BiConsumer<Row, Throwable> consumer) {
+        this.spill = consumer;
     }
 
     /**
@@ -113,8 +150,39 @@ public class Memory {
         return this.errorCount.longValue();
     }
 
+    public void useMetrics(PumpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the per-stage metrics of the pump using this memory
+     * @return The metrics or null, if the pump was built without metrics
+     */
+    public PumpMetrics getMetrics() {
+        return metrics;
+    }
+
     public void addProcessingError(Row erroneous, Throwable ex) {
-        this.processingErrors.put(erroneous, ex);
+        this.processingErrors.add(erroneous, ex);
+        this.errorOccured();
+        BiConsumer<Row, Throwable> consumer = this.spill;
+        if (consumer != null) {
+            try {
+                consumer.accept(erroneous, ex);
+            } catch (RuntimeException e) {
+                this.spillFailures.increment();
+            }
+        }
+    }
+
+    /**
+     * Record values which could not be converted while parsing. The row is
+     * counted once as erroneous, but processed further.
+     * @param row The row with the unconverted values
+     * @param errors The conversion errors of the row
+     */
+    public void addConversionErrors(Row row, List<? extends Throwable> errors) {
+        errors.forEach(e -> this.processingErrors.add(row, e));
         this.errorOccured();
     }
 
@@ -123,19 +191,58 @@ public class Memory {
      * @return true if there were processing errors, false otherwise
      */
     public boolean areErrorsOccured() {
-        return !this.processingErrors.isEmpty();
+        return this.processingErrors.getCount() > 0;
     }
 
+    /**
+     * Get the retained processing errors
+     * @return At most the configured limit of errors
+     * @see #retainErrors(ErrorSampler.Policy, int)
+     */
     public Collection<Throwable> getProcessingErrors() {
-        return this.processingErrors.values();
+        return this.processingErrors.getErrors();
     }
 
     /**
-     * Get all rows that had processing errors
-     * @return All rows with processing errors
+     * Get the retained rows that had processing errors
+     * @return At most the configured limit of rows, compared by identity
+     * @see #retainErrors(ErrorSampler.Policy, int)
      */
     public Set<Row> getErroneousRows() {
-        return this.processingErrors.keySet();
+        return this.processingErrors.getRows();
+    }
+
+    /**
+     * Get the number of all processing errors, including not retained ones
+     * @return Number of processing errors
+     */
+    public long getProcessingErrorCount() {
+        return this.processingErrors.getCount();
+    }
+
+    /**
+     * Get the number of errors per exception class name
+     * @return Exception class name to count
+     */
+    public Map<String, Long> getErrorCountsByType() {
+        return this.processingErrors.getCountsByType();
+    }
+
+    /**
+     * Get the number of errors per exception type and message with digits
+     * masked
+     * @return Fingerprint to count
+     */
+    public Map<String, Long> getErrorCountsByFingerprint() {
+        return this.processingErrors.getCountsByFingerprint();
+    }
+
+    /**
+     * Get the number of erroneous rows the spill consumer failed to accept
+     * @return Number of spill failures
+     */
+    public long getSpillFailureCount() {
+        return this.spillFailures.longValue();
     }
 
     @Override
@@ -24,17 +24,20 @@ package com.airhacks.enhydrator.transform;
 
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement(name = "name-mapper")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class NameMapper extends RowTransformation {
+public class NameMapper extends RowTransformation implements ColumnReferences, FusibleTransformation {
 
     Map<String, String> mappings;
 
@@ -58,6 +61,24 @@ public class NameMapper extends RowTransformation {
         column.setName(name);
     }
 
+    @Override
+    public boolean fuseInto(RowPlan plan) {
+        this.mappings.forEach(plan::rename);
+        return true;
+    }
+
+    /**
+     * Renamed columns are required by their original name
+     */
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        List<String> originals = this.mappings.entrySet().stream().
+                filter(e -> downstream.getNames().contains(e.getValue())).
+                map(Map.Entry::getKey).
+                collect(Collectors.toList());
+        return downstream.withNames(originals);
+    }
+
     @Override
     public int hashCode() {
         int hash = 5;
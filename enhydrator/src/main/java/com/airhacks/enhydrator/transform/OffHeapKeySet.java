@@ -0,0 +1,160 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.nio.ByteBuffer;
+
+/**
+ * An open addressing set of encoded keys in direct (off-heap) buffers. The
+ * table stores the 64-bit hash and the offset of each key, the keys
+ * themselves are appended length prefixed to a separate area. Equal hashes
+ * are verified against the stored key, so hash collisions do not drop
+ * distinct keys.
+ *
+ * @author airhacks.com
+ */
+class OffHeapKeySet {
+
+    static final int SLOT = 16;
+    static final int INITIAL_SLOTS = 1024;
+    static final int INITIAL_KEYS = 64 * 1024;
+    static final long EMPTY = 0;
+
+    private final long memoryBudget;
+    private ByteBuffer table;
+    private ByteBuffer keys;
+    private int capacity;
+    private int size;
+
+    /**
+     * @param memoryBudget the maximum number of bytes of both buffers
+     */
+    OffHeapKeySet(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.capacity = INITIAL_SLOTS;
+        this.table = allocate(INITIAL_SLOTS * SLOT, 0);
+        this.keys = allocate(INITIAL_KEYS, this.table.capacity());
+    }
+
+    /**
+     * @param hash the hash of the key
+     * @param key the encoded key, valid up to length
+     * @return true, if the key was absent
+     */
+    boolean add(long hash, byte[] key, int length) {
+        long normalized = hash == EMPTY ? 1 : hash;
+        int mask = this.capacity - 1;
+        int slot = (int) normalized & mask;
+        while (true) {
+            int position = slot * SLOT;
+            long stored = this.table.getLong(position);
+            if (stored == EMPTY) {
+                break;
+            }
+            if (stored == normalized && sameKey(this.table.getLong(position + 8), key, length)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int offset = append(key, length);
+        this.table.putLong(slot * SLOT, normalized);
+        this.table.putLong(slot * SLOT + 8, offset);
+        this.size++;
+        if (this.size * 4L > this.capacity * 3L) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean sameKey(long offset, byte[] key, int length) {
+        int position = (int) offset;
+        if (this.keys.getInt(position) != length) {
+            return false;
+        }
+        position += 4;
+        for (int i = 0; i < length; i++) {
+            if (this.keys.get(position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int append(byte[] key, int length) {
+        int offset = this.keys.position();
+        if (this.keys.remaining() < length + 4) {
+            long required = (long) offset + length + 4;
+            long available = Math.min(Integer.MAX_VALUE, this.memoryBudget - this.table.capacity());
+            long grown = Math.max(required, Math.min(this.keys.capacity() * 2L, available));
+            ByteBuffer larger = allocate(grown, this.table.capacity());
+            this.keys.flip();
+            larger.put(this.keys);
+            this.keys = larger;
+        }
+        this.keys.putInt(length);
+        this.keys.put(key, 0, length);
+        return offset;
+    }
+
+    void grow() {
+        int slots = this.capacity * 2;
+        ByteBuffer larger = allocate((long) slots * SLOT, this.keys.capacity());
+        int mask = slots - 1;
+        for (int slot = 0; slot < this.capacity; slot++) {
+            long hash = this.table.getLong(slot * SLOT);
+            if (hash == EMPTY) {
+                continue;
+            }
+            int target = (int) hash & mask;
+            while (larger.getLong(target * SLOT) != EMPTY) {
+                target = (target + 1) & mask;
+            }
+            larger.putLong(target * SLOT, hash);
+            larger.putLong(target * SLOT + 8, this.table.getLong(slot * SLOT + 8));
+        }
+        this.table = larger;
+        this.capacity = slots;
+    }
+
+    /**
+     * @param bytes the size of the new buffer
+     * @param retained the bytes of the other buffer kept alongside
+     */
+    ByteBuffer allocate(long bytes, long retained) {
+        if (bytes > Integer.MAX_VALUE || bytes + retained > this.memoryBudget) {
+            throw new IllegalStateException("Exact deduplication of " + this.size
+                    + " keys exceeds the memory budget of " + this.memoryBudget + " bytes");
+        }
+        return ByteBuffer.allocateDirect((int) bytes);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getMemoryUsed() {
+        return (long) this.table.capacity() + this.keys.capacity();
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.RowCodec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 64-bit hashes of key columns and of whole rows. The values are encoded with
+ * {@link RowCodec} into a reusable buffer and hashed with MurmurHash64A, so
+ * equal values of the same type hash equally across runs and JVMs. Not
+ * thread safe.
+ *
+ * @author airhacks.com
+ */
+public class RowHasher {
+
+    static final long SEED = 0x656e687964726174L;
+
+    private final Buffer buffer;
+    private final DataOutputStream out;
+
+    public RowHasher() {
+        this.buffer = new Buffer();
+        this.out = new DataOutputStream(this.buffer);
+    }
+
+    /**
+     * Hashes the values of the key columns, missing columns are hashed as
+     * null. The encoded key remains available until the next invocation.
+     *
+     * @param row the hashed row
+     * @param columns the names of the key columns
+     * @return the hash of the key
+     */
+    public long hashKey(Row row, List<String> columns) {
+        this.buffer.reset();
+        try {
+            for (String column : columns) {
+                RowCodec.writeValue(this.out, row.getColumnValue(column));
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot encode key of " + row, ex);
+        }
+        return murmur64(this.buffer.bytes(), this.buffer.size(), SEED);
+    }
+
+    /**
+     * Hashes the names and values of all columns in index order.
+     *
+     * @param row the hashed row
+     * @return the hash of the contents
+     */
+    public long hashContents(Row row) {
+        this.buffer.reset();
+        try {
+            for (Column column : row.getColumnsSortedByColumnIndex()) {
+                RowCodec.writeString(this.out, column.getName());
+                RowCodec.writeValue(this.out, column.getValue());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot encode " + row, ex);
+        }
+        return murmur64(this.buffer.bytes(), this.buffer.size(), SEED);
+    }
+
+    /**
+     * @return the bytes encoded by the last hashKey invocation, valid up to
+     * {@link #getEncodedLength()}
+     */
+    public byte[] getEncoded() {
+        return this.buffer.bytes();
+    }
+
+    public int getEncodedLength() {
+        return this.buffer.size();
+    }
+
+    /**
+     * MurmurHash64A by Austin Appleby, little endian
+     */
+    static long murmur64(byte[] data, int length, long seed) {
+        final long m = 0xc6a4a7935bd1e995L;
+        final int r = 47;
+        long h = seed ^ (length * m);
+        int blocks = length >>> 3;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 3;
+            long k = (data[offset] & 0xffL)
+                    | (data[offset + 1] & 0xffL) << 8
+                    | (data[offset + 2] & 0xffL) << 16
+                    | (data[offset + 3] & 0xffL) << 24
+                    | (data[offset + 4] & 0xffL) << 32
+                    | (data[offset + 5] & 0xffL) << 40
+                    | (data[offset + 6] & 0xffL) << 48
+                    | (data[offset + 7] & 0xffL) << 56;
+            k *= m;
+            k ^= k >>> r;
+            k *= m;
+            h ^= k;
+            h *= m;
+        }
+        int tail = blocks << 3;
+        if (tail < length) {
+            for (int i = tail; i < length; i++) {
+                h ^= (data[i] & 0xffL) << ((i - tail) << 3);
+            }
+            h *= m;
+        }
+        h ^= h >>> r;
+        h *= m;
+        h ^= h >>> r;
+        return h;
+    }
+
+    static class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(256);
+        }
+
+        byte[] bytes() {
+            return this.buf;
+        }
+    }
+
+}
@@ -0,0 +1,575 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Consecutive built-in row transformations fused into one plan. The plan is
+ * compiled once per input schema (the names and indices of the columns) into
+ * a rename table, a type-conversion vector, a destination vector and an index
+ * permutation, indexed by the position of the column in the row. Each row of
+ * a known schema is then transformed in a single pass over its columns and
+ * reindexed once. Index lookups after a reordering are resolved to names
+ * while planning.
+ *
+ * Copying columns ends a compiled segment, the following operations are
+ * compiled for the schema with the copies. Schemas whose lookups are
+ * ambiguous (e.g. several columns with the same index) and schemas beyond
+ * {@link #MAX_SCHEMAS} are transformed operation by operation. A plan is not
+ * thread safe.
+ *
+ * @author airhacks.com
+ */
+public class RowPlan implements Function<Row, Row> {
+
+    static final int MAX_SCHEMAS = 64;
+
+    private final List<Step> steps;
+    private final List<FusibleTransformation> transformations;
+
+    /**
+     * The names of the columns by their position after the last reordering,
+     * null if no reordering was planned
+     */
+    private Map<Integer, String> reordered;
+    /**
+     * Compiled on the first row
+     */
+    private List<Segment> segments;
+
+    public RowPlan() {
+        this.steps = new ArrayList<>();
+        this.transformations = new ArrayList<>();
+    }
+
+    /**
+     * Replaces consecutive fusible transformations with plans.
+     *
+     * @param transformations the row transformations
+     * @param origins the transformation objects, in the same order
+     * @return the transformations with plans
+     */
+    public static List<Function<Row, Row>> fuse(List<Function<Row, Row>> transformations, List<Object> origins) {
+        if (transformations.size() != origins.size()) {
+            return transformations;
+        }
+        List<Function<Row, Row>> fused = new ArrayList<>();
+        RowPlan plan = null;
+        for (int i = 0; i < transformations.size(); i++) {
+            Object origin = origins.get(i);
+            if (origin instanceof FusibleTransformation) {
+                FusibleTransformation transformation = (FusibleTransformation) origin;
+                if (plan != null && plan.add(transformation)) {
+                    continue;
+                }
+                plan = new RowPlan();
+                if (plan.add(transformation)) {
+                    fused.add(plan);
+                    continue;
+                }
+            }
+            plan = null;
+            fused.add(transformations.get(i));
+        }
+        return fused;
+    }
+
+    /**
+     * Adds the operations of the transformation, or nothing if it cannot be
+     * fused
+     *
+     * @return true, if the transformation was added
+     */
+    public boolean add(FusibleTransformation transformation) {
+        int planned = this.steps.size();
+        Map<Integer, String> positions = this.reordered;
+        this.segments = null;
+        if (transformation.fuseInto(this)) {
+            this.transformations.add(transformation);
+            return true;
+        }
+        this.steps.subList(planned, this.steps.size()).clear();
+        this.reordered = positions;
+        return false;
+    }
+
+    /**
+     * Changes the name of the column, the column is still found by its
+     * previous name within the plan (as with {@link Column#setName(String)}).
+     *
+     * @param name the column name
+     * @param newName the name after the plan
+     * @return true
+     */
+    public boolean rename(String name, String newName) {
+        this.steps.add(Step.rename(name, newName));
+        return true;
+    }
+
+    /**
+     * @param name the column name
+     * @param conversion converts the value of the column, if present. It must
+     * not change the name, index or destination.
+     * @return true
+     */
+    public boolean convert(String name, Consumer<Column> conversion) {
+        this.steps.add(Step.convert(name, -1, conversion));
+        return true;
+    }
+
+    /**
+     * @param index the column index
+     * @param conversion converts the value of the column, if present. It must
+     * not change the name, index or destination.
+     * @return false, if the column at the index is unknown after a reordering
+     */
+    public boolean convert(int index, Consumer<Column> conversion) {
+        return byIndex(index, name -> Step.convert(name, index, conversion));
+    }
+
+    /**
+     * @param index the column index
+     * @param target the new destination of the column, if present
+     * @return false, if the column at the index is unknown after a reordering
+     */
+    public boolean route(int index, TargetMapping target) {
+        return byIndex(index, name -> Step.route(name, index, target));
+    }
+
+    /**
+     * @param step creates the step for the column name, or for the index if
+     * the name is null
+     */
+    boolean byIndex(int index, Function<String, Step> step) {
+        if (this.reordered == null) {
+            this.steps.add(step.apply(null));
+            return true;
+        }
+        if (index < 0) {
+            return false;
+        }
+        String name = this.reordered.get(index);
+        if (name != null) {
+            this.steps.add(step.apply(name));
+        }
+        return true;
+    }
+
+    /**
+     * All columns lose their index, the named columns are moved to their
+     * position in the list.
+     *
+     * @param orderedNames the column names in the new order
+     * @return true
+     */
+    public boolean reorder(List<String> orderedNames) {
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < orderedNames.size(); i++) {
+            positions.putIfAbsent(orderedNames.get(i), i);
+        }
+        String[] names = positions.keySet().toArray(new String[positions.size()]);
+        int[] indices = positions.values().stream().mapToInt(Integer::intValue).toArray();
+        this.steps.add(Step.reorder(names, indices));
+        this.reordered = new HashMap<>();
+        positions.forEach((name, index) -> this.reordered.put(index, name));
+        return true;
+    }
+
+    /**
+     * Adds columns to the row. Columns are only added before a reordering, so
+     * index lookups find the new columns.
+     *
+     * @param operation adds the columns
+     * @return false after a reordering
+     */
+    public boolean addColumns(Consumer<Row> operation) {
+        if (this.reordered != null) {
+            return false;
+        }
+        this.steps.add(Step.addColumns(operation));
+        return true;
+    }
+
+    @Override
+    public Row apply(Row row) {
+        if (row == null) {
+            return null;
+        }
+        if (this.segments == null) {
+            this.segments = segments(this.steps);
+        }
+        for (Segment segment : this.segments) {
+            segment.apply(row);
+        }
+        return row;
+    }
+
+    static List<Segment> segments(List<Step> steps) {
+        List<Segment> segments = new ArrayList<>();
+        List<Step> columnSteps = new ArrayList<>();
+        for (Step step : steps) {
+            if (step.kind == Kind.ADD_COLUMNS) {
+                segments.add(new Segment(columnSteps, step.adder));
+                columnSteps = new ArrayList<>();
+            } else {
+                columnSteps.add(step);
+            }
+        }
+        if (!columnSteps.isEmpty()) {
+            segments.add(new Segment(columnSteps, null));
+        }
+        return segments;
+    }
+
+    public List<FusibleTransformation> getTransformations() {
+        return transformations;
+    }
+
+    @Override
+    public String toString() {
+        return "RowPlan{" + "transformations=" + transformations + ", steps=" + steps.size() + '}';
+    }
+
+    enum Kind {
+        RENAME, CONVERT, ROUTE, REORDER, ADD_COLUMNS
+    }
+
+    /**
+     * A planned operation. Column operations find their column by name, or
+     * by index if the name is null.
+     */
+    static class Step {
+
+        final Kind kind;
+        final String name;
+        final int index;
+        String newName;
+        Consumer<Column> conversion;
+        TargetMapping target;
+        String[] orderedNames;
+        int[] orderedIndices;
+        Consumer<Row> adder;
+
+        Step(Kind kind, String name, int index) {
+            this.kind = kind;
+            this.name = name;
+            this.index = index;
+        }
+
+        static Step rename(String name, String newName) {
+            Step step = new Step(Kind.RENAME, name, -1);
+            step.newName = newName;
+            return step;
+        }
+
+        static Step convert(String name, int index, Consumer<Column> conversion) {
+            Step step = new Step(Kind.CONVERT, name, index);
+            step.conversion = conversion;
+            return step;
+        }
+
+        static Step route(String name, int index, TargetMapping target) {
+            Step step = new Step(Kind.ROUTE, name, index);
+            step.target = target;
+            return step;
+        }
+
+        static Step reorder(String[] names, int[] indices) {
+            Step step = new Step(Kind.REORDER, null, -1);
+            step.orderedNames = names;
+            step.orderedIndices = indices;
+            return step;
+        }
+
+        static Step addColumns(Consumer<Row> adder) {
+            Step step = new Step(Kind.ADD_COLUMNS, null, -1);
+            step.adder = adder;
+            return step;
+        }
+
+        /**
+         * Executes the step with lookups on the row
+         */
+        void apply(Row row) {
+            if (this.kind == Kind.REORDER) {
+                for (Column column : row.getColumns()) {
+                    column.setIndex(-1);
+                }
+                for (int i = 0; i < this.orderedNames.length; i++) {
+                    Column column = row.getColumnByName(this.orderedNames[i]);
+                    if (column != null) {
+                        column.setIndex(this.orderedIndices[i]);
+                    }
+                }
+                return;
+            }
+            Column column = this.name != null ? row.getColumnByName(this.name) : row.getColumnByIndex(this.index);
+            if (column == null) {
+                return;
+            }
+            switch (this.kind) {
+                case RENAME:
+                    column.setName(this.newName);
+                    break;
+                case CONVERT:
+                    this.conversion.accept(column);
+                    break;
+                case ROUTE:
+                    route(column, this.target);
+                    break;
+            }
+        }
+
+        static void route(Column column, TargetMapping target) {
+            column.setTargetObject(target.getTargetObject());
+            column.setTargetSink(target.getTargetSink());
+        }
+    }
+
+    /**
+     * Column operations, followed by an optional column adder. The column
+     * operations are compiled per schema.
+     */
+    static class Segment {
+
+        private final List<Step> steps;
+        private final Consumer<Row> adder;
+        private final boolean reorders;
+        private final Map<Schema, Schema> compiled;
+        private Schema last;
+
+        Segment(List<Step> steps, Consumer<Row> adder) {
+            this.steps = steps;
+            this.adder = adder;
+            this.reorders = steps.stream().anyMatch(s -> s.kind == Kind.REORDER);
+            this.compiled = new HashMap<>();
+        }
+
+        void apply(Row row) {
+            if (!this.steps.isEmpty()) {
+                Column[] columns = row.getColumns().toArray(new Column[row.getNumberOfColumns()]);
+                Schema schema = schema(row, columns);
+                if (schema != null && schema.compiled) {
+                    schema.apply(columns);
+                } else {
+                    this.steps.forEach(s -> s.apply(row));
+                }
+                if (this.reorders) {
+                    row.reindexColumns();
+                }
+            }
+            if (this.adder != null) {
+                this.adder.accept(row);
+            }
+        }
+
+        /**
+         * @return the compiled schema or null, if there are too many schemas
+         */
+        Schema schema(Row row, Column[] columns) {
+            if (this.last != null && this.last.describes(columns)) {
+                return this.last;
+            }
+            Schema schema = new Schema(columns);
+            Schema known = this.compiled.get(schema);
+            if (known == null) {
+                if (this.compiled.size() == MAX_SCHEMAS) {
+                    return null;
+                }
+                schema.compile(this.steps, row, columns);
+                this.compiled.put(schema, schema);
+                known = schema;
+            }
+            this.last = known;
+            return known;
+        }
+    }
+
+    /**
+     * The names and indices of the columns in the order of the row, and the
+     * operations per column position
+     */
+    static class Schema {
+
+        static final int NONE = -1;
+        static final int AMBIGUOUS = -2;
+
+        final String[] names;
+        final int[] indices;
+
+        boolean compiled;
+        String[] renames;
+        Consumer<Column>[] conversions;
+        TargetMapping[] targets;
+        int[] permutation;
+
+        Schema(Column[] columns) {
+            this.names = new String[columns.length];
+            this.indices = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                this.names[i] = columns[i].getName();
+                this.indices[i] = columns[i].getIndex();
+            }
+        }
+
+        boolean describes(Column[] columns) {
+            if (columns.length != this.names.length) {
+                return false;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (this.indices[i] != columns[i].getIndex() || !Objects.equals(this.names[i], columns[i].getName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Resolves each step to a column position. Stays uncompiled, if a
+         * lookup of the row cannot be explained by the schema.
+         */
+        @SuppressWarnings("unchecked")
+        void compile(List<Step> steps, Row row, Column[] columns) {
+            int size = columns.length;
+            this.renames = new String[size];
+            this.conversions = new Consumer[size];
+            this.targets = new TargetMapping[size];
+            for (Step step : steps) {
+                if (step.kind == Kind.REORDER) {
+                    this.permutation = new int[size];
+                    Arrays.fill(this.permutation, -1);
+                    for (int i = 0; i < step.orderedNames.length; i++) {
+                        int position = position(row, columns, step.orderedNames[i]);
+                        if (position == AMBIGUOUS) {
+                            return;
+                        }
+                        if (position != NONE) {
+                            this.permutation[position] = step.orderedIndices[i];
+                        }
+                    }
+                    continue;
+                }
+                int position = step.name != null ? position(row, columns, step.name) : position(row, columns, step.index);
+                if (position == AMBIGUOUS) {
+                    return;
+                }
+                if (position == NONE) {
+                    continue;
+                }
+                switch (step.kind) {
+                    case RENAME:
+                        this.renames[position] = step.newName;
+                        break;
+                    case CONVERT:
+                        Consumer<Column> previous = this.conversions[position];
+                        this.conversions[position] = previous == null ? step.conversion : previous.andThen(step.conversion);
+                        break;
+                    case ROUTE:
+                        this.targets[position] = step.target;
+                        break;
+                }
+            }
+            this.compiled = true;
+        }
+
+        static int position(Row row, Column[] columns, String name) {
+            int position = NONE;
+            for (int i = 0; i < columns.length; i++) {
+                if (name.equals(columns[i].getName())) {
+                    if (position != NONE) {
+                        return AMBIGUOUS;
+                    }
+                    position = i;
+                }
+            }
+            return verified(row.getColumnByName(name), columns, position);
+        }
+
+        static int position(Row row, Column[] columns, int index) {
+            int position = NONE;
+            for (int i = 0; i < columns.length; i++) {
+                if (index == columns[i].getIndex()) {
+                    if (position != NONE) {
+                        return AMBIGUOUS;
+                    }
+                    position = i;
+                }
+            }
+            return verified(row.getColumnByIndex(index), columns, position);
+        }
+
+        /**
+         * @param found the column looked up by the row
+         */
+        static int verified(Column found, Column[] columns, int position) {
+            if (found == null) {
+                return position == NONE ? NONE : AMBIGUOUS;
+            }
+            return position != NONE && columns[position] == found ? position : AMBIGUOUS;
+        }
+
+        /**
+         * Single pass over the columns
+         */
+        void apply(Column[] columns) {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                if (this.renames[i] != null) {
+                    column.setName(this.renames[i]);
+                }
+                if (this.conversions[i] != null) {
+                    this.conversions[i].accept(column);
+                }
+                if (this.targets[i] != null) {
+                    Step.route(column, this.targets[i]);
+                }
+                if (this.permutation != null) {
+                    column.setIndex(this.permutation[i]);
+                }
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(this.names) + Arrays.hashCode(this.indices);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Schema)) {
+                return false;
+            }
+            Schema other = (Schema) obj;
+            return Arrays.equals(this.names, other.names) && Arrays.equals(this.indices, other.indices);
+        }
+    }
+
+}
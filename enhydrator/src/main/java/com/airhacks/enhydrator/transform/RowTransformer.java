@@ -34,4 +34,13 @@ public interface RowTransformer {
 
     Row execute(Row input);
 
+    /**
+     * Invoked before a pump resumed from a checkpoint processes its first
+     * row. The already processed rows are not passed again.
+     *
+     * @param rows the number of source rows processed before the checkpoint
+     */
+    default void resume(long rows) {
+    }
+
 }
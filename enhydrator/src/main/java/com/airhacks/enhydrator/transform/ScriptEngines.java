@@ -0,0 +1,70 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+
+/**
+ * Creates the Nashorn engines for expressions, filters and script
+ * transformers. If the system property enhydrator.script.cache names a
+ * directory, the engines store compiled scripts in Nashorn's persistent code
+ * cache, so later JVMs skip the compilation.
+ *
+ * @author airhacks.com
+ */
+public class ScriptEngines {
+
+    public static final String CODE_CACHE = "enhydrator.script.cache";
+    static final String NASHORN_CODE_CACHE = "nashorn.persistent.code.cache";
+
+    /**
+     * @param manager provides the global bindings of the engine
+     * @return a Nashorn engine
+     */
+    public static ScriptEngine nashorn(ScriptEngineManager manager) {
+        String codeCache = System.getProperty(CODE_CACHE);
+        if (codeCache == null) {
+            return manager.getEngineByName("nashorn");
+        }
+        ScriptEngine engine = cachingNashorn(manager, codeCache);
+        engine.setBindings(manager.getBindings(), ScriptContext.GLOBAL_SCOPE);
+        return engine;
+    }
+
+    static ScriptEngine cachingNashorn(ScriptEngineManager manager, String codeCache) {
+        ScriptEngineFactory factory = manager.getEngineFactories().stream().
+                filter(f -> f.getNames().contains("nashorn")).
+                findFirst().
+                orElseThrow(() -> new IllegalStateException("Nashorn is not available"));
+        System.setProperty(NASHORN_CODE_CACHE, codeCache);
+        try {
+            Method withArguments = factory.getClass().getMethod("getScriptEngine", String[].class);
+            return (ScriptEngine) withArguments.invoke(factory, (Object) new String[]{"--persistent-code-cache"});
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Cannot enable the persistent code cache in: " + codeCache, ex);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.ColumnProjection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conservative analysis of filter and row expressions. Columns are bound by
+ * their names, so every identifier and string literal counts as referenced
+ * column name. <code>$ROW</code> may only be used with literal arguments of
+ * getColumnValue, getColumnByName, isColumnEmpty and getColumnByIndex, any
+ * other access could touch all columns.
+ *
+ * @author airhacks.com
+ */
+public final class ScriptReferences {
+
+    static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    static final Pattern LITERAL = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'|\"((?:[^\"\\\\]|\\\\.)*)\"");
+    static final Pattern ROW = Pattern.compile("\\$ROW\\b");
+    static final Pattern BY_NAME = Pattern.compile(
+            "\\$ROW\\s*\\.\\s*(?:getColumnValue|getColumnByName|isColumnEmpty)\\s*\\(\\s*(?:'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\")\\s*\\)");
+    static final Pattern BY_INDEX = Pattern.compile("\\$ROW\\s*\\.\\s*getColumnByIndex\\s*\\(\\s*(\\d+)\\s*\\)");
+
+    private ScriptReferences() {
+    }
+
+    /**
+     * @param script a filter or row expression
+     * @param downstream the columns required after the script
+     * @return the columns required before the script, null if the script
+     * accesses the row dynamically
+     */
+    public static ColumnProjection referencedColumns(String script, ColumnProjection downstream) {
+        if (downstream == null || script == null) {
+            return downstream;
+        }
+        int rowAccesses = count(ROW.matcher(script));
+        int literalAccesses = count(BY_NAME.matcher(script));
+        List<Integer> indices = new ArrayList<>();
+        Matcher byIndex = BY_INDEX.matcher(script);
+        while (byIndex.find()) {
+            indices.add(Integer.parseInt(byIndex.group(1)));
+        }
+        if (rowAccesses != literalAccesses + indices.size()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        Matcher literal = LITERAL.matcher(script);
+        while (literal.find()) {
+            names.add(literal.group(1) != null ? literal.group(1) : literal.group(2));
+        }
+        String withoutLiterals = LITERAL.matcher(script).replaceAll(" ");
+        Matcher identifier = IDENTIFIER.matcher(withoutLiterals);
+        while (identifier.find()) {
+            names.add(identifier.group());
+        }
+        ColumnProjection required = downstream.withNames(names);
+        if (!indices.isEmpty()) {
+            required = required.withIndices(indices);
+        }
+        return required;
+    }
+
+    /**
+     * @return the columns required before all scripts, evaluated in the given
+     * order
+     */
+    public static ColumnProjection referencedColumns(List<String> scripts, ColumnProjection downstream) {
+        List<String> reversed = new ArrayList<>(scripts);
+        Collections.reverse(reversed);
+        ColumnProjection required = downstream;
+        for (String script : reversed) {
+            required = referencedColumns(script, required);
+        }
+        return required;
+    }
+
+    static int count(Matcher matcher) {
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -20,6 +20,7 @@ package com.airhacks.enhydrator.transform;
  * #L%
  */
 import com.airhacks.enhydrator.flexpipe.RowTransformation;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -32,7 +33,7 @@ import javax.xml.bind.annotation.XmlTransient;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "skip-first-row")
-public class SkipFirstRow extends RowTransformation {
+public class SkipFirstRow extends RowTransformation implements ColumnReferences {
 
     @XmlTransient
     private boolean skipped = false;
@@ -48,6 +49,19 @@ public class SkipFirstRow extends RowTransformation {
 
     }
 
+    /**
+     * The first row was already skipped before the checkpoint.
+     */
+    @Override
+    public void resume(long rows) {
+        this.skipped = rows > 0;
+    }
+
+    @Override
+    public ColumnProjection referencedColumns(ColumnProjection downstream) {
+        return downstream;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
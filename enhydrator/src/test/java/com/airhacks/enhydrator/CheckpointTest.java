@@ -0,0 +1,93 @@
+package com.airhacks.enhydrator;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.SourcePosition;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import org.junit.After;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class CheckpointTest {
+
+    Path file;
+
+    @Before
+    public void init() throws IOException {
+        this.file = Files.createTempFile("enhydrator", ".checkpoint");
+        Files.delete(this.file);
+    }
+
+    @After
+    public void cleanup() {
+        Checkpoint.delete(this.file);
+    }
+
+    @Test
+    public void missingFile() {
+        assertThat(Checkpoint.load(this.file), nullValue());
+    }
+
+    @Test
+    public void storeAndLoad() {
+        new Checkpoint(new SourcePosition(42, 1024, null), Arrays.asList("512", null, "7")).store(this.file);
+        Checkpoint loaded = Checkpoint.load(this.file);
+        assertThat(loaded.getPosition(), is(new SourcePosition(42, 1024, null)));
+        assertThat(loaded.getSinkState(0), is("512"));
+        assertThat(loaded.getSinkState(1), nullValue());
+        assertThat(loaded.getSinkState(2), is("7"));
+        assertThat(loaded.getSinkState(3), nullValue());
+        assertFalse(Files.exists(this.file.resolveSibling(this.file.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void typedKeys() {
+        for (Object key : new Object[]{"duke", 42, 42L, new BigDecimal("4.20"), Timestamp.valueOf("2014-07-01 12:30:00.5")}) {
+            new Checkpoint(new SourcePosition(1, -1, key), null).store(this.file);
+            assertThat(Checkpoint.load(this.file).getPosition().getKey(), is(key));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unsupportedKey() {
+        new Checkpoint(new SourcePosition(1, -1, new Object()), null).store(this.file);
+    }
+
+    @Test
+    public void delete() {
+        new Checkpoint(new SourcePosition(1), null).store(this.file);
+        Checkpoint.delete(this.file);
+        assertFalse(Files.exists(this.file));
+    }
+
+}
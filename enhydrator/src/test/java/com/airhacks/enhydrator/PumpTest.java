@@ -19,21 +19,39 @@ package com.airhacks.enhydrator;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.in.CSVFileSource;
+import com.airhacks.enhydrator.in.ColumnFilter;
+import com.airhacks.enhydrator.in.ColumnFilter.Operator;
+import com.airhacks.enhydrator.in.ColumnProjection;
 import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.SourcePosition;
 import com.airhacks.enhydrator.in.VirtualSinkSource;
+import com.airhacks.enhydrator.out.BinaryRowFileSink;
+import com.airhacks.enhydrator.out.CSVFileSink;
+import com.airhacks.enhydrator.out.DeadLetterQueue;
+import com.airhacks.enhydrator.transform.ColumnCopier;
+import com.airhacks.enhydrator.transform.DestinationMapper;
 import com.airhacks.enhydrator.transform.Memory;
 import com.airhacks.enhydrator.transform.RowTransformer;
+import com.airhacks.enhydrator.transform.SkipFirstRow;
+import com.airhacks.enhydrator.transform.TargetMapping;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -70,6 +88,31 @@ public class PumpTest {
         assertThat(memory.getProcessedRowCount(), is(1l));
     }
 
+    @Test
+    public void erroneousRowsAreSentToDeadLetterQueue() {
+        List<Row> inputRows = new ArrayList<>();
+        inputRows.add(getStringRow());
+        inputRows.add(getIntRow());
+        VirtualSinkSource in = new VirtualSinkSource("in", inputRows);
+        VirtualSinkSource out = new VirtualSinkSource();
+        VirtualSinkSource dlq = new VirtualSinkSource();
+        new Pump.Engine().
+                from(in).
+                startWith(t -> {
+                    t.getColumnByName("a").convertToInteger();
+                    return t;
+                }).
+                to(out).
+                dlq(dlq, 10, 2, DeadLetterQueue.BackPressure.BLOCK).
+                continueOnError().
+                build().
+                start();
+        List<Row> letters = dlq.getRows();
+        assertThat(letters.size(), is(1));
+        assertThat(letters.get(0).getColumnValue(DeadLetterQueue.ERROR_TYPE), is(NumberFormatException.class.getName()));
+        assertThat(out.getNumberOfRows(), is(1));
+    }
+
     @Test(expected = NumberFormatException.class)
     public void stopOnError() {
         List<Row> inputRows = new ArrayList<>();
@@ -170,4 +213,196 @@ public class PumpTest {
         return row;
     }
 
+    @Test
+    public void projectionFromMappersAndFilters() {
+        Pump.Engine engine = new Pump.Engine().
+                from(new VirtualSinkSource()).
+                filter("Year > 1999").
+                startWith(new DestinationMapper().addMapping(2, new TargetMapping("out", "cars"))).
+                to(new VirtualSinkSource("out", new ArrayList<>()));
+        ColumnProjection projection = engine.projection();
+        assertTrue(projection.includes(0, "Year"));
+        assertTrue(projection.includes(2, "Model"));
+        assertFalse(projection.includes(1, "Make"));
+        assertTrue(projection.isIndexSensitive());
+    }
+
+    @Test
+    public void noProjectionWithUnknownTransformations() {
+        Pump.Engine engine = new Pump.Engine().
+                from(new VirtualSinkSource()).
+                startWith(r -> r).
+                to(new VirtualSinkSource("out", new ArrayList<>()));
+        assertThat(engine.projection(), nullValue());
+    }
+
+    @Test
+    public void noProjectionForCatchAllSinks() {
+        Pump.Engine engine = new Pump.Engine().
+                from(new VirtualSinkSource()).
+                to(new VirtualSinkSource());
+        assertThat(engine.projection(), nullValue());
+    }
+
+    @Test
+    public void projectionOptOut() {
+        Pump.Engine engine = new Pump.Engine().
+                from(new VirtualSinkSource()).
+                startWith(new DestinationMapper().addMapping(2, new TargetMapping("out", "cars"))).
+                to(new VirtualSinkSource("out", new ArrayList<>())).
+                withoutProjection();
+        assertThat(engine.projection(), nullValue());
+    }
+
+    @Test
+    public void projectedCSVSource() {
+        VirtualSinkSource out = new VirtualSinkSource("out", new ArrayList<>());
+        new Pump.Engine().
+                from(new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true)).
+                startWith(new DestinationMapper().addMapping(2, new TargetMapping("out", "cars"))).
+                to(out).
+                build().
+                start();
+        Row first = out.getRow(1);
+        assertThat(first.getNumberOfColumns(), is(1));
+        assertThat(first.getColumnValue("Model"), is("E350"));
+    }
+
+    @Test
+    public void copiedColumnRoutedByIndex() {
+        VirtualSinkSource out = new VirtualSinkSource("out", new ArrayList<>());
+        ColumnCopier copier = new ColumnCopier();
+        copier.addMapping("Model", "Copy");
+        Pump.Engine engine = new Pump.Engine().
+                from(new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true)).
+                startWith(copier).
+                endWith(new DestinationMapper().addMapping(2, new TargetMapping("out", "cars"))).
+                to(out);
+        assertThat(engine.projection(), nullValue());
+        engine.build().start();
+        assertThat(out.getRow(1).getColumnValue("Copy"), is("E350"));
+    }
+
+    @Test
+    public void columnFilterEvaluatedByPump() {
+        VirtualSinkSource in = new VirtualSinkSource("in", new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            Row row = new Row();
+            row.addColumn(0, "id", i);
+            in.addRow(row);
+        }
+        VirtualSinkSource out = new VirtualSinkSource();
+        new Pump.Engine().
+                from(in).
+                filter(new ColumnFilter("id", Operator.GE, 7)).
+                filter("$ROW.getColumnValue('id') != 8").
+                to(out).
+                build().
+                start();
+        assertThat(out.getNumberOfRows(), is(2));
+        assertThat(out.getRow(0).getColumnValue("id"), is(7));
+        assertThat(out.getRow(1).getColumnValue("id"), is(9));
+    }
+
+    @Test
+    public void resumeAfterFailure() throws IOException {
+        resumeAfterFailure(true);
+    }
+
+    @Test
+    public void resumeAfterFailureWithoutSkippingHeader() throws IOException {
+        resumeAfterFailure(false);
+    }
+
+    /**
+     * @param skipFirstRow true: the header row is skipped and written by the
+     * sink, false: the header row passes the pipeline as any other row
+     */
+    void resumeAfterFailure(boolean skipFirstRow) throws IOException {
+        Path input = Files.createTempFile("enhydrator", ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("id;language");
+        for (int i = 0; i < 10; i++) {
+            lines.add(i + ";java" + i);
+        }
+        Files.write(input, lines);
+        Path output = Files.createTempFile("enhydrator", ".csv");
+        Files.delete(output);
+        Path checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+        Pump.Engine crashing = new Pump.Engine().
+                from(new CSVFileSource(input.toString(), ";", "UTF-8", true).lazy());
+        if (skipFirstRow) {
+            crashing.startWith(new SkipFirstRow());
+        }
+        try {
+            crashing.startWith(r -> {
+                if (r != null && "7".equals(r.getColumnValue("id"))) {
+                    throw new IllegalStateException("crash");
+                }
+                return r;
+            }).
+                    to(new CSVFileSink("*", output.toString(), ";", skipFirstRow, false)).
+                    checkpoint(checkpoint, 3, 0).
+                    build().
+                    start();
+            fail("The pump should crash");
+        } catch (IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("crash"));
+        }
+        assertThat(Checkpoint.load(checkpoint).getPosition().getRows(), is(6L));
+        Pump.Engine resumed = new Pump.Engine().
+                from(new CSVFileSource(input.toString(), ";", "UTF-8", true).lazy());
+        if (skipFirstRow) {
+            resumed.startWith(new SkipFirstRow());
+        }
+        resumed.to(new CSVFileSink("*", output.toString(), ";", skipFirstRow, false)).
+                checkpoint(checkpoint, 3, 0).
+                resumeFrom(checkpoint).
+                build().
+                start();
+        assertThat(Files.readAllLines(output), is(lines));
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    public void sinkWhichCannotResumeStopsThePump() throws IOException {
+        Path output = Files.createTempFile("enhydrator", ".rows");
+        Files.write(output, new byte[]{1, 2, 3});
+        List<String> flow = new ArrayList<>();
+        try {
+            new Pump.Engine().
+                    from(new VirtualSinkSource()).
+                    to(new BinaryRowFileSink("*", output.toString(), false)).
+                    flowListener(flow::add).
+                    resumeFrom(new Checkpoint(new SourcePosition(6), null)).
+                    build().
+                    start();
+            fail("BinaryRowFileSink cannot resume");
+        } catch (IllegalStateException ex) {
+            assertThat(ex.getMessage(), containsString("cannot resume"));
+        }
+        assertThat(Files.size(output), is(3L));
+        assertFalse(flow.stream().anyMatch(m -> m.startsWith("Query executed")));
+        Files.delete(output);
+    }
+
+    @Test
+    public void resumeBySkipping() {
+        VirtualSinkSource in = new VirtualSinkSource("in", new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            Row row = new Row();
+            row.addColumn(0, "id", i);
+            in.addRow(row);
+        }
+        VirtualSinkSource out = new VirtualSinkSource();
+        new Pump.Engine().
+                from(in).
+                to(out).
+                resumeFrom(new Checkpoint(new SourcePosition(6), null)).
+                build().
+                start();
+        assertThat(out.getNumberOfRows(), is(4));
+        assertThat(out.getRow(0).getColumnValue("id"), is(6));
+    }
+
 }
@@ -40,7 +40,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -89,6 +91,18 @@ public class PipelineTest {
         assertEquals(deserialized, origin);
     }
 
+    @Test
+    public void disabledProjectionSurvivesSerialization() {
+        Pipeline origin = getCSVPipeline();
+        origin.setProjectionDisabled(true);
+        assertNotEquals(getCSVPipeline(), origin);
+        Plumber plumber = Plumber.createWith(".", "config");
+        plumber.intoConfiguration(origin);
+        Pipeline deserialized = plumber.fromConfiguration(origin.getName());
+        assertTrue(deserialized.isProjectionDisabled());
+        assertEquals(deserialized, origin);
+    }
+
     public static Pipeline getJDBCPipeline() {
         DestinationMapper mapper = new DestinationMapper();
         mapper.addMapping(0, new TargetMapping("*", "*"));
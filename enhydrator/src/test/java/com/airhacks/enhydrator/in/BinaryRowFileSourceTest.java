@@ -0,0 +1,171 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.out.BinaryRowFileSink;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Iterator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class BinaryRowFileSourceTest {
+
+    Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        this.file = Files.createTempFile("enhydrator", ".enhr");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void uncompressedRoundTrip() {
+        roundTrip(false);
+    }
+
+    @Test
+    public void compressedRoundTrip() {
+        roundTrip(true);
+    }
+
+    void roundTrip(boolean compress) {
+        BinaryRowFileSink sink = new BinaryRowFileSink("*", this.file.toString(), compress, 512);
+        sink.init();
+        for (int i = 0; i < 1000; i++) {
+            sink.processRow(row(i));
+        }
+        sink.close();
+        BinaryRowFileSource cut = new BinaryRowFileSource(this.file.toString());
+        int expected = 0;
+        for (Row row : cut.query()) {
+            assertThat(row.getColumnValue("id"), is(expected));
+            assertThat(row.getColumnValue("name"), is("duke" + expected));
+            assertThat(row.getColumnValue("score"), is(expected * 0.5d));
+            assertThat(row.getColumnValue("amount"), is(new BigDecimal(expected)));
+            assertThat(row.getColumnValue("created"), is(new Date(expected)));
+            assertThat(row.getColumnValue("empty"), nullValue());
+            assertThat(row.getColumnByName("empty").getIndex(), is(5));
+            assertThat(row.getDestination("name"), is("names"));
+            assertThat(row.getChildren().size(), is(1));
+            assertThat(row.getChildren().get(0).getColumnValue("kid"), is(expected % 2 == 0));
+            expected++;
+        }
+        assertThat(expected, is(1000));
+        assertThat(cut.getBytesRead(), is(this.file.toFile().length()));
+    }
+
+    @Test
+    public void changingColumnIndex() {
+        BinaryRowFileSink sink = new BinaryRowFileSink("*", this.file.toString(), false);
+        sink.init();
+        Row first = new Row();
+        first.addColumn(0, "a", "java");
+        Row second = new Row();
+        second.addColumn(1, "a", "duke");
+        sink.processRow(first);
+        sink.processRow(second);
+        sink.close();
+        BinaryRowFileSource cut = new BinaryRowFileSource(this.file.toString());
+        int index = 0;
+        for (Row row : cut.query()) {
+            assertThat(row.getColumnByName("a").getIndex(), is(index++));
+        }
+        assertThat(index, is(2));
+    }
+
+    @Test
+    public void emptyFile() {
+        BinaryRowFileSink sink = new BinaryRowFileSink("*", this.file.toString(), true);
+        sink.init();
+        sink.close();
+        assertThat(new BinaryRowFileSource(this.file.toString()).query().iterator().hasNext(), is(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notABinaryRowFile() throws IOException {
+        Files.write(this.file, "id;name".getBytes());
+        new BinaryRowFileSource(this.file.toString()).query().iterator();
+    }
+
+    @Test
+    public void compressionShrinksRepetitiveData() throws IOException {
+        Path compressed = Files.createTempFile("enhydrator", ".enhr");
+        try {
+            write(this.file, false);
+            write(compressed, true);
+            assertTrue(Files.size(compressed) < Files.size(this.file));
+        } finally {
+            Files.delete(compressed);
+        }
+    }
+
+    @Test
+    public void abandonedIteratorIsClosed() throws Exception {
+        write(this.file, true);
+        Iterator<Row> rows = new BinaryRowFileSource(this.file.toString()).query().iterator();
+        assertThat(rows.next().getColumnValue("id"), is(0));
+        ((AutoCloseable) rows).close();
+        assertFalse(((BinaryRowFileSource.BlockIterator) rows).isOpen());
+        assertFalse(rows.hasNext());
+    }
+
+    static void write(Path file, boolean compress) {
+        BinaryRowFileSink sink = new BinaryRowFileSink("*", file.toString(), compress);
+        sink.init();
+        for (int i = 0; i < 1000; i++) {
+            sink.processRow(row(i));
+        }
+        sink.close();
+    }
+
+    static Row row(int i) {
+        Row row = new Row();
+        row.addColumn(0, "id", i);
+        row.addColumn(1, "name", "duke" + i);
+        row.addColumn(2, "score", i * 0.5d);
+        row.addColumn(3, "amount", new BigDecimal(i));
+        row.addColumn(4, "created", new Date(i));
+        row.addNullColumn(5, "empty");
+        row.changeDestination("name", "names");
+        Row child = new Row();
+        child.addColumn(0, "kid", i % 2 == 0);
+        row.add(child);
+        return row;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class BinaryRowFormatTest {
+
+    @Test
+    public void datatypeCodesAreStable() {
+        Datatype[] persisted = {Datatype.DOUBLE, Datatype.INTEGER, Datatype.BOOLEAN,
+            Datatype.LONG, Datatype.DATE, Datatype.DECIMAL, Datatype.TIMESTAMP, Datatype.TIME};
+        for (int code = 0; code < persisted.length; code++) {
+            assertThat(BinaryRowFormat.datatypeCode(persisted[code]), is((byte) code));
+            assertThat(BinaryRowFormat.datatypeFor((byte) code), is(persisted[code]));
+        }
+        assertThat(BinaryRowFormat.datatypeCode(null), is(BinaryRowFormat.NO_DATATYPE));
+        assertThat(BinaryRowFormat.datatypeFor(BinaryRowFormat.NO_DATATYPE), nullValue());
+    }
+
+    @Test
+    public void everyDatatypeRoundTrips() throws IOException {
+        for (Datatype datatype : Datatype.values()) {
+            BinaryRowFormat.SchemaColumn column = new BinaryRowFormat.SchemaColumn("a", 0, "*", null, datatype);
+            assertThat(BinaryRowFormat.SchemaColumn.read(serialize(column)).getDatatype(), is(datatype));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownDatatypeCodeIsRejected() throws IOException {
+        ByteBuffer buffer = serialize(new BinaryRowFormat.SchemaColumn("a", 0, "*", null, Datatype.TIME));
+        buffer.put(buffer.limit() - 1, (byte) 42);
+        BinaryRowFormat.SchemaColumn.read(buffer);
+    }
+
+    static ByteBuffer serialize(BinaryRowFormat.SchemaColumn column) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        column.write(new DataOutputStream(bytes));
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class CSVByteParserTest {
+
+    static CSVByteParser parser(String content, Charset charset) {
+        return new CSVByteParser(new ByteArrayInputStream(content.getBytes(charset)), ";", charset);
+    }
+
+    static List<Row> rows(String content, Map<String, Datatype> datatypes) throws IOException {
+        return parser(content, StandardCharsets.UTF_8).rows(String::valueOf, datatypes);
+    }
+
+    @Test
+    public void fieldsAndRecords() throws IOException {
+        CSVByteParser cut = parser("a;b;;\"c;d\"\r\n\nlast", StandardCharsets.UTF_8);
+        assertTrue(cut.next());
+        assertThat(cut.getFieldCount(), is(4));
+        assertThat(cut.getString(0), is("a"));
+        assertTrue(cut.isEmpty(2));
+        assertThat(cut.getString(3), is("\"c;d\""));
+        assertTrue(cut.next());
+        assertThat(cut.getFieldCount(), is(1));
+        assertTrue(cut.isEmpty(0));
+        assertTrue(cut.next());
+        assertThat(cut.getString(0), is("last"));
+        assertFalse(cut.next());
+    }
+
+    @Test
+    public void sameRowsAsLineParser() throws IOException {
+        String line = "java;\"duke;42\";;ünïcödé;-1.5";
+        CSVFileSource lineParser = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", false);
+        Row expected = lineParser.parse(line, ";");
+        Row actual = rows(line, null).get(0);
+        assertThat(actual.getNumberOfColumns(), is(expected.getNumberOfColumns()));
+        for (int i = 0; i < expected.getNumberOfColumns(); i++) {
+            assertThat(actual.getColumnByIndex(i).getValue(), is(expected.getColumnByIndex(i).getValue()));
+        }
+    }
+
+    @Test
+    public void recordsLongerThanBuffers() throws IOException {
+        StringBuilder wide = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            wide.append(i).append(';');
+        }
+        String line = wide.append("end").toString();
+        CSVByteParser cut = parser(line + "\n" + line + "\n", StandardCharsets.ISO_8859_1);
+        for (int record = 0; record < 2; record++) {
+            assertTrue(cut.next());
+            assertThat(cut.getFieldCount(), is(20_001));
+            assertThat(cut.getString(19_999), is("19999"));
+            assertThat(cut.getString(20_000), is("end"));
+        }
+        assertFalse(cut.next());
+    }
+
+    @Test
+    public void offsets() throws IOException {
+        CSVByteParser cut = parser("a;b\r\nccc\n\nlast", StandardCharsets.UTF_8);
+        assertThat(cut.getOffset(), is(0L));
+        assertTrue(cut.next());
+        assertThat(cut.getOffset(), is(5L));
+        cut.sample(2);
+        assertTrue(cut.next());
+        assertThat(cut.getOffset(), is(9L));
+        assertTrue(cut.next());
+        assertThat(cut.getOffset(), is(10L));
+        assertTrue(cut.next());
+        assertThat(cut.getOffset(), is(14L));
+    }
+
+    @Test
+    public void skipTo() throws IOException {
+        StringBuilder content = new StringBuilder();
+        long[] offsets = new long[50_000];
+        for (int i = 0; i < offsets.length; i++) {
+            content.append(i).append(";record\n");
+            offsets[i] = content.length();
+        }
+        CSVByteParser cut = parser(content.toString(), StandardCharsets.UTF_8);
+        assertTrue(cut.next());
+        cut.skipTo(offsets[10]);
+        assertTrue(cut.next());
+        assertThat(cut.getString(0), is("11"));
+        cut.skipTo(offsets[40_000]);
+        assertTrue(cut.next());
+        assertThat(cut.getString(0), is("40001"));
+        assertThat(cut.getOffset(), is(offsets[40_001]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void skipBackwards() throws IOException {
+        CSVByteParser cut = parser("a\nb\n", StandardCharsets.UTF_8);
+        cut.next();
+        cut.next();
+        cut.skipTo(2);
+    }
+
+    @Test
+    public void typedColumns() throws IOException {
+        Map<String, Datatype> datatypes = new HashMap<>();
+        datatypes.put("0", Datatype.INTEGER);
+        datatypes.put("1", Datatype.DOUBLE);
+        datatypes.put("2", Datatype.BOOLEAN);
+        List<Row> rows = rows("42;1.25;TRUE;text\n-7;1e3;no\nx;.5\n", datatypes);
+        assertThat(rows.get(0).getColumnValue("0"), is(42));
+        assertThat(rows.get(0).getColumnValue("1"), is(1.25d));
+        assertThat(rows.get(0).getColumnValue("2"), is(true));
+        assertThat(rows.get(0).getColumnValue("3"), is("text"));
+        assertThat(rows.get(1).getColumnValue("0"), is(-7));
+        assertThat(rows.get(1).getColumnValue("1"), is(1000d));
+        assertThat(rows.get(1).getColumnValue("2"), is(false));
+        //not convertible values remain strings, as for the DatatypeNameMapper
+        assertThat(rows.get(2).getColumnValue("0"), is("x"));
+        assertThat(rows.get(2).getColumnValue("1"), is(0.5d));
+    }
+
+    @Test
+    public void parseInteger() {
+        for (String valid : new String[]{"0", "-0", "+12", "2147483647", "-2147483648", "007"}) {
+            byte[] bytes = valid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(valid, CSVByteParser.parseInteger(bytes, 0, bytes.length), is(Integer.parseInt(valid)));
+        }
+        for (String invalid : new String[]{"-", "+", "2147483648", "-2147483649", "1.0", " 1", "99999999999999999999"}) {
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(invalid, CSVByteParser.parseInteger(bytes, 0, bytes.length), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void parseLong() {
+        for (String valid : new String[]{"0", "-7", "+12", "9223372036854775807", "-9223372036854775808"}) {
+            byte[] bytes = valid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(valid, CSVByteParser.parseLong(bytes, 0, bytes.length), is(Long.parseLong(valid)));
+        }
+        for (String invalid : new String[]{"-", "9223372036854775808", "-9223372036854775809", "1.0", "1L"}) {
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(invalid, CSVByteParser.parseLong(bytes, 0, bytes.length), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void parseDate() {
+        for (String valid : new String[]{"2014-01-31", "2016-02-29", "0001-12-01"}) {
+            byte[] bytes = valid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(valid, CSVByteParser.parseDate(bytes, 0, bytes.length), is(LocalDate.parse(valid)));
+        }
+        for (String invalid : new String[]{"2015-02-29", "2014-13-01", "2014-1-01", "2014/01/01", "20140101xx"}) {
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(invalid, CSVByteParser.parseDate(bytes, 0, bytes.length), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void parseDecimal() {
+        for (String valid : new String[]{"0", "-1.50", "+12.345", "123456789012345678", ".5", "7."}) {
+            byte[] bytes = valid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(valid, CSVByteParser.parseDecimal(bytes, 0, bytes.length), is(new BigDecimal(valid)));
+        }
+        for (String invalid : new String[]{"-", ".", "1e3", "1.2.3", "1234567890123456789"}) {
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            assertThat(invalid, CSVByteParser.parseDecimal(bytes, 0, bytes.length), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void typedDecimalsAndTimestamps() throws IOException {
+        Map<String, Datatype> datatypes = new HashMap<>();
+        datatypes.put("0", Datatype.DECIMAL);
+        datatypes.put("1", Datatype.TIMESTAMP);
+        datatypes.put("2", Datatype.TIME);
+        List<Row> rows = rows("19.90;2014-01-31T10:15:30;08:30\n1e-2;2014-01-31 23:59;later\n", datatypes);
+        assertThat(rows.get(0).getColumnValue("0"), is(new BigDecimal("19.90")));
+        assertThat(rows.get(0).getColumnValue("1"), is(LocalDateTime.of(2014, 1, 31, 10, 15, 30)));
+        assertThat(rows.get(0).getColumnValue("2"), is(LocalTime.of(8, 30)));
+        assertThat(rows.get(1).getColumnValue("0"), is(new BigDecimal("0.01")));
+        assertThat(rows.get(1).getColumnValue("1"), is(LocalDateTime.of(2014, 1, 31, 23, 59)));
+        assertThat(rows.get(1).getColumnValue("2"), is("later"));
+    }
+
+    @Test
+    public void sampledRecordsAreReplayed() throws IOException {
+        CSVByteParser cut = parser("1;a\n2;b\n3;c\n", StandardCharsets.UTF_8);
+        SchemaInference inference = cut.sample(2);
+        assertThat(inference.getSampledRecords(), is(2));
+        List<Row> rows = cut.rows(String::valueOf, inference.getDatatypes(String::valueOf));
+        assertThat(rows.size(), is(3));
+        assertThat(rows.get(0).getColumnValue("0"), is(1));
+        assertThat(rows.get(1).getColumnValue("1"), is("b"));
+        assertThat(rows.get(2).getColumnValue("0"), is(3));
+    }
+
+    @Test
+    public void conversionErrorsAreRecorded() throws IOException {
+        Map<String, Datatype> datatypes = new HashMap<>();
+        datatypes.put("0", Datatype.INTEGER);
+        List<Row> rows = rows("1\nn/a\n", datatypes);
+        assertTrue(rows.get(0).getConversionErrors().isEmpty());
+        assertThat(rows.get(1).getColumnValue("0"), is("n/a"));
+        ConversionException error = rows.get(1).getConversionErrors().get(0);
+        assertThat(error.getDatatype(), is(Datatype.INTEGER));
+        assertThat(error.getStackTrace().length, is(0));
+    }
+
+    @Test
+    public void parseDoubleIsExact() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String value = (random.nextBoolean() ? "-" : "") + random.nextInt(1_000_000) + "." + random.nextInt(100_000_000);
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertThat(value, CSVByteParser.parseDouble(bytes, 0, bytes.length), is(Double.parseDouble(value)));
+        }
+        for (String other : new String[]{"1e3", "NaN", "1.2.3", "-", ".", "1234567890.1234567"}) {
+            byte[] bytes = other.getBytes(StandardCharsets.US_ASCII);
+            assertThat(other, CSVByteParser.parseDouble(bytes, 0, bytes.length), is(nullValue()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multiByteCharset() {
+        parser("a;b", StandardCharsets.UTF_16);
+    }
+
+}
@@ -20,6 +20,16 @@ package com.airhacks.enhydrator.in;
  * #L%
  */
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -39,6 +49,111 @@ public class CSVFileSourceTest extends CSVSourceValidation {
         new CSVFileSource("does/NOT/exist", ";", "UTF-8", true);
     }
 
+    @Test
+    public void projectedColumnsKeepTheirIndex() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true);
+        source.project(ColumnProjection.of("Model"));
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        Row first = rows.next();
+        assertThat(first.getNumberOfColumns(), is(1));
+        assertThat(first.getColumnByIndex(2).getValue(), is("E350"));
+        assertThat(first.getColumnByName("Make"), nullValue());
+    }
+
+    @Test
+    public void lazyProjection() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).lazy();
+        source.project(ColumnProjection.of("Year", "Length"));
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        Row first = rows.next();
+        assertThat(first.getNumberOfColumns(), is(2));
+        assertThat(first.getColumnValue("Year"), is("1997"));
+        assertThat(first.getColumnValue("Length"), is("2,34"));
+    }
+
+    @Test
+    public void resumeByOffset() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).lazy();
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        rows.next();
+        SourcePosition position = source.position(2);
+        assertThat(position, is(new SourcePosition(2, 43, null)));
+        assertResumedAfterFord(new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).lazy(), position);
+    }
+
+    @Test
+    public void resumeByLines() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true);
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        rows.next();
+        SourcePosition position = source.position(2);
+        assertThat(position, is(new SourcePosition(2)));
+        assertResumedAfterFord(new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true), position);
+    }
+
+    @Test
+    public void lazyRowsAreParsedWhileConsumed() throws IOException {
+        assertParsedWhileConsumed(true);
+    }
+
+    @Test
+    public void linesAreParsedWhileConsumed() throws IOException {
+        assertParsedWhileConsumed(false);
+    }
+
+    void assertParsedWhileConsumed(boolean lazy) throws IOException {
+        Path file = Files.createTempFile("enhydrator", ".csv");
+        try {
+            StringBuilder content = new StringBuilder("id;name\n");
+            for (int i = 0; i < 100_000; i++) {
+                content.append(i).append(";duke").append(i).append('\n');
+            }
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+            CSVFileSource source = new CSVFileSource(file.toString(), ";", "UTF-8", true);
+            if (lazy) {
+                source.lazy();
+            }
+            assertThat(source.getBytesRead(), is(0L));
+            Iterator<Row> rows = source.query().iterator();
+            rows.next();
+            assertThat(rows.next().getColumnValue("name"), is("duke0"));
+            long afterFirstRows = source.getBytesRead();
+            assertTrue(afterFirstRows > 0);
+            assertTrue(afterFirstRows < Files.size(file));
+            int count = 1;
+            while (rows.hasNext()) {
+                rows.next();
+                count++;
+            }
+            assertThat(count, is(100_000));
+            assertThat(source.getBytesRead(), is(Files.size(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void abandonedIteratorIsClosed() throws Exception {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).lazy();
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        ((AutoCloseable) rows).close();
+        assertFalse(rows.hasNext());
+    }
+
+    static void assertResumedAfterFord(Source source, SourcePosition position) {
+        assertTrue(source.resumeFrom(position));
+        Iterator<Row> rows = source.query().iterator();
+        assertThat(rows.next().getColumnValue("Make"), is("Mercury"));
+        assertThat(source.position(1), is(new SourcePosition(3, position.getOffset() < 0 ? -1 : 68, null)));
+        assertThat(rows.next().getColumnValue("Make"), is("Tesla"));
+        assertFalse(rows.hasNext());
+    }
+
     @Override
     public Source getSource(final String fileName) {
         return new CSVFileSource(fileName, ";", "UTF-8", true);
@@ -21,7 +21,10 @@ package com.airhacks.enhydrator.in;
  */
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import org.junit.Before;
+import org.junit.Test;
 
 /**
  *
@@ -43,4 +46,25 @@ public class CSVStreamSourceTest extends CSVSourceValidation {
         }
     }
 
+    @Test
+    public void resumeLazily() throws FileNotFoundException {
+        CSVStreamSource source = new CSVStreamSource(new FileInputStream("./src/test/files/cars.csv"), ";", "UTF-8", true).lazy();
+        source.query();
+        SourcePosition position = source.position(2);
+        assertThat(position, is(new SourcePosition(2, 43, null)));
+        CSVFileSourceTest.assertResumedAfterFord(new CSVStreamSource(new FileInputStream("./src/test/files/cars.csv"), ";", "UTF-8", true).lazy(), position);
+    }
+
+    @Test
+    public void resumeByLines() throws FileNotFoundException {
+        CSVFileSourceTest.assertResumedAfterFord(new CSVStreamSource(new FileInputStream("./src/test/files/cars.csv"), ";", "UTF-8", true),
+                new SourcePosition(2));
+    }
+
+    @Test
+    public void resumeInParallel() throws FileNotFoundException {
+        CSVFileSourceTest.assertResumedAfterFord(new CSVStreamSource(new FileInputStream("./src/test/files/cars.csv"), ";", "UTF-8", true, null, 2),
+                new SourcePosition(2));
+    }
+
 }
@@ -0,0 +1,86 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.ColumnFilter.Operator;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ColumnFilterTest {
+
+    @Test
+    public void operators() {
+        Row row = new Row();
+        row.addColumn(0, "rank", 5);
+        assertTrue(new ColumnFilter("rank", Operator.EQ, 5).test(row));
+        assertTrue(new ColumnFilter("rank", Operator.NE, 6).test(row));
+        assertTrue(new ColumnFilter("rank", Operator.LT, 6).test(row));
+        assertTrue(new ColumnFilter("rank", Operator.LE, 5).test(row));
+        assertTrue(new ColumnFilter("rank", Operator.GT, 4.5).test(row));
+        assertTrue(new ColumnFilter("rank", Operator.GE, "5").test(row));
+        assertFalse(new ColumnFilter("rank", Operator.GT, 5l).test(row));
+    }
+
+    @Test
+    public void nullNeverMatches() {
+        Row row = new Row();
+        row.addNullColumn(0, "rank");
+        assertFalse(new ColumnFilter("rank", Operator.NE, 5).test(row));
+        assertFalse(new ColumnFilter("missing", Operator.NE, 5).test(row));
+    }
+
+    @Test
+    public void strings() {
+        Row row = new Row();
+        row.addColumn(0, "language", "java");
+        assertTrue(new ColumnFilter("language", Operator.EQ, "java").test(row));
+        assertTrue(new ColumnFilter("language", Operator.GT, "c").test(row));
+    }
+
+    @Test
+    public void statistics() {
+        ColumnFilter equals = new ColumnFilter("rank", Operator.EQ, 5);
+        assertTrue(equals.mightMatch(1, 10, 10));
+        assertFalse(equals.mightMatch(6, 10, 10));
+        assertFalse(equals.mightMatch(1, 4, 10));
+        assertFalse(equals.mightMatch(1, 10, 0));
+        assertTrue(equals.mightMatch(null, null, 10));
+        assertFalse(new ColumnFilter("rank", Operator.NE, 5).mightMatch(5, 5, 10));
+        assertFalse(new ColumnFilter("rank", Operator.LT, 5).mightMatch(5, 10, 10));
+        assertTrue(new ColumnFilter("rank", Operator.LE, 5).mightMatch(5, 10, 10));
+        assertFalse(new ColumnFilter("rank", Operator.GT, 10).mightMatch(5, 10, 10));
+        assertTrue(new ColumnFilter("rank", Operator.GE, 10).mightMatch(5, 10, 10));
+    }
+
+    @Test
+    public void statisticsOfOtherType() {
+        //strings are ordered as text: "10" < "50" < "9"
+        assertTrue(new ColumnFilter("rank", Operator.EQ, 50).mightMatch("10", "9", 3));
+        assertTrue(new ColumnFilter("rank", Operator.EQ, "50").mightMatch(10, 9, 3));
+        assertFalse(new ColumnFilter("rank", Operator.EQ, "java").mightMatch("c", "go", 3));
+        assertFalse(new ColumnFilter("rank", Operator.EQ, 5l).mightMatch(6, 10, 3));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ColumnProjectionTest {
+
+    @Test
+    public void includesByNameOrIndex() {
+        ColumnProjection cut = ColumnProjection.of("a").withIndices(Arrays.asList(2));
+        assertTrue(cut.includes(0, "a"));
+        assertTrue(cut.includes(2, "c"));
+        assertFalse(cut.includes(1, "b"));
+        assertTrue(cut.isIndexSensitive());
+    }
+
+    @Test
+    public void immutable() {
+        ColumnProjection origin = ColumnProjection.of("a");
+        ColumnProjection extended = origin.withNames(Arrays.asList("b"));
+        assertThat(origin.getNames().size(), is(1));
+        assertThat(extended, is(ColumnProjection.of("a", "b")));
+        assertThat(extended.withoutNames(Arrays.asList("b")), is(origin));
+        assertFalse(ColumnProjection.NONE.includes(0, "a"));
+    }
+
+}
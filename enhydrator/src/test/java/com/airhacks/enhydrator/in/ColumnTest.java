@@ -19,6 +19,11 @@ package com.airhacks.enhydrator.in;
  * limitations under the License.
  * #L%
  */
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -49,6 +54,44 @@ public class ColumnTest {
         assertTrue(column.getValue() instanceof Integer);
     }
 
+    @Test
+    public void convertToLong() {
+        Column column = new Column(0, "name", "4200000000");
+        column.convertToLong();
+        assertThat(column.getValue(), is(4200000000L));
+    }
+
+    @Test
+    public void convertToDecimal() {
+        Column column = new Column(0, "price", "19.90");
+        column.convertToDecimal();
+        assertThat(column.getValue(), is(new BigDecimal("19.90")));
+    }
+
+    @Test
+    public void convertToDate() {
+        Column column = new Column(0, "day", "2014-01-31");
+        column.convertToDate();
+        assertThat(column.getValue(), is(LocalDate.of(2014, 1, 31)));
+        column.convertToDate();
+        assertThat(column.getValue(), is(LocalDate.of(2014, 1, 31)));
+    }
+
+    @Test
+    public void convertToTimestampAndTime() {
+        Column timestamp = new Column(0, "at", "2014-01-31T10:15:30.5");
+        timestamp.convertToTimestamp();
+        assertThat(timestamp.getValue(), is(LocalDateTime.of(2014, 1, 31, 10, 15, 30, 500_000_000)));
+        Column time = new Column(1, "time", "23:59:59");
+        time.convertToTime();
+        assertThat(time.getValue(), is(LocalTime.of(23, 59, 59)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidDate() {
+        new Column(0, "day", "2015-02-29").convertToDate();
+    }
+
     @Test
     public void convertToDouble() {
         Column column = new Column(0, "name", "42.0");
@@ -144,4 +187,28 @@ public class ColumnTest {
         assertEquals(column, cloned);
     }
 
+    @Test
+    public void lazyValueComputedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        Column column = Column.lazy(0, "number", () -> {
+            calls.incrementAndGet();
+            return "42";
+        });
+        assertThat(calls.get(), is(0));
+        assertFalse(column.isNullValue());
+        column.convertToInteger();
+        assertThat(column.getValue(), is(42));
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void lazyValueOverwritten() {
+        Column column = Column.lazy(0, "number", () -> {
+            throw new IllegalStateException("should not be called");
+        });
+        column.setValue("duke");
+        assertThat(column.getValue(), is("duke"));
+        assertEquals(new Column(0, "number", "duke"), column);
+    }
+
 }
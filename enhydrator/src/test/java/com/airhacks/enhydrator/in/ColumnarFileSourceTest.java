@@ -0,0 +1,196 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.ColumnFilter.Operator;
+import com.airhacks.enhydrator.out.ColumnarFileSink;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ColumnarFileSourceTest {
+
+    Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        this.file = Files.createTempFile("enhydrator", ".enhc");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void roundTrip() {
+        write(1000, 100);
+        ColumnarFileSource cut = new ColumnarFileSource(this.file.toString());
+        int expected = 0;
+        for (Row row : cut.query()) {
+            assertThat(row.getColumnValue("id"), is(expected));
+            assertThat(row.getColumnValue("total"), is(expected * 1_000_000_000l));
+            assertThat(row.getColumnValue("language"), is(language(expected)));
+            assertThat(row.getColumnValue("description"), is("duke" + expected));
+            assertThat(row.getColumnValue("score"), is(expected * 0.5d));
+            assertThat(row.getColumnValue("active"), is(expected % 3 == 0));
+            assertThat(row.getColumnValue("empty"), nullValue());
+            assertThat(row.getColumnByName("empty").getIndex(), is(6));
+            if (expected < 500) {
+                assertThat(row.getColumnByName("late"), nullValue());
+            } else {
+                assertThat(row.getColumnValue("late"), is("late"));
+            }
+            assertThat(row.getChildren().size(), is(expected % 10 == 0 ? 1 : 0));
+            expected++;
+        }
+        assertThat(expected, is(1000));
+        assertThat(cut.getReadRowGroups(), is(10l));
+    }
+
+    @Test
+    public void rowGroupsAreSkipped() {
+        write(1000, 100);
+        ColumnarFileSource cut = new ColumnarFileSource(this.file.toString(),
+                new ColumnFilter("id", Operator.GE, 250),
+                new ColumnFilter("id", Operator.LT, 300));
+        List<Row> rows = new ArrayList<>();
+        cut.query().forEach(rows::add);
+        assertThat(rows.size(), is(50));
+        assertThat(rows.get(0).getColumnValue("id"), is(250));
+        assertThat(cut.getReadRowGroups(), is(1l));
+        assertThat(cut.getSkippedRowGroups(), is(9l));
+    }
+
+    @Test
+    public void filterOnLateColumnSkipsEarlyGroups() {
+        write(1000, 100);
+        ColumnarFileSource cut = new ColumnarFileSource(this.file.toString(),
+                new ColumnFilter("late", Operator.EQ, "late"));
+        int count = 0;
+        for (Row row : cut.query()) {
+            count++;
+        }
+        assertThat(count, is(500));
+        assertThat(cut.getSkippedRowGroups(), is(5l));
+    }
+
+    @Test
+    public void numericFilterOnStringColumn() {
+        ColumnarFileSink sink = new ColumnarFileSink("*", this.file.toString());
+        sink.init();
+        for (String value : new String[]{"10", "50", "9"}) {
+            Row row = new Row();
+            row.addColumn(0, "n", value);
+            sink.processRow(row);
+        }
+        sink.close();
+        ColumnarFileSource cut = new ColumnarFileSource(this.file.toString(),
+                new ColumnFilter("n", Operator.EQ, 50));
+        List<Row> rows = new ArrayList<>();
+        cut.query().forEach(rows::add);
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0).getColumnValue("n"), is("50"));
+        assertThat(cut.getSkippedRowGroups(), is(0l));
+    }
+
+    @Test
+    public void emptyFile() {
+        ColumnarFileSink sink = new ColumnarFileSink("*", this.file.toString());
+        sink.init();
+        sink.close();
+        assertThat(new ColumnarFileSource(this.file.toString()).query().iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void intEncodings() throws IOException {
+        long[] constant = new long[1000];
+        long[] packed = new long[1000];
+        for (int i = 0; i < 1000; i++) {
+            constant[i] = 7;
+            packed[i] = (i * 7919l) % 1021;
+        }
+        assertArrayEquals(constant, roundTrip(constant));
+        assertArrayEquals(packed, roundTrip(packed));
+        long[] wide = {Long.MAX_VALUE, 0, 1, Long.MAX_VALUE - 1};
+        assertArrayEquals(wide, roundTrip(wide));
+        assertTrue(encodedSize(constant) < 20);
+        assertTrue(encodedSize(packed) < 1000 * 2);
+    }
+
+    static long[] roundTrip(long[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarFormat.writeInts(new DataOutputStream(bytes), values, values.length);
+        return ColumnarFormat.readInts(ByteBuffer.wrap(bytes.toByteArray()), values.length);
+    }
+
+    static int encodedSize(long[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarFormat.writeInts(new DataOutputStream(bytes), values, values.length);
+        return bytes.size();
+    }
+
+    void write(int numberOfRows, int rowGroupSize) {
+        ColumnarFileSink sink = new ColumnarFileSink("*", this.file.toString(), rowGroupSize);
+        sink.init();
+        for (int i = 0; i < numberOfRows; i++) {
+            Row row = new Row();
+            row.addColumn(0, "id", i);
+            row.addColumn(1, "total", i * 1_000_000_000l);
+            row.addColumn(2, "language", language(i));
+            row.addColumn(3, "description", "duke" + i);
+            row.addColumn(4, "score", i * 0.5d);
+            row.addColumn(5, "active", i % 3 == 0);
+            row.addNullColumn(6, "empty");
+            if (i >= 500) {
+                row.addColumn(7, "late", "late");
+            }
+            if (i % 10 == 0) {
+                Row child = new Row();
+                child.addColumn(0, "kid", i);
+                row.add(child);
+            }
+            sink.processRow(row);
+        }
+        sink.close();
+    }
+
+    static String language(int i) {
+        return new String[]{"java", "c", "cobol"}[i % 3];
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class HighWaterMarkTest {
+
+    Path file;
+    HighWaterMark cut;
+
+    @Before
+    public void init() throws IOException {
+        this.file = Files.createTempFile("enhydrator", ".hwm");
+        Files.delete(this.file);
+        this.cut = new HighWaterMark(this.file);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void firstRun() {
+        assertThat(this.cut.load(), nullValue());
+    }
+
+    @Test
+    public void storeAndLoad() {
+        this.cut.store(42, 42L);
+        assertThat(new HighWaterMark(this.file).load(), is(42L));
+        LocalDateTime updated = LocalDateTime.of(2014, 7, 1, 12, 30);
+        this.cut.store(1, updated);
+        assertThat(new HighWaterMark(this.file).load(), is(updated));
+    }
+
+}
@@ -20,11 +20,21 @@ package com.airhacks.enhydrator.in;
  * #L%
  */
 import com.airhacks.enhydrator.CoffeeTestFixture;
+import com.airhacks.enhydrator.Pump;
 import com.airhacks.enhydrator.Roast;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.stream.StreamSupport;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -118,6 +128,131 @@ public class JDBCSourceIT {
         assertThat(counter, is(1));
     }
 
+    @Test
+    public void projectedQuery() {
+        CoffeeTestFixture.insertCoffee("java", 42, "tengah", Roast.DARK, "good", "whole");
+        JDBCSource source = getSource();
+        assertTrue(source.project(ColumnProjection.of("NAME", "STRENGTH")));
+        int counter = 0;
+        for (Row row : source.query("select * from Coffee where name like ?", "java")) {
+            assertThat(row.getNumberOfColumns(), is(2));
+            assertThat(row.getColumnValue("NAME"), is("java"));
+            assertThat(row.getColumnValue("STRENGTH"), is(42));
+            counter++;
+        }
+        assertThat(counter, is(1));
+    }
+
+    @Test
+    public void pushedDownFilters() {
+        CoffeeTestFixture.insertCoffee("java", 42, "tengah", Roast.DARK, "good", "whole");
+        CoffeeTestFixture.insertCoffee("espresso", 42, "tengah", Roast.DARK, "good", "whole");
+        CoffeeTestFixture.insertCoffee("decaf", 2, "tengah", Roast.DARK, "bad", "whole");
+        JDBCSource source = getSource();
+        ColumnFilter unknownColumn = new ColumnFilter("FLAVOR", ColumnFilter.Operator.EQ, "good");
+        ColumnFilter incompatibleType = new ColumnFilter("NAME", ColumnFilter.Operator.EQ, 42);
+        List<ColumnFilter> remaining = source.pushDown("select * from Coffee where description like ?", Arrays.asList(
+                new ColumnFilter("STRENGTH", ColumnFilter.Operator.GT, 40),
+                new ColumnFilter("NAME", ColumnFilter.Operator.NE, "espresso"),
+                unknownColumn, incompatibleType));
+        assertThat(remaining, is(Arrays.asList(unknownColumn, incompatibleType)));
+        int counter = 0;
+        for (Row row : source.query("select * from Coffee where description like ?", "good")) {
+            assertThat(row.getColumnValue("NAME"), is("java"));
+            counter++;
+        }
+        assertThat(counter, is(1));
+    }
+
+    @Test
+    public void resumeOrderedQuery() {
+        CoffeeTestFixture.insertCoffee("java", 42, "tengah", Roast.DARK, "good", "whole");
+        CoffeeTestFixture.insertCoffee("espresso", 42, "tengah", Roast.DARK, "good", "whole");
+        CoffeeTestFixture.insertCoffee("decaf", 2, "tengah", Roast.DARK, "bad", "whole");
+        JDBCSource source = getSource().orderedBy("NAME");
+        Iterator<Row> rows = source.query("select * from Coffee where strength > ?", 1).iterator();
+        assertTrue(rows.hasNext());
+        assertThat(rows.next().getColumnValue("NAME"), is("decaf"));
+        SourcePosition position = source.position(1);
+        assertThat(position, is(new SourcePosition(1, -1, "decaf")));
+
+        JDBCSource resumed = getSource().orderedBy("NAME");
+        assertTrue(resumed.project(ColumnProjection.of("STRENGTH")));
+        assertTrue(resumed.resumeFrom(position));
+        rows = resumed.query("select * from Coffee where strength > ?", 1).iterator();
+        assertTrue(rows.hasNext());
+        Row espresso = rows.next();
+        assertThat(espresso.getNumberOfColumns(), is(2));
+        assertThat(espresso.getColumnValue("NAME"), is("espresso"));
+        assertTrue(rows.hasNext());
+        assertThat(rows.next().getColumnValue("NAME"), is("java"));
+        assertFalse(rows.hasNext());
+        assertThat(resumed.position(2), is(new SourcePosition(3, -1, "java")));
+    }
+
+    @Test
+    public void incrementalExtraction() throws IOException, SQLException {
+        Path highWaterMark = Files.createTempFile("enhydrator", ".hwm");
+        Files.delete(highWaterMark);
+        //explicit ids: the generated ids of Coffee start over with each redeployment
+        execute("CREATE TABLE INCREMENTAL_COFFEE (ID INT PRIMARY KEY, NAME VARCHAR(50))");
+        try {
+            execute("INSERT INTO INCREMENTAL_COFFEE VALUES (1, 'java')");
+            execute("INSERT INTO INCREMENTAL_COFFEE VALUES (2, 'espresso')");
+            VirtualSinkSource first = new VirtualSinkSource();
+            new Pump.Engine().
+                    from(getSource().incremental("ID", highWaterMark.toString())).
+                    sqlQuery("select * from INCREMENTAL_COFFEE").
+                    to(first).
+                    build().
+                    start();
+            assertThat(first.getNumberOfRows(), is(2));
+            assertThat(new HighWaterMark(highWaterMark).load(), is(2));
+
+            execute("INSERT INTO INCREMENTAL_COFFEE VALUES (3, 'decaf')");
+            VirtualSinkSource second = new VirtualSinkSource();
+            new Pump.Engine().
+                    from(getSource().incremental("ID", highWaterMark.toString())).
+                    sqlQuery("select * from INCREMENTAL_COFFEE").
+                    to(second).
+                    build().
+                    start();
+            assertThat(second.getNumberOfRows(), is(1));
+            assertThat(second.getRow(0).getColumnValue("NAME"), is("decaf"));
+            assertThat(new HighWaterMark(highWaterMark).load(), is(3));
+
+            VirtualSinkSource third = new VirtualSinkSource();
+            new Pump.Engine().
+                    from(getSource().incremental("ID", highWaterMark.toString())).
+                    sqlQuery("select * from INCREMENTAL_COFFEE").
+                    to(third).
+                    build().
+                    start();
+            assertThat(third.getNumberOfRows(), is(0));
+            assertThat(new HighWaterMark(highWaterMark).load(), is(3));
+        } finally {
+            execute("DROP TABLE INCREMENTAL_COFFEE");
+            Files.deleteIfExists(highWaterMark);
+        }
+    }
+
+    static void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:derby:./coffees;create=true");
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    @Test
+    public void unorderedQueryCannotResume() {
+        assertFalse(getSource().resumeFrom(new SourcePosition(1, -1, "decaf")));
+    }
+
+    @Test
+    public void indexSensitiveProjectionIsIgnored() {
+        assertFalse(getSource().project(ColumnProjection.of("NAME").indexSensitive()));
+    }
+
     @Test
     public void stream() {
         CoffeeTestFixture.insertCoffee("java", 42, "tengah", Roast.DARK, "good", "whole");
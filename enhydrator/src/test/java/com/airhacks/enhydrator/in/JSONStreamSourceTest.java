@@ -0,0 +1,161 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class JSONStreamSourceTest {
+
+    static List<Row> rows(String json) {
+        JSONStreamSource source = new JSONStreamSource(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "UTF-8");
+        List<Row> rows = new ArrayList<>();
+        source.query().forEach(rows::add);
+        return rows;
+    }
+
+    @Test
+    public void arrayElements() {
+        List<Row> rows = rows("[{\"name\":\"duke\",\"age\":42},\n {\"name\":\"java\",\"age\":20}]");
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(0).getColumnValue("name"), is("duke"));
+        assertThat(rows.get(0).getColumnValue("age"), is(42));
+        assertThat(rows.get(1).getColumnValue("name"), is("java"));
+        assertThat(rows.get(1).getColumnByName("age").getIndex(), is(1));
+    }
+
+    @Test
+    public void emptyArray() {
+        assertTrue(rows("  []").isEmpty());
+    }
+
+    @Test
+    public void ndjson() {
+        List<Row> rows = rows("{\"id\":1}\n\n{\"id\":2,\"active\":true}\r\n{\"id\":3,\"note\":null}");
+        assertThat(rows.size(), is(3));
+        assertThat(rows.get(1).getColumnValue("active"), is(true));
+        assertTrue(rows.get(2).getColumnByName("note").isNullValue());
+    }
+
+    @Test
+    public void nestedObjectsAreFlattened() {
+        Row row = rows("[{\"address\":{\"city\":\"munich\",\"geo\":{\"lat\":48.1}},\"name\":\"duke\"}]").get(0);
+        assertThat(row.getColumnValue("address.city"), is("munich"));
+        assertThat(row.getColumnValue("address.geo.lat"), is(48.1d));
+        assertThat(row.getColumnByName("name").getIndex(), is(2));
+    }
+
+    @Test
+    public void nestedArraysBecomeChildren() {
+        Row row = rows("{\"id\":1,\"orders\":[{\"item\":\"coffee\"},{\"item\":\"tea\"}],\"tags\":[\"a\",\"b\"]}").get(0);
+        assertThat(row.getNumberOfColumns(), is(1));
+        List<Row> children = row.getChildren();
+        assertThat(children.size(), is(4));
+        assertThat(children.get(0).getColumnValue("item"), is("coffee"));
+        assertThat(children.get(1).getColumnValue("item"), is("tea"));
+        assertThat(children.get(3).getColumnValue("tags"), is("b"));
+    }
+
+    @Test
+    public void numbers() {
+        Row row = rows("{\"i\":1,\"l\":10000000000,\"d\":1.5,\"b\":123456789012345678901234567890}").get(0);
+        assertThat(row.getColumnValue("i"), is(1));
+        assertThat(row.getColumnValue("l"), is(10000000000L));
+        assertThat(row.getColumnValue("d"), is(1.5d));
+        assertThat(row.getColumnValue("b"), is(new BigDecimal("123456789012345678901234567890")));
+    }
+
+    @Test
+    public void scalarElements() {
+        List<Row> rows = rows("[1,\"two\",null]");
+        assertThat(rows.size(), is(3));
+        assertThat(rows.get(1).getColumnValue(JSONStreamSource.SCALAR_COLUMN), is("two"));
+        assertThat(rows.get(2).getColumnByName(JSONStreamSource.SCALAR_COLUMN).getValue(), is(nullValue()));
+    }
+
+    @Test
+    public void lazyFileIteration() throws IOException {
+        Path file = Files.createTempFile("enhydrator", ".json");
+        try {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < 20000; i++) {
+                json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append("}");
+            }
+            Files.write(file, json.append("]").toString().getBytes(StandardCharsets.UTF_8));
+            JSONStreamSource source = new JSONStreamSource(file.toString(), null);
+            Iterator<Row> rows = source.query().iterator();
+            assertThat(rows.next().getColumnValue("id"), is(0));
+            assertTrue(source.getBytesRead() < Files.size(file));
+            int count = 1;
+            while (rows.hasNext()) {
+                assertThat(rows.next().getColumnValue("id"), is(count++));
+            }
+            assertThat(count, is(20000));
+            assertFalse(rows.hasNext());
+            assertThat(source.getBytesRead(), is(Files.size(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static boolean closedEarly(String json) throws Exception {
+        boolean[] closed = new boolean[1];
+        ByteArrayInputStream stream = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+        Iterator<Row> rows = new JSONStreamSource(stream, "UTF-8").query().iterator();
+        assertThat(rows.next().getColumnValue("id"), is(1));
+        ((AutoCloseable) rows).close();
+        assertFalse(rows.hasNext());
+        return closed[0];
+    }
+
+    @Test
+    public void abandonedArrayIsClosed() throws Exception {
+        assertTrue(closedEarly("[{\"id\":1},{\"id\":2}]"));
+    }
+
+    @Test
+    public void abandonedLinesAreClosed() throws Exception {
+        assertTrue(closedEarly("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class LazyCSVFileSourceTest extends CSVSourceValidation {
+
+    @Before
+    public void init() throws FileNotFoundException {
+        this.cut = getSource("./src/test/files/cars.csv");
+    }
+
+    @Override
+    public Source getSource(final String fileName) {
+        return new CSVFileSource(fileName, ";", "UTF-8", true).lazy();
+    }
+
+    @Test
+    public void typedColumns() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).
+                typed("Year", Datatype.INTEGER);
+        Iterator<Row> rows = source.query().iterator();
+        assertThat(rows.next().getColumnValue("Year"), is("Year"));
+        assertThat(rows.next().getColumnValue("Year"), is(1997));
+    }
+
+    @Test
+    public void inferredDatatypes() {
+        CSVFileSource source = new CSVFileSource("./src/test/files/cars.csv", ";", "UTF-8", true).
+                inferDatatypes(10);
+        Iterator<Row> rows = source.query().iterator();
+        assertThat(rows.next().getColumnValue("Year"), is("Year"));
+        Row first = rows.next();
+        assertThat(first.getColumnValue("Year"), is(1997));
+        assertThat(first.getColumnValue("Length"), is("2,34"));
+    }
+
+    @Test
+    public void inferredStreamDatatypes() {
+        String csv = "id;active;since\n1;true;2014-01-01\n2;false;\n3;true;2015-06-30\n";
+        CSVStreamSource source = new CSVStreamSource(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ";", "UTF-8", true).
+                inferDatatypes(2);
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        Row first = rows.next();
+        assertThat(first.getColumnValue("id"), is(1));
+        assertThat(first.getColumnValue("active"), is(true));
+        assertThat(first.getColumnValue("since"), is(LocalDate.of(2014, 1, 1)));
+        rows.next();
+        assertThat(rows.next().getColumnValue("since"), is(LocalDate.of(2015, 6, 30)));
+    }
+
+    @Test
+    public void lazyStream() {
+        String csv = "id;name\n1;duke\n2;\n";
+        CSVStreamSource source = new CSVStreamSource(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ";", "UTF-8", true).
+                typed("id", Datatype.INTEGER);
+        Iterator<Row> rows = source.query().iterator();
+        assertThat(rows.next().getColumnValue("name"), is("name"));
+        Row first = rows.next();
+        assertThat(first.getColumnValue("id"), is(1));
+        assertThat(first.getColumnValue("name"), is("duke"));
+        assertThat(rows.next().getColumnByName("name").isNullValue(), is(true));
+    }
+
+}
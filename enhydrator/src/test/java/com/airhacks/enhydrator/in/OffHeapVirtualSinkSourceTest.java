@@ -0,0 +1,254 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Date;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class OffHeapVirtualSinkSourceTest {
+
+    @Test
+    public void typedValuesSurvive() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        Row row = new Row();
+        row.addColumn(0, "int", 42);
+        row.addColumn(1, "long", 42l);
+        row.addColumn(2, "double", 0.5d);
+        row.addColumn(3, "boolean", true);
+        row.addColumn(4, "string", "duke");
+        row.addColumn(5, "decimal", new BigDecimal("1.25"));
+        row.addColumn(6, "date", new Date(1000));
+        row.addNullColumn(7, "null");
+        row.changeDestination("string", "out");
+        cut.processRow(row);
+
+        Row stored = cut.getRow(0);
+        assertThat(stored.getNumberOfColumns(), is(8));
+        assertThat(stored.getColumnValue("int"), is(42));
+        assertThat(stored.getColumnValue("long"), is(42l));
+        assertThat(stored.getColumnValue("double"), is(0.5d));
+        assertThat(stored.getColumnValue("boolean"), is(true));
+        assertThat(stored.getColumnValue("string"), is("duke"));
+        assertThat(stored.getColumnValue("decimal"), is(new BigDecimal("1.25")));
+        assertThat(stored.getColumnValue("date"), is(new Date(1000)));
+        assertThat(stored.getColumnValue("null"), nullValue());
+        assertThat(stored.getColumnByIndex(7).getName(), is("null"));
+        assertThat(stored.getDestination("string"), is("out"));
+    }
+
+    @Test
+    public void growthAndSparseColumns() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        for (int i = 0; i < 5000; i++) {
+            Row row = new Row();
+            row.addColumn(0, "id", i);
+            if (i >= 3000) {
+                row.addColumn(1, "late", "late" + i);
+            }
+            cut.processRow(row);
+        }
+        assertThat(cut.getNumberOfRows(), is(5000));
+        int expected = 0;
+        for (Row row : cut.query()) {
+            assertThat(row.getColumnValue("id"), is(expected));
+            if (expected < 3000) {
+                assertThat(row.getColumnByName("late"), nullValue());
+            } else {
+                assertThat(row.getColumnValue("late"), is("late" + expected));
+            }
+            expected++;
+        }
+        assertThat(expected, is(5000));
+        assertTrue(cut.getOffHeapBytes() > 5000 * 9);
+        assertThat(cut.getNumberOfOnHeapRows(), is(0));
+    }
+
+    @Test
+    public void dictionaryOverflow() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource("*", 2);
+        for (int i = 0; i < 10; i++) {
+            Row row = new Row();
+            row.addColumn(0, "name", "duke" + i);
+            cut.processRow(row);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(cut.getRow(i).getColumnValue("name"), is("duke" + i));
+        }
+    }
+
+    @Test
+    public void irregularRowsStayOnHeap() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        Row first = new Row();
+        first.addColumn(0, "a", "java");
+        cut.processRow(first);
+        Row moved = new Row();
+        moved.addColumn(1, "a", "duke");
+        cut.processRow(moved);
+        Row parent = new Row();
+        parent.addColumn(0, "a", "parent");
+        parent.add(new Row());
+        cut.processRow(parent);
+        assertThat(cut.getNumberOfOnHeapRows(), is(2));
+        assertThat(cut.getRow(1).getColumnByName("a").getIndex(), is(1));
+        assertTrue(cut.getRow(2).hasChildren());
+        assertThat(cut.getRow(3), nullValue());
+    }
+
+    @Test
+    public void unsupportedValuesStayOnHeap() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        Row plain = new Row();
+        plain.addColumn(0, "a", "java");
+        cut.processRow(plain);
+        Row list = new Row();
+        list.addColumn(0, "a", Arrays.asList("duke", "java"));
+        cut.processRow(list);
+        Row subclass = new Row();
+        subclass.addColumn(0, "a", new BigDecimal("1.5") {
+        });
+        cut.processRow(subclass);
+        assertThat(cut.getNumberOfOnHeapRows(), is(2));
+        assertThat(cut.getRow(0).getColumnValue("a"), is("java"));
+        assertThat(cut.getRow(1).getColumnValue("a"), is(Arrays.asList("duke", "java")));
+        assertThat(cut.getRow(2).getColumnValue("a"), is(subclass.getColumnValue("a")));
+    }
+
+    @Test
+    public void capacityStopsBelowTheLaneLimit() {
+        assertThat(OffHeapVirtualSinkSource.grownCapacity(1024), is(2048));
+        int last = OffHeapVirtualSinkSource.grownCapacity(OffHeapVirtualSinkSource.MAX_ROWS - 1);
+        assertThat(last, is(OffHeapVirtualSinkSource.MAX_ROWS));
+        assertThat(OffHeapVirtualSinkSource.OffHeapColumn.laneBytes(last), is(OffHeapVirtualSinkSource.MAX_ROWS * 8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyRows() {
+        OffHeapVirtualSinkSource.grownCapacity(OffHeapVirtualSinkSource.MAX_ROWS);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void laneAboveTwoGigabytes() {
+        OffHeapVirtualSinkSource.OffHeapColumn.laneBytes(OffHeapVirtualSinkSource.MAX_ROWS + 1);
+    }
+
+    @Test
+    public void variableAreaGrowth() {
+        assertThat(OffHeapVirtualSinkSource.OffHeapColumn.grownVariable(4096, 4000, 200), is(8192));
+        assertThat(OffHeapVirtualSinkSource.OffHeapColumn.grownVariable(4096, 4000, 10_000), is(14_000));
+        assertThat(OffHeapVirtualSinkSource.OffHeapColumn.grownVariable(1 << 30, 1 << 30, 100), is(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void variableAreaAboveTwoGigabytes() {
+        OffHeapVirtualSinkSource.OffHeapColumn.grownVariable(Integer.MAX_VALUE, Integer.MAX_VALUE - 10, 100);
+    }
+
+    @Test
+    public void clear() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        Row row = new Row();
+        row.addColumn(0, "a", "java");
+        cut.processRow(row);
+        cut.clear();
+        assertThat(cut.getNumberOfRows(), is(0));
+        assertThat(cut.query().iterator().hasNext(), is(false));
+    }
+
+    static Object roundTrip(Object value) {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        Row row = new Row();
+        row.addColumn(0, "value", value);
+        cut.processRow(row);
+        return cut.getRow(0).getColumnValue("value");
+    }
+
+    @Test
+    public void localDateSurvives() {
+        LocalDate expected = LocalDate.of(2015, 3, 14);
+        assertThat(roundTrip(expected), is(expected));
+    }
+
+    @Test
+    public void localDateTimeSurvives() {
+        LocalDateTime expected = LocalDateTime.of(2015, 3, 14, 15, 9, 26, 535_897_932);
+        assertThat(roundTrip(expected), is(expected));
+    }
+
+    @Test
+    public void localTimeSurvives() {
+        LocalTime expected = LocalTime.of(15, 9, 26, 535_897_932);
+        assertThat(roundTrip(expected), is(expected));
+    }
+
+    @Test
+    public void timestampKeepsNanos() {
+        Timestamp expected = Timestamp.valueOf("2015-03-14 15:09:26.535897932");
+        Object actual = roundTrip(expected);
+        assertThat(actual.getClass(), is((Object) Timestamp.class));
+        assertThat(actual, is(expected));
+        assertThat(((Timestamp) actual).getNanos(), is(535_897_932));
+    }
+
+    @Test
+    public void sqlDateSurvives() {
+        java.sql.Date expected = java.sql.Date.valueOf("2015-03-14");
+        Object actual = roundTrip(expected);
+        assertThat(actual.getClass(), is((Object) java.sql.Date.class));
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void sqlTimeSurvives() {
+        Time expected = Time.valueOf("15:09:26");
+        Object actual = roundTrip(expected);
+        assertThat(actual.getClass(), is((Object) Time.class));
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void secondLaneGrows() {
+        OffHeapVirtualSinkSource cut = new OffHeapVirtualSinkSource();
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 0, 0);
+        for (int i = 0; i < 3000; i++) {
+            Row row = new Row();
+            row.addColumn(0, "at", i < 1500 ? (Object) i : start.plusNanos(i));
+            cut.processRow(row);
+        }
+        assertThat(cut.getRow(10).getColumnValue("at"), is(10));
+        assertThat(cut.getRow(2999).getColumnValue("at"), is(start.plusNanos(2999)));
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ParallelCSVStreamSourceTest extends CSVSourceValidation {
+
+    @Before
+    public void init() throws FileNotFoundException {
+        this.cut = getSource("./src/test/files/cars.csv");
+    }
+
+    @Override
+    public Source getSource(final String fileName) {
+        try {
+            return new CSVStreamSource(new FileInputStream(fileName), ";", "UTF-8", true, null, 4);
+        } catch (FileNotFoundException ex) {
+            throw new IllegalStateException("Cannot find file: " + fileName, ex);
+        }
+    }
+
+    @Test
+    public void keepsOrderOfManyBatches() {
+        StringBuilder csv = new StringBuilder("id;name;extra\n");
+        int numberOfLines = CSVStreamSource.BATCH_SIZE * 20 + 7;
+        for (int i = 0; i < numberOfLines; i++) {
+            csv.append(i).append(";\"duke;").append(i).append("\"");
+            if (i % 3 == 0) {
+                csv.append(";x;y");
+            }
+            csv.append('\n');
+        }
+        CSVStreamSource source = new CSVStreamSource(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ";", "UTF-8", true, null, 3);
+        List<Row> rows = new ArrayList<>();
+        source.query().forEach(rows::add);
+        assertThat(rows.size(), is(numberOfLines + 1));
+        for (int i = 0; i < numberOfLines; i++) {
+            Row row = rows.get(i + 1);
+            assertThat(row.getColumnValue("id"), is(String.valueOf(i)));
+            assertThat(row.getColumnValue("name"), is("\"duke;" + i + "\""));
+            assertThat(row.getNumberOfColumns(), is(i % 3 == 0 ? 4 : 2));
+        }
+        assertThat(rows.get(1).getColumnValue("3"), is("y"));
+    }
+
+    @Test
+    public void rowsAreParsedWhileConsumed() throws Exception {
+        StringBuilder csv = new StringBuilder("id;name\n");
+        for (int i = 0; i < 500_000; i++) {
+            csv.append(i).append(";duke").append(i).append('\n');
+        }
+        byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        CSVStreamSource source = new CSVStreamSource(new ByteArrayInputStream(content), ";", "UTF-8", true, null, 2);
+        Iterator<Row> rows = source.query().iterator();
+        rows.next();
+        assertThat(rows.next().getColumnValue("id"), is("0"));
+        assertTrue(source.getBytesRead() < content.length / 2);
+        ((AutoCloseable) rows).close();
+        assertFalse(rows.hasNext());
+    }
+
+}
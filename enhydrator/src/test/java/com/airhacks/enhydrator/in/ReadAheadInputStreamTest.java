@@ -0,0 +1,120 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ReadAheadInputStreamTest {
+
+    static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void moreContentThanBlocks() throws IOException {
+        byte[] content = content(100_000);
+        try (ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(content), 1024, 2)) {
+            assertArrayEquals(content, readFully(in));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void singleBytes() throws IOException {
+        byte[] content = content(10);
+        try (ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(content), 3, 1)) {
+            for (byte expected : content) {
+                assertThat(in.read(), is(expected & 0xFF));
+            }
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        try (ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]))) {
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    @Test
+    public void failureIsRethrown() throws IOException {
+        InputStream broken = new InputStream() {
+            int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ >= 5) {
+                    throw new IOException("broken");
+                }
+                return 42;
+            }
+        };
+        try (ReadAheadInputStream in = new ReadAheadInputStream(broken, 2, 1)) {
+            readFully(in);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("broken"));
+        }
+    }
+
+    @Test
+    public void gzipCompression() throws IOException {
+        byte[] content = "duke;java\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = Compression.GZIP.compress(compressed)) {
+            out.write(content);
+        }
+        InputStream in = Compression.GZIP.decompress(new ByteArrayInputStream(compressed.toByteArray()));
+        assertArrayEquals(content, readFully(new ReadAheadInputStream(in)));
+        assertThat(Compression.detect("drop.csv.GZ"), is(Compression.GZIP));
+        assertThat(Compression.detect("drop.csv"), is(Compression.NONE));
+        assertThat(Compression.of(Compression.NONE, "drop.csv.gz"), is(Compression.NONE));
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class RowCodecTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Row row = new Row();
+        row.addColumn(0, "string", "duke");
+        row.addColumn(1, "int", 42);
+        row.addColumn(2, "long", 42l);
+        row.addColumn(3, "double", 0.5d);
+        row.addColumn(4, "boolean", true);
+        row.addColumn(5, "decimal", new BigDecimal("1.25"));
+        row.addColumn(6, "date", new Date(1000));
+        row.addNullColumn(7, "null");
+        row.changeDestination("string", "out");
+        Row child = new Row();
+        child.addColumn(0, "kid", "java");
+        row.add(child);
+
+        Row deserialized = roundTrip(row);
+
+        assertThat(deserialized.getNumberOfColumns(), is(8));
+        assertThat(deserialized.getColumnValue("string"), is("duke"));
+        assertThat(deserialized.getColumnValue("int"), is(42));
+        assertThat(deserialized.getColumnValue("long"), is(42l));
+        assertThat(deserialized.getColumnValue("double"), is(0.5d));
+        assertThat(deserialized.getColumnValue("boolean"), is(true));
+        assertThat(deserialized.getColumnValue("decimal"), is(new BigDecimal("1.25")));
+        assertThat(deserialized.getColumnValue("date"), is(new Date(1000)));
+        assertThat(deserialized.getColumnValue("null"), nullValue());
+        assertThat(deserialized.getColumnByIndex(7).getName(), is("null"));
+        assertThat(deserialized.getDestination("string"), is("out"));
+        assertThat(deserialized.getChildren().size(), is(1));
+        assertThat(deserialized.getChildren().get(0).getColumnValue("kid"), is("java"));
+    }
+
+    @Test
+    public void readFromBuffer() throws IOException {
+        Row row = new Row();
+        row.addColumn(0, "string", "duke");
+        row.addColumn(1, "int", 42);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        RowCodec.write(out, row);
+        RowCodec.write(out, row);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        RowCodec.read(buffer);
+        Row second = RowCodec.read(buffer);
+        assertThat(second.getColumnValue("string"), is("duke"));
+        assertThat(second.getColumnValue("int"), is(42));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void temporalRoundTrip() throws IOException {
+        Timestamp timestamp = Timestamp.valueOf("2014-07-01 12:30:00.123456789");
+        Row row = new Row();
+        row.addColumn(0, "date", LocalDate.of(2014, 7, 1));
+        row.addColumn(1, "timestamp", LocalDateTime.of(2014, 7, 1, 12, 30, 0, 123_456_789));
+        row.addColumn(2, "time", LocalTime.of(23, 59, 59, 999_999_999));
+        row.addColumn(3, "sqlTimestamp", timestamp);
+        row.addColumn(4, "sqlDate", java.sql.Date.valueOf("2014-07-01"));
+        row.addColumn(5, "sqlTime", Time.valueOf("12:30:00"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RowCodec.write(new DataOutputStream(bytes), row);
+        for (Row deserialized : new Row[]{roundTrip(row), RowCodec.read(ByteBuffer.wrap(bytes.toByteArray()))}) {
+            assertThat(deserialized.getColumnValue("date"), is(LocalDate.of(2014, 7, 1)));
+            assertThat(deserialized.getColumnValue("timestamp"), is(LocalDateTime.of(2014, 7, 1, 12, 30, 0, 123_456_789)));
+            assertThat(deserialized.getColumnValue("time"), is(LocalTime.of(23, 59, 59, 999_999_999)));
+            assertThat(deserialized.getColumnValue("sqlTimestamp"), is(timestamp));
+            assertThat(((Timestamp) deserialized.getColumnValue("sqlTimestamp")).getNanos(), is(123_456_789));
+            assertThat(deserialized.getColumnValue("sqlDate"), is(java.sql.Date.valueOf("2014-07-01")));
+            assertThat(deserialized.getColumnValue("sqlTime"), is(Time.valueOf("12:30:00")));
+        }
+    }
+
+    @Test
+    public void schemaDatatypes() {
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf(42l), is(Datatype.LONG));
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf(BigDecimal.ONE), is(Datatype.DECIMAL));
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf(LocalDate.of(2014, 7, 1)), is(Datatype.DATE));
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf(LocalDateTime.of(2014, 7, 1, 12, 30)), is(Datatype.TIMESTAMP));
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf(LocalTime.NOON), is(Datatype.TIME));
+        assertThat(BinaryRowFormat.SchemaColumn.datatypeOf("duke"), nullValue());
+    }
+
+    static Row roundTrip(Row row) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RowCodec.write(new DataOutputStream(bytes), row);
+        return RowCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+}
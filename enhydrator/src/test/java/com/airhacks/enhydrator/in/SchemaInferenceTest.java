@@ -0,0 +1,83 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.transform.Datatype;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class SchemaInferenceTest {
+
+    static void sample(SchemaInference cut, String... cells) {
+        StringBuilder record = new StringBuilder();
+        int[] starts = new int[cells.length];
+        int[] ends = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            starts[i] = record.length();
+            record.append(cells[i]);
+            ends[i] = record.length();
+        }
+        cut.sample(record.toString().getBytes(StandardCharsets.US_ASCII), starts, ends, cells.length);
+    }
+
+    @Test
+    public void narrowestDatatype() {
+        SchemaInference cut = new SchemaInference();
+        sample(cut, "1", "1", "1", "true", "2014-01-01", "java", "01234", "");
+        sample(cut, "2", "9999999999", "1.5", "FALSE", "2014-12-31", "duke", "12345", "");
+        assertThat(cut.getDatatype(0), is(Datatype.INTEGER));
+        assertThat(cut.getDatatype(1), is(Datatype.LONG));
+        assertThat(cut.getDatatype(2), is(Datatype.DOUBLE));
+        assertThat(cut.getDatatype(3), is(Datatype.BOOLEAN));
+        assertThat(cut.getDatatype(4), is(Datatype.DATE));
+        assertThat(cut.getDatatype(5), is(nullValue()));
+        assertThat(cut.getDatatype(6), is(nullValue()));
+        assertThat(cut.getDatatype(7), is(nullValue()));
+    }
+
+    @Test
+    public void emptyCellsAreIgnored() {
+        SchemaInference cut = new SchemaInference();
+        sample(cut, "", "true");
+        sample(cut, "42", "1");
+        sample(cut, "", "true");
+        assertThat(cut.getDatatype(0), is(Datatype.INTEGER));
+        assertThat(cut.getDatatype(1), is(nullValue()));
+    }
+
+    @Test
+    public void datatypesByName() {
+        SchemaInference cut = new SchemaInference();
+        sample(cut, "1", "NaN", "1e3");
+        Map<String, Datatype> datatypes = cut.getDatatypes(i -> "c" + i);
+        assertThat(datatypes.size(), is(2));
+        assertThat(datatypes.get("c0"), is(Datatype.INTEGER));
+        assertThat(datatypes.get("c2"), is(Datatype.DOUBLE));
+    }
+
+}
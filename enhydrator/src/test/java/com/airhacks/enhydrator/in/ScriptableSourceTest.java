@@ -19,19 +19,27 @@ package com.airhacks.enhydrator.in;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.Pump;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import javax.script.ScriptException;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -91,4 +99,130 @@ public class ScriptableSourceTest {
 
     }
 
+    static Path lines(String... lines) throws IOException {
+        Path file = Files.createTempFile("enhydrator", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    static List<Row> all(Iterable<Row> rows) {
+        List<Row> all = new ArrayList<>();
+        rows.forEach(all::add);
+        return all;
+    }
+
+    @Test
+    public void streamingLines() throws IOException {
+        String script = "var Row = Java.type('com.airhacks.enhydrator.in.Row');"
+                + "while (LINES.hasNext()) {"
+                + "  var cells = LINES.next().split('=');"
+                + "  var row = new Row();"
+                + "  row.addColumn(0, cells[0], cells[1]);"
+                + "  EMIT.accept(row);"
+                + "}";
+        ScriptableSource source = new ScriptableSource(lines("java=1", "c=2", "cobol=3"), new StringReader(script), "UTF-8").
+                streaming(1);
+        List<Row> rows = all(source.query());
+        assertThat(rows.size(), is(3));
+        assertThat(rows.get(2).getColumnValue("cobol"), is("3"));
+        //a second pass reads the file again
+        assertThat(all(source.query()).size(), is(3));
+    }
+
+    @Test
+    public void streamingReaderWithMoreRowsThanCapacity() throws IOException {
+        String script = "var Row = Java.type('com.airhacks.enhydrator.in.Row');"
+                + "var line;"
+                + "while ((line = READER.readLine()) !== null) {"
+                + "  for (var i = 0; i < 10; i++) {"
+                + "    var row = new Row();"
+                + "    row.addColumn(0, 'line', line);"
+                + "    row.addColumn(1, 'i', i);"
+                + "    EMIT(row);"
+                + "  }"
+                + "}";
+        ScriptableSource source = new ScriptableSource(lines("a", "b"), new StringReader(script), "UTF-8").
+                streaming(3);
+        List<Row> rows = all(source.query());
+        assertThat(rows.size(), is(20));
+        assertThat(rows.get(19).getColumnValue("line"), is("b"));
+    }
+
+    @Test
+    public void streamingAcceptsReturnedRows() throws IOException {
+        String script = "var Row = Java.type('com.airhacks.enhydrator.in.Row');"
+                + "var ArrayList = Java.type('java.util.ArrayList');"
+                + "var rows = new ArrayList();"
+                + "var row = new Row();"
+                + "row.addColumn(0, 'first', READER.readLine());"
+                + "rows.add(row);"
+                + "rows;";
+        ScriptableSource source = new ScriptableSource(lines("duke"), new StringReader(script), "UTF-8").
+                streaming();
+        List<Row> rows = all(source.query());
+        assertThat(rows.size(), is(1));
+        assertThat(rows.get(0).getColumnValue("first"), is("duke"));
+    }
+
+    @Test
+    public void streamingScriptFailure() throws IOException {
+        String script = "var Row = Java.type('com.airhacks.enhydrator.in.Row');"
+                + "EMIT.accept(new Row());"
+                + "throw 'broken';";
+        ScriptableSource source = new ScriptableSource(lines("a"), new StringReader(script), "UTF-8").
+                streaming();
+        Iterator<Row> iterator = source.query().iterator();
+        assertNotNull(iterator.next());
+        try {
+            iterator.hasNext();
+            fail("script failure expected");
+        } catch (IllegalStateException ex) {
+        }
+    }
+
+    @Test
+    public void closingStopsProducer() throws Exception {
+        ScriptableSource source = new ScriptableSource(lines("a"), new StringReader(ENDLESS), "UTF-8").
+                streaming(1);
+        Iterator<Row> iterator = source.query().iterator();
+        assertNotNull(iterator.next());
+        ((AutoCloseable) iterator).close();
+        assertFalse(iterator.hasNext());
+        assertProducersStopped();
+    }
+
+    @Test
+    public void abortedPumpStopsProducer() throws Exception {
+        ScriptableSource source = new ScriptableSource(lines("a"), new StringReader(ENDLESS), "UTF-8").
+                streaming(1);
+        Pump pump = new Pump.Engine().
+                withMetrics().
+                from(source).
+                startWith(r -> {
+                    throw new IllegalArgumentException("broken sink");
+                }).
+                build();
+        try {
+            pump.start();
+            fail("pump failure expected");
+        } catch (IllegalArgumentException ex) {
+        }
+        assertProducersStopped();
+    }
+
+    static final String ENDLESS = "var Row = Java.type('com.airhacks.enhydrator.in.Row');"
+            + "while (true) {"
+            + "  EMIT(new Row());"
+            + "}";
+
+    static void assertProducersStopped() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("enhydrator-scriptable-source")) {
+                thread.join(5000);
+                assertFalse(thread.isAlive());
+            }
+        }
+    }
+
 }
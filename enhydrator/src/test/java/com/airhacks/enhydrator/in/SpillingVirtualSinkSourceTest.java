@@ -0,0 +1,115 @@
+package com.airhacks.enhydrator.in;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Pump;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class SpillingVirtualSinkSourceTest {
+
+    @Test
+    public void rowsBeyondThresholdAreSpilled() {
+        SpillingVirtualSinkSource cut = new SpillingVirtualSinkSource("spill", 10, 1024, null);
+        for (int i = 0; i < 1000; i++) {
+            cut.processRow(row(i));
+        }
+        cut.close();
+        assertThat(cut.getNumberOfRows(), is(1000l));
+        assertThat(cut.getNumberOfSpilledRows(), is(990l));
+        assertTrue(cut.getSegments().size() > 1);
+        int expected = 0;
+        for (Row row : cut.query()) {
+            assertThat(row.getColumnValue("id"), is(expected));
+            assertThat(row.getColumnValue("name"), is("duke" + expected));
+            expected++;
+        }
+        assertThat(expected, is(1000));
+    }
+
+    @Test
+    public void queryIsRepeatable() {
+        SpillingVirtualSinkSource cut = new SpillingVirtualSinkSource("spill", 1);
+        cut.processRow(row(0));
+        cut.processRow(row(1));
+        assertThat(count(cut.query()), is(2));
+        assertThat(count(cut.query()), is(2));
+    }
+
+    @Test
+    public void clear() {
+        SpillingVirtualSinkSource cut = new SpillingVirtualSinkSource("spill", 1);
+        cut.processRow(row(0));
+        cut.processRow(row(1));
+        List<Path> segments = new ArrayList<>(cut.getSegments());
+        cut.clear();
+        assertThat(cut.getNumberOfRows(), is(0l));
+        segments.forEach(s -> assertFalse(Files.exists(s)));
+    }
+
+    @Test
+    public void chainedPumps() {
+        SpillingVirtualSinkSource intermediate = new SpillingVirtualSinkSource("*", 5);
+        List<Row> input = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            input.add(row(i));
+        }
+        new Pump.Engine().
+                from(new VirtualSinkSource("in", input)).
+                to(intermediate).
+                build().
+                start();
+        VirtualSinkSource out = new VirtualSinkSource();
+        new Pump.Engine().
+                from(intermediate).
+                to(out).
+                build().
+                start();
+        assertThat(out.getNumberOfRows(), is(50));
+        intermediate.clear();
+    }
+
+    static int count(Iterable<Row> rows) {
+        int count = 0;
+        for (Row row : rows) {
+            count++;
+        }
+        return count;
+    }
+
+    static Row row(int i) {
+        Row row = new Row();
+        row.addColumn(0, "id", i);
+        row.addColumn(1, "name", "duke" + i);
+        return row;
+    }
+
+}
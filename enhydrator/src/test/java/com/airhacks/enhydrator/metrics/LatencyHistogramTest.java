@@ -0,0 +1,87 @@
+package com.airhacks.enhydrator.metrics;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram cut = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            cut.record(i);
+        }
+        assertThat(cut.getCount(), is(50l));
+        assertThat(cut.getTotal(), is(1275l));
+        assertThat(cut.getMin(), is(1l));
+        assertThat(cut.getMax(), is(50l));
+        assertThat(cut.getValueAtPercentile(50), is(25l));
+        assertThat(cut.getValueAtPercentile(100), is(50l));
+    }
+
+    @Test
+    public void largeValuesWithinRelativeError() {
+        LatencyHistogram cut = new LatencyHistogram();
+        long value = 123_456_789;
+        cut.record(value);
+        long percentile = cut.getValueAtPercentile(99);
+        assertTrue(percentile >= value);
+        assertTrue((percentile - value) / (double) value < 0.04);
+    }
+
+    @Test
+    public void bucketIndexIsMonotonic() {
+        int previous = -1;
+        for (long value = 0; value < 10_000_000; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index >= previous);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+            previous = index;
+        }
+        assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) < LatencyHistogram.BUCKET_COUNT);
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() {
+        LatencyHistogram cut = new LatencyHistogram();
+        cut.record(-1);
+        assertThat(cut.getCount(), is(1l));
+        assertThat(cut.getMax(), is(0l));
+    }
+
+    @Test
+    public void reset() {
+        LatencyHistogram cut = new LatencyHistogram();
+        cut.record(42);
+        cut.reset();
+        assertThat(cut.getCount(), is(0l));
+        assertThat(cut.getMax(), is(0l));
+        assertThat(cut.getValueAtPercentile(99), is(0l));
+    }
+
+}
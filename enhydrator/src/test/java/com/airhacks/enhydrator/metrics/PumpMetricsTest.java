@@ -0,0 +1,102 @@
+package com.airhacks.enhydrator.metrics;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.Pump;
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.VirtualSinkSource;
+import com.airhacks.enhydrator.metrics.PumpMetrics.Stage;
+import com.airhacks.enhydrator.transform.Memory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ObjectName;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class PumpMetricsTest {
+
+    @Test
+    public void stagesAreMeasured() {
+        List<Row> inputRows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Row row = new Row();
+            row.addColumn(0, "a", "java" + i);
+            inputRows.add(row);
+        }
+        VirtualSinkSource in = new VirtualSinkSource("in", inputRows);
+        VirtualSinkSource out = new VirtualSinkSource();
+        PumpMetrics metrics = new PumpMetrics("stagesAreMeasured");
+        List<String> flow = new ArrayList<>();
+        Memory memory = new Pump.Engine().
+                flowListener(flow::add).
+                withMetrics(metrics).
+                from(in).
+                startWith(r -> r).
+                to(out).
+                build().
+                start();
+        assertThat(memory.getMetrics(), is(metrics));
+        assertThat(metrics.getRowsRead(), is(10l));
+        assertThat(metrics.getHistogram(Stage.PRE_ROW_TRANSFORMATION).getCount(), is(10l));
+        assertThat(metrics.getHistogram(Stage.SINK).getCount(), is(10l));
+        assertThat(metrics.getSinkHistogram("*").getCount(), is(10l));
+        assertThat(metrics.getInvocations().get("sink:*"), is(10l));
+        assertThat(metrics.getHistogram(Stage.QUERY).getCount(), is(1l));
+        assertThat(metrics.getHistogram(Stage.SOURCE).getCount(), is(21l));
+        assertTrue(flow.get(flow.size() - 1).startsWith("PumpMetrics{name=stagesAreMeasured"));
+        assertNotNull(metrics.dump());
+    }
+
+    @Test
+    public void registration() throws Exception {
+        PumpMetrics metrics = new PumpMetrics("registration");
+        metrics.register();
+        ObjectName name = metrics.getObjectName();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        Object rows = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RowsRead");
+        assertThat(rows, is(0l));
+        metrics.register();
+        metrics.unregister();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void reset() {
+        PumpMetrics metrics = new PumpMetrics();
+        metrics.started();
+        metrics.rowRead();
+        metrics.recordSink("out", 42);
+        metrics.record(Stage.FILTER, 42);
+        metrics.reset();
+        assertThat(metrics.getRowsRead(), is(0l));
+        assertThat(metrics.getHistogram(Stage.FILTER).getCount(), is(0l));
+        assertThat(metrics.getElapsedMillis(), is(0l));
+    }
+
+}
@@ -21,9 +21,15 @@ package com.airhacks.enhydrator.out;
  */
 import com.airhacks.enhydrator.in.CSVFileSource;
 import com.airhacks.enhydrator.in.Column;
+import com.airhacks.enhydrator.in.Compression;
 import com.airhacks.enhydrator.in.Row;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -105,4 +111,60 @@ public class CSVFileSinkTest {
         return row;
     }
 
+    @Test
+    public void gzipDetectedByExtension() throws IOException {
+        String fileName = FILE_NAME + ".gz";
+        CSVFileSink sink = new CSVFileSink("*", fileName, DELIMITER, USE_HEADERS, false);
+        sink.init();
+        for (int i = 0; i < 1000; i++) {
+            sink.processRow(getEntries());
+        }
+        sink.close();
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(fileName))) {
+            assertTrue(in.read() != -1);
+        }
+        for (boolean readAhead : new boolean[]{false, true}) {
+            CSVFileSource source = new CSVFileSource(fileName, DELIMITER, "utf-8", USE_HEADERS, null, readAhead);
+            int count = 0;
+            for (Row row : source.query()) {
+                assertNotNull(row.getColumnByIndex(0));
+                count++;
+            }
+            assertEquals(USE_HEADERS ? 1001 : 1000, count);
+        }
+    }
+
+    @Test
+    public void configuredCompression() throws IOException {
+        String fileName = FILE_NAME + ".compressed";
+        CSVFileSink sink = new CSVFileSink("*", fileName, DELIMITER, USE_HEADERS, false, "UTF-8", Compression.GZIP);
+        sink.init();
+        sink.processRow(getEntries());
+        sink.close();
+        CSVFileSource source = new CSVFileSource(fileName, DELIMITER, "utf-8", USE_HEADERS, Compression.GZIP, false);
+        Row last = null;
+        for (Row row : source.query()) {
+            last = row;
+        }
+        assertEquals("java", last.getColumnByIndex(0).getValue());
+    }
+
+    @Test
+    public void resumeTruncatesUnflushedRows() throws IOException {
+        String fileName = FILE_NAME + USE_HEADERS + ".resumed";
+        CSVFileSink sink = new CSVFileSink("*", fileName, DELIMITER, USE_HEADERS, false);
+        sink.init();
+        sink.processRow(getEntries());
+        String state = sink.flush();
+        sink.processRow(getEntries());
+        sink.close();
+        CSVFileSink resumed = new CSVFileSink("*", fileName, DELIMITER, USE_HEADERS, false);
+        resumed.resume(state);
+        resumed.processRow(getEntries());
+        resumed.close();
+        List<String> lines = Files.readAllLines(Paths.get(fileName));
+        assertEquals(USE_HEADERS ? 3 : 2, lines.size());
+        assertEquals(lines.get(lines.size() - 2), lines.get(lines.size() - 1));
+    }
+
 }
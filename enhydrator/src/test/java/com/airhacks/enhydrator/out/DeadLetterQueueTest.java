@@ -0,0 +1,206 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import com.airhacks.enhydrator.in.VirtualSinkSource;
+import com.airhacks.enhydrator.out.DeadLetterQueue.BackPressure;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class DeadLetterQueueTest {
+
+    @Test
+    public void enrichedRowsAreDelivered() {
+        VirtualSinkSource sink = new VirtualSinkSource();
+        DeadLetterQueue cut = new DeadLetterQueue(sink);
+        cut.accept(row(1), new NumberFormatException("not a number"));
+        cut.close();
+        assertThat(cut.getDeliveredCount(), is(1l));
+        List<Row> rows = sink.getRows();
+        assertThat(rows.size(), is(1));
+        Row letter = rows.get(0);
+        assertThat(letter.getColumnValue("id"), is(1));
+        assertThat(letter.getColumnValue(DeadLetterQueue.ERROR_TYPE), is(NumberFormatException.class.getName()));
+        assertThat(letter.getColumnValue(DeadLetterQueue.ERROR_MESSAGE), is("not a number"));
+    }
+
+    @Test
+    public void dropWhenFull() throws InterruptedException {
+        BlockingSink sink = new BlockingSink();
+        DeadLetterQueue cut = new DeadLetterQueue(sink, 1, 1, BackPressure.DROP);
+        cut.accept(row(0), new IllegalStateException());
+        sink.taken.await();
+        cut.accept(row(1), new IllegalStateException());
+        cut.accept(row(2), new IllegalStateException());
+        assertThat(cut.getDroppedCount(), is(1l));
+        sink.release.countDown();
+        cut.close();
+        assertThat(sink.getRows().size(), is(2));
+    }
+
+    @Test
+    public void spillWhenFull() throws InterruptedException {
+        BlockingSink sink = new BlockingSink();
+        DeadLetterQueue cut = new DeadLetterQueue(sink, 1, 1, BackPressure.SPILL);
+        cut.accept(row(0), new IllegalStateException());
+        sink.taken.await();
+        for (int i = 1; i < 10; i++) {
+            cut.accept(row(i), new IllegalStateException());
+        }
+        assertThat(cut.getSpilledCount(), is(8l));
+        sink.release.countDown();
+        cut.close();
+        assertThat(cut.getDroppedCount(), is(0l));
+        assertThat(sink.getRows().size(), is(10));
+        assertThat(sink.getRows().get(9).getColumnValue("id"), is(9));
+    }
+
+    @Test
+    public void flushDeliversQueuedAndSpilledRows() throws InterruptedException {
+        BlockingSink sink = new BlockingSink();
+        DeadLetterQueue cut = new DeadLetterQueue(sink, 1, 1, BackPressure.SPILL);
+        cut.accept(row(0), new IllegalStateException());
+        sink.taken.await();
+        for (int i = 1; i < 5; i++) {
+            cut.accept(row(i), new IllegalStateException());
+        }
+        assertThat(cut.getSpilledCount(), is(3l));
+        sink.release.countDown();
+        cut.flush();
+        assertThat(sink.getRows().size(), is(5));
+        assertThat(cut.getQueueSize(), is(0));
+        cut.close();
+        assertThat(cut.getDeliveredCount(), is(5l));
+    }
+
+    @Test
+    public void failingSinkIsCounted() {
+        DeadLetterQueue cut = new DeadLetterQueue(r -> {
+            throw new IllegalStateException("down");
+        });
+        cut.accept(row(0), new IllegalStateException());
+        cut.close();
+        assertThat(cut.getFailedCount(), is(1l));
+    }
+
+    @Test
+    public void errorsDoNotStopTheDelivery() {
+        VirtualSinkSource delivered = new VirtualSinkSource();
+        DeadLetterQueue cut = new DeadLetterQueue(new Sink() {
+            @Override
+            public void processRow(Row entries) {
+                if (entries.getColumnValue("id").equals(0)) {
+                    throw new AssertionError("down");
+                }
+                delivered.processRow(entries);
+            }
+        }, 10, 1, BackPressure.BLOCK);
+        cut.accept(row(0), new IllegalStateException());
+        cut.accept(row(1), new IllegalStateException());
+        cut.close();
+        assertThat(cut.getFailedCount(), is(1l));
+        assertThat(delivered.getNumberOfRows(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void blockGivesUpWithoutDeliverer() throws InterruptedException {
+        VirtualSinkSource sink = new VirtualSinkSource("stopped", new ArrayList<>());
+        DeadLetterQueue cut = new DeadLetterQueue(sink, 1, 1, BackPressure.BLOCK);
+        Thread deliverer = Thread.getAllStackTraces().keySet().stream().
+                filter(t -> t.getName().equals("enhydrator-dlq-stopped")).
+                findFirst().
+                get();
+        deliverer.interrupt();
+        deliverer.join();
+        cut.accept(row(0), new IllegalStateException());
+        cut.accept(row(1), new IllegalStateException());
+        assertThat(cut.getDroppedCount(), is(1l));
+        cut.close();
+        assertThat(sink.getNumberOfRows(), is(1));
+        assertThat(cut.getDeliveredCount(), is(1l));
+    }
+
+    @Test
+    public void rowsAreDeliveredInBatches() throws InterruptedException {
+        List<Integer> sizes = new ArrayList<>();
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DeadLetterQueue cut = new DeadLetterQueue(new Sink() {
+            @Override
+            public void processRow(Row entries) {
+                throw new IllegalStateException("batches expected");
+            }
+
+            @Override
+            public void processRows(List<Row> rows) {
+                sizes.add(rows.size());
+                taken.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        }, 10, 5, BackPressure.BLOCK);
+        cut.accept(row(0), new IllegalStateException());
+        taken.await();
+        for (int i = 1; i < 9; i++) {
+            cut.accept(row(i), new IllegalStateException());
+        }
+        release.countDown();
+        cut.close();
+        assertThat(sizes, is(Arrays.asList(1, 5, 3)));
+        assertThat(cut.getDeliveredCount(), is(9l));
+    }
+
+    static Row row(int id) {
+        Row row = new Row();
+        row.addColumn(0, "id", id);
+        return row;
+    }
+
+    static class BlockingSink extends VirtualSinkSource {
+
+        final CountDownLatch taken = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void processRow(Row entries) {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            super.processRow(entries);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.airhacks.enhydrator.out;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.JSONStreamSource;
+import com.airhacks.enhydrator.in.Row;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class JSONFileSinkTest {
+
+    Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        this.file = Files.createTempFile("enhydrator", ".json");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    static Row row(int i) {
+        Row row = new Row();
+        row.addColumn(0, "id", i);
+        row.addColumn(1, "name", "duke \"" + i + "\"");
+        row.addColumn(2, "score", i * 0.5d);
+        row.addColumn(3, "active", i % 2 == 0);
+        row.addNullColumn(4, "note");
+        return row;
+    }
+
+    void write(JSONFileSink sink, Row... rows) {
+        sink.init();
+        for (Row row : rows) {
+            sink.processRow(row);
+        }
+        sink.close();
+    }
+
+    List<Row> read() {
+        List<Row> rows = new ArrayList<>();
+        new JSONStreamSource(this.file.toString(), "UTF-8").query().forEach(rows::add);
+        return rows;
+    }
+
+    String content() throws IOException {
+        return new String(Files.readAllBytes(this.file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void ndjson() throws IOException {
+        write(new JSONFileSink("json", this.file.toString(), true), row(1), row(2));
+        List<String> lines = Files.readAllLines(this.file);
+        assertThat(lines.size(), is(2));
+        assertThat(lines.get(0), is("{\"id\":1,\"name\":\"duke \\\"1\\\"\",\"score\":0.5,\"active\":false,\"note\":null}"));
+    }
+
+    @Test
+    public void ndjsonResumeTruncatesUnflushedRows() throws IOException {
+        JSONFileSink sink = new JSONFileSink("json", this.file.toString(), true);
+        sink.init();
+        sink.processRow(row(1));
+        String state = sink.flush();
+        sink.processRow(row(2));
+        sink.close();
+        JSONFileSink resumed = new JSONFileSink("json", this.file.toString(), true);
+        resumed.resume(state);
+        resumed.processRow(row(3));
+        resumed.close();
+        List<Row> rows = read();
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(1).getColumnValue("id"), is(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void arrayCannotResume() {
+        JSONFileSink sink = new JSONFileSink("json", this.file.toString(), false);
+        sink.init();
+        sink.processRow(row(1));
+        String state = sink.flush();
+        sink.close();
+        new JSONFileSink("json", this.file.toString(), false).resume(state);
+    }
+
+    @Test
+    public void array() throws IOException {
+        write(new JSONFileSink("json", this.file.toString(), false), row(1), row(2));
+        assertTrue(content().startsWith("[{\"id\":1,"));
+        assertTrue(content().endsWith("}]"));
+    }
+
+    @Test
+    public void emptyArray() throws IOException {
+        write(new JSONFileSink("json", this.file.toString(), false));
+        assertThat(content(), is("[]"));
+    }
+
+    @Test
+    public void roundTripKeepsTypes() {
+        Row big = row(3);
+        big.addColumn(5, "amount", new BigDecimal("12345678901234567890.5"));
+        write(new JSONFileSink("json", this.file.toString(), false), row(2), big);
+        List<Row> rows = read();
+        assertThat(rows.size(), is(2));
+        Row first = rows.get(0);
+        assertThat(first.getColumnValue("id"), is(2));
+        assertThat(first.getColumnValue("name"), is("duke \"2\""));
+        assertThat(first.getColumnValue("score"), is(1.0d));
+        assertThat(first.getColumnValue("active"), is(true));
+        assertTrue(first.getColumnByName("note").isNullValue());
+        assertThat(rows.get(1).getColumnValue("amount"), is(12345678901234567890.5d));
+    }
+
+    @Test
+    public void childrenAsNestedArray() throws IOException {
+        Row parent = row(1);
+        parent.add(row(2));
+        parent.add(row(3));
+        write(new JSONFileSink("json", this.file.toString(), true).childrenName("items"), parent);
+        assertTrue(content().contains("\"items\":[{\"id\":2,"));
+        Row read = read().get(0);
+        assertThat(read.getChildren().size(), is(2));
+        assertThat(read.getChildren().get(1).getColumnValue("id"), is(3));
+    }
+
+    @Test
+    public void notANumberIsWrittenAsString() throws IOException {
+        Row row = new Row();
+        row.addColumn(0, "nan", Double.NaN);
+        write(new JSONFileSink("json", this.file.toString(), true), row);
+        assertThat(content(), is("{\"nan\":\"NaN\"}\n"));
+    }
+
+}
@@ -20,6 +20,9 @@ package com.airhacks.enhydrator.out;
  * #L%
  */
 import com.airhacks.enhydrator.in.Row;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -46,4 +49,48 @@ public class LogSinkTest {
         this.cut.processRow(null);
     }
 
+    @Test
+    public void asyncLogging() {
+        LogSink async = new LogSink("async", 10, 0, 0);
+        async.init();
+        for (int i = 0; i < 5; i++) {
+            async.processRow(row(i));
+        }
+        async.close();
+        assertThat(async.getDroppedCount(), is(0l));
+        assertThat(async.getSkippedCount(), is(0l));
+    }
+
+    @Test
+    public void sampleEveryNthRow() {
+        LogSink sampling = new LogSink("sampling", 0, 10, 0);
+        for (int i = 0; i < 100; i++) {
+            sampling.processRow(row(i));
+        }
+        assertThat(sampling.getSkippedCount(), is(90l));
+    }
+
+    @Test
+    public void rateLimited() {
+        LogSink limited = new LogSink("limited", 0, 0, 5);
+        for (int i = 0; i < 100; i++) {
+            limited.processRow(row(i));
+        }
+        assertTrue(limited.getSkippedCount() >= 90);
+    }
+
+    @Test
+    public void format() {
+        Row row = new Row();
+        row.addColumn(0, "a", "duke");
+        row.addColumn(1, "b", 42);
+        assertThat(LogSink.format(row), is("duke,42"));
+    }
+
+    static Row row(int i) {
+        Row row = new Row();
+        row.addColumn(0, "id", i);
+        return row;
+    }
+
 }
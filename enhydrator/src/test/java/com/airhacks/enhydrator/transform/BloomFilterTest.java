@@ -0,0 +1,75 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class BloomFilterTest {
+
+    @Test
+    public void sized() {
+        BloomFilter cut = BloomFilter.sized(1_000, 0.01, 1024 * 1024);
+        //~9.6 bits and 7 hashes per key
+        assertThat(cut.getNumberOfBits(), is(9600L));
+        assertThat(cut.getHashes(), is(7));
+        assertThat(cut.getMemoryUsed(), is(1200L));
+    }
+
+    @Test
+    public void sizeLimitedByBudget() {
+        BloomFilter cut = BloomFilter.sized(1_000_000, 0.01, 4096);
+        assertThat(cut.getNumberOfBits(), is(4096L * 8));
+        assertThat(cut.getHashes(), is(1));
+    }
+
+    @Test
+    public void noFalseNegatives() {
+        BloomFilter cut = BloomFilter.sized(1_000, 0.01, 1024 * 1024);
+        for (long i = 0; i < 1_000; i++) {
+            cut.add(hash(i), hash(~i) | 1);
+        }
+        for (long i = 0; i < 1_000; i++) {
+            assertFalse(cut.add(hash(i), hash(~i) | 1));
+        }
+        assertTrue(cut.getFalsePositiveProbability() < 0.02);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noBits() {
+        new BloomFilter(0, 1);
+    }
+
+    static long hash(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (i * 8));
+        }
+        return RowHasher.murmur64(bytes, 8, RowHasher.SEED);
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import org.junit.After;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ChangeDetectorTest {
+
+    Path directory;
+    Path index;
+
+    @Before
+    public void init() throws IOException {
+        this.directory = Files.createTempDirectory("enhydrator");
+        this.index = this.directory.resolve("cars.index");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    @Test
+    public void firstRunInsertsAll() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        List<Row> passed = run(cut, car(1, "ford"), car(2, "opel"), car(3, "vw"));
+        assertThat(passed.size(), is(3));
+        assertThat(cut.getInserted(), is(3L));
+        assertTrue(rows(cut.deletes().query()).isEmpty());
+        cut.commit();
+        assertTrue(Files.exists(this.index));
+        assertFalse(Files.exists(ChangeDetector.next(this.index)));
+    }
+
+    @Test
+    public void secondRunPassesChanges() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        run(cut, car(1, "ford"), car(2, "opel"), car(3, "vw"));
+        cut.commit();
+
+        List<Row> passed = run(cut, car(1, "ford"), car(2, "fiat"), car(4, "bmw"));
+        assertThat(passed.size(), is(2));
+        assertThat(passed.get(0).getColumnValue("brand"), is("fiat"));
+        assertThat(passed.get(1).getColumnValue("brand"), is("bmw"));
+        assertThat(cut.getInserted(), is(1L));
+        assertThat(cut.getUpdated(), is(1L));
+        assertThat(cut.getUnchanged(), is(1L));
+
+        List<Row> deleted = rows(cut.deletes().query());
+        assertThat(deleted.size(), is(1));
+        assertThat(deleted.get(0).getColumnValue("id"), is(3));
+        assertThat(deleted.get(0).getColumnValue("brand"), nullValue());
+        assertThat(cut.getDeleted(), is(1L));
+        cut.commit();
+        assertFalse(Files.exists(ChangeDetector.keys(this.index, 0)));
+        assertTrue(Files.exists(ChangeDetector.keys(this.index, 1)));
+
+        run(cut, car(1, "ford"), car(2, "fiat"), car(4, "bmw"));
+        assertThat(cut.getUnchanged(), is(3L));
+        assertTrue(rows(cut.deletes().query()).isEmpty());
+        cut.commit();
+    }
+
+    @Test
+    public void withoutCommitComparesWithSameRun() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        run(cut, car(1, "ford"), car(2, "opel"));
+        cut.commit();
+
+        run(cut, car(1, "fiat"));
+        ChangeDetector restarted = new ChangeDetector(this.index.toString(), "id");
+        List<Row> passed = run(restarted, car(1, "fiat"), car(2, "opel"));
+        assertThat(passed.size(), is(1));
+        assertThat(restarted.getUpdated(), is(1L));
+        assertThat(restarted.getUnchanged(), is(1L));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        Row[] cars = new Row[DigestIndex.MIN_CAPACITY * 2];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = car(i, "brand" + i);
+        }
+        assertThat(run(cut, cars).size(), is(cars.length));
+        cut.commit();
+        assertTrue(run(cut, cars).isEmpty());
+        assertThat(cut.getUnchanged(), is((long) cars.length));
+        cut.commit();
+    }
+
+    @Test
+    public void nullKey() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        Row withoutId = new Row().addNullColumn(0, "id").addColumn(1, "brand", "ford");
+        assertThat(run(cut, withoutId, car(1, "opel")).size(), is(2));
+        cut.commit();
+
+        run(cut, car(1, "opel"));
+        List<Row> deleted = rows(cut.deletes().query());
+        assertThat(deleted.size(), is(1));
+        assertThat(deleted.get(0).getColumnValue("id"), nullValue());
+        assertTrue(deleted.get(0).getColumnNames().contains("id"));
+        cut.commit();
+    }
+
+    @Test
+    public void nullPassesThrough() {
+        assertThat(new ChangeDetector(this.index.toString(), "id").execute(null), nullValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deletesAfterCommit() {
+        ChangeDetector cut = new ChangeDetector(this.index.toString(), "id");
+        run(cut, car(1, "ford"));
+        cut.commit();
+        cut.deletes().query();
+    }
+
+    static List<Row> run(ChangeDetector cut, Row... rows) {
+        return Arrays.stream(rows).
+                map(cut::execute).
+                filter(r -> r != null).
+                collect(Collectors.toList());
+    }
+
+    static List<Row> rows(Iterable<Row> rows) {
+        List<Row> list = new ArrayList<>();
+        rows.forEach(list::add);
+        return list;
+    }
+
+    static Row car(int id, String brand) {
+        Row row = new Row();
+        row.addColumn(0, "id", id);
+        row.addColumn(1, "brand", brand);
+        return row;
+    }
+
+}
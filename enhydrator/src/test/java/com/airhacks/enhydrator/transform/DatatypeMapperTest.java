@@ -21,6 +21,11 @@ package com.airhacks.enhydrator.transform;
  */
 
 import com.airhacks.enhydrator.in.Row;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -54,6 +59,38 @@ public class DatatypeMapperTest {
         assertTrue(output.getColumnByIndex(0).getValue() instanceof Integer);
     }
 
+    @Test
+    public void longAndDecimalMapping() {
+        Row input = getRow();
+        input.addColumn(1, "price", "19.90");
+        this.cut.addMapping(0, Datatype.LONG).addMapping(1, Datatype.DECIMAL);
+        Row output = this.cut.execute(input);
+        assertThat(output.getColumnValue("name"), is(42L));
+        assertThat(output.getColumnValue("price"), is(new BigDecimal("19.90")));
+    }
+
+    @Test
+    public void patternMapping() {
+        DatatypeNameMapper mapper = new DatatypeNameMapper().
+                addMapping("day", Datatype.DATE, "dd.MM.yyyy").
+                addMapping("at", Datatype.TIMESTAMP);
+        Row input = new Row().
+                addColumn(0, "day", "31.01.2014").
+                addColumn(1, "at", "2014-01-31T10:15");
+        Row output = mapper.execute(input);
+        assertThat(output.getColumnValue("day"), is(LocalDate.of(2014, 1, 31)));
+        assertThat(output.getColumnValue("at"), is(LocalDateTime.of(2014, 1, 31, 10, 15)));
+        Row next = mapper.execute(new Row().addColumn(0, "day", "01.02.2014"));
+        assertThat(next.getColumnValue("day"), is(LocalDate.of(2014, 2, 1)));
+    }
+
+    @Test
+    public void patternsAreConfiguration() {
+        DatatypeIndexMapper withPattern = new DatatypeIndexMapper().addMapping(0, Datatype.DATE, "dd.MM.yyyy");
+        assertThat(withPattern.equals(new DatatypeIndexMapper().addMapping(0, Datatype.DATE)), is(false));
+        assertThat(withPattern, is(new DatatypeIndexMapper().addMapping(0, Datatype.DATE, "dd.MM.yyyy")));
+    }
+
     Row getRow() {
         Row row = new Row();
         return row.addColumn(0, "name", "42");
@@ -0,0 +1,104 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class DateTimeParserTest {
+
+    @Test
+    public void isoDate() {
+        for (String valid : new String[]{"2014-01-31", "2016-02-29", "0001-12-01"}) {
+            assertThat(valid, DateTimeParser.isoDate(valid), is(LocalDate.parse(valid)));
+        }
+        for (String invalid : new String[]{"2015-02-29", "2014-13-01", "2014-1-01", "2014/01/01", "2014-01-3x"}) {
+            assertThat(invalid, DateTimeParser.isoDate(invalid), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void isoTime() {
+        for (String valid : new String[]{"00:00", "23:59:59", "10:15:30.1", "10:15:30.123456789"}) {
+            assertThat(valid, DateTimeParser.isoTime(valid), is(LocalTime.parse(valid)));
+        }
+        for (String invalid : new String[]{"24:00", "10:60", "10:15:", "10:15:30.", "10:15:30.1234567890", "1:15"}) {
+            assertThat(invalid, DateTimeParser.isoTime(invalid), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void isoTimestamp() {
+        assertThat(DateTimeParser.isoTimestamp("2014-01-31T10:15:30.25"), is(LocalDateTime.parse("2014-01-31T10:15:30.25")));
+        assertThat(DateTimeParser.isoTimestamp("2014-01-31 10:15"), is(LocalDateTime.of(2014, 1, 31, 10, 15)));
+        assertThat(DateTimeParser.isoTimestamp("2014-01-31"), is(nullValue()));
+        assertThat(DateTimeParser.isoTimestamp("2014-02-30T10:15"), is(nullValue()));
+    }
+
+    @Test
+    public void fixedWidthPattern() {
+        DateTimeParser cut = new DateTimeParser(Datatype.TIMESTAMP, "dd.MM.yyyy HH:mm:ss.SSS");
+        assertThat(cut.withPattern("31.01.2014 10:15:30.250"), is(LocalDateTime.of(2014, 1, 31, 10, 15, 30, 250_000_000)));
+        assertThat(cut.withPattern("31-01-2014 10:15:30.250"), is(nullValue()));
+        assertThat(cut.withPattern("30.02.2014 10:15:30.250"), is(nullValue()));
+    }
+
+    @Test
+    public void unsupportedPatternsUseTheFormatter() {
+        assertThat(DateTimeParser.compile("d MMM yyyy", Datatype.DATE), is(nullValue()));
+        DateTimeParser cut = new DateTimeParser(Datatype.DATE, "d/M/yyyy");
+        assertThat(cut.parse("1/2/2014"), is(LocalDate.of(2014, 2, 1)));
+    }
+
+    @Test
+    public void isoParser() {
+        DateTimeParser cut = new DateTimeParser(Datatype.TIME);
+        assertThat(cut.parse("10:15:30"), is(LocalTime.of(10, 15, 30)));
+    }
+
+    @Test
+    public void repeatedValuesAreCached() {
+        DateTimeParser cut = new DateTimeParser(Datatype.DATE);
+        Object first = cut.parse("2014-01-31");
+        assertThat(cut.parse(new String("2014-01-31")), is(sameInstance(first)));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void invalidValue() {
+        new DateTimeParser(Datatype.DATE).parse("2015-02-29");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notTemporal() {
+        new DateTimeParser(Datatype.INTEGER);
+    }
+
+}
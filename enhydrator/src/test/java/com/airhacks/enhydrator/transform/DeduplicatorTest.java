@@ -0,0 +1,137 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class DeduplicatorTest {
+
+    @Test
+    public void exactDropsDuplicateKeys() {
+        Deduplicator cut = new Deduplicator("id");
+        List<Row> passed = run(cut, car(1, "ford"), car(2, "opel"), car(1, "fiat"), car(2, "opel"), car(3, "vw"));
+        assertThat(passed.size(), is(3));
+        assertThat(passed.get(0).getColumnValue("brand"), is("ford"));
+        assertThat(cut.getDistinct(), is(3L));
+        assertThat(cut.getDuplicates(), is(2L));
+        assertThat(cut.getFalsePositiveProbability(), is(0d));
+        assertTrue(cut.getMemoryUsed() > 0);
+    }
+
+    @Test
+    public void compositeKey() {
+        Deduplicator cut = new Deduplicator("id", "brand");
+        List<Row> passed = run(cut, car(1, "ford"), car(1, "opel"), car(1, "ford"));
+        assertThat(passed.size(), is(2));
+        assertThat(cut.getDuplicates(), is(1L));
+    }
+
+    @Test
+    public void exactKeepsManyKeys() {
+        Deduplicator cut = new Deduplicator("id");
+        Row[] cars = IntStream.range(0, 10_000).mapToObj(i -> car(i % 5_000, "brand")).toArray(Row[]::new);
+        assertThat(run(cut, cars).size(), is(5_000));
+        assertThat(cut.getDuplicates(), is(5_000L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exactExceedsMemoryBudget() {
+        Deduplicator cut = new Deduplicator(Deduplicator.Mode.EXACT, 128 * 1024, "id");
+        run(cut, IntStream.range(0, 100_000).mapToObj(i -> car(i, "brand")).toArray(Row[]::new));
+    }
+
+    @Test
+    public void approximateDropsDuplicateKeys() {
+        Deduplicator cut = new Deduplicator(Deduplicator.Mode.APPROXIMATE, 1024 * 1024, "id").
+                expecting(10_000, 0.001);
+        Row[] cars = IntStream.range(0, 20_000).mapToObj(i -> car(i % 10_000, "brand")).toArray(Row[]::new);
+        List<Row> passed = run(cut, cars);
+        assertThat(cut.getDistinct() + cut.getDuplicates(), is(20_000L));
+        assertTrue(passed.size() > 9_950);
+        assertTrue(passed.size() <= 10_000);
+        assertTrue(cut.getFalsePositiveProbability() < 0.01);
+        assertTrue(cut.getMemoryUsed() <= 1024 * 1024);
+    }
+
+    @Test
+    public void approximateLimitedByMemoryBudget() {
+        Deduplicator cut = new Deduplicator(Deduplicator.Mode.APPROXIMATE, 1024, "id").
+                expecting(1_000_000, 0.01);
+        run(cut, car(1, "ford"));
+        assertThat(cut.getMemoryUsed(), is(1024L));
+    }
+
+    @Test
+    public void reset() {
+        Deduplicator cut = new Deduplicator("id");
+        run(cut, car(1, "ford"), car(1, "ford"));
+        cut.reset();
+        assertThat(cut.getDuplicates(), is(0L));
+        assertThat(cut.getMemoryUsed(), is(0L));
+        assertThat(run(cut, car(1, "ford")).size(), is(1));
+    }
+
+    @Test
+    public void unmarshalledWithDefaults() throws JAXBException {
+        String xml = "<deduplicator><keyColumns>id</keyColumns></deduplicator>";
+        Unmarshaller unmarshaller = JAXBContext.newInstance(Deduplicator.class).createUnmarshaller();
+        Deduplicator cut = (Deduplicator) unmarshaller.unmarshal(new StringReader(xml));
+        assertThat(cut, is(new Deduplicator("id")));
+        assertThat(run(cut, car(1, "ford"), car(1, "opel")).size(), is(1));
+        assertThat(cut.getDuplicates(), is(1L));
+    }
+
+    @Test
+    public void nullPassesThrough() {
+        assertThat(new Deduplicator("id").execute(null), nullValue());
+    }
+
+    static List<Row> run(Deduplicator cut, Row... rows) {
+        return Stream.of(rows).
+                map(cut::execute).
+                filter(r -> r != null).
+                collect(Collectors.toList());
+    }
+
+    static Row car(int id, String brand) {
+        Row row = new Row();
+        row.addColumn(0, "id", id);
+        row.addColumn(1, "brand", brand);
+        return row;
+    }
+
+}
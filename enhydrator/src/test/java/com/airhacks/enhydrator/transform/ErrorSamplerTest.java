@@ -0,0 +1,110 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.util.Map;
+import java.util.Set;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ErrorSamplerTest {
+
+    @Test
+    public void firstRowsAreRetained() {
+        ErrorSampler cut = new ErrorSampler(ErrorSampler.Policy.FIRST, 2);
+        Row first = new Row();
+        Row second = new Row();
+        Row third = new Row();
+        cut.add(first, new IllegalStateException("1"));
+        cut.add(second, new IllegalStateException("2"));
+        cut.add(third, new IllegalStateException("3"));
+        Set<Row> rows = cut.getRows();
+        assertThat(rows.size(), is(2));
+        assertTrue(rows.contains(first));
+        assertTrue(rows.contains(second));
+        assertFalse(rows.contains(third));
+        assertThat(cut.getErrors().size(), is(2));
+        assertThat(cut.getCount(), is(3l));
+    }
+
+    @Test
+    public void reservoirIsBounded() {
+        ErrorSampler cut = new ErrorSampler(ErrorSampler.Policy.RESERVOIR, 10);
+        for (int i = 0; i < 10_000; i++) {
+            cut.add(new Row(), new NumberFormatException("For input string: \"" + i + "\""));
+        }
+        assertThat(cut.getRows().size(), is(10));
+        assertThat(cut.getCount(), is(10_000l));
+        Map<String, Long> fingerprints = cut.getCountsByFingerprint();
+        assertThat(fingerprints.size(), is(1));
+        assertThat(fingerprints.get("java.lang.NumberFormatException: For input string: \"#\""), is(10_000l));
+        assertThat(cut.getCountsByType().get(NumberFormatException.class.getName()), is(10_000l));
+    }
+
+    @Test
+    public void zeroLimitOnlyCounts() {
+        ErrorSampler cut = new ErrorSampler(ErrorSampler.Policy.RESERVOIR, 0);
+        cut.add(new Row(), new IllegalStateException("1"));
+        cut.add(new Row(), new IllegalStateException("2"));
+        assertTrue(cut.getRows().isEmpty());
+        assertThat(cut.getCount(), is(2l));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimit() {
+        new ErrorSampler(ErrorSampler.Policy.FIRST, -1);
+    }
+
+    @Test
+    public void fingerprintsAreBounded() {
+        ErrorSampler cut = new ErrorSampler(ErrorSampler.Policy.FIRST, 0);
+        for (int i = 0; i < ErrorSampler.MAX_FINGERPRINTS + 10; i++) {
+            cut.add(new Row(), new IllegalStateException(letters(i)));
+        }
+        Map<String, Long> fingerprints = cut.getCountsByFingerprint();
+        assertTrue(fingerprints.size() <= ErrorSampler.MAX_FINGERPRINTS + 1);
+        assertTrue(fingerprints.containsKey(ErrorSampler.OTHER_FINGERPRINTS));
+        assertTrue(cut.getRows().isEmpty());
+    }
+
+    static String letters(int number) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + number % 26));
+            number /= 26;
+        } while (number > 0);
+        return letters.toString();
+    }
+
+    @Test
+    public void fingerprintWithoutMessage() {
+        String fingerprint = ErrorSampler.fingerprint(new NullPointerException());
+        assertThat(fingerprint, is("java.lang.NullPointerException"));
+    }
+
+}
@@ -19,8 +19,11 @@ package com.airhacks.enhydrator.transform;
  * limitations under the License.
  * #L%
  */
+import com.airhacks.enhydrator.in.ConversionException;
 import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
@@ -50,4 +53,48 @@ public class MemoryTest {
         assertTrue(erroneousRows.contains(row));
     }
 
+    @Test
+    public void conversionErrorsOfParsedRows() {
+        Memory memory = new Memory();
+        List<Row> spilled = new ArrayList<>();
+        memory.spillErrorsTo(spilled::add);
+        Row row = new Row();
+        row.conversionFailed(new ConversionException("a", Datatype.INTEGER, "x"));
+        row.conversionFailed(new ConversionException("b", Datatype.DATE, "y"));
+        row.useMemory(memory);
+        row.useMemory(memory);
+        assertThat(memory.getProcessingErrorCount(), is(2l));
+        assertThat(memory.getErroneousRowCount(), is(1l));
+        assertTrue(spilled.isEmpty());
+        assertTrue(row.getConversionErrors().isEmpty());
+    }
+
+    @Test
+    public void boundedErrorsWithSpill() {
+        Memory memory = new Memory();
+        memory.retainErrors(ErrorSampler.Policy.FIRST, 5);
+        List<Row> spilled = new ArrayList<>();
+        memory.spillErrorsTo(spilled::add);
+        for (int i = 0; i < 100; i++) {
+            memory.addProcessingError(new Row(), new IllegalArgumentException("row " + i));
+        }
+        assertThat(memory.getErroneousRows().size(), is(5));
+        assertThat(memory.getProcessingErrors().size(), is(5));
+        assertThat(memory.getProcessingErrorCount(), is(100l));
+        assertThat(memory.getErroneousRowCount(), is(100l));
+        assertThat(spilled.size(), is(100));
+        assertThat(memory.getErrorCountsByType().get(IllegalArgumentException.class.getName()), is(100l));
+    }
+
+    @Test
+    public void spillFailuresAreCounted() {
+        Memory memory = new Memory();
+        memory.spillErrorsTo(r -> {
+            throw new IllegalStateException("dlq down");
+        });
+        memory.addProcessingError(new Row(), new Exception("test"));
+        assertTrue(memory.areErrorsOccured());
+        assertThat(memory.getSpillFailureCount(), is(1l));
+    }
+
 }
@@ -0,0 +1,81 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class OffHeapKeySetTest {
+
+    @Test
+    public void collidingHashesAreVerified() {
+        OffHeapKeySet cut = new OffHeapKeySet(1024 * 1024);
+        byte[] duke = bytes("duke");
+        byte[] java = bytes("java");
+        assertTrue(cut.add(42, duke, duke.length));
+        assertTrue(cut.add(42, java, java.length));
+        assertFalse(cut.add(42, duke, duke.length));
+        assertFalse(cut.add(42, java, java.length));
+        assertTrue(cut.add(42, duke, 2));
+        assertThat(cut.getSize(), is(3));
+    }
+
+    @Test
+    public void zeroHash() {
+        OffHeapKeySet cut = new OffHeapKeySet(1024 * 1024);
+        byte[] duke = bytes("duke");
+        assertTrue(cut.add(0, duke, duke.length));
+        assertFalse(cut.add(0, duke, duke.length));
+    }
+
+    @Test
+    public void grows() {
+        OffHeapKeySet cut = new OffHeapKeySet(16 * 1024 * 1024);
+        int keys = OffHeapKeySet.INITIAL_SLOTS * 4;
+        for (int i = 0; i < keys; i++) {
+            byte[] key = bytes("key" + i);
+            assertTrue(cut.add(i * 31L, key, key.length));
+        }
+        for (int i = 0; i < keys; i++) {
+            byte[] key = bytes("key" + i);
+            assertFalse(cut.add(i * 31L, key, key.length));
+        }
+        assertThat(cut.getSize(), is(keys));
+        assertTrue(cut.getCapacity() > keys);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void budgetTooSmall() {
+        new OffHeapKeySet(1024);
+    }
+
+    static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
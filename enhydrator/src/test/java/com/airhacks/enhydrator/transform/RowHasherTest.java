@@ -0,0 +1,103 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class RowHasherTest {
+
+    RowHasher cut;
+
+    @Before
+    public void init() {
+        this.cut = new RowHasher();
+    }
+
+    @Test
+    public void keyIgnoresOtherColumns() {
+        Row first = car(1, "ford", 1997);
+        Row second = car(1, "chevy", 2000);
+        long expected = this.cut.hashKey(first, Arrays.asList("id"));
+        assertThat(this.cut.hashKey(second, Arrays.asList("id")), is(expected));
+        assertThat(this.cut.hashKey(car(2, "ford", 1997), Arrays.asList("id")), is(not(expected)));
+    }
+
+    @Test
+    public void compositeKeyOrderMatters() {
+        Row row = car(1, "ford", 1997);
+        long expected = this.cut.hashKey(row, Arrays.asList("id", "brand"));
+        assertThat(this.cut.hashKey(row, Arrays.asList("brand", "id")), is(not(expected)));
+    }
+
+    @Test
+    public void encodedKey() {
+        Row row = car(1, "ford", 1997);
+        this.cut.hashKey(row, Arrays.asList("brand"));
+        int length = this.cut.getEncodedLength();
+        byte[] encoded = Arrays.copyOf(this.cut.getEncoded(), length);
+        this.cut.hashKey(car(2, "ford", 2000), Arrays.asList("brand"));
+        assertThat(Arrays.copyOf(this.cut.getEncoded(), this.cut.getEncodedLength()), is(encoded));
+    }
+
+    @Test
+    public void contents() {
+        long expected = this.cut.hashContents(car(1, "ford", 1997));
+        assertThat(this.cut.hashContents(car(1, "ford", 1997)), is(expected));
+        assertThat(this.cut.hashContents(car(1, "ford", 1998)), is(not(expected)));
+        assertThat(this.cut.hashContents(car(1, "ford", 1997L)), is(not(expected)));
+        assertThat(this.cut.hashContents(car(1, "ford", null)), is(not(expected)));
+    }
+
+    @Test
+    public void murmurTail() {
+        byte[] data = "enhydrator".getBytes(StandardCharsets.UTF_8);
+        assertThat(RowHasher.murmur64(new byte[0], 0, 0), is(0L));
+        long previous = RowHasher.murmur64(data, 0, RowHasher.SEED);
+        for (int length = 1; length <= data.length; length++) {
+            long hash = RowHasher.murmur64(data, length, RowHasher.SEED);
+            assertThat(hash, is(not(previous)));
+            assertThat(RowHasher.murmur64(Arrays.copyOf(data, length), length, RowHasher.SEED), is(hash));
+            previous = hash;
+        }
+    }
+
+    static Row car(int id, String brand, Object year) {
+        Row row = new Row();
+        row.addColumn(0, "id", id);
+        row.addColumn(1, "brand", brand);
+        if (year == null) {
+            return row.addNullColumn(2, "year");
+        }
+        row.addColumn(2, "year", year);
+        return row;
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.Row;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class RowPlanTest {
+
+    @Test
+    public void consecutiveTransformationsAreFused() {
+        List<Object> origins = Arrays.asList(
+                new NameMapper(),
+                new IndexMapper(),
+                (RowTransformer) r -> r,
+                new DatatypeIndexMapper(),
+                new DestinationMapper());
+        List<Function<Row, Row>> fused = RowPlan.fuse(functions(origins), origins);
+        assertThat(fused.size(), is(3));
+        assertThat(fused.get(0), instanceOf(RowPlan.class));
+        assertThat(((RowPlan) fused.get(0)).getTransformations().size(), is(2));
+        assertThat(fused.get(2), instanceOf(RowPlan.class));
+    }
+
+    @Test
+    public void renameReorderConvertAndRoute() {
+        assertSameResult(() -> {
+            NameMapper names = new NameMapper();
+            names.mappings.put("b", "beta");
+            IndexMapper indices = new IndexMapper();
+            indices.orderedNames.addAll(Arrays.asList("c", "b", "missing", "b", "a"));
+            return Arrays.asList(names, indices,
+                    new DatatypeIndexMapper().addMapping(0, Datatype.INTEGER).addMapping(2, Datatype.INTEGER).addMapping(3, Datatype.LONG),
+                    new DestinationMapper().addMapping(1, new TargetMapping("other", "table")),
+                    new DatatypeNameMapper().addMapping("a", Datatype.DOUBLE));
+        });
+    }
+
+    @Test
+    public void copiesBeforeAndAfterReordering() {
+        assertSameResult(() -> {
+            ColumnCopier copier = new ColumnCopier();
+            copier.addMapping("a", "a1", "a2");
+            IndexMapper indices = new IndexMapper();
+            indices.orderedNames.addAll(Arrays.asList("a2", "c"));
+            ColumnCopier late = new ColumnCopier();
+            late.addMapping("c", "c1");
+            return Arrays.asList(
+                    new DestinationMapper().addMapping(0, new TargetMapping("copied", null)),
+                    copier, indices, late,
+                    new DatatypeIndexMapper().addMapping(0, Datatype.INTEGER).addMapping(-1, Datatype.INTEGER));
+        });
+    }
+
+    @Test
+    public void indexLookupsAfterReorderingUseTheNewPositions() {
+        IndexMapper indices = new IndexMapper();
+        indices.orderedNames.addAll(Arrays.asList("c", "a"));
+        List<Object> origins = Arrays.asList(indices, new DatatypeIndexMapper().addMapping(1, Datatype.INTEGER));
+        Row row = RowPlan.fuse(functions(origins), origins).get(0).apply(row());
+        assertThat(row.getColumnValue("a"), is(1));
+        assertThat(row.getColumnByIndex(0).getName(), is("c"));
+        assertThat(row.getColumnByName("b").getIndex(), is(-1));
+    }
+
+    @Test
+    public void nullRows() {
+        assertThat(new RowPlan().apply(null), is(nullValue()));
+    }
+
+    /**
+     * The fused plan is applied to rows of several schemas, alternating, so
+     * compiled schemas are reused
+     */
+    void assertSameResult(Supplier<List<Object>> transformations) {
+        List<Object> origins = transformations.get();
+        List<Function<Row, Row>> fused = RowPlan.fuse(functions(origins), origins);
+        for (int round = 0; round < 2; round++) {
+            for (Supplier<Row> input : Arrays.<Supplier<Row>>asList(RowPlanTest::row, RowPlanTest::withoutB,
+                    RowPlanTest::withExtraColumn, RowPlanTest::withDuplicateIndex)) {
+                Row expected = input.get();
+                for (Function<Row, Row> function : functions(transformations.get())) {
+                    expected = function.apply(expected);
+                }
+                Row actual = input.get();
+                for (Function<Row, Row> function : fused) {
+                    actual = function.apply(actual);
+                }
+                assertSameColumns(actual, expected);
+            }
+        }
+    }
+
+    static void assertSameColumns(Row actual, Row expected) {
+        assertThat(actual.getColumnNames(), is(expected.getColumnNames()));
+        for (String name : expected.getColumnNames()) {
+            assertThat(name, actual.getColumnByName(name), is(expected.getColumnByName(name)));
+            assertThat(name, actual.getColumnByName(name).getName(), is(expected.getColumnByName(name).getName()));
+        }
+        for (int i = -1; i < 8; i++) {
+            assertThat("index " + i, actual.getColumnByIndex(i), is(expected.getColumnByIndex(i)));
+        }
+    }
+
+    @Test
+    public void repeatedMappingsOfOneColumn() {
+        assertSameResult(() -> {
+            NameMapper first = new NameMapper();
+            first.mappings.put("a", "alpha");
+            NameMapper second = new NameMapper();
+            second.mappings.put("a", "first");
+            second.mappings.put("alpha", "never");
+            IndexMapper indices = new IndexMapper();
+            indices.orderedNames.addAll(Arrays.asList("d", "a"));
+            IndexMapper again = new IndexMapper();
+            again.orderedNames.addAll(Arrays.asList("a", "b", "c"));
+            return Arrays.asList(first, second,
+                    new DatatypeNameMapper().addMapping("a", Datatype.DOUBLE),
+                    indices,
+                    new DestinationMapper().addMapping(1, new TargetMapping("first", null)),
+                    again,
+                    new DestinationMapper().addMapping(1, new TargetMapping("second", null)),
+                    new DatatypeIndexMapper().addMapping(2, Datatype.LONG));
+        });
+    }
+
+    @Test
+    public void manySchemas() {
+        List<Object> origins = Arrays.asList(
+                new DatatypeNameMapper().addMapping("a", Datatype.INTEGER),
+                new DestinationMapper().addMapping(1, new TargetMapping("other", null)));
+        Function<Row, Row> plan = RowPlan.fuse(functions(origins), origins).get(0);
+        for (int i = 0; i < RowPlan.MAX_SCHEMAS * 2; i++) {
+            Row row = row();
+            row.addColumn(4, "extra" + i, "x");
+            plan.apply(row);
+            assertThat(row.getColumnValue("a"), is(1));
+            assertThat(row.getColumnByIndex(1).getTargetSink(), is("other"));
+        }
+    }
+
+    static List<Function<Row, Row>> functions(List<Object> origins) {
+        List<Function<Row, Row>> functions = new ArrayList<>();
+        for (Object origin : origins) {
+            functions.add(((RowTransformer) origin)::execute);
+        }
+        return functions;
+    }
+
+    static Row withoutB() {
+        Row row = row();
+        row.removeColumn("b");
+        return row;
+    }
+
+    static Row withExtraColumn() {
+        Row row = row();
+        row.addColumn(4, "e", "5");
+        return row;
+    }
+
+    static Row withDuplicateIndex() {
+        Row row = row();
+        row.addColumn(1, "b2", "6");
+        row.addColumn(-1, "x", "7");
+        row.addColumn(-1, "y", "8");
+        return row;
+    }
+
+    static Row row() {
+        Row row = new Row();
+        row.addColumn(0, "a", "1");
+        row.addColumn(1, "b", "2");
+        row.addColumn(2, "c", "3");
+        row.addColumn(3, "d", "4");
+        return row;
+    }
+
+}
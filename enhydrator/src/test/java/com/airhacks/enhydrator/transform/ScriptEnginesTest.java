@@ -0,0 +1,73 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ScriptEnginesTest {
+
+    @After
+    public void disableCodeCache() {
+        System.clearProperty(ScriptEngines.CODE_CACHE);
+    }
+
+    @Test
+    public void nashorn() throws ScriptException {
+        ScriptEngine engine = ScriptEngines.nashorn(new ScriptEngineManager());
+        assertThat(engine.eval("1 + 1"), is(2));
+    }
+
+    @Test
+    public void persistentCodeCache() throws IOException, ScriptException {
+        Path cache = Files.createTempDirectory("enhydrator-code-cache");
+        System.setProperty(ScriptEngines.CODE_CACHE, cache.toString());
+        ScriptEngineManager manager = new ScriptEngineManager();
+        manager.put("duke", "java");
+        ScriptEngine engine = ScriptEngines.nashorn(manager);
+        assertNotNull(engine.getBindings(ScriptContext.GLOBAL_SCOPE));
+        assertThat(engine.eval("duke + ' rocks'"), is("java rocks"));
+    }
+
+    @Test
+    public void enginesAreCreatedOnce() {
+        FilterExpression filter = new FilterExpression();
+        Expression expression = new Expression();
+        FunctionScriptLoader loader = FunctionScriptLoader.create(".", null);
+        assertThat(filter.engine() != null, is(true));
+        assertThat(expression.engine() == expression.engine(), is(true));
+        assertThat(loader.engine() == loader.engine(), is(true));
+    }
+
+}
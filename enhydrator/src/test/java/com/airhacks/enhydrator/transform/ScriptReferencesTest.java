@@ -0,0 +1,72 @@
+package com.airhacks.enhydrator.transform;
+
+/*
+ * #%L
+ * enhydrator
+ * %%
+ * Copyright (C) 2014 Adam Bien
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.airhacks.enhydrator.in.ColumnProjection;
+import java.util.Arrays;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author airhacks.com
+ */
+public class ScriptReferencesTest {
+
+    @Test
+    public void boundColumnNames() {
+        ColumnProjection required = ScriptReferences.referencedColumns("rank > 10 && language === 'java'", ColumnProjection.NONE);
+        assertTrue(required.getNames().contains("rank"));
+        assertTrue(required.getNames().contains("language"));
+        assertTrue(required.getNames().contains("java"));
+        assertFalse(required.getNames().contains("description"));
+    }
+
+    @Test
+    public void literalRowAccess() {
+        ColumnProjection required = ScriptReferences.referencedColumns("$ROW.getColumnValue(\"a b\") !== null", ColumnProjection.NONE);
+        assertTrue(required.getNames().contains("a b"));
+        assertFalse(required.isIndexSensitive());
+    }
+
+    @Test
+    public void indexedRowAccess() {
+        ColumnProjection required = ScriptReferences.referencedColumns("$ROW.getColumnByIndex(3).getValue()", ColumnProjection.NONE);
+        assertThat(required.getIndices().contains(3), is(true));
+        assertTrue(required.isIndexSensitive());
+    }
+
+    @Test
+    public void dynamicRowAccess() {
+        assertThat(ScriptReferences.referencedColumns("$ROW.getColumns().size() > 2", ColumnProjection.NONE), nullValue());
+        assertThat(ScriptReferences.referencedColumns("$ROW.getColumnValue(name)", ColumnProjection.NONE), nullValue());
+    }
+
+    @Test
+    public void dynamicAccessInAnyScript() {
+        ColumnProjection required = ScriptReferences.referencedColumns(Arrays.asList("a > 1", "$ROW.getColumns()"), ColumnProjection.NONE);
+        assertThat(required, nullValue());
+    }
+
+}